@@ -0,0 +1,80 @@
+#!/bin/bash
+# Compare SDI sidecar request handling on platform threads vs virtual threads
+#
+# Runs the sidecar image once per mode and drives /api/sdi/analyze with
+# concurrent clients. Virtual threads need the Java 21 runtime image.
+#
+# Usage: scripts/virtual-threads-benchmark.sh [requests] [concurrency]
+
+set -e
+
+IMAGE="sdi-sidecar:1.0.0"
+CONTAINER_NAME="sdi-vt-benchmark"
+REQUESTS=${1:-5000}
+CONCURRENCY=${2:-200}
+RESULTS_FILE="virtual-threads-results-$(date +%Y%m%d_%H%M%S).txt"
+
+echo "SDI Virtual Thread Benchmark" > $RESULTS_FILE
+echo "Date: $(date)" >> $RESULTS_FILE
+echo "Requests: $REQUESTS, concurrency: $CONCURRENCY" >> $RESULTS_FILE
+echo "========================================" >> $RESULTS_FILE
+echo "" >> $RESULTS_FILE
+
+request() {
+    curl -s -o /dev/null -w "%{time_total}\n" -X POST http://localhost:8080/api/sdi/analyze \
+      -H "Content-Type: application/json" \
+      -d "{\"method\":\"GET\",\"path\":\"/bench$1\",\"headers\":{},\"body\":null}"
+}
+export -f request
+
+run_mode() {
+    local mode=$1
+    local virtual=$2
+
+    docker run -d --name $CONTAINER_NAME -p 8080:8080 \
+      -e SDI_VIRTUAL_THREADS=$virtual \
+      -e SDI_HONEYPOT_ENABLED=false \
+      -e SDI_KAFKA_ENABLED=false \
+      -e SDI_DEPLOYMENT_ENABLED=false \
+      $IMAGE > /dev/null
+
+    echo "Waiting for sidecar ($mode)..."
+    for i in {1..60}; do
+        if curl -s -o /dev/null http://localhost:8080/actuator/health; then
+            break
+        fi
+        sleep 1
+    done
+
+    echo "Warming up ($mode)..."
+    seq 1 500 | xargs -P $CONCURRENCY -I{} bash -c 'request {}' > /dev/null
+
+    echo "Measuring ($mode)..."
+    local start=$(date +%s%N)
+    seq 1 $REQUESTS | xargs -P $CONCURRENCY -I{} bash -c 'request {}' | sort -n > latencies-$mode.txt
+    local end=$(date +%s%N)
+
+    local duration=$((($end - $start) / 1000000))
+    local count=$(wc -l < latencies-$mode.txt)
+    local throughput=$(echo "scale=2; $count * 1000 / $duration" | bc)
+    local p50=$(awk -v n=$count 'NR == int(n * 0.50) + 1 { printf "%.1f", $1 * 1000 }' latencies-$mode.txt)
+    local p99=$(awk -v n=$count 'NR == int(n * 0.99) + 1 { printf "%.1f", $1 * 1000 }' latencies-$mode.txt)
+    local memory=$(docker stats $CONTAINER_NAME --no-stream --format "{{.MemUsage}}" | awk '{print $1}')
+
+    echo "Mode: $mode" >> $RESULTS_FILE
+    echo "- Throughput: ${throughput} req/s" >> $RESULTS_FILE
+    echo "- P50: ${p50}ms" >> $RESULTS_FILE
+    echo "- P99: ${p99}ms" >> $RESULTS_FILE
+    echo "- Memory Usage: $memory" >> $RESULTS_FILE
+    echo "" >> $RESULTS_FILE
+
+    docker stop $CONTAINER_NAME > /dev/null 2>&1
+    docker rm $CONTAINER_NAME > /dev/null 2>&1
+    rm -f latencies-$mode.txt
+}
+
+run_mode platform false
+run_mode virtual true
+
+echo "Results saved to: $RESULTS_FILE"
+cat $RESULTS_FILE
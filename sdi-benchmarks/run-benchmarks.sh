@@ -0,0 +1,54 @@
+#!/bin/bash
+# Run the SDI JMH benchmarks and compare them with a baseline recorded on this machine
+#
+#   ./run-benchmarks.sh baseline [jmh options]   # record baseline/results.json (not committed)
+#   ./run-benchmarks.sh compare  [jmh options]   # run, then report against the baseline
+#
+# Extra options go to JMH, e.g. a single benchmark: ./run-benchmarks.sh compare AnomalyDetectorBenchmark
+# Set FAIL_ON_REGRESSION=true to exit non-zero on a regression (CI gate).
+
+set -e
+
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+BLUE='\033[0;34m'
+NC='\033[0m'
+
+log_info() { echo -e "${BLUE}[INFO]${NC} $1"; }
+log_success() { echo -e "${GREEN}[✓]${NC} $1"; }
+log_error() { echo -e "${RED}[✗]${NC} $1"; }
+
+cd "$(dirname "$0")"
+
+MODE="${1:-compare}"
+shift || true
+THRESHOLD="${THRESHOLD:-10}"
+
+log_info "Installing sdi-core and building benchmarks..."
+(cd ../sdi-core && mvn -B -q install -DskipTests -Dgpg.skip -Dmaven.javadoc.skip -Dmaven.source.skip)
+mvn -B -q package
+
+case "$MODE" in
+    baseline)
+        mkdir -p baseline
+        java -jar target/benchmarks.jar -rf json -rff baseline/results.json "$@"
+        log_success "Baseline written to baseline/results.json"
+        ;;
+    compare)
+        if [ ! -f baseline/results.json ]; then
+            log_error "No baseline/results.json; run ./run-benchmarks.sh baseline first"
+            exit 1
+        fi
+        java -jar target/benchmarks.jar -rf json -rff target/current.json "$@"
+        REPORT_ARGS=(baseline/results.json target/current.json --threshold "$THRESHOLD")
+        if [ "${FAIL_ON_REGRESSION:-false}" = "true" ]; then
+            REPORT_ARGS+=(--fail-on-regression)
+        fi
+        java -cp target/benchmarks.jar com.sdi.benchmarks.BenchmarkReport "${REPORT_ARGS[@]}" \
+            | tee target/report.md
+        ;;
+    *)
+        log_error "Unknown mode $MODE (expected baseline or compare)"
+        exit 1
+        ;;
+esac
@@ -0,0 +1,70 @@
+package com.sdi.benchmarks;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request detection cost, the hot path of every analyzed request
+ *
+ * model: "untrained" is the detector's built-in default mixture, a number
+ * installs a model with that many components fitted to normal traffic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnomalyDetectorBenchmark {
+
+    static final int BATCH = 256;
+
+    @Param({"untrained", "3", "16"})
+    public String model;
+
+    private AnomalyDetector detector;
+    private RequestVector[] traffic;
+    private RequestVector attack;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Fixtures.silenceStdout();
+        detector = new AnomalyDetector();
+        if (!"untrained".equals(model)) {
+            detector.install(Fixtures.model(Integer.parseInt(model), 42L));
+        }
+        List<RequestVector> normal = Fixtures.normalTraffic(BATCH, 7L);
+        traffic = normal.toArray(new RequestVector[0]);
+        attack = Fixtures.attack();
+    }
+
+    @Benchmark
+    public AnomalyToken detect() {
+        RequestVector request = traffic[next];
+        next = (next + 1) % traffic.length;
+        return detector.detect(request);
+    }
+
+    @Benchmark
+    public AnomalyToken detectAttack() {
+        return detector.detect(attack);
+    }
+
+    /**
+     * Reported per request, so it compares directly with {@link #detect}
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void detectBatch(Blackhole blackhole) {
+        for (RequestVector request : traffic) {
+            blackhole.consume(detector.detect(request));
+        }
+    }
+}
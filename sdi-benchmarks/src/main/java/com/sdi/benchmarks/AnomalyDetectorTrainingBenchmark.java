@@ -0,0 +1,39 @@
+package com.sdi.benchmarks;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fitting the mixture to normal traffic, as on startup and on every retrain
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnomalyDetectorTrainingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int samples;
+
+    private AnomalyDetector detector;
+    private List<RequestVector> traffic;
+
+    @Setup
+    public void setUp() {
+        Fixtures.silenceStdout();
+        detector = new AnomalyDetector();
+        traffic = Fixtures.normalTraffic(samples, 11L);
+    }
+
+    @Benchmark
+    public AnomalyDetector train() {
+        detector.train(traffic);
+        return detector;
+    }
+}
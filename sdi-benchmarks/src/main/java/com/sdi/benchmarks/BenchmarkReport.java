@@ -0,0 +1,163 @@
+package com.sdi.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and prints a markdown table
+ *
+ * Usage: BenchmarkReport baseline.json current.json [--threshold percent] [--fail-on-regression]
+ *
+ * A benchmark counts as regressed (or improved) when its score moved by
+ * more than the threshold (default 10%) in the bad (good) direction and the
+ * two error intervals do not overlap, so noise within the reported error
+ * is not flagged. Time-per-operation units are better when lower,
+ * throughput units when higher. With --fail-on-regression the exit status
+ * is 1 if any benchmark regressed, for use as a CI gate.
+ */
+public final class BenchmarkReport {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private BenchmarkReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        double threshold = DEFAULT_THRESHOLD_PERCENT;
+        boolean failOnRegression = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                case "--fail-on-regression":
+                    failOnRegression = true;
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+        if (files.size() != 2) {
+            System.err.println("Usage: BenchmarkReport baseline.json current.json "
+                               + "[--threshold percent] [--fail-on-regression]");
+            System.exit(2);
+        }
+
+        Map<String, Result> baseline = read(new File(files.get(0)));
+        Map<String, Result> current = read(new File(files.get(1)));
+        int regressions = print(baseline, current, threshold);
+        if (failOnRegression && regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print the comparison table
+     *
+     * @return Number of regressed benchmarks
+     */
+    static int print(Map<String, Result> baseline, Map<String, Result> current, double thresholdPercent) {
+        System.out.println("| Benchmark | Unit | Baseline | Current | Change | |");
+        System.out.println("|---|---|---:|---:|---:|---|");
+        int regressions = 0;
+        int improvements = 0;
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result now = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("| %s | %s | - | %s | - | new |%n", entry.getKey(), now.unit, now.format());
+                continue;
+            }
+            if (!before.unit.equals(now.unit)) {
+                System.out.printf("| %s | %s | %s %s | %s | - | unit changed |%n",
+                                  entry.getKey(), now.unit, before.format(), before.unit, now.format());
+                continue;
+            }
+            double change = (now.score - before.score) / before.score * 100.0;
+            double worse = now.lowerIsBetter() ? change : -change;
+            boolean overlap = Math.abs(now.score - before.score) <= before.error + now.error;
+            String verdict = "";
+            if (!overlap && worse > thresholdPercent) {
+                verdict = "**regression**";
+                regressions++;
+            } else if (!overlap && -worse > thresholdPercent) {
+                verdict = "improvement";
+                improvements++;
+            }
+            System.out.printf("| %s | %s | %s | %s | %+.1f%% | %s |%n",
+                              entry.getKey(), now.unit, before.format(), now.format(), change, verdict);
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                System.out.printf("| %s | %s | %s | - | - | missing |%n",
+                                  name, baseline.get(name).unit, baseline.get(name).format());
+            }
+        }
+        System.out.println();
+        System.out.printf("%d regression(s), %d improvement(s) beyond %.1f%%%n",
+                          regressions, improvements, thresholdPercent);
+        return regressions;
+    }
+
+    /**
+     * Results keyed by benchmark method and parameters, e.g. AnomalyDetectorBenchmark.detect(model=16)
+     */
+    static Map<String, Result> read(File file) throws IOException {
+        JsonNode runs = new ObjectMapper().readTree(file);
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : runs) {
+            String benchmark = run.path("benchmark").asText();
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            if (!params.isEmpty()) {
+                StringBuilder key = new StringBuilder(name).append('(');
+                params.forEach((param, value) -> key.append(param).append('=').append(value).append(", "));
+                name = key.substring(0, key.length() - 2) + ")";
+            }
+            JsonNode metric = run.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0.0);
+            results.put(name, new Result(metric.path("score").asDouble(),
+                                         Double.isNaN(error) ? 0.0 : error,
+                                         metric.path("scoreUnit").asText()));
+        }
+        return results;
+    }
+
+    static final class Result {
+        final double score;
+        final double error;
+        final String unit;
+
+        Result(double score, double error, String unit) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /**
+         * Time units ("ns/op") are better when lower, throughput units ("ops/s") when higher
+         */
+        boolean lowerIsBetter() {
+            return !unit.startsWith("ops/");
+        }
+
+        String format() {
+            return String.format("%.3f +/- %.3f", score, error);
+        }
+    }
+}
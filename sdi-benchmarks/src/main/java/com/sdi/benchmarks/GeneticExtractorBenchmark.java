@@ -0,0 +1,41 @@
+package com.sdi.benchmarks;
+
+import com.sdi.genetic.GeneticExtractor;
+import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature extraction from a captured exploit trace
+ *
+ * The population is seeded randomly on every call, so the number of
+ * generations to convergence varies; the score is the mean over many runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneticExtractorBenchmark {
+
+    @Param({"sqli", "xss", "deserialization"})
+    public String exploit;
+
+    private GeneticExtractor extractor;
+    private ExploitTraceBundle bundle;
+
+    @Setup
+    public void setUp() {
+        Fixtures.silenceStdout();
+        extractor = new GeneticExtractor();
+        bundle = Fixtures.exploit(exploit);
+    }
+
+    @Benchmark
+    public VulnerabilitySignature extract() {
+        return extractor.extract(bundle);
+    }
+}
@@ -0,0 +1,56 @@
+package com.sdi.benchmarks;
+
+import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.mutation.MutationSynthesizer;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, transforming and printing a service class
+ *
+ * size: "small" is a 10-method class (~150 lines), "large" a 100-method
+ * class (~1.4k lines), both read from disk as in the pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MutationSynthesizerBenchmark {
+
+    @Param({"small", "large"})
+    public String size;
+
+    private MutationSynthesizer synthesizer;
+    private VulnerabilitySignature signature;
+    private Path directory;
+    private String sourcePath;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures.silenceStdout();
+        synthesizer = new MutationSynthesizer();
+        signature = new VulnerabilitySignature(3, 14, 22, "taint:customer->query", "parameterize", "checkout");
+        directory = Files.createTempDirectory("sdi-bench-mutation");
+        Path source = directory.resolve("OrderService.java");
+        Files.writeString(source, Fixtures.javaSource("large".equals(size) ? 100 : 10));
+        sourcePath = source.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("OrderService.java"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public MutationPatch synthesize() {
+        return synthesizer.synthesize(signature, sourcePath);
+    }
+}
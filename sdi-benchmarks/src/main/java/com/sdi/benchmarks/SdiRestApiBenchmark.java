@@ -0,0 +1,113 @@
+package com.sdi.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sdi.api.SdiRestApi;
+import com.sdi.api.SdiRestApi.AnalysisRequest;
+import com.sdi.api.SdiRestApi.AnalysisResponse;
+import com.sdi.autoconfigure.SdiProperties;
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.genetic.GeneticExtractor;
+import com.sdi.mutation.MutationSynthesizer;
+import com.sdi.pre.PolymorphicResponseEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request/response binding of the analysis endpoints
+ *
+ * Reads the JSON body into the request DTO, calls the controller method and
+ * writes the response, with the object mapper Spring MVC would build. The
+ * pipeline the controller triggers for severe anomalies is stubbed out, so
+ * the scores cover binding plus detection only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SdiRestApiBenchmark {
+
+    static final int BATCH = 64;
+
+    private static final String REQUEST = "{"
+        + "\"serviceId\":\"checkout\","
+        + "\"path\":\"/api/orders/search\","
+        + "\"method\":\"POST\","
+        + "\"headers\":{\"content-type\":\"application/json\",\"accept\":\"application/json\","
+        + "\"user-agent\":\"okhttp/4.12.0\",\"x-request-id\":\"5f0c2a9e-3b1d-4c7a-9e1f-2d8b6a4c0e11\"},"
+        + "\"body\":\"{\\\"customer\\\":\\\"c-1029\\\",\\\"limit\\\":20,\\\"status\\\":[\\\"OPEN\\\",\\\"SHIPPED\\\"]}\","
+        + "\"metadata\":{\"sourceIp\":\"10.12.4.77\",\"tenant\":\"eu-west\"}"
+        + "}";
+
+    private SdiRestApi api;
+    private ObjectReader requestReader;
+    private ObjectReader batchReader;
+    private ObjectWriter responseWriter;
+    private byte[] request;
+    private byte[] batch;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures.silenceStdout();
+        AnomalyDetector detector = new AnomalyDetector();
+        detector.install(Fixtures.model(3, 42L));
+        PolymorphicResponseEngine pipeline = new PolymorphicResponseEngine(detector, null, new GeneticExtractor(),
+                                                                           new MutationSynthesizer(), null, null) {
+            @Override
+            public void processScreened(AnomalyToken token) {
+            }
+        };
+        api = new SdiRestApi(detector, pipeline, new SdiProperties(), null);
+
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        requestReader = mapper.readerFor(AnalysisRequest.class);
+        batchReader = mapper.readerFor(new TypeReference<List<AnalysisRequest>>() { });
+        responseWriter = mapper.writer();
+        request = REQUEST.getBytes(StandardCharsets.UTF_8);
+        batch = ("[" + String.join(",", Collections.nCopies(BATCH, REQUEST)) + "]")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        api.close();
+    }
+
+    @Benchmark
+    public byte[] analyze() throws IOException {
+        AnalysisResponse response = api.analyzeRequest(requestReader.readValue(request));
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    /**
+     * Reported per request, so it compares directly with {@link #analyze}
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public byte[] analyzeBatch() throws IOException {
+        List<AnalysisResponse> responses = api.analyzeBatch(batchReader.readValue(batch));
+        return responseWriter.writeValueAsBytes(responses);
+    }
+
+    /**
+     * Binding alone, without detection
+     */
+    @Benchmark
+    public byte[] bindOnly() throws IOException {
+        AnalysisRequest bound = requestReader.readValue(request);
+        AnalysisResponse response = new AnalysisResponse();
+        response.setServiceId(bound.getServiceId());
+        return responseWriter.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,304 @@
+package com.sdi.admission;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import com.sdi.metrics.SdiMetrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Load shedding in front of {@link AnomalyDetector#detect}
+ *
+ * Scoring runs under a fixed number of permits, and a caller waits for one
+ * at most the latency budget minus the typical scoring time; if none frees
+ * up the request is shed (passed through unscored), so the sidecar never
+ * holds a caller much longer than the budget. Callers that must not block,
+ * such as event loops, use {@link #tryDetect} and are shed as soon as no
+ * permit is free. Every 100ms the controller
+ * looks at the average permit wait, process CPU and shed count. If any of
+ * them shows overload it halves the sample rate, and otherwise it raises
+ * the rate back towards 1 in small steps. Each service keeps at least its
+ * minimum rate, and requests matching an always-score rule (a feature at
+ * or above a threshold) are never sampled out.
+ */
+public class AdmissionController {
+
+    /**
+     * Feature names usable in always-score rules, in feature-vector order
+     */
+    public static final List<String> FEATURES = List.of("path-length", "query-param-count", "header-count",
+        "body-size", "method-hash", "user-agent-hash", "request-rate", "time-of-day", "ip-entropy", "cookie-count");
+
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final double RECOVERY_STEP = 0.05;
+
+    private final AnomalyDetector detector;
+    private final long budgetNanos;
+    private final Semaphore permits;
+    private final double cpuThreshold;
+    private final double minSampleRate;
+    private final Map<String, Double> serviceMinRates;
+    private final double[] alwaysScore; // Threshold per feature, NaN = no rule
+    private final DoubleSupplier cpuLoad;
+    private final LongSupplier nanoClock;
+    private final ReentrantLock adjustLock = new ReentrantLock();
+
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder intervalWaitNanos = new LongAdder();
+    private final LongAdder intervalServiceNanos = new LongAdder();
+    private final LongAdder intervalCalls = new LongAdder();
+    private final LongAdder intervalShed = new LongAdder();
+
+    private volatile double sampleRate = 1.0;
+    private volatile boolean overloaded;
+    private volatile long averageWaitNanos;
+    private volatile long averageServiceNanos;
+    private volatile double lastCpuLoad = -1.0;
+    private volatile long lastAdjustNanos;
+
+    /**
+     * @param latencyBudget Most time the controller may add to a caller
+     * @param maxConcurrency Requests scored at once (0 = twice the available processors)
+     * @param cpuThreshold Process CPU load (0.0 - 1.0) above which the sidecar counts as overloaded
+     * @param minSampleRate Lowest sample rate for services without their own minimum
+     * @param serviceMinRates Minimum sample rate per service id
+     * @param alwaysScore Feature name (see {@link #FEATURES}) to the value at or above which a request is always scored
+     */
+    public AdmissionController(AnomalyDetector detector, Duration latencyBudget, int maxConcurrency, double cpuThreshold,
+                               double minSampleRate, Map<String, Double> serviceMinRates,
+                               Map<String, Double> alwaysScore) {
+        this(detector, latencyBudget, maxConcurrency, cpuThreshold, minSampleRate, serviceMinRates, alwaysScore,
+             processCpuLoad(), System::nanoTime);
+    }
+
+    AdmissionController(AnomalyDetector detector, Duration latencyBudget, int maxConcurrency, double cpuThreshold,
+                        double minSampleRate, Map<String, Double> serviceMinRates, Map<String, Double> alwaysScore,
+                        DoubleSupplier cpuLoad, LongSupplier nanoClock) {
+        if (latencyBudget.isNegative() || latencyBudget.isZero()) {
+            throw new IllegalArgumentException("Latency budget must be positive");
+        }
+        this.detector = detector;
+        this.budgetNanos = latencyBudget.toNanos();
+        this.permits = new Semaphore(maxConcurrency > 0 ? maxConcurrency : 2 * Runtime.getRuntime().availableProcessors());
+        this.cpuThreshold = cpuThreshold;
+        this.minSampleRate = minSampleRate;
+        this.serviceMinRates = new HashMap<>(serviceMinRates);
+        this.alwaysScore = new double[FEATURES.size()];
+        Arrays.fill(this.alwaysScore, Double.NaN);
+        alwaysScore.forEach((feature, threshold) -> {
+            int index = FEATURES.indexOf(feature);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown always-score feature '" + feature + "', expected one of " + FEATURES);
+            }
+            this.alwaysScore[index] = threshold;
+        });
+        this.cpuLoad = cpuLoad;
+        this.nanoClock = nanoClock;
+        this.lastAdjustNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Score a request unless the sidecar is shedding load
+     */
+    public Admission detect(RequestVector request) {
+        return admit(request, true);
+    }
+
+    /**
+     * Like {@link #detect}, but never waits for a scoring permit
+     */
+    public Admission tryDetect(RequestVector request) {
+        return admit(request, false);
+    }
+
+    private Admission admit(RequestVector request, boolean wait) {
+        adjustIfDue();
+        double[] features = detector.extractFeatures(request);
+        String serviceId = request.getServiceId();
+        if (!alwaysScored(features) && !sampled(serviceId)) {
+            sampledOut.increment();
+            return Admission.NOT_SCORED;
+        }
+
+        long maxWaitNanos = Math.max(0L, budgetNanos - averageServiceNanos);
+        long start = nanoClock.getAsLong();
+        boolean acquired;
+        if (!wait) {
+            acquired = permits.tryAcquire();
+        } else {
+            try {
+                acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+        }
+        long admitted = nanoClock.getAsLong();
+        intervalWaitNanos.add(admitted - start);
+        intervalCalls.increment();
+        if (!acquired) {
+            shed.increment();
+            intervalShed.increment();
+            return Admission.NOT_SCORED;
+        }
+        try {
+            AnomalyToken token = detector.detect(serviceId, request.getMetadata(), features);
+            scored.increment();
+            return Admission.scored(token);
+        } finally {
+            permits.release();
+            intervalServiceNanos.add(nanoClock.getAsLong() - admitted);
+        }
+    }
+
+    /**
+     * Report the number of callers waiting for a scoring permit
+     */
+    public void registerMetrics(SdiMetrics metrics) {
+        metrics.gaugeQueue("admission", permits, Semaphore::getQueueLength);
+    }
+
+    /**
+     * Whether the last adjustment found the sidecar overloaded; callers should
+     * not start optional work such as response pipelines while this is true
+     */
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    public Stats getStats() {
+        return new Stats(scored.sum(), sampledOut.sum(), shed.sum(), sampleRate, overloaded,
+                         averageWaitNanos / 1_000_000.0, lastCpuLoad);
+    }
+
+    private boolean alwaysScored(double[] features) {
+        for (int i = 0; i < alwaysScore.length; i++) {
+            if (features[i] >= alwaysScore[i]) { // Never true for NaN
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean sampled(String serviceId) {
+        double rate = Math.max(sampleRate, serviceMinRates.getOrDefault(serviceId, minSampleRate));
+        return rate >= 1.0 || ThreadLocalRandom.current().nextDouble() < rate;
+    }
+
+    private void adjustIfDue() {
+        long now = nanoClock.getAsLong();
+        if (now - lastAdjustNanos < ADJUST_INTERVAL_NANOS || !adjustLock.tryLock()) {
+            return;
+        }
+        try {
+            if (now - lastAdjustNanos < ADJUST_INTERVAL_NANOS) {
+                return;
+            }
+            lastAdjustNanos = now;
+            long calls = intervalCalls.sumThenReset();
+            long waited = intervalWaitNanos.sumThenReset();
+            long served = intervalServiceNanos.sumThenReset();
+            long shedInInterval = intervalShed.sumThenReset();
+            averageWaitNanos = calls > 0 ? waited / calls : 0L; // Nobody waited if nothing was admitted
+            if (calls > shedInInterval) {
+                averageServiceNanos = served / (calls - shedInInterval);
+            }
+            double cpu = cpuLoad.getAsDouble();
+            lastCpuLoad = cpu;
+
+            boolean busy = shedInInterval > 0 || averageWaitNanos > budgetNanos / 4 || cpu > cpuThreshold;
+            double previous = sampleRate;
+            sampleRate = busy ? previous / 2 : Math.min(1.0, previous + RECOVERY_STEP);
+            if (busy != overloaded) {
+                System.out.println("SDI admission: " + (busy ? "overloaded" : "recovered") +
+                                   " (wait " + averageWaitNanos / 1000 + "us, cpu " + Math.round(cpu * 100) +
+                                   "%, shed " + shedInInterval + "), sample rate " +
+                                   String.format("%.2f", sampleRate));
+            }
+            overloaded = busy;
+        } finally {
+            adjustLock.unlock();
+        }
+    }
+
+    private static DoubleSupplier processCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean platform) {
+            return platform::getProcessCpuLoad; // Negative while unavailable
+        }
+        return () -> -1.0;
+    }
+
+    /**
+     * Outcome of one admission; a request that was not scored is treated as normal
+     */
+    public static final class Admission {
+        static final Admission NOT_SCORED = new Admission(null, false);
+
+        private final AnomalyToken token;
+        private final boolean scored;
+
+        Admission(AnomalyToken token, boolean scored) {
+            this.token = token;
+            this.scored = scored;
+        }
+
+        /**
+         * Outcome of scoring a request directly, without admission control
+         */
+        public static Admission scored(AnomalyToken token) {
+            return new Admission(token, true);
+        }
+
+        /** Anomaly found by scoring, or null */
+        public AnomalyToken getToken() { return token; }
+        public boolean isScored() { return scored; }
+    }
+
+    public static final class Stats {
+        private final long scored;
+        private final long sampledOut;
+        private final long shed;
+        private final double sampleRate;
+        private final boolean overloaded;
+        private final double averageWaitMillis;
+        private final double cpuLoad;
+
+        Stats(long scored, long sampledOut, long shed, double sampleRate, boolean overloaded,
+              double averageWaitMillis, double cpuLoad) {
+            this.scored = scored;
+            this.sampledOut = sampledOut;
+            this.shed = shed;
+            this.sampleRate = sampleRate;
+            this.overloaded = overloaded;
+            this.averageWaitMillis = averageWaitMillis;
+            this.cpuLoad = cpuLoad;
+        }
+
+        public long getScored() { return scored; }
+        /** Skipped by adaptive sampling */
+        public long getSampledOut() { return sampledOut; }
+        /** Skipped because no scoring slot freed up within the latency budget */
+        public long getShed() { return shed; }
+        public double getSampleRate() { return sampleRate; }
+        public boolean isOverloaded() { return overloaded; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public double getCpuLoad() { return cpuLoad; }
+    }
+}
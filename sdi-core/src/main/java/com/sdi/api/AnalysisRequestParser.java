@@ -0,0 +1,168 @@
+package com.sdi.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental parser for an {@link SdiRestApi.AnalysisRequest} JSON document
+ *
+ * Builds the {@link RequestVector} directly from chunks as they arrive, so
+ * the request is never aggregated and no request object is bound. The body
+ * field is only counted (in chars, like String.length()) and never turned
+ * into a String; headers are only counted. Not thread-safe: one parser per
+ * request, fed in order.
+ */
+final class AnalysisRequestParser {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final long maxBytes;
+    private final RequestVector vector = new RequestVector();
+    private long bytes;
+    private int depth;
+    private boolean started;
+    private String field;     // Current top-level field
+    private String container; // Top-level field whose object or array is open
+    private String key;       // Current metadata key
+    private Map<String, String> metadata;
+
+    /**
+     * @param maxBytes Largest accepted request
+     */
+    AnalysisRequestParser(long maxBytes) {
+        try {
+            this.parser = JSON.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create JSON parser: " + e.getMessage(), e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Parse the next chunk of the request; the chunk is fully consumed on return
+     */
+    void feed(ByteBuffer chunk) {
+        bytes += chunk.remaining();
+        if (bytes > maxBytes) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Request exceeds " + maxBytes + " bytes");
+        }
+        try {
+            feeder.feedInput(chunk);
+            drain();
+        } catch (IOException e) {
+            throw malformed(e);
+        }
+    }
+
+    /**
+     * Finish parsing once the whole request has been fed
+     */
+    RequestVector finish() {
+        try {
+            feeder.endOfInput();
+            drain();
+            parser.close();
+        } catch (IOException e) {
+            throw malformed(e);
+        }
+        if (!started) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing request body");
+        }
+        if (depth != 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Truncated request body");
+        }
+        if (metadata != null) {
+            vector.setMetadata(metadata);
+        }
+        return vector;
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            handle(token);
+        }
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                if (depth == 0) {
+                    if (started || token != JsonToken.START_OBJECT) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a single JSON object");
+                    }
+                    started = true;
+                } else if (depth == 1) {
+                    container = field;
+                    if ("metadata".equals(field) && token == JsonToken.START_OBJECT) {
+                        metadata = new HashMap<>();
+                    }
+                }
+                depth++;
+            }
+            case END_OBJECT, END_ARRAY -> {
+                depth--;
+                if (depth == 1) {
+                    container = null;
+                }
+            }
+            case FIELD_NAME -> {
+                if (depth == 1) {
+                    field = parser.currentName();
+                } else if (depth == 2 && "headers".equals(container)) {
+                    vector.setHeaderCount(vector.getHeaderCount() + 1);
+                } else if (depth == 2) {
+                    key = parser.currentName();
+                }
+            }
+            default -> value(token);
+        }
+    }
+
+    private void value(JsonToken token) throws IOException {
+        if (depth == 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a single JSON object");
+        }
+        if (depth == 2 && "metadata".equals(container) && metadata != null) {
+            metadata.put(key, text(token));
+            return;
+        }
+        if (depth != 1 || field == null) {
+            return;
+        }
+        switch (field) {
+            case "serviceId" -> vector.setServiceId(text(token));
+            case "path" -> vector.setPathLength(token == JsonToken.VALUE_NULL ? 0 : parser.getTextLength());
+            case "method" -> {
+                String method = text(token);
+                vector.setMethodHash(method != null ? method.hashCode() : 0);
+            }
+            case "body" -> vector.setBodySize(token == JsonToken.VALUE_NULL ? 0 : parser.getTextLength());
+            default -> {
+                // Unknown fields are ignored, as with the bound request
+            }
+        }
+    }
+
+    private String text(JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    private static ResponseStatusException malformed(IOException e) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed request body: " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,386 @@
+package com.sdi.api;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.pre.PolymorphicResponseEngine;
+import com.sdi.transport.FramedChannelServer;
+import com.sdi.transport.FramedChannelServer.FramedConnection;
+import com.sdi.transport.SharedMemoryChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Binary ingestion of pre-extracted feature vectors
+ *
+ * Proxies and co-located apps keep one long-lived connection (TCP, or a Unix
+ * domain socket to skip TCP entirely) and stream SCORE frames without waiting.
+ * Each frame is scored on the selector thread as soon as it is complete, and
+ * its verdict is streamed back tagged with the client's request id, so
+ * verdicts arrive asynchronously and a client can pipeline any number of
+ * requests; once a client leaves too many verdicts unread, its requests are
+ * no longer read until it catches up. High-severity and suspect requests continue into the PRE
+ * pipeline on a bounded pool; when its queue is full the verdict says the
+ * pipeline was not triggered.
+ *
+ * Frames use {@link FramedChannelServer} length prefixes. Payload: u8 type, then
+ *   HELLO (1):   u8 version, u16 length + UTF-8 default service id
+ *   SCORE (2):   u64 request id, u16 length + UTF-8 service id (empty for the default),
+ *                u8 count, count x f64 features in {@link AnomalyDetector#extractFeatures} order
+ *   VERDICT (3): u64 request id, u8 flags (1 anomaly, 2 suspect, 4 pipeline triggered), f64 anomaly score
+ *   ERROR (4):   u64 request id, u16 length + UTF-8 message
+ *
+ * HELLO must come first. A SCORE the detector rejects gets an ERROR and the
+ * connection stays open; malformed frames close the connection.
+ *
+ * Co-located apps can skip sockets entirely through shared-memory channels
+ * ({@link SharedMemoryChannel}): the app writes fixed-size records into the
+ * request ring and returns immediately, and one drainer thread scores them
+ * in batches. Records are little-endian:
+ *   request (128 bytes): u64 request id, u8 flags (1 want verdict), u8 count, u8 service id length,
+ *                        5 pad, 16: count (up to 10) x f64 features, 96: up to 32 bytes UTF-8 service id
+ *                        (empty for the channel's default, its file name without extension)
+ *   verdict (32 bytes):  u64 request id, u8 flags (as above, 8 rejected), 7 pad, f64 anomaly score, 8 pad
+ * Verdicts are only written for records that ask for one, and are dropped
+ * when the app does not drain the response ring fast enough.
+ */
+public class FeatureIngestionServer implements AutoCloseable {
+
+    public static final int PROTOCOL_VERSION = 1;
+
+    static final byte FRAME_HELLO = 1;
+    static final byte FRAME_SCORE = 2;
+    static final byte FRAME_VERDICT = 3;
+    static final byte FRAME_ERROR = 4;
+
+    static final int FLAG_ANOMALY = 1;
+    static final int FLAG_SUSPECT = 2;
+    static final int FLAG_PIPELINE_TRIGGERED = 4;
+
+    static final int FLAG_REJECTED = 8;
+
+    static final int RING_REQUEST_BYTES = 128;
+    static final int RING_VERDICT_BYTES = 32;
+    static final int RING_FLAG_WANT_VERDICT = 1;
+    private static final int RING_MAX_FEATURES = 10;
+    private static final int RING_SERVICE_OFFSET = 96;
+    private static final int RING_BATCH = 256;
+    private static final int IDLE_SPINS = 1000;
+    private static final long MAX_IDLE_PARK_NANOS = 1_000_000L;
+
+    private static final int VERDICT_BYTES = 1 + 8 + 1 + 8;
+    private static final double PIPELINE_SCORE = 0.8; // Same cut-off as the REST API
+
+    private final AnomalyDetector detector;
+    private final PolymorphicResponseEngine pre;
+    private final int maxFrameBytes;
+    private final long maxOutboundBytes;
+    private final ThreadPoolExecutor pipelineExecutor;
+    private final List<RingSource> rings = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedVerdicts = new AtomicLong();
+    private FramedChannelServer server;
+    private Thread ringDrainer;
+    private volatile boolean draining;
+
+    /**
+     * @param pre PRE pipeline for high-severity and suspect requests (null to only score)
+     * @param maxFrameBytes Largest accepted frame
+     * @param pipelineThreads Threads running triggered pipelines
+     * @param pipelineQueue Triggered pipelines waiting for a thread before new triggers are dropped
+     */
+    public FeatureIngestionServer(AnomalyDetector detector, PolymorphicResponseEngine pre, int maxFrameBytes,
+                                  int pipelineThreads, int pipelineQueue) {
+        this(detector, pre, maxFrameBytes, FramedChannelServer.DEFAULT_MAX_OUTBOUND_BYTES,
+             pipelineThreads, pipelineQueue);
+    }
+
+    /**
+     * @param pre PRE pipeline for high-severity and suspect requests (null to only score)
+     * @param maxFrameBytes Largest accepted frame
+     * @param maxOutboundBytes Unread verdict bytes per connection above which its requests are no longer read
+     * @param pipelineThreads Threads running triggered pipelines
+     * @param pipelineQueue Triggered pipelines waiting for a thread before new triggers are dropped
+     */
+    public FeatureIngestionServer(AnomalyDetector detector, PolymorphicResponseEngine pre, int maxFrameBytes,
+                                  long maxOutboundBytes, int pipelineThreads, int pipelineQueue) {
+        this.detector = detector;
+        this.pre = pre;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxOutboundBytes = maxOutboundBytes;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pipelineExecutor = new ThreadPoolExecutor(Math.max(1, pipelineThreads), Math.max(1, pipelineThreads),
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, pipelineQueue)), runnable -> {
+                Thread thread = new Thread(runnable, "sdi-ingest-pipeline-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Start accepting connections
+     *
+     * @param tcpAddress TCP listen address, or null to disable TCP
+     * @param unixSocketPath Unix domain socket path, or null to disable
+     */
+    public synchronized void start(InetSocketAddress tcpAddress, Path unixSocketPath) throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = new FramedChannelServer("sdi-ingest", maxFrameBytes, maxOutboundBytes, IngestionStream::new);
+        if (tcpAddress != null) {
+            server.bindTcp(tcpAddress);
+        }
+        if (unixSocketPath != null) {
+            server.bindUnix(unixSocketPath);
+        }
+        server.start();
+    }
+
+    /**
+     * Create (or reset) a shared-memory channel and start draining it
+     *
+     * @param path Channel file, ideally on a tmpfs such as /dev/shm
+     * @param slots Slots in each ring (power of two)
+     */
+    public synchronized SharedMemoryChannel attachSharedMemory(Path path, int slots) throws IOException {
+        SharedMemoryChannel channel = SharedMemoryChannel.create(path, slots, RING_REQUEST_BYTES,
+            slots, RING_VERDICT_BYTES);
+        String fileName = path.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        rings.add(new RingSource(channel, dot > 0 ? fileName.substring(0, dot) : fileName));
+        if (ringDrainer == null) {
+            draining = true;
+            ringDrainer = new Thread(this::drainRings, "sdi-ingest-rings");
+            ringDrainer.setDaemon(true);
+            ringDrainer.start();
+        }
+        return channel;
+    }
+
+    public List<SocketAddress> getLocalAddresses() throws IOException {
+        return server != null ? server.getLocalAddresses() : List.of();
+    }
+
+    /**
+     * Report the depth of the triggered-pipeline queue
+     */
+    public void registerMetrics(SdiMetrics metrics) {
+        metrics.gaugeQueue("ingest-pipeline", pipelineExecutor, executor -> executor.getQueue().size());
+    }
+
+    /**
+     * Verdicts dropped because an app's response ring was full
+     */
+    public long getDroppedVerdicts() {
+        return droppedVerdicts.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+        draining = false;
+        if (ringDrainer != null) {
+            LockSupport.unpark(ringDrainer);
+            try {
+                ringDrainer.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ringDrainer = null;
+        }
+        pipelineExecutor.shutdownNow();
+    }
+
+    /**
+     * Drain all request rings in batches; spin briefly when idle, then back off
+     */
+    private void drainRings() {
+        int idle = 0;
+        while (draining) {
+            int drained = 0;
+            for (RingSource ring : rings) {
+                drained += ring.channel.requests().drain(RING_BATCH, ring::score);
+            }
+            if (drained > 0) {
+                idle = 0;
+            } else if (idle < IDLE_SPINS) {
+                idle++;
+                Thread.onSpinWait();
+            } else {
+                idle = Math.min(idle + 1, IDLE_SPINS + 100);
+                LockSupport.parkNanos(Math.min(MAX_IDLE_PARK_NANOS, (idle - IDLE_SPINS) * 10_000L));
+            }
+        }
+    }
+
+    /**
+     * Verdict flags for a screening result, triggering the pipeline where needed
+     */
+    private int verdictFlags(AnomalyToken token) {
+        if (token == null) {
+            return 0;
+        }
+        int flags = token.isSuspect() ? FLAG_SUSPECT : FLAG_ANOMALY;
+        if ((token.isSuspect() || token.getAnomalyScore() > PIPELINE_SCORE) && triggerPipeline(token)) {
+            flags |= FLAG_PIPELINE_TRIGGERED;
+        }
+        return flags;
+    }
+
+    private boolean triggerPipeline(AnomalyToken token) {
+        if (pre == null) {
+            return false;
+        }
+        try {
+            pipelineExecutor.execute(() -> {
+                try {
+                    pre.processScreened(token);
+                } catch (RuntimeException e) {
+                    System.err.println("SDI pipeline failed for " + token.getServiceId() + ": " + e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            System.err.println("SDI ingest pipeline queue full, dropping trigger for " + token.getServiceId());
+            return false;
+        }
+    }
+
+    private static String readString(ByteBuffer frame) {
+        int length = Short.toUnsignedInt(frame.getShort());
+        byte[] bytes = new byte[length];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One attached shared-memory channel
+     */
+    private class RingSource {
+        private final SharedMemoryChannel channel;
+        private final String defaultServiceId;
+
+        RingSource(SharedMemoryChannel channel, String defaultServiceId) {
+            this.channel = channel;
+            this.defaultServiceId = defaultServiceId;
+        }
+
+        void score(ByteBuffer record) {
+            long requestId = record.getLong(0);
+            boolean wantVerdict = (record.get(8) & RING_FLAG_WANT_VERDICT) != 0;
+            double[] features = new double[Math.min(Byte.toUnsignedInt(record.get(9)), RING_MAX_FEATURES)];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = record.getDouble(16 + i * 8);
+            }
+            int serviceLength = Math.min(Byte.toUnsignedInt(record.get(10)), RING_REQUEST_BYTES - RING_SERVICE_OFFSET);
+            String serviceId = defaultServiceId;
+            if (serviceLength > 0) {
+                byte[] name = new byte[serviceLength];
+                record.get(RING_SERVICE_OFFSET, name);
+                serviceId = new String(name, StandardCharsets.UTF_8);
+            }
+
+            int flags;
+            double score = 0.0;
+            try {
+                AnomalyToken token = detector.screen(serviceId, null, features);
+                flags = verdictFlags(token);
+                score = token != null ? token.getAnomalyScore() : 0.0;
+            } catch (IllegalArgumentException e) {
+                flags = FLAG_REJECTED;
+            } catch (RuntimeException e) {
+                // Never let one record stop the drainer, which serves every ring
+                System.err.println("SDI ring scoring failed for " + serviceId + ": " + e.getMessage());
+                flags = FLAG_REJECTED;
+            }
+
+            if (wantVerdict) {
+                int verdictFlags = flags;
+                double verdictScore = score;
+                boolean written = channel.responses().offer(slot ->
+                    slot.putLong(0, requestId).put(8, (byte) verdictFlags).putDouble(16, verdictScore));
+                if (!written) {
+                    droppedVerdicts.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decoder for one client connection
+     */
+    private class IngestionStream implements FramedChannelServer.ConnectionHandler {
+        private String defaultServiceId;
+
+        @Override
+        public void onFrame(FramedConnection connection, ByteBuffer frame) throws IOException {
+            try {
+                byte type = frame.get();
+                if (type == FRAME_HELLO) {
+                    int version = Byte.toUnsignedInt(frame.get());
+                    if (version != PROTOCOL_VERSION) {
+                        throw new IOException("Unsupported ingestion protocol version " + version);
+                    }
+                    defaultServiceId = readString(frame);
+                } else if (type == FRAME_SCORE) {
+                    if (defaultServiceId == null) {
+                        throw new IOException("SCORE before HELLO");
+                    }
+                    score(connection, frame);
+                } else {
+                    throw new IOException("Unknown ingestion frame type " + type);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated ingestion frame", e);
+            }
+        }
+
+        private void score(FramedConnection connection, ByteBuffer frame) {
+            long requestId = frame.getLong();
+            String serviceId = readString(frame);
+            double[] features = new double[Byte.toUnsignedInt(frame.get())];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = frame.getDouble();
+            }
+
+            AnomalyToken token;
+            try {
+                token = detector.screen(serviceId.isEmpty() ? defaultServiceId : serviceId, null, features);
+            } catch (IllegalArgumentException e) {
+                sendError(connection, requestId, e.getMessage());
+                return;
+            }
+
+            ByteBuffer verdict = ByteBuffer.allocate(VERDICT_BYTES);
+            verdict.put(FRAME_VERDICT).putLong(requestId).put((byte) verdictFlags(token))
+                .putDouble(token != null ? token.getAnomalyScore() : 0.0).flip();
+            connection.send(verdict);
+        }
+
+        private void sendError(FramedConnection connection, long requestId, String message) {
+            byte[] text = message.getBytes(StandardCharsets.UTF_8);
+            int length = Math.min(text.length, 0xFFFF);
+            ByteBuffer error = ByteBuffer.allocate(1 + 8 + 2 + length);
+            error.put(FRAME_ERROR).putLong(requestId).putShort((short) length).put(text, 0, length).flip();
+            connection.send(error);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.sdi.api;
+
+import com.sdi.admission.AdmissionController;
+import com.sdi.admission.AdmissionController.Admission;
+import com.sdi.api.SdiRestApi.AnalysisRequest;
+import com.sdi.api.SdiRestApi.AnalysisResponse;
+import com.sdi.api.SdiRestApi.DetectionResponse;
+import com.sdi.autoconfigure.SdiProperties;
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import com.sdi.detector.PortableModel;
+import com.sdi.pre.PolymorphicResponseEngine;
+import com.sdi.pre.PolymorphicResponseEngine.Timeline;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Reactive (WebFlux/Netty) variant of {@link SdiRestApi}
+ *
+ * Same endpoints and responses, for sidecars that hold many concurrent
+ * keep-alive connections on a small fixed set of event-loop threads.
+ * Request bodies are parsed as they stream in (see {@link AnalysisRequestParser}),
+ * detection runs on the event loop since it is cheap, and triggered
+ * pipelines run on a bounded scheduler. Unlike the servlet API, the
+ * response does not wait for the pipeline; when the scheduler's queue is
+ * full the trigger is dropped and pipelineTriggered is false. With an
+ * {@link AdmissionController} detection goes through its non-blocking
+ * path, which sheds rather than park the event loop waiting for a permit,
+ * and no pipelines are triggered while it reports overload.
+ */
+@RestController
+@RequestMapping("/api/sdi")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSdiApi implements AutoCloseable {
+
+    private final AnomalyDetector detector;
+    private final PolymorphicResponseEngine pre;
+    private final AdmissionController admission;
+    private final long maxRequestBytes;
+    private final int maxBatchSize;
+    private final Scheduler pipelineScheduler;
+
+    public ReactiveSdiApi(AnomalyDetector detector, PolymorphicResponseEngine pre, SdiProperties properties,
+                          @Nullable AdmissionController admission) {
+        SdiProperties.Web web = properties.getWeb();
+        this.detector = detector;
+        this.pre = pre;
+        this.admission = admission;
+        this.maxRequestBytes = web.getMaxRequestSize().toBytes();
+        this.maxBatchSize = web.getMaxBatchSize();
+        this.pipelineScheduler = Schedulers.newBoundedElastic(Math.max(1, web.getPipelineThreads()),
+            Math.max(1, web.getPipelineQueue()), "sdi-api-pipeline", 60, true);
+    }
+
+    /**
+     * Analyze a request for anomalies
+     *
+     * POST /api/sdi/analyze (same request and response as {@link SdiRestApi})
+     */
+    @PostMapping("/analyze")
+    public Mono<AnalysisResponse> analyzeRequest(@RequestBody Flux<DataBuffer> body) {
+        return parse(body).map(this::analyze);
+    }
+
+    /**
+     * Analyze many requests in one call
+     *
+     * POST /api/sdi/analyze/batch (same as {@link SdiRestApi}); the array is
+     * decoded element by element, and each element counts against Jackson's
+     * in-memory limit rather than sdi.web.max-request-size. The batch is
+     * checked against its size limit before any of it is analyzed.
+     */
+    @PostMapping("/analyze/batch")
+    public Mono<List<AnalysisResponse>> analyzeBatch(@RequestBody Flux<AnalysisRequest> requests) {
+        return requests.take(maxBatchSize + 1L).collectList().map(batch -> {
+            if (batch.size() > maxBatchSize) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                    "Batch exceeds " + maxBatchSize + " requests");
+            }
+            List<AnalysisResponse> responses = new ArrayList<>(batch.size());
+            for (AnalysisRequest request : batch) {
+                responses.add(analyze(SdiRestApi.toRequestVector(request)));
+            }
+            return responses;
+        });
+    }
+
+    /**
+     * Quick anomaly detection only
+     *
+     * POST /api/sdi/detect
+     */
+    @PostMapping("/detect")
+    public Mono<DetectionResponse> detectAnomaly(@RequestBody Flux<DataBuffer> body) {
+        return parse(body).map(vector -> {
+            Admission admitted = detect(vector);
+            AnomalyToken token = admitted.getToken();
+
+            DetectionResponse response = new DetectionResponse();
+            response.setAnomalyDetected(token != null);
+            response.setScored(admitted.isScored());
+            if (token != null) {
+                response.setScore(token.getAnomalyScore());
+                response.setSeverity(getSeverity(token.getAnomalyScore()));
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Export the active model for client-side pre-scoring (see {@link PortableModel})
+     *
+     * GET /api/sdi/model; honours If-None-Match, 404 until a model is trained
+     */
+    @GetMapping("/model")
+    public Mono<ResponseEntity<PortableModel>> exportModel(ServerWebExchange exchange) {
+        PortableModel model = detector.exportModel();
+        if (model == null) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        if (exchange.checkNotModified(model.getEtag())) {
+            return Mono.empty(); // 304 already set
+        }
+        return Mono.just(ResponseEntity.ok().eTag(model.getEtag()).cacheControl(CacheControl.noCache()).body(model));
+    }
+
+    /**
+     * Phase and external-call spans of a pipeline, running or finished
+     *
+     * GET /api/sdi/pipelines/{id}/timeline; 404 for unknown pipelines
+     */
+    @GetMapping("/pipelines/{id}/timeline")
+    public Mono<ResponseEntity<Timeline>> pipelineTimeline(@PathVariable("id") String id) {
+        Timeline timeline = pre.getTimeline(id);
+        return Mono.just(timeline != null ? ResponseEntity.ok(timeline) : ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Health check
+     *
+     * GET /api/sdi/health
+     */
+    @GetMapping("/health")
+    public Mono<Map<String, Object>> health() {
+        Map<String, Object> health = new HashMap<>();
+        health.put("status", "healthy");
+        health.put("service", "sdi");
+        health.put("version", "1.0.0");
+        health.put("mode", "reactive");
+        if (admission != null) {
+            health.put("admission", admission.getStats());
+        }
+        return Mono.just(health);
+    }
+
+    @Override
+    public void close() {
+        pipelineScheduler.dispose();
+    }
+
+    private Mono<RequestVector> parse(Flux<DataBuffer> body) {
+        return Mono.defer(() -> {
+            AnalysisRequestParser parser = new AnalysisRequestParser(maxRequestBytes);
+            return body.doOnNext(buffer -> {
+                try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+                    while (chunks.hasNext()) {
+                        parser.feed(chunks.next());
+                    }
+                } finally {
+                    DataBufferUtils.release(buffer);
+                }
+            }).then(Mono.fromCallable(parser::finish));
+        });
+    }
+
+    private AnalysisResponse analyze(RequestVector vector) {
+        Admission admitted = detect(vector);
+        AnomalyToken token = admitted.getToken();
+
+        AnalysisResponse response = new AnalysisResponse();
+        response.setAnomalyDetected(token != null);
+        response.setScored(admitted.isScored());
+
+        if (token != null) {
+            response.setAnomalyScore(token.getAnomalyScore());
+            response.setServiceId(token.getServiceId());
+            response.setTimestamp(token.getTimestamp());
+            response.setSeverity(getSeverity(token.getAnomalyScore()));
+            response.setTraceId(token.getTraceId());
+
+            // Trigger full PRE pipeline if high severity
+            if (token.getAnomalyScore() > 0.8 && triggerPipeline(token)) {
+                response.setPipelineTriggered(true);
+                response.setPipelineId(PolymorphicResponseEngine.pipelineIdFor(token));
+            }
+        }
+
+        return response;
+    }
+
+    private Admission detect(RequestVector vector) {
+        // Runs on the event loop, so a busy sidecar sheds instead of waiting for a permit
+        return admission != null ? admission.tryDetect(vector) : Admission.scored(detector.detect(vector));
+    }
+
+    /**
+     * Continue the pipeline with the token already detected, so it keeps the detection's trace
+     */
+    private boolean triggerPipeline(AnomalyToken token) {
+        if (admission != null && admission.isOverloaded()) {
+            System.err.println("SDI overloaded, dropping pipeline trigger for " + token.getServiceId());
+            return false;
+        }
+        try {
+            pipelineScheduler.schedule(() -> {
+                try {
+                    pre.processScreened(token);
+                } catch (RuntimeException e) {
+                    System.err.println("SDI pipeline failed for " + token.getServiceId() + ": " + e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            System.err.println("SDI pipeline queue full, dropping trigger for " + token.getServiceId());
+            return false;
+        }
+    }
+
+    private String getSeverity(double score) {
+        if (score > 0.9) return "critical";
+        if (score > 0.7) return "high";
+        if (score > 0.5) return "medium";
+        return "low";
+    }
+}
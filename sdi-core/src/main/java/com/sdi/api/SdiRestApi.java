@@ -1,13 +1,34 @@
 package com.sdi.api;
 
+import com.sdi.admission.AdmissionController;
+import com.sdi.admission.AdmissionController.Admission;
+import com.sdi.autoconfigure.SdiProperties;
 import com.sdi.detector.AnomalyDetector;
 import com.sdi.detector.AnomalyDetector.RequestVector;
 import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.detector.PortableModel;
+import com.sdi.metrics.SdiMetrics;
 import com.sdi.pre.PolymorphicResponseEngine;
+import com.sdi.pre.PolymorphicResponseEngine.Timeline;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * REST API for language-agnostic SDI integration
@@ -17,17 +38,41 @@ import java.util.Map;
  * - Node.js: axios.post()
  * - Go: http.Post()
  * - etc.
+ *
+ * Servlet (blocking) stack; reactive sidecars get {@link ReactiveSdiApi}.
+ * With an {@link AdmissionController} (sdi.admission.enabled) detection goes
+ * through it, and triggered pipelines run on a bounded pool instead of
+ * inline, so a flood cannot hold callers beyond the latency budget.
  */
 @RestController
 @RequestMapping("/api/sdi")
-public class SdiRestApi {
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class SdiRestApi implements AutoCloseable {
     
     private final AnomalyDetector detector;
     private final PolymorphicResponseEngine pre;
+    private final AdmissionController admission;
+    private final ThreadPoolExecutor pipelineExecutor; // Only with admission control
+    private final int maxBatchSize;
     
-    public SdiRestApi(AnomalyDetector detector, PolymorphicResponseEngine pre) {
+    public SdiRestApi(AnomalyDetector detector, PolymorphicResponseEngine pre, SdiProperties properties,
+                      @Nullable AdmissionController admission) {
         this.detector = detector;
         this.pre = pre;
+        this.admission = admission;
+        this.maxBatchSize = properties.getWeb().getMaxBatchSize();
+        if (admission != null) {
+            int threads = Math.max(1, properties.getWeb().getPipelineThreads());
+            AtomicInteger threadCount = new AtomicInteger();
+            this.pipelineExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getWeb().getPipelineQueue())), runnable -> {
+                    Thread thread = new Thread(runnable, "sdi-api-pipeline-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        } else {
+            this.pipelineExecutor = null;
+        }
     }
     
     /**
@@ -45,29 +90,26 @@ public class SdiRestApi {
      */
     @PostMapping("/analyze")
     public AnalysisResponse analyzeRequest(@RequestBody AnalysisRequest request) {
-        // Convert to RequestVector
-        RequestVector vector = toRequestVector(request);
-        
-        // Detect anomaly
-        AnomalyToken token = detector.detect(vector);
-        
-        AnalysisResponse response = new AnalysisResponse();
-        response.setAnomalyDetected(token != null);
-        
-        if (token != null) {
-            response.setAnomalyScore(token.getAnomalyScore());
-            response.setServiceId(token.getServiceId());
-            response.setTimestamp(token.getTimestamp());
-            response.setSeverity(getSeverity(token.getAnomalyScore()));
-            
-            // Trigger full PRE pipeline if high severity
-            if (token.getAnomalyScore() > 0.8) {
-                pre.processRequest(vector);
-                response.setPipelineTriggered(true);
-            }
+        return analyze(toRequestVector(request));
+    }
+    
+    /**
+     * Analyze many requests in one call, e.g. from an SDK's local queue
+     * 
+     * POST /api/sdi/analyze/batch
+     * [ {analysis request}, ... ]  ->  [ {analysis response}, ... ] in the same order
+     */
+    @PostMapping("/analyze/batch")
+    public List<AnalysisResponse> analyzeBatch(@RequestBody List<AnalysisRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Batch of " + requests.size() + " exceeds " + maxBatchSize + " requests");
         }
-        
-        return response;
+        List<AnalysisResponse> responses = new ArrayList<>(requests.size());
+        for (AnalysisRequest request : requests) {
+            responses.add(analyze(toRequestVector(request)));
+        }
+        return responses;
     }
     
     /**
@@ -78,10 +120,12 @@ public class SdiRestApi {
     @PostMapping("/detect")
     public DetectionResponse detectAnomaly(@RequestBody AnalysisRequest request) {
         RequestVector vector = toRequestVector(request);
-        AnomalyToken token = detector.detect(vector);
+        Admission admitted = detect(vector);
+        AnomalyToken token = admitted.getToken();
         
         DetectionResponse response = new DetectionResponse();
         response.setAnomalyDetected(token != null);
+        response.setScored(admitted.isScored());
         if (token != null) {
             response.setScore(token.getAnomalyScore());
             response.setSeverity(getSeverity(token.getAnomalyScore()));
@@ -89,6 +133,34 @@ public class SdiRestApi {
         return response;
     }
     
+    /**
+     * Export the active model for client-side pre-scoring (see {@link PortableModel})
+     * 
+     * GET /api/sdi/model; honours If-None-Match, 404 until a model is trained
+     */
+    @GetMapping("/model")
+    public ResponseEntity<PortableModel> exportModel(WebRequest request) {
+        PortableModel model = detector.exportModel();
+        if (model == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(model.getEtag())) {
+            return null; // 304 already written
+        }
+        return ResponseEntity.ok().eTag(model.getEtag()).cacheControl(CacheControl.noCache()).body(model);
+    }
+    
+    /**
+     * Phase and external-call spans of a pipeline, running or finished
+     * 
+     * GET /api/sdi/pipelines/{id}/timeline; 404 for unknown pipelines
+     */
+    @GetMapping("/pipelines/{id}/timeline")
+    public ResponseEntity<Timeline> pipelineTimeline(@PathVariable("id") String id) {
+        Timeline timeline = pre.getTimeline(id);
+        return timeline != null ? ResponseEntity.ok(timeline) : ResponseEntity.notFound().build();
+    }
+    
     /**
      * Health check
      * 
@@ -100,10 +172,87 @@ public class SdiRestApi {
         health.put("status", "healthy");
         health.put("service", "sdi");
         health.put("version", "1.0.0");
+        if (admission != null) {
+            health.put("admission", admission.getStats());
+        }
         return health;
     }
     
-    private RequestVector toRequestVector(AnalysisRequest request) {
+    /**
+     * Report the depth of the triggered-pipeline queue (only used with admission control)
+     */
+    @Autowired(required = false)
+    public void registerMetrics(SdiMetrics metrics) {
+        if (pipelineExecutor != null) {
+            metrics.gaugeQueue("rest-pipeline", pipelineExecutor, executor -> executor.getQueue().size());
+        }
+    }
+    
+    @Override
+    public void close() {
+        if (pipelineExecutor != null) {
+            pipelineExecutor.shutdown();
+        }
+    }
+    
+    private AnalysisResponse analyze(RequestVector vector) {
+        // Detect anomaly
+        Admission admitted = detect(vector);
+        AnomalyToken token = admitted.getToken();
+        
+        AnalysisResponse response = new AnalysisResponse();
+        response.setAnomalyDetected(token != null);
+        response.setScored(admitted.isScored());
+        
+        if (token != null) {
+            response.setAnomalyScore(token.getAnomalyScore());
+            response.setServiceId(token.getServiceId());
+            response.setTimestamp(token.getTimestamp());
+            response.setSeverity(getSeverity(token.getAnomalyScore()));
+            response.setTraceId(token.getTraceId());
+            
+            // Trigger full PRE pipeline if high severity
+            if (token.getAnomalyScore() > 0.8 && triggerPipeline(token)) {
+                response.setPipelineTriggered(true);
+                response.setPipelineId(PolymorphicResponseEngine.pipelineIdFor(token));
+            }
+        }
+        
+        return response;
+    }
+    
+    private Admission detect(RequestVector vector) {
+        return admission != null ? admission.detect(vector) : Admission.scored(detector.detect(vector));
+    }
+    
+    /**
+     * Continue the pipeline with the token already detected, so it keeps the detection's trace
+     */
+    private boolean triggerPipeline(AnomalyToken token) {
+        if (pipelineExecutor == null) {
+            pre.processScreened(token);
+            return true;
+        }
+        if (admission.isOverloaded()) {
+            System.err.println("SDI overloaded, dropping pipeline trigger for " + token.getServiceId());
+            return false;
+        }
+        try {
+            pipelineExecutor.execute(() -> {
+                try {
+                    pre.processScreened(token);
+                } catch (RuntimeException e) {
+                    System.err.println("SDI pipeline failed for " + token.getServiceId() + ": " + e.getMessage());
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            System.err.println("SDI pipeline queue full, dropping trigger for " + token.getServiceId());
+            return false;
+        }
+    }
+    
+    static RequestVector toRequestVector(AnalysisRequest request) {
         RequestVector vector = new RequestVector();
         vector.setServiceId(request.getServiceId());
         vector.setPathLength(request.getPath() != null ? request.getPath().length() : 0);
@@ -156,6 +305,9 @@ public class SdiRestApi {
         private String serviceId;
         private long timestamp;
         private boolean pipelineTriggered;
+        private boolean scored = true;
+        private String traceId;
+        private String pipelineId;
         
         // Getters and setters
         public boolean isAnomalyDetected() { return anomalyDetected; }
@@ -170,16 +322,28 @@ public class SdiRestApi {
         public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
         public boolean isPipelineTriggered() { return pipelineTriggered; }
         public void setPipelineTriggered(boolean pipelineTriggered) { this.pipelineTriggered = pipelineTriggered; }
+        /** False if the sidecar was shedding load and passed the request without scoring it */
+        public boolean isScored() { return scored; }
+        public void setScored(boolean scored) { this.scored = scored; }
+        /** Trace of the detection, continued by the pipeline it triggers */
+        public String getTraceId() { return traceId; }
+        public void setTraceId(String traceId) { this.traceId = traceId; }
+        /** Pipeline to follow at /pipelines/{id}/timeline, if one was triggered */
+        public String getPipelineId() { return pipelineId; }
+        public void setPipelineId(String pipelineId) { this.pipelineId = pipelineId; }
     }
     
     public static class DetectionResponse {
         private boolean anomalyDetected;
         private double score;
         private String severity;
+        private boolean scored = true;
         
         // Getters and setters
         public boolean isAnomalyDetected() { return anomalyDetected; }
         public void setAnomalyDetected(boolean anomalyDetected) { this.anomalyDetected = anomalyDetected; }
+        public boolean isScored() { return scored; }
+        public void setScored(boolean scored) { this.scored = scored; }
         public double getScore() { return score; }
         public void setScore(double score) { this.score = score; }
         public String getSeverity() { return severity; }
@@ -1,19 +1,63 @@
 package com.sdi.autoconfigure;
 
+import com.sdi.admission.AdmissionController;
+import com.sdi.api.FeatureIngestionServer;
+import com.sdi.bus.FleetAnomalyAggregator;
+import com.sdi.bus.ImmuneBusConsumer;
+import com.sdi.bus.ImmuneBusPublisher;
+import com.sdi.bus.ModelSnapshotPublisher;
+import com.sdi.bus.ModelSnapshotSubscriber;
 import com.sdi.detector.AnomalyDetector;
+import com.sdi.deployer.CanaryMetricsSource;
+import com.sdi.deployer.CanaryValidator;
+import com.sdi.deployer.FleetPropagationPlanner;
+import com.sdi.deployer.PatchImageBuilder;
 import com.sdi.deployer.ImmunizationDeployer;
+import com.sdi.deployer.PrometheusMetricsSource;
+import com.sdi.deployer.RegistryPusher;
+import com.sdi.deployer.StubMetricsSource;
 import com.sdi.genetic.GeneticExtractor;
 import com.sdi.honeypot.HoneypotManager;
+import com.sdi.honeypot.StreamingTraceCollector;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import com.sdi.metrics.DetectionSpanContextSupplier;
+import com.sdi.metrics.MicrometerSdiMetrics;
+import com.sdi.metrics.SdiMetrics;
 import com.sdi.mutation.MutationSynthesizer;
+import com.sdi.pre.LatencyBudget;
+import com.sdi.pre.PipelineScheduler;
 import com.sdi.pre.PolymorphicResponseEngine;
+import com.sdi.registry.InMemorySignatureRegistry;
+import com.sdi.registry.KafkaSignatureRegistry;
+import com.sdi.registry.SignatureRegistry;
+import com.sdi.trace.OpenTelemetryPipelineTracer;
+import com.sdi.trace.PipelineTracer;
+import io.kubernetes.client.util.Config;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.ssl.SslBundles;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+
 /**
  * Auto-configuration for Synthetic Digital Immunity
  * 
@@ -23,31 +67,148 @@ import org.springframework.kafka.core.KafkaTemplate;
  * 
  * Usage: Just add the dependency to your Spring Boot app!
  */
-@AutoConfiguration
+// Before the Prometheus export so its exemplar sampler sees the span context supplier
+@AutoConfiguration(beforeName = "org.springframework.boot.actuate.autoconfigure.metrics.export.prometheus.PrometheusMetricsExportAutoConfiguration")
 @ConditionalOnProperty(prefix = "sdi", name = "enabled", havingValue = "true", matchIfMissing = true)
 @EnableConfigurationProperties(SdiProperties.class)
 public class SdiAutoConfiguration {
     
+    /**
+     * Micrometer meters for the detector and the PRE pipeline, when the app has a MeterRegistry
+     * (e.g. from spring-boot-starter-actuator); without one SDI records nothing
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public SdiMetrics sdiMetrics(ObjectProvider<MeterRegistry> registry) {
+            MeterRegistry meterRegistry = registry.getIfAvailable();
+            return meterRegistry != null ? new MicrometerSdiMetrics(meterRegistry) : SdiMetrics.NOOP;
+        }
+    }
+    
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.prometheus.client.exemplars.tracer.common.SpanContextSupplier")
+    static class ExemplarConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean(type = "io.prometheus.client.exemplars.tracer.common.SpanContextSupplier")
+        public DetectionSpanContextSupplier detectionSpanContextSupplier() {
+            return new DetectionSpanContextSupplier();
+        }
+    }
+    
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(OpenTelemetry.class)
+    static class TracingConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "sdi.tracing", name = "export", havingValue = "true", matchIfMissing = true)
+        public PipelineTracer pipelineTracer(ObjectProvider<OpenTelemetry> openTelemetry) {
+            OpenTelemetry sdk = openTelemetry.getIfAvailable();
+            return sdk != null ? new OpenTelemetryPipelineTracer(sdk) : PipelineTracer.IN_MEMORY;
+        }
+    }
+    
     @Bean
     @ConditionalOnMissingBean
     public AnomalyDetector anomalyDetector(SdiProperties properties) {
         AnomalyDetector detector = new AnomalyDetector();
         detector.setAnomalyThreshold(properties.getDetection().getThreshold());
+        if (properties.getKafka().isEnabled() && properties.getKafka().getAggregation().isEnabled()) {
+            // Suspect events are only useful when someone aggregates them
+            detector.setSuspicionThreshold(properties.getDetection().getSuspicionThreshold());
+        }
         return detector;
     }
     
     @Bean
     @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.admission", name = "enabled", havingValue = "true")
+    public AdmissionController admissionController(AnomalyDetector detector, SdiProperties properties,
+                                                   ObjectProvider<SdiMetrics> metrics) {
+        SdiProperties.Admission admission = properties.getAdmission();
+        AdmissionController controller = new AdmissionController(
+            detector,
+            admission.getLatencyBudget(),
+            admission.getMaxConcurrency(),
+            admission.getCpuThreshold(),
+            admission.getMinSampleRate(),
+            admission.getServiceMinRates(),
+            admission.getAlwaysScore()
+        );
+        metrics.ifAvailable(controller::registerMetrics);
+        return controller;
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public KubernetesOperationDispatcher kubernetesOperationDispatcher(SdiProperties properties,
+                                                                       Environment environment,
+                                                                       ObjectProvider<SdiMetrics> metrics) {
+        SdiProperties.Kubernetes kubernetes = properties.getKubernetes();
+        KubernetesOperationDispatcher dispatcher = new KubernetesOperationDispatcher(
+            kubernetes.getQps(),
+            kubernetes.getBurst(),
+            kubernetes.getMaxConcurrent(),
+            kubernetes.getMaxConcurrentPerNamespace(),
+            kubernetes.getMaxRetries(),
+            kubernetes.getInitialBackoff(),
+            kubernetes.getMaxBackoff(),
+            Threading.VIRTUAL.isActive(environment)
+        );
+        metrics.ifAvailable(dispatcher::registerMetrics);
+        return dispatcher;
+    }
+    
+    @Bean(initMethod = "start")
+    @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "sdi.honeypot", name = "enabled", havingValue = "true", matchIfMissing = true)
-    public HoneypotManager honeypotManager(SdiProperties properties) {
+    public HoneypotManager honeypotManager(SdiProperties properties, 
+                                          KubernetesOperationDispatcher dispatcher,
+                                          ObjectProvider<StreamingTraceCollector> traceCollector) {
         try {
-            return new HoneypotManager();
+            SdiProperties.Honeypot honeypot = properties.getHoneypot();
+            HoneypotManager manager = new HoneypotManager(
+                Config.defaultClient(),
+                dispatcher,
+                honeypot.getNamespace(),
+                honeypot.getTtl(),
+                honeypot.getReadyTimeout()
+            );
+            traceCollector.ifAvailable(manager::attachTraceCollector);
+            return manager;
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize HoneypotManager. " +
                 "Ensure Kubernetes access is configured or disable honeypot: sdi.honeypot.enabled=false", e);
         }
     }
     
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.honeypot.trace-collector", name = "enabled", havingValue = "true")
+    public StreamingTraceCollector streamingTraceCollector(SdiProperties properties) {
+        SdiProperties.TraceCollector config = properties.getHoneypot().getTraceCollector();
+        StreamingTraceCollector collector = new StreamingTraceCollector(
+            config.getMaxFrameBytes(),
+            config.getMaxPayloadBytes(),
+            config.getMaxSymbols(),
+            config.getPartialPublishInterval()
+        );
+        try {
+            collector.start(
+                config.getPort() > 0 ? new InetSocketAddress(config.getPort()) : null,
+                config.getUnixSocketPath() != null ? Path.of(config.getUnixSocketPath()) : null
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to start honeypot trace collector: " + e.getMessage(), e);
+        }
+        return collector;
+    }
+    
     @Bean
     @ConditionalOnMissingBean
     public GeneticExtractor geneticExtractor(SdiProperties properties) {
@@ -63,8 +224,148 @@ public class SdiAutoConfiguration {
     @Bean
     @ConditionalOnMissingBean
     @ConditionalOnProperty(prefix = "sdi.deployment", name = "enabled", havingValue = "true", matchIfMissing = true)
-    public ImmunizationDeployer immunizationDeployer(SdiProperties properties) {
-        return new ImmunizationDeployer();
+    public ImmunizationDeployer immunizationDeployer(SdiProperties properties,
+                                                     KubernetesOperationDispatcher dispatcher,
+                                                     CanaryValidator canaryValidator,
+                                                     ObjectProvider<PatchImageBuilder> imageBuilder) {
+        SdiProperties.Deployment deployment = properties.getDeployment();
+        ImmunizationDeployer deployer = new ImmunizationDeployer(dispatcher, canaryValidator,
+            deployment.getCanaryPercentage(), deployment.getRolloutSteps());
+        imageBuilder.ifAvailable(deployer::setImageBuilder);
+        return deployer;
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.deployment.image-build", name = "enabled", havingValue = "true")
+    public PatchImageBuilder patchImageBuilder(SdiProperties properties) {
+        SdiProperties.ImageBuild build = properties.getDeployment().getImageBuild();
+        RegistryPusher pusher = null;
+        if (build.getRegistry() != null && !build.getRegistry().isBlank()) {
+            pusher = new RegistryPusher(build.getRegistry(), build.isInsecureRegistry(),
+                build.getRegistryUsername(), build.getRegistryPassword(), build.getPushTimeout());
+        } else {
+            System.err.println("sdi.deployment.image-build.registry is not set; patched images stay in " +
+                             build.getLayoutDir() + " and rollouts of them are refused");
+        }
+        return new PatchImageBuilder(
+            Path.of(build.getLayoutDir()),
+            build.getBaseImage(),
+            Path.of(build.getDependencyDir()),
+            build.getClassesPath(),
+            build.getMaxConcurrentBuilds(),
+            pusher
+        );
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.fleet", name = "enabled", havingValue = "true")
+    public FleetPropagationPlanner fleetPropagationPlanner(SdiProperties properties, ImmunizationDeployer deployer) {
+        SdiProperties.Fleet fleet = properties.getFleet();
+        try {
+            return new FleetPropagationPlanner(
+                deployer,
+                FleetPropagationPlanner.loadClusters(fleet.getContexts()),
+                fleet.getNamespaces(),
+                fleet.getMaxConcurrentRollouts(),
+                fleet.getFirstWaveSize(),
+                fleet.getWaveGrowthFactor(),
+                fleet.getMaxWaveFailureRatio()
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load kube contexts for fleet propagation: " + e.getMessage(), e);
+        }
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.ingest", name = "enabled", havingValue = "true")
+    public FeatureIngestionServer featureIngestionServer(SdiProperties properties, AnomalyDetector detector,
+                                                         PolymorphicResponseEngine engine,
+                                                         ObjectProvider<SdiMetrics> metrics) {
+        SdiProperties.Ingest config = properties.getIngest();
+        FeatureIngestionServer server = new FeatureIngestionServer(
+            detector,
+            engine,
+            config.getMaxFrameBytes(),
+            config.getMaxOutboundBytes(),
+            config.getPipelineThreads(),
+            config.getPipelineQueue()
+        );
+        metrics.ifAvailable(server::registerMetrics);
+        try {
+            server.start(
+                config.getPort() > 0 ? new InetSocketAddress(config.getPort()) : null,
+                config.getUnixSocketPath() != null && !config.getUnixSocketPath().isBlank()
+                    ? Path.of(config.getUnixSocketPath()) : null
+            );
+            for (String file : config.getSharedMemoryFiles()) {
+                if (file.isBlank()) {
+                    continue;
+                }
+                server.attachSharedMemory(Path.of(file), config.getSharedMemorySlots());
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to start binary ingestion server: " + e.getMessage(), e);
+        }
+        return server;
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.deployment", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CanaryMetricsSource canaryMetricsSource(SdiProperties properties) {
+        SdiProperties.CanaryAnalysis analysis = properties.getDeployment().getCanaryAnalysis();
+        if (analysis.getPrometheusUrl() == null || analysis.getPrometheusUrl().isBlank()) {
+            System.out.println("SDI canary analysis using simulated metrics (sdi.deployment.canary-analysis.prometheus-url not set)");
+            return new StubMetricsSource();
+        }
+        return new PrometheusMetricsSource(
+            analysis.getPrometheusUrl(),
+            analysis.getRequestMetric(),
+            analysis.getPollInterval(),
+            analysis.getQueryTimeout()
+        );
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.deployment", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CanaryValidator canaryValidator(SdiProperties properties, CanaryMetricsSource metricsSource,
+                                           ObjectProvider<SdiMetrics> metrics) {
+        SdiProperties.CanaryAnalysis analysis = properties.getDeployment().getCanaryAnalysis();
+        CanaryValidator validator = new CanaryValidator(
+            metricsSource,
+            analysis.getWarmup(),
+            analysis.getPollInterval(),
+            analysis.getMaxDuration(),
+            analysis.getMinSamples(),
+            analysis.getMinCanaryRequests(),
+            analysis.getSignificance(),
+            analysis.getMaxLatencyIncrease(),
+            analysis.getMaxErrorRateIncrease()
+        );
+        metrics.ifAvailable(validator::setMetrics);
+        return validator;
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(KafkaTemplate.class)
+    @ConditionalOnProperty(prefix = "sdi.kafka", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ImmuneBusPublisher immuneBusPublisher(SdiProperties properties, KafkaProperties kafkaProperties,
+                                                 ObjectProvider<SslBundles> sslBundles) {
+        SdiProperties.Kafka kafka = properties.getKafka();
+        return new ImmuneBusPublisher(
+            new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(ImmuneBusPublisher.producerConfig(
+                kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable()),
+                kafka.getLinger(),
+                kafka.getBatchSize(),
+                kafka.getCompression()
+            ))),
+            kafka.getTopic()
+        );
     }
     
     @Bean
@@ -77,14 +378,132 @@ public class SdiAutoConfiguration {
             GeneticExtractor geneticExtractor,
             MutationSynthesizer mutationSynthesizer,
             ImmunizationDeployer deployer,
-            KafkaTemplate<String, String> kafkaTemplate,
+            ImmuneBusPublisher immuneBus,
+            ObjectProvider<FleetPropagationPlanner> fleetPropagationPlanner,
+            ObjectProvider<SignatureRegistry> signatureRegistry,
             SdiProperties properties) {
-        return new PolymorphicResponseEngine(
+        PolymorphicResponseEngine engine = new PolymorphicResponseEngine(
             detector, honeypotManager, geneticExtractor,
-            mutationSynthesizer, deployer, kafkaTemplate
+            mutationSynthesizer, deployer, immuneBus
+        );
+        engine.setTraceWaitTimeout(properties.getHoneypot().getTraceCollector().getWaitTimeout());
+        engine.setLatencyBudget(latencyBudget(properties.getSlo()));
+        engine.setPipelineRetention(properties.getTracing().getRetention(), properties.getTracing().getMaxPipelines());
+        fleetPropagationPlanner.ifAvailable(engine::setFleetPropagationPlanner);
+        signatureRegistry.ifAvailable(registry -> engine.setSignatureRegistry(registry,
+            instanceId(properties.getRegistry()), properties.getRegistry().getLease()));
+        return engine;
+    }
+    
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(KafkaTemplate.class)
+    @ConditionalOnProperty(prefix = "sdi.kafka", name = {"enabled", "consumer-enabled"}, havingValue = "true",
+                           matchIfMissing = true)
+    public ImmuneBusConsumer immuneBusConsumer(SdiProperties properties, KafkaProperties kafkaProperties,
+                                               ObjectProvider<SslBundles> sslBundles,
+                                               PolymorphicResponseEngine engine, Environment environment) {
+        SdiProperties.Kafka kafka = properties.getKafka();
+        engine.setBusDriven(true);
+        ImmuneBusConsumer consumer = new ImmuneBusConsumer(
+            new DefaultKafkaConsumerFactory<>(ImmuneBusConsumer.consumerConfig(
+                kafkaProperties.buildConsumerProperties(sslBundles.getIfAvailable()),
+                kafka.getMaxPollRecords()
+            )),
+            kafka.getTopic(),
+            kafka.getGroupId(),
+            kafka.getConcurrency(),
+            kafka.getWorkerThreads(),
+            Threading.VIRTUAL.isActive(environment),
+            // Runs on a bus worker; the batch is acknowledged once its pipelines finished
+            token -> engine.submit(token).join()
+        );
+        SdiProperties.Aggregation aggregation = kafka.getAggregation();
+        if (aggregation.isEnabled()) {
+            consumer.setAggregator(new FleetAnomalyAggregator(
+                aggregation.getWindow(),
+                aggregation.getBuckets(),
+                aggregation.getClusterBits(),
+                aggregation.getMinEvents(),
+                aggregation.getRateSigma(),
+                aggregation.getClusterShare()
+            ));
+        }
+        return consumer;
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean(name = "sdiModelTopic")
+    @ConditionalOnClass(KafkaTemplate.class)
+    @ConditionalOnProperty(prefix = "sdi.kafka", name = {"enabled", "models.enabled"}, havingValue = "true")
+    public NewTopic sdiModelTopic(SdiProperties properties) {
+        return ModelSnapshotPublisher.newTopic(properties.getKafka().getModels().getTopic());
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(KafkaTemplate.class)
+    @ConditionalOnExpression("${sdi.kafka.enabled:true} and ${sdi.kafka.models.enabled:false} " +
+                             "and '${sdi.kafka.models.role:subscriber}' == 'trainer'")
+    public ModelSnapshotPublisher modelSnapshotPublisher(SdiProperties properties, KafkaProperties kafkaProperties,
+                                                         ObjectProvider<SslBundles> sslBundles,
+                                                         AnomalyDetector detector) {
+        SdiProperties.Models models = properties.getKafka().getModels();
+        ModelSnapshotPublisher publisher = new ModelSnapshotPublisher(
+            new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(ImmuneBusPublisher.producerConfig(
+                kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable()),
+                Duration.ZERO,
+                properties.getKafka().getBatchSize(),
+                properties.getKafka().getCompression()
+            ))),
+            models.getTopic(),
+            models.getKeyframeInterval()
+        );
+        detector.setTrainingListener(publisher::publish);
+        return publisher;
+    }
+    
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnClass(KafkaTemplate.class)
+    @ConditionalOnExpression("${sdi.kafka.enabled:true} and ${sdi.kafka.models.enabled:false} " +
+                             "and '${sdi.kafka.models.role:subscriber}' == 'subscriber'")
+    public ModelSnapshotSubscriber modelSnapshotSubscriber(SdiProperties properties, KafkaProperties kafkaProperties,
+                                                           ObjectProvider<SslBundles> sslBundles,
+                                                           AnomalyDetector detector) {
+        SdiProperties.Models models = properties.getKafka().getModels();
+        return new ModelSnapshotSubscriber(
+            new DefaultKafkaConsumerFactory<>(ModelSnapshotSubscriber.consumerConfig(
+                kafkaProperties.buildConsumerProperties(sslBundles.getIfAvailable())
+            )),
+            models.getTopic(),
+            models.getInitialLoadTimeout(),
+            detector::install
         );
     }
     
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.scheduling", name = "enabled", havingValue = "true")
+    public PipelineScheduler pipelineScheduler(PolymorphicResponseEngine engine, SdiProperties properties,
+                                               Environment environment, ObjectProvider<SdiMetrics> metrics) {
+        SdiProperties.Scheduling scheduling = properties.getScheduling();
+        PipelineScheduler scheduler = new PipelineScheduler(
+            engine::respondToAnomaly,
+            scheduling.getMaxConcurrent(),
+            scheduling.getMaxQueued(),
+            scheduling.getMaxPerService(),
+            scheduling.getServiceCaps(),
+            scheduling.getServiceCriticality(),
+            scheduling.getAging(),
+            scheduling.getCriticalPriority(),
+            Threading.VIRTUAL.isActive(environment)
+        );
+        metrics.ifAvailable(scheduler::registerMetrics);
+        engine.setPipelineScheduler(scheduler);
+        return scheduler;
+    }
+    
     // Fallback: PRE without Kafka and optional components (for simpler setups)
     @Bean
     @ConditionalOnMissingBean(PolymorphicResponseEngine.class)
@@ -93,8 +512,66 @@ public class SdiAutoConfiguration {
             AnomalyDetector detector,
             GeneticExtractor geneticExtractor,
             MutationSynthesizer mutationSynthesizer,
+            ObjectProvider<SignatureRegistry> signatureRegistry,
             SdiProperties properties) {
         // Create a simplified PRE without Kafka, honeypot, or deployment
-        return new PolymorphicResponseEngine(detector, null, geneticExtractor, mutationSynthesizer, null, null);
+        PolymorphicResponseEngine engine =
+            new PolymorphicResponseEngine(detector, null, geneticExtractor, mutationSynthesizer, null, null);
+        engine.setLatencyBudget(latencyBudget(properties.getSlo()));
+        engine.setPipelineRetention(properties.getTracing().getRetention(), properties.getTracing().getMaxPipelines());
+        signatureRegistry.ifAvailable(registry -> engine.setSignatureRegistry(registry,
+            instanceId(properties.getRegistry()), properties.getRegistry().getLease()));
+        return engine;
+    }
+    
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "sdi.registry", name = "enabled", havingValue = "true")
+    public SignatureRegistry signatureRegistry(SdiProperties properties,
+                                               ObjectProvider<KafkaProperties> kafkaProperties,
+                                               ObjectProvider<SslBundles> sslBundles) {
+        SdiProperties.Registry registry = properties.getRegistry();
+        if ("memory".equalsIgnoreCase(registry.getType())) {
+            return new InMemorySignatureRegistry();
+        }
+        KafkaProperties kafka = kafkaProperties.getIfAvailable(KafkaProperties::new);
+        KafkaSignatureRegistry kafkaRegistry = new KafkaSignatureRegistry(
+            new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(ImmuneBusPublisher.producerConfig(
+                kafka.buildProducerProperties(sslBundles.getIfAvailable()),
+                Duration.ZERO,
+                properties.getKafka().getBatchSize(),
+                properties.getKafka().getCompression()
+            ))),
+            new DefaultKafkaConsumerFactory<>(KafkaSignatureRegistry.consumerConfig(
+                kafka.buildConsumerProperties(sslBundles.getIfAvailable())
+            )),
+            registry.getTopic(),
+            registry.getInitialLoadTimeout(),
+            registry.getOperationTimeout()
+        );
+        kafkaRegistry.start();
+        return kafkaRegistry;
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean(name = "sdiSignatureTopic")
+    @ConditionalOnClass(KafkaTemplate.class)
+    @ConditionalOnExpression("${sdi.registry.enabled:false} and '${sdi.registry.type:kafka}' == 'kafka'")
+    public NewTopic sdiSignatureTopic(SdiProperties properties) {
+        return KafkaSignatureRegistry.newTopic(properties.getRegistry().getTopic(),
+            properties.getRegistry().getPartitions());
+    }
+    
+    private static String instanceId(SdiProperties.Registry registry) {
+        if (registry.getInstanceId() != null && !registry.getInstanceId().isBlank()) {
+            return registry.getInstanceId();
+        }
+        String hostname = System.getenv("HOSTNAME");
+        return hostname != null && !hostname.isBlank() ? hostname : "sdi-" + UUID.randomUUID();
+    }
+    
+    private static LatencyBudget latencyBudget(SdiProperties.Slo slo) {
+        return new LatencyBudget(slo.getTimeToImmunize(), slo.getIsolationBudget(), slo.getExtractionBudget(),
+                                 slo.getMutationBudget(), slo.getValidationBudget());
     }
 }
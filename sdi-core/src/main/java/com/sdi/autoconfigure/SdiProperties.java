@@ -1,6 +1,13 @@
 package com.sdi.autoconfigure;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration properties for Synthetic Digital Immunity
@@ -11,14 +18,97 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  *   enabled: true
  *   detection:
  *     threshold: 0.01
+ *     suspicion-threshold: 0.1
  *   honeypot:
  *     enabled: true
+ *     namespace: default
+ *     ttl: 10m
+ *     ready-timeout: 60s
+ *     trace-collector:
+ *       enabled: false
+ *       port: 9400
+ *   kubernetes:
+ *     qps: 10
+ *     burst: 20
+ *     max-concurrent-per-namespace: 4
  *   kafka:
  *     enabled: true
  *     topic: sdi-anomalies
+ *     linger: 20ms
+ *     compression: lz4
+ *     max-poll-records: 100
+ *     aggregation:
+ *       enabled: false
+ *       window: 60s
+ *       min-events: 20
+ *     models:
+ *       enabled: false
+ *       topic: sdi-models
+ *       role: subscriber
  *   deployment:
  *     enabled: true
  *     canary-percentage: 0.05
+ *     rollout-steps: 0.25, 0.5, 1.0
+ *     canary-analysis:
+ *       prometheus-url: http://prometheus:9090
+ *       poll-interval: 10s
+ *       max-duration: 60s
+ *     image-build:
+ *       enabled: false
+ *       layout-dir: /var/lib/sdi/oci
+ *       base-image: "{service}:latest"
+ *       dependency-dir: /var/lib/sdi/deps
+ *       registry: registry.example.com/sdi
+ *   fleet:
+ *     enabled: false
+ *     contexts: prod-us, prod-eu
+ *     namespaces: default, payments
+ *     max-concurrent-rollouts: 8
+ *   registry:
+ *     enabled: false
+ *     type: kafka
+ *     topic: sdi-signatures
+ *     lease: 10m
+ *   ingest:
+ *     enabled: false
+ *     port: 9090
+ *     unix-socket-path: /var/run/sdi/ingest.sock
+ *     shared-memory-files: /dev/shm/sdi/checkout.ring
+ *   admission:
+ *     enabled: false
+ *     latency-budget: 5ms
+ *     cpu-threshold: 0.85
+ *     min-sample-rate: 0.01
+ *     service-min-rates:
+ *       payments: 0.5
+ *     always-score:
+ *       body-size: 65536
+ *   web:
+ *     max-request-size: 1MB
+ *     pipeline-threads: 4
+ *     pipeline-queue: 1000
+ *     max-batch-size: 1000
+ *   tracing:
+ *     export: true
+ *     retention: 1h
+ *     max-pipelines: 1000
+ *   slo:
+ *     time-to-immunize: 10m
+ *     isolation-budget: 90s
+ *     extraction-budget: 5s
+ *     mutation-budget: 30s
+ *     validation-budget: 5m
+ *   scheduling:
+ *     enabled: false
+ *     max-concurrent: 4
+ *     max-queued: 1000
+ *     max-per-service: 1
+ *     service-caps:
+ *       checkout: 2
+ *     service-criticality:
+ *       payments: 3.0
+ *     aging: 60s
+ *     critical-priority: 2.0
  */
 @ConfigurationProperties(prefix = "sdi")
 public class SdiProperties {
@@ -30,8 +120,17 @@ public class SdiProperties {
     
     private Detection detection = new Detection();
     private Honeypot honeypot = new Honeypot();
+    private Kubernetes kubernetes = new Kubernetes();
     private Kafka kafka = new Kafka();
     private Deployment deployment = new Deployment();
+    private Fleet fleet = new Fleet();
+    private Registry registry = new Registry();
+    private Ingest ingest = new Ingest();
+    private Admission admission = new Admission();
+    private Web web = new Web();
+    private Tracing tracing = new Tracing();
+    private Slo slo = new Slo();
+    private Scheduling scheduling = new Scheduling();
     
     public boolean isEnabled() {
         return enabled;
@@ -57,6 +156,14 @@ public class SdiProperties {
         this.honeypot = honeypot;
     }
     
+    public Kubernetes getKubernetes() {
+        return kubernetes;
+    }
+    
+    public void setKubernetes(Kubernetes kubernetes) {
+        this.kubernetes = kubernetes;
+    }
+    
     public Kafka getKafka() {
         return kafka;
     }
@@ -73,6 +180,70 @@ public class SdiProperties {
         this.deployment = deployment;
     }
     
+    public Fleet getFleet() {
+        return fleet;
+    }
+    
+    public Registry getRegistry() {
+        return registry;
+    }
+    
+    public void setRegistry(Registry registry) {
+        this.registry = registry;
+    }
+    
+    public void setFleet(Fleet fleet) {
+        this.fleet = fleet;
+    }
+    
+    public Ingest getIngest() {
+        return ingest;
+    }
+    
+    public void setIngest(Ingest ingest) {
+        this.ingest = ingest;
+    }
+    
+    public Admission getAdmission() {
+        return admission;
+    }
+    
+    public void setAdmission(Admission admission) {
+        this.admission = admission;
+    }
+    
+    public Web getWeb() {
+        return web;
+    }
+    
+    public void setWeb(Web web) {
+        this.web = web;
+    }
+    
+    public Tracing getTracing() {
+        return tracing;
+    }
+    
+    public void setTracing(Tracing tracing) {
+        this.tracing = tracing;
+    }
+    
+    public Slo getSlo() {
+        return slo;
+    }
+    
+    public void setSlo(Slo slo) {
+        this.slo = slo;
+    }
+    
+    public Scheduling getScheduling() {
+        return scheduling;
+    }
+    
+    public void setScheduling(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+    
     public static class Detection {
         /**
          * Anomaly detection threshold (0.0 - 1.0)
@@ -80,6 +251,12 @@ public class SdiProperties {
          */
         private double threshold = 0.01;
         
+        /**
+         * Probability below which non-anomalous requests are still reported
+         * as suspect for fleet aggregation (only used when aggregation is enabled)
+         */
+        private double suspicionThreshold = 0.1;
+        
         public double getThreshold() {
             return threshold;
         }
@@ -87,6 +264,14 @@ public class SdiProperties {
         public void setThreshold(double threshold) {
             this.threshold = threshold;
         }
+        
+        public double getSuspicionThreshold() {
+            return suspicionThreshold;
+        }
+        
+        public void setSuspicionThreshold(double suspicionThreshold) {
+            this.suspicionThreshold = suspicionThreshold;
+        }
     }
     
     public static class Honeypot {
@@ -95,6 +280,23 @@ public class SdiProperties {
          */
         private boolean enabled = true;
         
+        /**
+         * Namespace honeypot pods are spawned in
+         */
+        private String namespace = "default";
+        
+        /**
+         * Maximum honeypot lifetime; older pods are reaped as orphans
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+        
+        /**
+         * How long the pipeline waits for a honeypot pod to become ready
+         */
+        private Duration readyTimeout = Duration.ofSeconds(60);
+        
+        private TraceCollector traceCollector = new TraceCollector();
+        
         public boolean isEnabled() {
             return enabled;
         }
@@ -102,18 +304,80 @@ public class SdiProperties {
         public void setEnabled(boolean enabled) {
             this.enabled = enabled;
         }
+        
+        public String getNamespace() {
+            return namespace;
+        }
+        
+        public void setNamespace(String namespace) {
+            this.namespace = namespace;
+        }
+        
+        public Duration getTtl() {
+            return ttl;
+        }
+        
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+        
+        public Duration getReadyTimeout() {
+            return readyTimeout;
+        }
+        
+        public void setReadyTimeout(Duration readyTimeout) {
+            this.readyTimeout = readyTimeout;
+        }
+        
+        public TraceCollector getTraceCollector() {
+            return traceCollector;
+        }
+        
+        public void setTraceCollector(TraceCollector traceCollector) {
+            this.traceCollector = traceCollector;
+        }
     }
     
-    public static class Kafka {
+    public static class TraceCollector {
         /**
-         * Enable Kafka-based event bus
+         * Accept streamed binary traces from honeypots
          */
-        private boolean enabled = true;
+        private boolean enabled = false;
         
         /**
-         * Kafka topic for anomaly events
+         * TCP port honeypots stream traces to (0 disables TCP)
          */
-        private String topic = "sdi-anomalies";
+        private int port = 9400;
+        
+        /**
+         * Optional Unix domain socket path for co-located honeypots
+         */
+        private String unixSocketPath;
+        
+        /**
+         * Largest accepted trace frame in bytes
+         */
+        private int maxFrameBytes = 1024 * 1024;
+        
+        /**
+         * Payload bytes retained per trace
+         */
+        private int maxPayloadBytes = 64 * 1024;
+        
+        /**
+         * Local symbol ids a honeypot connection may define; higher ids drop the connection
+         */
+        private int maxSymbols = 64 * 1024;
+        
+        /**
+         * Minimum interval between partial trace snapshots
+         */
+        private Duration partialPublishInterval = Duration.ofMillis(200);
+        
+        /**
+         * How long the pipeline waits for the first streamed trace
+         */
+        private Duration waitTimeout = Duration.ofSeconds(30);
         
         public boolean isEnabled() {
             return enabled;
@@ -123,25 +387,210 @@ public class SdiProperties {
             this.enabled = enabled;
         }
         
-        public String getTopic() {
-            return topic;
+        public int getPort() {
+            return port;
         }
         
-        public void setTopic(String topic) {
-            this.topic = topic;
+        public void setPort(int port) {
+            this.port = port;
+        }
+        
+        public String getUnixSocketPath() {
+            return unixSocketPath;
+        }
+        
+        public void setUnixSocketPath(String unixSocketPath) {
+            this.unixSocketPath = unixSocketPath;
+        }
+        
+        public int getMaxFrameBytes() {
+            return maxFrameBytes;
+        }
+        
+        public void setMaxFrameBytes(int maxFrameBytes) {
+            this.maxFrameBytes = maxFrameBytes;
+        }
+        
+        public int getMaxPayloadBytes() {
+            return maxPayloadBytes;
+        }
+        
+        public void setMaxPayloadBytes(int maxPayloadBytes) {
+            this.maxPayloadBytes = maxPayloadBytes;
+        }
+        
+        public int getMaxSymbols() {
+            return maxSymbols;
+        }
+        
+        public void setMaxSymbols(int maxSymbols) {
+            this.maxSymbols = maxSymbols;
+        }
+        
+        public Duration getPartialPublishInterval() {
+            return partialPublishInterval;
+        }
+        
+        public void setPartialPublishInterval(Duration partialPublishInterval) {
+            this.partialPublishInterval = partialPublishInterval;
+        }
+        
+        public Duration getWaitTimeout() {
+            return waitTimeout;
+        }
+        
+        public void setWaitTimeout(Duration waitTimeout) {
+            this.waitTimeout = waitTimeout;
         }
     }
     
-    public static class Deployment {
+    public static class Kubernetes {
         /**
-         * Enable automatic deployment
+         * Sustained Kubernetes API calls per second across all SDI components
+         */
+        private double qps = 10.0;
+        
+        /**
+         * Calls allowed back-to-back before the rate limit applies
+         */
+        private int burst = 20;
+        
+        /**
+         * Maximum concurrent API calls overall
+         */
+        private int maxConcurrent = 16;
+        
+        /**
+         * Maximum concurrent API calls per namespace
+         */
+        private int maxConcurrentPerNamespace = 4;
+        
+        /**
+         * Retries for throttled (429), server-side or I/O failures
+         */
+        private int maxRetries = 5;
+        
+        /**
+         * Backoff before the first retry (doubled per attempt, with jitter)
+         */
+        private Duration initialBackoff = Duration.ofMillis(200);
+        
+        /**
+         * Upper bound on retry backoff
+         */
+        private Duration maxBackoff = Duration.ofSeconds(10);
+        
+        public double getQps() {
+            return qps;
+        }
+        
+        public void setQps(double qps) {
+            this.qps = qps;
+        }
+        
+        public int getBurst() {
+            return burst;
+        }
+        
+        public void setBurst(int burst) {
+            this.burst = burst;
+        }
+        
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+        
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+        
+        public int getMaxConcurrentPerNamespace() {
+            return maxConcurrentPerNamespace;
+        }
+        
+        public void setMaxConcurrentPerNamespace(int maxConcurrentPerNamespace) {
+            this.maxConcurrentPerNamespace = maxConcurrentPerNamespace;
+        }
+        
+        public int getMaxRetries() {
+            return maxRetries;
+        }
+        
+        public void setMaxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+        
+        public Duration getInitialBackoff() {
+            return initialBackoff;
+        }
+        
+        public void setInitialBackoff(Duration initialBackoff) {
+            this.initialBackoff = initialBackoff;
+        }
+        
+        public Duration getMaxBackoff() {
+            return maxBackoff;
+        }
+        
+        public void setMaxBackoff(Duration maxBackoff) {
+            this.maxBackoff = maxBackoff;
+        }
+    }
+    
+    public static class Kafka {
+        /**
+         * Enable Kafka-based event bus
          */
         private boolean enabled = true;
         
         /**
-         * Canary deployment percentage (0.0 - 1.0)
+         * Kafka topic for anomaly events
          */
-        private double canaryPercentage = 0.05;
+        private String topic = "sdi-anomalies";
+        
+        /**
+         * Time an event may wait for its producer batch to fill
+         */
+        private Duration linger = Duration.ofMillis(20);
+        
+        /**
+         * Producer batch size in bytes per partition
+         */
+        private int batchSize = 64 * 1024;
+        
+        /**
+         * Batch compression: none, gzip, snappy, lz4 or zstd
+         */
+        private String compression = "lz4";
+        
+        /**
+         * Run the response pipeline from consumed events instead of inline
+         */
+        private boolean consumerEnabled = true;
+        
+        /**
+         * Consumer group of the response pipeline
+         */
+        private String groupId = "sdi-pre";
+        
+        /**
+         * Upper bound on one consumed batch
+         */
+        private int maxPollRecords = 100;
+        
+        /**
+         * Consumers (partitions polled in parallel) per instance
+         */
+        private int concurrency = 1;
+        
+        /**
+         * Threads responding to the services of one batch in parallel
+         */
+        private int workerThreads = 4;
+        
+        private Aggregation aggregation = new Aggregation();
+        
+        private Models models = new Models();
         
         public boolean isEnabled() {
             return enabled;
@@ -151,13 +600,1290 @@ public class SdiProperties {
             this.enabled = enabled;
         }
         
-        public double getCanaryPercentage() {
-            return canaryPercentage;
+        public String getTopic() {
+            return topic;
         }
         
-        public void setCanaryPercentage(double canaryPercentage) {
-            this.canaryPercentage = canaryPercentage;
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+        
+        public Duration getLinger() {
+            return linger;
+        }
+        
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public String getCompression() {
+            return compression;
+        }
+        
+        public void setCompression(String compression) {
+            this.compression = compression;
+        }
+        
+        public boolean isConsumerEnabled() {
+            return consumerEnabled;
+        }
+        
+        public void setConsumerEnabled(boolean consumerEnabled) {
+            this.consumerEnabled = consumerEnabled;
+        }
+        
+        public String getGroupId() {
+            return groupId;
+        }
+        
+        public void setGroupId(String groupId) {
+            this.groupId = groupId;
+        }
+        
+        public int getMaxPollRecords() {
+            return maxPollRecords;
+        }
+        
+        public void setMaxPollRecords(int maxPollRecords) {
+            this.maxPollRecords = maxPollRecords;
+        }
+        
+        public int getConcurrency() {
+            return concurrency;
+        }
+        
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+        
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+        
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+        
+        public Aggregation getAggregation() {
+            return aggregation;
+        }
+        
+        public void setAggregation(Aggregation aggregation) {
+            this.aggregation = aggregation;
+        }
+        
+        public Models getModels() {
+            return models;
+        }
+        
+        public void setModels(Models models) {
+            this.models = models;
         }
     }
-}
-
+    
+    public static class Models {
+        /**
+         * Distribute trained GMM snapshots over a compacted topic
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Compacted, single-partition model topic (created if missing)
+         */
+        private String topic = "sdi-models";
+        
+        /**
+         * trainer: publish every model trained locally; subscriber: install published models
+         */
+        private String role = "subscriber";
+        
+        /**
+         * Model versions between full keyframes (deltas in between)
+         */
+        private int keyframeInterval = 10;
+        
+        /**
+         * How long a subscriber waits on startup for the current model
+         */
+        private Duration initialLoadTimeout = Duration.ofSeconds(10);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String getTopic() {
+            return topic;
+        }
+        
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+        
+        public String getRole() {
+            return role;
+        }
+        
+        public void setRole(String role) {
+            this.role = role;
+        }
+        
+        public int getKeyframeInterval() {
+            return keyframeInterval;
+        }
+        
+        public void setKeyframeInterval(int keyframeInterval) {
+            this.keyframeInterval = keyframeInterval;
+        }
+        
+        public Duration getInitialLoadTimeout() {
+            return initialLoadTimeout;
+        }
+        
+        public void setInitialLoadTimeout(Duration initialLoadTimeout) {
+            this.initialLoadTimeout = initialLoadTimeout;
+        }
+    }
+    
+    public static class Aggregation {
+        /**
+         * Aggregate events of all sidecars and escalate fleet-wide rate anomalies
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Sliding window the fleet rate is measured over
+         */
+        private Duration window = Duration.ofSeconds(60);
+        
+        /**
+         * Buckets per window (baseline granularity)
+         */
+        private int buckets = 6;
+        
+        /**
+         * Bits of the feature cluster hash (up to 2^bits clusters)
+         */
+        private int clusterBits = 8;
+        
+        /**
+         * Events in the window required before escalating
+         */
+        private int minEvents = 20;
+        
+        /**
+         * Standard deviations above the learned baseline that count as anomalous
+         */
+        private double rateSigma = 4.0;
+        
+        /**
+         * Share of the window one feature cluster needs to be named in the escalation
+         */
+        private double clusterShare = 0.5;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Duration getWindow() {
+            return window;
+        }
+        
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+        
+        public int getBuckets() {
+            return buckets;
+        }
+        
+        public void setBuckets(int buckets) {
+            this.buckets = buckets;
+        }
+        
+        public int getClusterBits() {
+            return clusterBits;
+        }
+        
+        public void setClusterBits(int clusterBits) {
+            this.clusterBits = clusterBits;
+        }
+        
+        public int getMinEvents() {
+            return minEvents;
+        }
+        
+        public void setMinEvents(int minEvents) {
+            this.minEvents = minEvents;
+        }
+        
+        public double getRateSigma() {
+            return rateSigma;
+        }
+        
+        public void setRateSigma(double rateSigma) {
+            this.rateSigma = rateSigma;
+        }
+        
+        public double getClusterShare() {
+            return clusterShare;
+        }
+        
+        public void setClusterShare(double clusterShare) {
+            this.clusterShare = clusterShare;
+        }
+    }
+    
+    public static class Deployment {
+        /**
+         * Enable automatic deployment
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Canary deployment percentage (0.0 - 1.0)
+         */
+        private double canaryPercentage = 0.05;
+        
+        /**
+         * Traffic weights after the canary step, each gated by canary analysis
+         */
+        private List<Double> rolloutSteps = new ArrayList<>(List.of(0.25, 0.5, 1.0));
+        
+        private CanaryAnalysis canaryAnalysis = new CanaryAnalysis();
+        
+        private ImageBuild imageBuild = new ImageBuild();
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public double getCanaryPercentage() {
+            return canaryPercentage;
+        }
+        
+        public void setCanaryPercentage(double canaryPercentage) {
+            this.canaryPercentage = canaryPercentage;
+        }
+        
+        public List<Double> getRolloutSteps() {
+            return rolloutSteps;
+        }
+        
+        public void setRolloutSteps(List<Double> rolloutSteps) {
+            this.rolloutSteps = rolloutSteps;
+        }
+        
+        public CanaryAnalysis getCanaryAnalysis() {
+            return canaryAnalysis;
+        }
+        
+        public void setCanaryAnalysis(CanaryAnalysis canaryAnalysis) {
+            this.canaryAnalysis = canaryAnalysis;
+        }
+        
+        public ImageBuild getImageBuild() {
+            return imageBuild;
+        }
+        
+        public void setImageBuild(ImageBuild imageBuild) {
+            this.imageBuild = imageBuild;
+        }
+    }
+    
+    public static class ImageBuild {
+        /**
+         * Build patched images locally instead of through the CI/CD pipeline
+         */
+        private boolean enabled = false;
+        
+        /**
+         * OCI image layout holding the service images; patched images are added to it
+         */
+        private String layoutDir = "/var/lib/sdi/oci";
+        
+        /**
+         * Ref name of the current service image in the layout ({service} is replaced)
+         */
+        private String baseImage = "{service}:latest";
+        
+        /**
+         * Dependency jars to compile against, optionally one subdirectory per service
+         */
+        private String dependencyDir = "/var/lib/sdi/deps";
+        
+        /**
+         * Directory inside the image the patched classes are written to
+         */
+        private String classesPath = "/app/classes";
+        
+        /**
+         * Builds running at the same time
+         */
+        private int maxConcurrentBuilds = 2;
+        
+        /**
+         * Registry patched images are pushed to before the rollout, e.g.
+         * registry.example.com/team; rollouts are refused while unset
+         */
+        private String registry;
+        
+        /**
+         * Push over plain HTTP (local registries)
+         */
+        private boolean insecureRegistry = false;
+        
+        /**
+         * Registry user; pushes are anonymous when unset
+         */
+        private String registryUsername;
+        
+        /**
+         * Registry password or access token
+         */
+        private String registryPassword;
+        
+        /**
+         * Timeout for each registry request
+         */
+        private Duration pushTimeout = Duration.ofSeconds(60);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String getLayoutDir() {
+            return layoutDir;
+        }
+        
+        public void setLayoutDir(String layoutDir) {
+            this.layoutDir = layoutDir;
+        }
+        
+        public String getBaseImage() {
+            return baseImage;
+        }
+        
+        public void setBaseImage(String baseImage) {
+            this.baseImage = baseImage;
+        }
+        
+        public String getDependencyDir() {
+            return dependencyDir;
+        }
+        
+        public void setDependencyDir(String dependencyDir) {
+            this.dependencyDir = dependencyDir;
+        }
+        
+        public String getClassesPath() {
+            return classesPath;
+        }
+        
+        public void setClassesPath(String classesPath) {
+            this.classesPath = classesPath;
+        }
+        
+        public int getMaxConcurrentBuilds() {
+            return maxConcurrentBuilds;
+        }
+        
+        public void setMaxConcurrentBuilds(int maxConcurrentBuilds) {
+            this.maxConcurrentBuilds = maxConcurrentBuilds;
+        }
+        
+        public String getRegistry() {
+            return registry;
+        }
+        
+        public void setRegistry(String registry) {
+            this.registry = registry;
+        }
+        
+        public boolean isInsecureRegistry() {
+            return insecureRegistry;
+        }
+        
+        public void setInsecureRegistry(boolean insecureRegistry) {
+            this.insecureRegistry = insecureRegistry;
+        }
+        
+        public String getRegistryUsername() {
+            return registryUsername;
+        }
+        
+        public void setRegistryUsername(String registryUsername) {
+            this.registryUsername = registryUsername;
+        }
+        
+        public String getRegistryPassword() {
+            return registryPassword;
+        }
+        
+        public void setRegistryPassword(String registryPassword) {
+            this.registryPassword = registryPassword;
+        }
+        
+        public Duration getPushTimeout() {
+            return pushTimeout;
+        }
+        
+        public void setPushTimeout(Duration pushTimeout) {
+            this.pushTimeout = pushTimeout;
+        }
+    }
+    
+    public static class CanaryAnalysis {
+        /**
+         * Prometheus base URL; simulated metrics are used when unset
+         */
+        private String prometheusUrl;
+        
+        /**
+         * Request duration histogram queried in Prometheus
+         */
+        private String requestMetric = "http_server_requests_seconds";
+        
+        /**
+         * Timeout for each Prometheus query
+         */
+        private Duration queryTimeout = Duration.ofSeconds(5);
+        
+        /**
+         * Delay before the first poll while canary pods start
+         */
+        private Duration warmup = Duration.ofSeconds(10);
+        
+        /**
+         * Interval between metric polls
+         */
+        private Duration pollInterval = Duration.ofSeconds(10);
+        
+        /**
+         * Deadline after which a verdict is forced from point estimates
+         */
+        private Duration maxDuration = Duration.ofSeconds(60);
+        
+        /**
+         * Polls with traffic required before an early pass or fail
+         */
+        private int minSamples = 3;
+        
+        /**
+         * Canary requests required before an early pass
+         */
+        private long minCanaryRequests = 1000;
+        
+        /**
+         * Significance level for the latency and error-rate tests
+         */
+        private double significance = 0.05;
+        
+        /**
+         * Allowed canary/baseline latency ratio
+         */
+        private double maxLatencyIncrease = 1.2;
+        
+        /**
+         * Allowed canary/baseline error rate ratio
+         */
+        private double maxErrorRateIncrease = 1.1;
+        
+        public String getPrometheusUrl() {
+            return prometheusUrl;
+        }
+        
+        public void setPrometheusUrl(String prometheusUrl) {
+            this.prometheusUrl = prometheusUrl;
+        }
+        
+        public String getRequestMetric() {
+            return requestMetric;
+        }
+        
+        public void setRequestMetric(String requestMetric) {
+            this.requestMetric = requestMetric;
+        }
+        
+        public Duration getQueryTimeout() {
+            return queryTimeout;
+        }
+        
+        public void setQueryTimeout(Duration queryTimeout) {
+            this.queryTimeout = queryTimeout;
+        }
+        
+        public Duration getWarmup() {
+            return warmup;
+        }
+        
+        public void setWarmup(Duration warmup) {
+            this.warmup = warmup;
+        }
+        
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+        
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+        
+        public Duration getMaxDuration() {
+            return maxDuration;
+        }
+        
+        public void setMaxDuration(Duration maxDuration) {
+            this.maxDuration = maxDuration;
+        }
+        
+        public int getMinSamples() {
+            return minSamples;
+        }
+        
+        public void setMinSamples(int minSamples) {
+            this.minSamples = minSamples;
+        }
+        
+        public long getMinCanaryRequests() {
+            return minCanaryRequests;
+        }
+        
+        public void setMinCanaryRequests(long minCanaryRequests) {
+            this.minCanaryRequests = minCanaryRequests;
+        }
+        
+        public double getSignificance() {
+            return significance;
+        }
+        
+        public void setSignificance(double significance) {
+            this.significance = significance;
+        }
+        
+        public double getMaxLatencyIncrease() {
+            return maxLatencyIncrease;
+        }
+        
+        public void setMaxLatencyIncrease(double maxLatencyIncrease) {
+            this.maxLatencyIncrease = maxLatencyIncrease;
+        }
+        
+        public double getMaxErrorRateIncrease() {
+            return maxErrorRateIncrease;
+        }
+        
+        public void setMaxErrorRateIncrease(double maxErrorRateIncrease) {
+            this.maxErrorRateIncrease = maxErrorRateIncrease;
+        }
+    }
+    
+    public static class Fleet {
+        /**
+         * Propagate patches to every deployment of the service across the fleet
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Kube contexts to propagate to; empty uses the default client only
+         */
+        private List<String> contexts = new ArrayList<>();
+        
+        /**
+         * Namespaces searched in every cluster
+         */
+        private List<String> namespaces = new ArrayList<>(List.of("default"));
+        
+        /**
+         * Global limit on deployment rollouts in flight
+         */
+        private int maxConcurrentRollouts = 8;
+        
+        /**
+         * Deployments in the first wave
+         */
+        private int firstWaveSize = 1;
+        
+        /**
+         * Size multiplier from one wave to the next
+         */
+        private double waveGrowthFactor = 2.0;
+        
+        /**
+         * Failed fraction of a wave that still lets the next wave start
+         */
+        private double maxWaveFailureRatio = 0.0;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public List<String> getContexts() {
+            return contexts;
+        }
+        
+        public void setContexts(List<String> contexts) {
+            this.contexts = contexts;
+        }
+        
+        public List<String> getNamespaces() {
+            return namespaces;
+        }
+        
+        public void setNamespaces(List<String> namespaces) {
+            this.namespaces = namespaces;
+        }
+        
+        public int getMaxConcurrentRollouts() {
+            return maxConcurrentRollouts;
+        }
+        
+        public void setMaxConcurrentRollouts(int maxConcurrentRollouts) {
+            this.maxConcurrentRollouts = maxConcurrentRollouts;
+        }
+        
+        public int getFirstWaveSize() {
+            return firstWaveSize;
+        }
+        
+        public void setFirstWaveSize(int firstWaveSize) {
+            this.firstWaveSize = firstWaveSize;
+        }
+        
+        public double getWaveGrowthFactor() {
+            return waveGrowthFactor;
+        }
+        
+        public void setWaveGrowthFactor(double waveGrowthFactor) {
+            this.waveGrowthFactor = waveGrowthFactor;
+        }
+        
+        public double getMaxWaveFailureRatio() {
+            return maxWaveFailureRatio;
+        }
+        
+        public void setMaxWaveFailureRatio(double maxWaveFailureRatio) {
+            this.maxWaveFailureRatio = maxWaveFailureRatio;
+        }
+    }
+    
+    public static class Registry {
+        /**
+         * Deduplicate responses to the same exploit across the fleet
+         */
+        private boolean enabled = false;
+        
+        /**
+         * kafka: shared through a compacted topic; memory: this process only
+         */
+        private String type = "kafka";
+        
+        /**
+         * Compacted registry topic (created if missing)
+         */
+        private String topic = "sdi-signatures";
+        
+        /**
+         * Partitions of the registry topic
+         */
+        private int partitions = 6;
+        
+        /**
+         * Claim lease; the holder renews it at every pipeline phase
+         */
+        private Duration lease = Duration.ofMinutes(10);
+        
+        /**
+         * Id of this engine instance (defaults to the HOSTNAME environment variable)
+         */
+        private String instanceId;
+        
+        /**
+         * How long startup waits to replay the registry topic
+         */
+        private Duration initialLoadTimeout = Duration.ofSeconds(10);
+        
+        /**
+         * How long a registry operation waits for its record to be read back
+         */
+        private Duration operationTimeout = Duration.ofSeconds(10);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        public void setType(String type) {
+            this.type = type;
+        }
+        
+        public String getTopic() {
+            return topic;
+        }
+        
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+        
+        public int getPartitions() {
+            return partitions;
+        }
+        
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+        
+        public Duration getLease() {
+            return lease;
+        }
+        
+        public void setLease(Duration lease) {
+            this.lease = lease;
+        }
+        
+        public String getInstanceId() {
+            return instanceId;
+        }
+        
+        public void setInstanceId(String instanceId) {
+            this.instanceId = instanceId;
+        }
+        
+        public Duration getInitialLoadTimeout() {
+            return initialLoadTimeout;
+        }
+        
+        public void setInitialLoadTimeout(Duration initialLoadTimeout) {
+            this.initialLoadTimeout = initialLoadTimeout;
+        }
+        
+        public Duration getOperationTimeout() {
+            return operationTimeout;
+        }
+        
+        public void setOperationTimeout(Duration operationTimeout) {
+            this.operationTimeout = operationTimeout;
+        }
+    }
+    
+    public static class Ingest {
+        /**
+         * Accept streamed binary feature vectors (see FeatureIngestionServer)
+         */
+        private boolean enabled = false;
+        
+        /**
+         * TCP port clients stream feature vectors to (0 disables TCP)
+         */
+        private int port = 9090;
+        
+        /**
+         * Optional Unix domain socket path for co-located apps
+         */
+        private String unixSocketPath;
+        
+        /**
+         * Shared-memory channel files, one per producing app (file name = default service id)
+         */
+        private List<String> sharedMemoryFiles = new ArrayList<>();
+        
+        /**
+         * Slots in each shared-memory ring (power of two)
+         */
+        private int sharedMemorySlots = 4096;
+        
+        /**
+         * Largest accepted frame in bytes
+         */
+        private int maxFrameBytes = 64 * 1024;
+        
+        /**
+         * Unread verdict bytes per connection above which the server stops reading its requests
+         */
+        private long maxOutboundBytes = 1024 * 1024;
+        
+        /**
+         * Threads running pipelines triggered by ingested requests
+         */
+        private int pipelineThreads = 4;
+        
+        /**
+         * Triggered pipelines allowed to wait for a thread before new triggers are dropped
+         */
+        private int pipelineQueue = 1000;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public int getPort() {
+            return port;
+        }
+        
+        public void setPort(int port) {
+            this.port = port;
+        }
+        
+        public String getUnixSocketPath() {
+            return unixSocketPath;
+        }
+        
+        public void setUnixSocketPath(String unixSocketPath) {
+            this.unixSocketPath = unixSocketPath;
+        }
+        
+        public List<String> getSharedMemoryFiles() {
+            return sharedMemoryFiles;
+        }
+        
+        public void setSharedMemoryFiles(List<String> sharedMemoryFiles) {
+            this.sharedMemoryFiles = sharedMemoryFiles;
+        }
+        
+        public int getSharedMemorySlots() {
+            return sharedMemorySlots;
+        }
+        
+        public void setSharedMemorySlots(int sharedMemorySlots) {
+            this.sharedMemorySlots = sharedMemorySlots;
+        }
+        
+        public int getMaxFrameBytes() {
+            return maxFrameBytes;
+        }
+        
+        public void setMaxFrameBytes(int maxFrameBytes) {
+            this.maxFrameBytes = maxFrameBytes;
+        }
+        
+        public long getMaxOutboundBytes() {
+            return maxOutboundBytes;
+        }
+        
+        public void setMaxOutboundBytes(long maxOutboundBytes) {
+            this.maxOutboundBytes = maxOutboundBytes;
+        }
+        
+        public int getPipelineThreads() {
+            return pipelineThreads;
+        }
+        
+        public void setPipelineThreads(int pipelineThreads) {
+            this.pipelineThreads = pipelineThreads;
+        }
+        
+        public int getPipelineQueue() {
+            return pipelineQueue;
+        }
+        
+        public void setPipelineQueue(int pipelineQueue) {
+            this.pipelineQueue = pipelineQueue;
+        }
+    }
+    
+    public static class Admission {
+        /**
+         * Shed load in front of the detector in the REST APIs instead of scoring every request
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Most time detection may add to a caller; requests that cannot be scored within it pass unscored
+         */
+        private Duration latencyBudget = Duration.ofMillis(5);
+        
+        /**
+         * Requests scored at once (0 = twice the available processors)
+         */
+        private int maxConcurrency = 0;
+        
+        /**
+         * Process CPU load (0.0 - 1.0) above which the sidecar starts sampling
+         */
+        private double cpuThreshold = 0.85;
+        
+        /**
+         * Lowest sample rate under overload for services not listed in service-min-rates
+         */
+        private double minSampleRate = 0.01;
+        
+        /**
+         * Lowest sample rate under overload per service id
+         */
+        private Map<String, Double> serviceMinRates = new HashMap<>();
+        
+        /**
+         * Feature thresholds (path-length, header-count, body-size, ...) at or above which a request is always scored
+         */
+        private Map<String, Double> alwaysScore = new HashMap<>();
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Duration getLatencyBudget() {
+            return latencyBudget;
+        }
+        
+        public void setLatencyBudget(Duration latencyBudget) {
+            this.latencyBudget = latencyBudget;
+        }
+        
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+        
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+        
+        public double getCpuThreshold() {
+            return cpuThreshold;
+        }
+        
+        public void setCpuThreshold(double cpuThreshold) {
+            this.cpuThreshold = cpuThreshold;
+        }
+        
+        public double getMinSampleRate() {
+            return minSampleRate;
+        }
+        
+        public void setMinSampleRate(double minSampleRate) {
+            this.minSampleRate = minSampleRate;
+        }
+        
+        public Map<String, Double> getServiceMinRates() {
+            return serviceMinRates;
+        }
+        
+        public void setServiceMinRates(Map<String, Double> serviceMinRates) {
+            this.serviceMinRates = serviceMinRates;
+        }
+        
+        public Map<String, Double> getAlwaysScore() {
+            return alwaysScore;
+        }
+        
+        public void setAlwaysScore(Map<String, Double> alwaysScore) {
+            this.alwaysScore = alwaysScore;
+        }
+    }
+    
+    public static class Web {
+        /**
+         * Largest single request accepted by the reactive API (bodies are streamed, not buffered)
+         */
+        private DataSize maxRequestSize = DataSize.ofMegabytes(1);
+        
+        /**
+         * Threads running pipelines triggered by the reactive API, or by the servlet API when
+         * admission control is enabled (otherwise servlet requests run their pipeline inline)
+         */
+        private int pipelineThreads = 4;
+        
+        /**
+         * Triggered pipelines allowed to wait for a thread before new triggers are dropped
+         */
+        private int pipelineQueue = 1000;
+        
+        /**
+         * Most requests accepted in one POST /api/sdi/analyze/batch call
+         */
+        private int maxBatchSize = 1000;
+        
+        public DataSize getMaxRequestSize() {
+            return maxRequestSize;
+        }
+        
+        public void setMaxRequestSize(DataSize maxRequestSize) {
+            this.maxRequestSize = maxRequestSize;
+        }
+        
+        public int getPipelineThreads() {
+            return pipelineThreads;
+        }
+        
+        public void setPipelineThreads(int pipelineThreads) {
+            this.pipelineThreads = pipelineThreads;
+        }
+        
+        public int getPipelineQueue() {
+            return pipelineQueue;
+        }
+        
+        public void setPipelineQueue(int pipelineQueue) {
+            this.pipelineQueue = pipelineQueue;
+        }
+        
+        public int getMaxBatchSize() {
+            return maxBatchSize;
+        }
+        
+        public void setMaxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+        }
+    }
+    
+    public static class Tracing {
+        /**
+         * Export pipeline spans through the application's OpenTelemetry bean, if there is one
+         * (the timeline endpoint works either way)
+         */
+        private boolean export = true;
+        
+        /**
+         * How long finished pipelines stay available to the pipeline and timeline endpoints
+         */
+        private Duration retention = Duration.ofHours(1);
+        
+        /**
+         * Finished pipelines kept at most; the oldest are dropped first
+         */
+        private int maxPipelines = 1000;
+        
+        public boolean isExport() {
+            return export;
+        }
+        
+        public void setExport(boolean export) {
+            this.export = export;
+        }
+        
+        public Duration getRetention() {
+            return retention;
+        }
+        
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+        
+        public int getMaxPipelines() {
+            return maxPipelines;
+        }
+        
+        public void setMaxPipelines(int maxPipelines) {
+            this.maxPipelines = maxPipelines;
+        }
+    }
+    
+    public static class Slo {
+        /**
+         * Target time from the start of a pipeline to the end of its rollout;
+         * phases without a budget of their own share what is left of it
+         */
+        private Duration timeToImmunize = Duration.ofMinutes(10);
+        
+        /**
+         * Longest wait for the honeypot and its exploit trace (unset = rest of the target)
+         */
+        private Duration isolationBudget;
+        
+        /**
+         * Longest genetic search; at the budget the fittest signature so far is used
+         * (unset = rest of the target)
+         */
+        private Duration extractionBudget;
+        
+        /**
+         * Longest mutation search; at the budget the most diverse candidate so far is used
+         * (unset = rest of the target)
+         */
+        private Duration mutationBudget;
+        
+        /**
+         * Longest canary analysis over all rollout steps; at the budget each step
+         * is decided on the samples collected (unset = rest of the target)
+         */
+        private Duration validationBudget;
+        
+        public Duration getTimeToImmunize() {
+            return timeToImmunize;
+        }
+        
+        public void setTimeToImmunize(Duration timeToImmunize) {
+            this.timeToImmunize = timeToImmunize;
+        }
+        
+        public Duration getIsolationBudget() {
+            return isolationBudget;
+        }
+        
+        public void setIsolationBudget(Duration isolationBudget) {
+            this.isolationBudget = isolationBudget;
+        }
+        
+        public Duration getExtractionBudget() {
+            return extractionBudget;
+        }
+        
+        public void setExtractionBudget(Duration extractionBudget) {
+            this.extractionBudget = extractionBudget;
+        }
+        
+        public Duration getMutationBudget() {
+            return mutationBudget;
+        }
+        
+        public void setMutationBudget(Duration mutationBudget) {
+            this.mutationBudget = mutationBudget;
+        }
+        
+        public Duration getValidationBudget() {
+            return validationBudget;
+        }
+        
+        public void setValidationBudget(Duration validationBudget) {
+            this.validationBudget = validationBudget;
+        }
+    }
+    
+    public static class Scheduling {
+        /**
+         * Queue pipelines by priority (anomaly score x service criticality, raised with age)
+         * instead of running them in arrival order on the detecting thread
+         */
+        private boolean enabled = false;
+        
+        /**
+         * Pipelines running at once (honeypots, image builds and canaries in flight)
+         */
+        private int maxConcurrent = 4;
+        
+        /**
+         * Pipelines allowed to wait; when full, only critical exploits get in, by preempting the lowest
+         */
+        private int maxQueued = 1000;
+        
+        /**
+         * Pipelines of one service running at once
+         */
+        private int maxPerService = 1;
+        
+        /**
+         * Per-service overrides of max-per-service
+         */
+        private Map<String, Integer> serviceCaps = new HashMap<>();
+        
+        /**
+         * Priority multiplier per service id (others 1.0)
+         */
+        private Map<String, Double> serviceCriticality = new HashMap<>();
+        
+        /**
+         * Wait that raises a queued pipeline's priority by one, so low-priority work is not starved
+         */
+        private Duration aging = Duration.ofSeconds(60);
+        
+        /**
+         * Priority from which an exploit preempts queued lower-priority pipelines when the queue is full
+         */
+        private double criticalPriority = 2.0;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+        
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+        
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+        
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+        
+        public int getMaxPerService() {
+            return maxPerService;
+        }
+        
+        public void setMaxPerService(int maxPerService) {
+            this.maxPerService = maxPerService;
+        }
+        
+        public Map<String, Integer> getServiceCaps() {
+            return serviceCaps;
+        }
+        
+        public void setServiceCaps(Map<String, Integer> serviceCaps) {
+            this.serviceCaps = serviceCaps;
+        }
+        
+        public Map<String, Double> getServiceCriticality() {
+            return serviceCriticality;
+        }
+        
+        public void setServiceCriticality(Map<String, Double> serviceCriticality) {
+            this.serviceCriticality = serviceCriticality;
+        }
+        
+        public Duration getAging() {
+            return aging;
+        }
+        
+        public void setAging(Duration aging) {
+            this.aging = aging;
+        }
+        
+        public double getCriticalPriority() {
+            return criticalPriority;
+        }
+        
+        public void setCriticalPriority(double criticalPriority) {
+            this.criticalPriority = criticalPriority;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary schema for anomaly events on the Immune Bus
+ *
+ * Layout (all multi-byte numbers big-endian, varints unsigned LEB128):
+ * <pre>
+ *   u8      magic 0x5D
+ *   u8      schema version
+ *   u8      flags (bit 0: features stored as float32, bit 1: suspect)
+ *   varint  timestamp (epoch millis)
+ *   f64     anomaly score
+ *   string  service id           (varint length + UTF-8)
+ *   varint  metadata entries, then key/value strings
+ *   varint  feature dimension, then the features (f32 or f64)
+ *   16 B    trace id, then 8 B detection span id (appended in version 1;
+ *           events without them get fresh ids when decoded)
+ * </pre>
+ * Features default to float32: detector features are normalized request
+ * statistics, so the halved size matters more than the lost mantissa bits.
+ * Decoders ignore bytes after the last field they know, so later versions
+ * may only append fields; anything else needs a new version number, which
+ * older decoders reject.
+ */
+public final class AnomalyEventCodec {
+
+    public static final byte MAGIC = 0x5D;
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_FLOAT32_FEATURES = 1;
+    private static final int FLAG_SUSPECT = 2;
+    private static final int MAX_STRING_BYTES = 1 << 16;
+    private static final int MAX_ENTRIES = 1 << 12;
+    private static final int TRACE_BYTES = 24;
+
+    private AnomalyEventCodec() {
+    }
+
+    public static byte[] encode(AnomalyToken token) {
+        return encode(token, true);
+    }
+
+    /**
+     * @param float32Features Store features as float32 (otherwise float64, lossless)
+     */
+    public static byte[] encode(AnomalyToken token, boolean float32Features) {
+        byte[] serviceId = utf8(token.getServiceId());
+        Map<String, String> metadata = token.getMetadata();
+        double[] features = token.getFeatureVector();
+
+        int size = 3 + 10 + 8 + 5 + serviceId.length + 5 + 5 + features.length * (float32Features ? 4 : 8) + TRACE_BYTES;
+        byte[][] metadataBytes = new byte[metadata.size() * 2][];
+        int i = 0;
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            metadataBytes[i] = utf8(entry.getKey());
+            metadataBytes[i + 1] = utf8(entry.getValue());
+            size += 10 + metadataBytes[i].length + metadataBytes[i + 1].length;
+            i += 2;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) ((float32Features ? FLAG_FLOAT32_FEATURES : 0) | (token.isSuspect() ? FLAG_SUSPECT : 0)));
+        putVarLong(buffer, token.getTimestamp());
+        buffer.putDouble(token.getAnomalyScore());
+        putBytes(buffer, serviceId);
+        putVarLong(buffer, metadata.size());
+        for (byte[] bytes : metadataBytes) {
+            putBytes(buffer, bytes);
+        }
+        putVarLong(buffer, features.length);
+        for (double feature : features) {
+            if (float32Features) {
+                buffer.putFloat((float) feature);
+            } else {
+                buffer.putDouble(feature);
+            }
+        }
+        putHex(buffer, token.getTraceId(), 32);
+        putHex(buffer, token.getSpanId(), 16);
+
+        byte[] encoded = new byte[buffer.position()];
+        buffer.flip().get(encoded);
+        return encoded;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a supported anomaly event
+     */
+    public static AnomalyToken decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            if (buffer.get() != MAGIC) {
+                throw new IllegalArgumentException("Not an anomaly event (bad magic byte)");
+            }
+            int version = buffer.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("Unsupported anomaly event version " + version);
+            }
+            int flags = buffer.get();
+            boolean float32Features = (flags & FLAG_FLOAT32_FEATURES) != 0;
+            long timestamp = getVarLong(buffer);
+            double score = buffer.getDouble();
+            String serviceId = getString(buffer);
+
+            int entries = getCount(buffer);
+            Map<String, String> metadata = new HashMap<>(entries * 2);
+            for (int i = 0; i < entries; i++) {
+                metadata.put(getString(buffer), getString(buffer));
+            }
+
+            int dimension = getCount(buffer);
+            double[] features = new double[dimension];
+            for (int i = 0; i < dimension; i++) {
+                features[i] = float32Features ? buffer.getFloat() : buffer.getDouble();
+            }
+            boolean suspect = (flags & FLAG_SUSPECT) != 0;
+            if (!buffer.hasRemaining()) {
+                return new AnomalyToken(serviceId, metadata, timestamp, score, features, suspect);
+            }
+            String traceId = getHex(buffer, 32);
+            String spanId = getHex(buffer, 16);
+            return new AnomalyToken(serviceId, metadata, timestamp, score, features, suspect, traceId, spanId);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated anomaly event (" + data.length + " bytes)", e);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        putVarLong(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static void putHex(ByteBuffer buffer, String hex, int digits) {
+        if (hex == null || hex.length() != digits) {
+            throw new IllegalArgumentException("Anomaly event trace ids must be " + digits + " hex digits: " + hex);
+        }
+        for (int i = 0; i < digits; i += 16) {
+            buffer.putLong(Long.parseUnsignedLong(hex.substring(i, i + 16), 16));
+        }
+    }
+
+    private static String getHex(ByteBuffer buffer, int digits) {
+        StringBuilder hex = new StringBuilder(digits);
+        for (int i = 0; i < digits; i += 16) {
+            String word = Long.toHexString(buffer.getLong());
+            hex.append("0000000000000000", word.length(), 16).append(word);
+        }
+        return hex.toString();
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in anomaly event");
+    }
+
+    private static int getCount(ByteBuffer buffer) {
+        long count = getVarLong(buffer);
+        if (count > MAX_ENTRIES) {
+            throw new IllegalArgumentException("Anomaly event count out of range: " + count);
+        }
+        return (int) count;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        long length = getVarLong(buffer);
+        if (length > MAX_STRING_BYTES || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Anomaly event string length out of range: " + length);
+        }
+        String value = new String(buffer.array(), buffer.position(), (int) length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + (int) length);
+        return value;
+    }
+}
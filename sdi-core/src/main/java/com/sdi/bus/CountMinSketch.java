@@ -0,0 +1,55 @@
+package com.sdi.bus;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch over long keys
+ *
+ * Fixed memory (depth x width counters) regardless of how many distinct keys
+ * are counted; estimates never undercount and overcount by at most
+ * e/width of the total with probability 1 - e^-depth.
+ */
+final class CountMinSketch {
+
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+        0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int width;
+    private final int depth;
+    private final int[] counters;
+
+    CountMinSketch(int width, int depth) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("Sketch depth must be between 1 and " + SEEDS.length);
+        }
+        this.width = Math.max(1, width);
+        this.depth = depth;
+        this.counters = new int[this.width * depth];
+    }
+
+    void add(long key) {
+        for (int row = 0; row < depth; row++) {
+            counters[row * width + index(key, row)]++;
+        }
+    }
+
+    int estimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[row * width + index(key, row)]);
+        }
+        return estimate;
+    }
+
+    void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    private int index(long key, int row) {
+        long hash = (key + SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        hash ^= hash >>> 31;
+        return (int) Math.floorMod(hash, (long) width);
+    }
+}
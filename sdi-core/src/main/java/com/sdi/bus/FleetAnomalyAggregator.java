@@ -0,0 +1,310 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fleet-wide aggregation of anomaly events from every sidecar
+ *
+ * A sidecar only sees its own node's traffic, so an attack spread thinly
+ * across nodes stays below every local threshold. Sidecars therefore also
+ * publish suspect events, and this stage folds all events of a service
+ * into a sliding window of time buckets (by event time). Each bucket keeps
+ * an event count and a count-min sketch over feature clusters; clusters
+ * are sign-random-projection hashes of the feature vector, so similar
+ * requests from different nodes land in the same cluster without any
+ * raw events being retained. Only a few strongest events per cluster are
+ * kept as representatives for escalation.
+ *
+ * A per-service baseline (EWMA mean and variance of bucket counts) is
+ * learned from closed buckets. An escalated token is emitted when the
+ * window count exceeds the baseline by rateSigma standard deviations; a
+ * service then cools down for one window. When one cluster makes up at
+ * least clusterShare of the window, it is reported as the escalation
+ * cluster and its strongest event is escalated. Services are also the
+ * Kafka record key, so each service's events reach exactly one consumer
+ * and aggregation scales out with the consumer group. Windows of services
+ * quiet for two windows are dropped and restart from a zero baseline, as
+ * long as they return within ten windows; a service first seen after a
+ * rebalance, or after a longer silence, waits one window for its
+ * baseline to warm up.
+ */
+public class FleetAnomalyAggregator {
+
+    public static final String ESCALATION_KEY = "sdi.escalation";
+    public static final String FLEET_EVENTS_KEY = "sdi.fleet.events";
+    public static final String CLUSTER_KEY = "sdi.fleet.cluster";
+
+    private static final int SKETCH_WIDTH = 256;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_REPRESENTATIVES = 16;
+    private static final double BASELINE_ALPHA = 0.1;
+    private static final int QUIET_RETENTION_WINDOWS = 10;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final int clusterBits;
+    private final int minEvents;
+    private final double rateSigma;
+    private final double clusterShare;
+    private final Map<String, ServiceWindow> windows = new ConcurrentHashMap<>();
+    private final Map<String, Long> quietServices = new ConcurrentHashMap<>();
+
+    /**
+     * @param window Sliding window length
+     * @param buckets Buckets per window (baseline granularity)
+     * @param clusterBits Bits of the feature cluster hash
+     * @param minEvents Events in the window required before escalating
+     * @param rateSigma Standard deviations above baseline that count as anomalous
+     * @param clusterShare Share of the window a cluster needs to be reported as the escalation cluster
+     */
+    public FleetAnomalyAggregator(Duration window, int buckets, int clusterBits, int minEvents, double rateSigma,
+                                  double clusterShare) {
+        this.buckets = Math.max(2, buckets);
+        this.bucketMillis = Math.max(1, window.toMillis() / this.buckets);
+        this.clusterBits = Math.min(62, Math.max(1, clusterBits));
+        this.minEvents = Math.max(1, minEvents);
+        this.rateSigma = rateSigma;
+        this.clusterShare = clusterShare;
+    }
+
+    /**
+     * Fold a batch of events into the windows
+     *
+     * @return Escalated tokens, at most one per service
+     */
+    public List<AnomalyToken> observe(List<AnomalyToken> tokens) {
+        List<AnomalyToken> escalations = new ArrayList<>();
+        long latest = 0;
+        for (AnomalyToken token : tokens) {
+            ServiceWindow window = windows.computeIfAbsent(token.getServiceId(),
+                serviceId -> new ServiceWindow(serviceId, quietServices.remove(serviceId) != null));
+            AnomalyToken escalated = window.observe(token, featureCluster(token.getFeatureVector(), clusterBits));
+            if (escalated != null) {
+                escalations.removeIf(previous -> previous.getServiceId().equals(escalated.getServiceId()));
+                escalations.add(escalated);
+            }
+            latest = Math.max(latest, token.getTimestamp());
+        }
+        // Drop windows of services quiet for two windows, remembering for a while that their baseline is zero
+        long latestBucket = latest / bucketMillis;
+        long idleBefore = latestBucket - 2L * buckets;
+        windows.entrySet().removeIf(entry -> {
+            if (entry.getValue().isIdle(idleBefore)) {
+                quietServices.put(entry.getKey(), latestBucket);
+                return true;
+            }
+            return false;
+        });
+        long forgetBefore = latestBucket - (long) QUIET_RETENTION_WINDOWS * buckets;
+        quietServices.values().removeIf(quietSince -> quietSince < forgetBefore);
+        return escalations;
+    }
+
+    public int getTrackedServices() {
+        return windows.size();
+    }
+
+    /**
+     * Services whose windows were dropped and that are still remembered as quiet
+     */
+    public int getQuietServices() {
+        return quietServices.size();
+    }
+
+    /**
+     * Locality-sensitive cluster id of a feature vector
+     *
+     * Each bit is the sign of a pseudo-random +-1 projection of the
+     * log-squashed features, so vectors at a small angle share most bits.
+     * The projections are derived from fixed hashes, so every consumer
+     * instance assigns the same clusters.
+     */
+    public static long featureCluster(double[] features, int bits) {
+        long cluster = 0;
+        for (int bit = 0; bit < bits; bit++) {
+            double projection = 0.0;
+            for (int d = 0; d < features.length; d++) {
+                double squashed = Math.signum(features[d]) * Math.log1p(Math.abs(features[d]));
+                projection += mix(bit * 1_000_003L + d) < 0 ? -squashed : squashed;
+            }
+            if (projection >= 0) {
+                cluster |= 1L << bit;
+            }
+        }
+        return cluster;
+    }
+
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Sliding window and baseline of one service
+     */
+    private final class ServiceWindow {
+        private final String serviceId;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[] counts = new int[buckets];
+        private final CountMinSketch[] sketches = new CountMinSketch[buckets];
+        private final Map<Long, AnomalyToken> representatives = new HashMap<>();
+        private long currentBucket = Long.MIN_VALUE;
+        private long cooldownUntil = Long.MIN_VALUE;
+        private double baselineMean;
+        private double baselineVariance;
+        private int closedBuckets;
+
+        /**
+         * @param quiet Known to have had no events recently, so the baseline starts warm at zero
+         */
+        ServiceWindow(String serviceId, boolean quiet) {
+            this.serviceId = serviceId;
+            this.closedBuckets = quiet ? buckets : 0;
+            for (int i = 0; i < buckets; i++) {
+                sketches[i] = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+            }
+        }
+
+        AnomalyToken observe(AnomalyToken token, long cluster) {
+            lock.lock();
+            try {
+                long bucket = token.getTimestamp() / bucketMillis;
+                if (currentBucket == Long.MIN_VALUE) {
+                    currentBucket = bucket;
+                } else if (bucket > currentBucket) {
+                    advance(bucket);
+                } else if (bucket <= currentBucket - buckets) {
+                    return null; // Older than the window
+                }
+                counts[slot(bucket)]++;
+                sketches[slot(bucket)].add(cluster);
+                representatives.merge(cluster, token,
+                    (current, candidate) -> candidate.getAnomalyScore() > current.getAnomalyScore() ? candidate : current);
+                if (representatives.size() > MAX_REPRESENTATIVES) {
+                    evictWeakestRepresentative(cluster);
+                }
+                return evaluate();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isIdle(long idleBefore) {
+            return currentBucket != Long.MIN_VALUE && currentBucket < idleBefore;
+        }
+
+        /**
+         * Close buckets up to the new one, feeding their counts into the baseline
+         */
+        private void advance(long bucket) {
+            long gap = bucket - currentBucket;
+            updateBaseline(counts[slot(currentBucket)]);
+            // Buckets skipped over had no events
+            for (long i = 1; i < Math.min(gap, 4L * buckets); i++) {
+                updateBaseline(0);
+            }
+            // Reuse the slots of buckets that left the window
+            for (long next = Math.max(currentBucket + 1, bucket - buckets + 1); next <= bucket; next++) {
+                counts[slot(next)] = 0;
+                sketches[slot(next)].clear();
+            }
+            currentBucket = bucket;
+            if (gap >= buckets) {
+                representatives.clear();
+            }
+        }
+
+        private void updateBaseline(int count) {
+            double delta = count - baselineMean;
+            baselineMean += BASELINE_ALPHA * delta;
+            baselineVariance = (1 - BASELINE_ALPHA) * (baselineVariance + BASELINE_ALPHA * delta * delta);
+            closedBuckets++;
+        }
+
+        private int slot(long bucket) {
+            return (int) Math.floorMod(bucket, (long) buckets);
+        }
+
+        private AnomalyToken evaluate() {
+            if (currentBucket < cooldownUntil || closedBuckets < buckets) {
+                return null; // Cooling down or baseline still warming up
+            }
+            int windowCount = 0;
+            for (int count : counts) {
+                windowCount += count;
+            }
+            if (windowCount < minEvents) {
+                return null;
+            }
+
+            // Expected window count with a Poisson floor on the variance
+            double expected = baselineMean * buckets;
+            double threshold = expected + rateSigma * Math.sqrt(Math.max(1.0,
+                Math.max(baselineVariance, baselineMean) * buckets));
+
+            long topCluster = 0;
+            int topCount = 0;
+            AnomalyToken strongest = null;
+            for (Map.Entry<Long, AnomalyToken> entry : representatives.entrySet()) {
+                int estimate = windowEstimate(entry.getKey());
+                if (estimate > topCount) {
+                    topCount = estimate;
+                    topCluster = entry.getKey();
+                }
+                if (strongest == null || entry.getValue().getAnomalyScore() > strongest.getAnomalyScore()) {
+                    strongest = entry.getValue();
+                }
+            }
+            if (windowCount <= threshold) {
+                return null;
+            }
+
+            cooldownUntil = currentBucket + buckets;
+            boolean concentrated = topCount >= clusterShare * windowCount;
+            AnomalyToken representative = concentrated ? representatives.get(topCluster) : strongest;
+            Map<String, String> metadata = new HashMap<>(representative.getMetadata());
+            metadata.put(ESCALATION_KEY, "fleet");
+            metadata.put(FLEET_EVENTS_KEY, Integer.toString(windowCount));
+            if (concentrated) {
+                metadata.put(CLUSTER_KEY, Long.toHexString(topCluster));
+            }
+            System.out.println(String.format("Fleet escalation for %s: %d events in window (expected %.1f)%s",
+                serviceId, windowCount, expected, concentrated ? ", cluster " + Long.toHexString(topCluster) : ""));
+            return new AnomalyToken(serviceId, metadata, representative.getTimestamp(),
+                representative.getAnomalyScore(), representative.getFeatureVector(), false);
+        }
+
+        private int windowEstimate(long cluster) {
+            int estimate = 0;
+            for (CountMinSketch sketch : sketches) {
+                estimate += sketch.estimate(cluster);
+            }
+            return estimate;
+        }
+
+        private void evictWeakestRepresentative(long keep) {
+            Long weakest = null;
+            int weakestCount = Integer.MAX_VALUE;
+            for (Long cluster : representatives.keySet()) {
+                int estimate = windowEstimate(cluster);
+                if (cluster != keep && estimate < weakestCount) {
+                    weakest = cluster;
+                    weakestCount = estimate;
+                }
+            }
+            if (weakest != null) {
+                representatives.remove(weakest);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.support.VirtualThreads;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+
+/**
+ * Consumes anomaly events from the Immune Bus in batches
+ *
+ * Each poll yields a batch of records. They are decoded and, when a
+ * {@link FleetAnomalyAggregator} is set, folded into the fleet-wide windows,
+ * which may add escalated events. Suspect events never start a response on
+ * their own. Events for the same service are collapsed to the highest-scoring
+ * one, since concurrent responses for one service would race to roll out
+ * conflicting patches. The surviving events, one per service, run in
+ * parallel on a bounded worker pool; records that fail to decode are logged
+ * and skipped rather than blocking the partition.
+ *
+ * Responses take far longer than a poll interval, so the listener does not
+ * wait for them: it pauses the batch's partitions and returns, and the
+ * consumer keeps polling (and stays in the group) while the responses run.
+ * Once every service of the batch was handled the batch is acknowledged and
+ * its partitions resume, so events are still delivered at least once. If a
+ * rebalance moves a partition meanwhile, its batch is redelivered to the
+ * new owner; the signature registry keeps the response from running twice.
+ */
+public class ImmuneBusConsumer implements AutoCloseable {
+
+    private final ConcurrentMessageListenerContainer<String, byte[]> container;
+    private final Consumer<AnomalyToken> handler;
+    private final ExecutorService workers;
+    private volatile FleetAnomalyAggregator aggregator;
+
+    /**
+     * @param consumerFactory Factory for String/byte[] consumers (see {@link #consumerConfig})
+     * @param topic Anomaly event topic
+     * @param groupId Consumer group sharing the topic's partitions
+     * @param concurrency Consumers (and so partitions polled in parallel) in this process
+     * @param workerThreads Threads handling the services of one batch in parallel
+     * @param handler Runs the response to one service's strongest event of a batch; the batch is
+     *                acknowledged once the handler returned for each of its services
+     */
+    public ImmuneBusConsumer(ConsumerFactory<String, byte[]> consumerFactory, String topic, String groupId,
+                             int concurrency, int workerThreads, Consumer<AnomalyToken> handler) {
+        this(consumerFactory, topic, groupId, concurrency, workerThreads, false, handler);
+    }
+
+    /**
+     * @param virtualThreads Handle each service on its own virtual thread (Java 21+) instead of
+     *                       workerThreads platform threads; a batch is still bounded by max poll records
+     */
+    public ImmuneBusConsumer(ConsumerFactory<String, byte[]> consumerFactory, String topic, String groupId,
+                             int concurrency, int workerThreads, boolean virtualThreads,
+                             Consumer<AnomalyToken> handler) {
+        this.handler = handler;
+        this.workers = VirtualThreads.newExecutor(virtualThreads, workerThreads, "sdi-immune-bus");
+
+        ContainerProperties containerProperties = new ContainerProperties(topic);
+        containerProperties.setGroupId(groupId);
+        containerProperties.setAckMode(ContainerProperties.AckMode.MANUAL);
+        containerProperties.setMessageListener((BatchAcknowledgingMessageListener<String, byte[]>) this::onPoll);
+        this.container = new ConcurrentMessageListenerContainer<>(consumerFactory, containerProperties);
+        this.container.setConcurrency(Math.max(1, concurrency));
+    }
+
+    /**
+     * Consumer settings for the bus on top of the application's Kafka settings
+     *
+     * @param base Connection and security settings (e.g. from Spring Boot's KafkaProperties)
+     * @param maxPollRecords Upper bound on one batch
+     */
+    public static Map<String, Object> consumerConfig(Map<String, Object> base, int maxPollRecords) {
+        Map<String, Object> config = new HashMap<>(base);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return config;
+    }
+
+    /**
+     * Aggregate all events (including suspects) across sidecars before responding
+     */
+    public void setAggregator(FleetAnomalyAggregator aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    public void start() {
+        container.start();
+    }
+
+    public boolean isRunning() {
+        return container.isRunning();
+    }
+
+    /**
+     * Start handling a polled batch; its partitions stay paused until it is acknowledged
+     */
+    private void onPoll(List<ConsumerRecord<String, byte[]>> records, Acknowledgment acknowledgment) {
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            partitions.add(new TopicPartition(record.topic(), record.partition()));
+        }
+        partitions.forEach(container::pausePartition);
+        onBatch(records).whenComplete((ignored, error) -> {
+            // Acks from worker threads are committed by the consumer thread at its next poll
+            acknowledgment.acknowledge();
+            partitions.forEach(container::resumePartition);
+        });
+    }
+
+    /**
+     * Handle one polled batch
+     *
+     * @return Future completed once every service in the batch was handled
+     */
+    public CompletableFuture<Void> onBatch(List<ConsumerRecord<String, byte[]>> records) {
+        List<AnomalyToken> tokens = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                tokens.add(AnomalyEventCodec.decode(record.value()));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping malformed anomaly event at " + record.topic() + "-" +
+                                 record.partition() + "@" + record.offset() + ": " + e.getMessage());
+            }
+        }
+        FleetAnomalyAggregator fleet = aggregator;
+        if (fleet != null) {
+            tokens.addAll(fleet.observe(tokens));
+        }
+
+        Map<String, AnomalyToken> strongest = new LinkedHashMap<>();
+        for (AnomalyToken token : tokens) {
+            if (!token.isSuspect()) {
+                strongest.merge(token.getServiceId(), token,
+                    (current, candidate) -> candidate.getAnomalyScore() > current.getAnomalyScore() ? candidate : current);
+            }
+        }
+        if (strongest.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Void>> handled = new ArrayList<>(strongest.size());
+        for (AnomalyToken token : strongest.values()) {
+            handled.add(CompletableFuture.runAsync(() -> handler.accept(token), workers)
+                .exceptionally(error -> {
+                    System.err.println("Anomaly response failed for " + token.getServiceId() + ": " +
+                                     error.getMessage());
+                    return null;
+                }));
+        }
+        return CompletableFuture.allOf(handled.toArray(new CompletableFuture<?>[0]));
+    }
+
+    @Override
+    public void close() {
+        container.stop();
+        workers.shutdownNow();
+    }
+}
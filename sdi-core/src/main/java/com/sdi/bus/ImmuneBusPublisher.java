@@ -0,0 +1,81 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes anomaly events to the Immune Bus
+ *
+ * Events are encoded with {@link AnomalyEventCodec} and keyed by service id,
+ * so the default partitioner keeps every service on one partition and its
+ * events are consumed in order. Throughput comes from the producer: records
+ * linger briefly to fill batches, and whole batches are compressed.
+ */
+public class ImmuneBusPublisher implements AutoCloseable {
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final String topic;
+
+    /**
+     * @param template Template over a String/byte[] producer (see {@link #producerConfig})
+     * @param topic Anomaly event topic
+     */
+    public ImmuneBusPublisher(KafkaTemplate<String, byte[]> template, String topic) {
+        this.template = template;
+        this.topic = topic;
+    }
+
+    /**
+     * Producer settings for the bus on top of the application's Kafka settings
+     *
+     * @param base Connection and security settings (e.g. from Spring Boot's KafkaProperties)
+     * @param linger Time a record may wait for its batch to fill
+     * @param batchSize Maximum batch size in bytes per partition
+     * @param compression Batch compression: none, gzip, snappy, lz4 or zstd
+     */
+    public static Map<String, Object> producerConfig(Map<String, Object> base, Duration linger, int batchSize,
+                                                     String compression) {
+        Map<String, Object> config = new HashMap<>(base);
+        config.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        config.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        config.put(ProducerConfig.LINGER_MS_CONFIG, (int) linger.toMillis());
+        config.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        config.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compression);
+        return config;
+    }
+
+    /**
+     * Send an anomaly event without waiting for the broker
+     *
+     * @return Future completed when the broker acknowledged the record
+     */
+    public CompletableFuture<SendResult<String, byte[]>> publish(AnomalyToken token) {
+        return template.send(topic, token.getServiceId(), AnomalyEventCodec.encode(token))
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    System.err.println("Failed to publish anomaly event for " + token.getServiceId() +
+                                     ": " + error.getMessage());
+                }
+            });
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    @Override
+    public void close() {
+        // Send lingering batches before the producers are closed
+        template.flush();
+        template.getProducerFactory().reset();
+    }
+}
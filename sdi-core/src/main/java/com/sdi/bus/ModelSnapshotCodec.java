@@ -0,0 +1,251 @@
+package com.sdi.bus;
+
+import com.sdi.detector.GmmSnapshot;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary schema for GMM snapshots on the model topic
+ *
+ * A frame is either a keyframe, holding every parameter, or a delta against
+ * a keyframe. Parameters are laid out as all weights, then all means, then
+ * the upper triangle (with diagonal) of each covariance matrix, which is
+ * symmetric. A delta stores a bitmap of the parameters whose bits differ
+ * from its keyframe, followed by only those values; unchanged components
+ * and the many identical covariance entries cost one bit each.
+ * <pre>
+ *   u8      magic 0x5E
+ *   u8      schema version
+ *   u8      kind (0 keyframe, 1 delta)
+ *   varint  model version
+ *   varint  base (keyframe) version      (delta only)
+ *   varint  trained samples
+ *   varint  components, varint dimension
+ *   keyframe: f64 parameters
+ *   delta:    changed-parameter bitmap, then f64 changed parameters
+ * </pre>
+ */
+public final class ModelSnapshotCodec {
+
+    public static final byte MAGIC = 0x5E;
+    public static final byte VERSION = 1;
+
+    private static final int KIND_KEYFRAME = 0;
+    private static final int KIND_DELTA = 1;
+    private static final int MAX_COMPONENTS = 1 << 10;
+    private static final int MAX_DIMENSION = 1 << 10;
+
+    private ModelSnapshotCodec() {
+    }
+
+    public static byte[] encodeKeyframe(GmmSnapshot snapshot) {
+        double[] parameters = flatten(snapshot);
+        ByteBuffer buffer = header(KIND_KEYFRAME, snapshot, -1, parameters.length * 8);
+        for (double parameter : parameters) {
+            buffer.putDouble(parameter);
+        }
+        return toArray(buffer);
+    }
+
+    /**
+     * @param keyframe Keyframe the receiver already has; must have the same shape
+     */
+    public static byte[] encodeDelta(GmmSnapshot snapshot, GmmSnapshot keyframe) {
+        if (snapshot.getComponents() != keyframe.getComponents() || snapshot.getDimension() != keyframe.getDimension()) {
+            throw new IllegalArgumentException("Delta needs a keyframe of the same shape");
+        }
+        double[] parameters = flatten(snapshot);
+        double[] base = flatten(keyframe);
+        byte[] bitmap = new byte[(parameters.length + 7) / 8];
+        int changed = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            if (Double.doubleToRawLongBits(parameters[i]) != Double.doubleToRawLongBits(base[i])) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+                changed++;
+            }
+        }
+        ByteBuffer buffer = header(KIND_DELTA, snapshot, keyframe.getVersion(), bitmap.length + changed * 8);
+        buffer.put(bitmap);
+        for (int i = 0; i < parameters.length; i++) {
+            if ((bitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                buffer.putDouble(parameters[i]);
+            }
+        }
+        return toArray(buffer);
+    }
+
+    /**
+     * Version of the keyframe a frame depends on
+     *
+     * @return -1 for a keyframe
+     */
+    public static long baseVersion(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            int kind = readHeader(buffer);
+            getVarLong(buffer); // model version
+            return kind == KIND_DELTA ? getVarLong(buffer) : -1;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated model snapshot (" + data.length + " bytes)", e);
+        }
+    }
+
+    /**
+     * @param keyframe The keyframe a delta was encoded against (ignored for keyframes)
+     * @throws IllegalArgumentException if the bytes are not a supported frame or the keyframe does not match
+     */
+    public static GmmSnapshot decode(byte[] data, GmmSnapshot keyframe) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            int kind = readHeader(buffer);
+            long version = getVarLong(buffer);
+            long baseVersion = kind == KIND_DELTA ? getVarLong(buffer) : -1;
+            long trainedSamples = getVarLong(buffer);
+            int components = getCount(buffer, MAX_COMPONENTS);
+            int dimension = getCount(buffer, MAX_DIMENSION);
+            int count = parameterCount(components, dimension);
+
+            double[] parameters = new double[count];
+            if (kind == KIND_KEYFRAME) {
+                for (int i = 0; i < count; i++) {
+                    parameters[i] = buffer.getDouble();
+                }
+            } else {
+                if (keyframe == null || keyframe.getVersion() != baseVersion) {
+                    throw new IllegalArgumentException("Model delta v" + version + " needs keyframe v" + baseVersion +
+                        (keyframe != null ? ", have v" + keyframe.getVersion() : ", have none"));
+                }
+                if (keyframe.getComponents() != components || keyframe.getDimension() != dimension) {
+                    throw new IllegalArgumentException("Model delta v" + version + " does not match its keyframe's shape");
+                }
+                double[] base = flatten(keyframe);
+                byte[] bitmap = new byte[(count + 7) / 8];
+                buffer.get(bitmap);
+                for (int i = 0; i < count; i++) {
+                    parameters[i] = (bitmap[i >>> 3] & (1 << (i & 7))) != 0 ? buffer.getDouble() : base[i];
+                }
+            }
+            return unflatten(version, trainedSamples, components, dimension, parameters);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated model snapshot (" + data.length + " bytes)", e);
+        }
+    }
+
+    private static ByteBuffer header(int kind, GmmSnapshot snapshot, long baseVersion, int payloadBytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(3 + 5 * 10 + payloadBytes);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) kind);
+        putVarLong(buffer, snapshot.getVersion());
+        if (kind == KIND_DELTA) {
+            putVarLong(buffer, baseVersion);
+        }
+        putVarLong(buffer, snapshot.getTrainedSamples());
+        putVarLong(buffer, snapshot.getComponents());
+        putVarLong(buffer, snapshot.getDimension());
+        return buffer;
+    }
+
+    private static int readHeader(ByteBuffer buffer) {
+        if (buffer.get() != MAGIC) {
+            throw new IllegalArgumentException("Not a model snapshot (bad magic byte)");
+        }
+        int version = buffer.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported model snapshot version " + version);
+        }
+        int kind = buffer.get();
+        if (kind != KIND_KEYFRAME && kind != KIND_DELTA) {
+            throw new IllegalArgumentException("Unknown model snapshot kind " + kind);
+        }
+        return kind;
+    }
+
+    private static int parameterCount(int components, int dimension) {
+        return components * (1 + dimension + dimension * (dimension + 1) / 2);
+    }
+
+    private static double[] flatten(GmmSnapshot snapshot) {
+        int components = snapshot.getComponents();
+        int dimension = snapshot.getDimension();
+        double[] parameters = new double[parameterCount(components, dimension)];
+        int p = 0;
+        for (int c = 0; c < components; c++) {
+            parameters[p++] = snapshot.getWeight(c);
+        }
+        for (int c = 0; c < components; c++) {
+            for (double value : snapshot.getMean(c)) {
+                parameters[p++] = value;
+            }
+        }
+        for (int c = 0; c < components; c++) {
+            for (int i = 0; i < dimension; i++) {
+                for (int j = i; j < dimension; j++) {
+                    parameters[p++] = snapshot.getCovariance(c, i, j);
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private static GmmSnapshot unflatten(long version, long trainedSamples, int components, int dimension,
+                                         double[] parameters) {
+        double[] weights = new double[components];
+        double[][] means = new double[components][dimension];
+        double[][][] covariances = new double[components][dimension][dimension];
+        int p = 0;
+        for (int c = 0; c < components; c++) {
+            weights[c] = parameters[p++];
+        }
+        for (int c = 0; c < components; c++) {
+            for (int i = 0; i < dimension; i++) {
+                means[c][i] = parameters[p++];
+            }
+        }
+        for (int c = 0; c < components; c++) {
+            for (int i = 0; i < dimension; i++) {
+                for (int j = i; j < dimension; j++) {
+                    covariances[c][i][j] = parameters[p];
+                    covariances[c][j][i] = parameters[p];
+                    p++;
+                }
+            }
+        }
+        return new GmmSnapshot(version, trainedSamples, weights, means, covariances);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] encoded = new byte[buffer.position()];
+        buffer.flip().get(encoded);
+        return encoded;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in model snapshot");
+    }
+
+    private static int getCount(ByteBuffer buffer, int max) {
+        long count = getVarLong(buffer);
+        if (count < 1 || count > max) {
+            throw new IllegalArgumentException("Model snapshot size out of range: " + count);
+        }
+        return (int) count;
+    }
+}
@@ -0,0 +1,122 @@
+package com.sdi.bus;
+
+import com.sdi.detector.GmmSnapshot;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Publishes trained GMM snapshots to the model topic
+ *
+ * The topic is log-compacted with a single partition, and frames are keyed
+ * by kind: the latest keyframe and the latest delta both survive compaction,
+ * in publish order. Deltas are always encoded against the latest keyframe
+ * rather than the previous version, so a sidecar starting from the compacted
+ * topic needs nothing more than those two records. A new keyframe is sent
+ * every keyframeInterval versions, when the model changes shape, or when a
+ * delta would not be much smaller than a keyframe.
+ */
+public class ModelSnapshotPublisher implements AutoCloseable {
+
+    public static final String KEYFRAME_KEY = "gmm/keyframe";
+    public static final String DELTA_KEY = "gmm/delta";
+
+    private static final double MAX_DELTA_RATIO = 0.5;
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final String topic;
+    private final int keyframeInterval;
+    private final ReentrantLock lock = new ReentrantLock();
+    private GmmSnapshot keyframe;
+    private int deltasSinceKeyframe;
+
+    /**
+     * @param template Template over a String/byte[] producer
+     * @param topic Compacted model topic (see {@link #newTopic})
+     * @param keyframeInterval Versions between keyframes
+     */
+    public ModelSnapshotPublisher(KafkaTemplate<String, byte[]> template, String topic, int keyframeInterval) {
+        this.template = template;
+        this.topic = topic;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /**
+     * Definition of the model topic, created on startup by Spring's KafkaAdmin
+     */
+    public static NewTopic newTopic(String name) {
+        return TopicBuilder.name(name).partitions(1).compact().build();
+    }
+
+    /**
+     * Send a snapshot without waiting for the broker
+     *
+     * @return Future completed when the broker acknowledged the frame
+     */
+    public CompletableFuture<SendResult<String, byte[]>> publish(GmmSnapshot snapshot) {
+        String key;
+        byte[] frame;
+        lock.lock();
+        try {
+            frame = delta(snapshot);
+            if (frame != null) {
+                key = DELTA_KEY;
+                deltasSinceKeyframe++;
+            } else {
+                key = KEYFRAME_KEY;
+                frame = ModelSnapshotCodec.encodeKeyframe(snapshot);
+                keyframe = snapshot;
+                deltasSinceKeyframe = 0;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        System.out.println("Publishing GMM v" + snapshot.getVersion() + " as " + key + " (" + frame.length + " bytes)");
+        return template.send(topic, 0, key, frame)
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    System.err.println("Failed to publish GMM v" + snapshot.getVersion() + ": " + error.getMessage());
+                    forgetKeyframe(snapshot);
+                }
+            });
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    private byte[] delta(GmmSnapshot snapshot) {
+        if (keyframe == null || deltasSinceKeyframe + 1 >= keyframeInterval ||
+            keyframe.getComponents() != snapshot.getComponents() || keyframe.getDimension() != snapshot.getDimension()) {
+            return null;
+        }
+        byte[] delta = ModelSnapshotCodec.encodeDelta(snapshot, keyframe);
+        return delta.length < MAX_DELTA_RATIO * ModelSnapshotCodec.encodeKeyframe(keyframe).length ? delta : null;
+    }
+
+    /**
+     * Subscribers cannot apply deltas against a keyframe that never arrived,
+     * so the next snapshot must be a keyframe again
+     */
+    private void forgetKeyframe(GmmSnapshot snapshot) {
+        lock.lock();
+        try {
+            if (keyframe == snapshot) {
+                keyframe = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        template.flush();
+        template.getProducerFactory().reset();
+    }
+}
@@ -0,0 +1,162 @@
+package com.sdi.bus;
+
+import com.sdi.detector.GmmSnapshot;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Follows the model topic and hot-swaps every new GMM snapshot into the detector
+ *
+ * Every sidecar reads the whole topic, so partitions are assigned directly
+ * instead of through a consumer group, and reading always starts from the
+ * beginning of the compacted log: the latest keyframe followed by the
+ * latest delta. {@link #start()} blocks until that backlog is applied (or
+ * the initial load timeout passes), so the first request is already scored
+ * against the fleet model. Deltas whose keyframe is not the one held are
+ * skipped; the next keyframe resynchronizes.
+ */
+public class ModelSnapshotSubscriber implements AutoCloseable {
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final String topic;
+    private final Duration initialLoadTimeout;
+    private final Consumer<GmmSnapshot> installer;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile boolean running;
+    private volatile org.apache.kafka.clients.consumer.Consumer<String, byte[]> consumer;
+    private Thread poller;
+    private GmmSnapshot keyframe; // Only touched by the polling thread
+    private volatile GmmSnapshot latest;
+
+    /**
+     * @param consumerFactory Factory for String/byte[] consumers (see {@link #consumerConfig})
+     * @param topic Compacted model topic
+     * @param initialLoadTimeout How long {@link #start()} waits for the existing model
+     * @param installer Installs a decoded snapshot, e.g. {@code detector::install}
+     */
+    public ModelSnapshotSubscriber(ConsumerFactory<String, byte[]> consumerFactory, String topic,
+                                   Duration initialLoadTimeout, Consumer<GmmSnapshot> installer) {
+        this.consumerFactory = consumerFactory;
+        this.topic = topic;
+        this.initialLoadTimeout = initialLoadTimeout;
+        this.installer = installer;
+    }
+
+    /**
+     * Consumer settings on top of the application's Kafka settings; no group
+     * is used, as every instance reads the whole topic
+     */
+    public static Map<String, Object> consumerConfig(Map<String, Object> base) {
+        Map<String, Object> config = new HashMap<>(base);
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return config;
+    }
+
+    public void start() {
+        running = true;
+        poller = new Thread(this::poll, "sdi-model-subscriber");
+        poller.setDaemon(true);
+        poller.start();
+        try {
+            if (!loaded.await(initialLoadTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.err.println("GMM snapshot not loaded within " + initialLoadTimeout +
+                                 "; detecting with the local model until one arrives");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply one frame of the model topic
+     */
+    public void apply(byte[] frame) {
+        try {
+            long baseVersion = ModelSnapshotCodec.baseVersion(frame);
+            if (baseVersion >= 0 && (keyframe == null || keyframe.getVersion() != baseVersion)) {
+                System.err.println("Skipping GMM delta against keyframe v" + baseVersion + " not held");
+                return;
+            }
+            GmmSnapshot snapshot = ModelSnapshotCodec.decode(frame, keyframe);
+            if (baseVersion < 0) {
+                keyframe = snapshot;
+            }
+            if (latest == null || snapshot.getVersion() > latest.getVersion()) {
+                installer.accept(snapshot);
+                latest = snapshot;
+                System.out.println("Installed GMM v" + snapshot.getVersion() + " trained on " +
+                                 snapshot.getTrainedSamples() + " samples");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Skipping malformed GMM snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Latest snapshot installed, or null if none arrived yet
+     */
+    public GmmSnapshot getLatest() {
+        return latest;
+    }
+
+    private void poll() {
+        TopicPartition partition = new TopicPartition(topic, 0);
+        try (org.apache.kafka.clients.consumer.Consumer<String, byte[]> kafka = consumerFactory.createConsumer()) {
+            consumer = kafka;
+            kafka.assign(List.of(partition));
+            kafka.seekToBeginning(List.of(partition));
+            long end = kafka.endOffsets(List.of(partition)).getOrDefault(partition, 0L);
+            while (running) {
+                if (kafka.position(partition) >= end) {
+                    loaded.countDown();
+                }
+                ConsumerRecords<String, byte[]> records = kafka.poll(Duration.ofSeconds(1));
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    if (record.value() != null) {
+                        apply(record.value());
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // Closing
+        } catch (Exception e) {
+            System.err.println("GMM snapshot subscription stopped: " + e.getMessage());
+        } finally {
+            consumer = null;
+            loaded.countDown();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        org.apache.kafka.clients.consumer.Consumer<String, byte[]> kafka = consumer;
+        if (kafka != null) {
+            kafka.wakeup();
+        }
+        if (poller != null) {
+            try {
+                poller.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sdi.deployer;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Source of request metrics for canary analysis
+ *
+ * Implementations must not block the calling thread; the validator chains
+ * the returned futures and schedules the next poll from their completion.
+ */
+public interface CanaryMetricsSource {
+
+    /**
+     * Fetch metrics for one workload over the most recent interval
+     *
+     * @param namespace Kubernetes namespace of the workload
+     * @param workload Deployment name (baseline service or canary)
+     * @return Future completed with the sample for the interval
+     */
+    CompletableFuture<MetricsSample> fetch(String namespace, String workload);
+
+    /**
+     * Request metrics observed over one polling interval
+     */
+    class MetricsSample {
+        private final double avgLatencyMs;
+        private final long requests;
+        private final long errors;
+
+        public MetricsSample(double avgLatencyMs, long requests, long errors) {
+            this.avgLatencyMs = avgLatencyMs;
+            this.requests = requests;
+            this.errors = errors;
+        }
+
+        /**
+         * Mean latency, or NaN when the workload served no requests
+         */
+        public double getAvgLatencyMs() { return avgLatencyMs; }
+        public long getRequests() { return requests; }
+        public long getErrors() { return errors; }
+
+        public boolean hasTraffic() {
+            return requests > 0 && !Double.isNaN(avgLatencyMs);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.sdi.deployer;
+
+import com.sdi.deployer.CanaryMetricsSource.MetricsSample;
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.trace.PipelineTrace;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.distribution.TDistribution;
+import org.apache.commons.math3.stat.StatUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Scheduler-driven canary analysis
+ *
+ * Each validation is a small state machine (WARMING_UP -> SAMPLING -> PASSED/FAILED)
+ * advanced by timer ticks: a tick starts asynchronous metric fetches for the
+ * baseline and canary workloads, and their completion evaluates the accumulated
+ * samples and schedules the next tick. No thread is held between polls.
+ *
+ * Latency is compared with a one-sided Welch t-test over per-interval means and
+ * error rate with a two-proportion z-test over accumulated request counts, both
+ * against the baseline scaled by the allowed increase. The validation fails as
+ * soon as either is significantly worse, passes as soon as latency is
+ * significantly within tolerance (with enough canary traffic and no significant
+ * error regression), and otherwise decides on point estimates at the deadline.
+ * A caller with a latency budget can bring the deadline forward for one
+ * validation.
+ */
+public class CanaryValidator implements AutoCloseable {
+
+    public enum Phase {
+        WARMING_UP,
+        SAMPLING,
+        PASSED,
+        FAILED
+    }
+
+    private static final int MAX_CONSECUTIVE_FETCH_FAILURES = 3;
+
+    private final CanaryMetricsSource metricsSource;
+    private final Duration warmup;
+    private final Duration pollInterval;
+    private final Duration maxDuration;
+    private final int minSamples;
+    private final long minCanaryRequests;
+    private final double significance;
+    private final double maxLatencyIncrease;
+    private final double maxErrorRateIncrease;
+    private final NormalDistribution standardNormal = new NormalDistribution();
+    private final Set<Validation> activeValidations = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService scheduler;
+    private SdiMetrics metrics = SdiMetrics.NOOP;
+
+    /**
+     * Validator with the deployer's historical limits
+     * (60s window, +20% latency, +10% error rate allowed)
+     */
+    public CanaryValidator(CanaryMetricsSource metricsSource) {
+        this(metricsSource, Duration.ofSeconds(10), Duration.ofSeconds(10), Duration.ofSeconds(60),
+             3, 1000, 0.05, 1.2, 1.1);
+    }
+
+    /**
+     * @param metricsSource Source polled for baseline and canary metrics
+     * @param warmup Delay before the first poll (pods becoming ready)
+     * @param pollInterval Interval between polls
+     * @param maxDuration Deadline after which a verdict is forced
+     * @param minSamples Polls with traffic required before any early decision
+     * @param minCanaryRequests Canary requests required for an early pass
+     * @param significance Significance level for both tests (e.g. 0.05)
+     * @param maxLatencyIncrease Allowed canary/baseline latency ratio (e.g. 1.2)
+     * @param maxErrorRateIncrease Allowed canary/baseline error rate ratio (e.g. 1.1)
+     */
+    public CanaryValidator(CanaryMetricsSource metricsSource, Duration warmup, Duration pollInterval,
+                           Duration maxDuration, int minSamples, long minCanaryRequests,
+                           double significance, double maxLatencyIncrease, double maxErrorRateIncrease) {
+        this.metricsSource = metricsSource;
+        this.warmup = warmup;
+        this.pollInterval = pollInterval;
+        this.maxDuration = maxDuration;
+        this.minSamples = Math.max(2, minSamples); // t-test needs two samples per side
+        this.minCanaryRequests = minCanaryRequests;
+        this.significance = significance;
+        this.maxLatencyIncrease = maxLatencyIncrease;
+        this.maxErrorRateIncrease = maxErrorRateIncrease;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sdi-canary-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start validating a canary against its baseline deployment
+     *
+     * @param namespace Namespace of both deployments
+     * @param baselineWorkload Baseline deployment name
+     * @param canaryWorkload Canary deployment name
+     * @return Future completed with the verdict; cancelling it stops polling
+     */
+    public CompletableFuture<CanaryVerdict> validate(String namespace, String baselineWorkload,
+                                                     String canaryWorkload) {
+        return validate(namespace, baselineWorkload, canaryWorkload, null);
+    }
+
+    /**
+     * Start validating a canary, deciding by the given budget if it is shorter
+     * than the configured deadline
+     *
+     * The first poll happens no later than the budget, so even a short budget
+     * decides on at least one sample.
+     *
+     * @param budget Time the validation may take, or null for the configured deadline
+     */
+    public CompletableFuture<CanaryVerdict> validate(String namespace, String baselineWorkload,
+                                                     String canaryWorkload, Duration budget) {
+        boolean budgeted = budget != null && budget.compareTo(maxDuration) < 0;
+        Duration deadline = budgeted ? budget : maxDuration;
+        Validation validation = new Validation(namespace, baselineWorkload, canaryWorkload, deadline, budgeted);
+        activeValidations.add(validation);
+        validation.result.whenComplete((verdict, error) -> activeValidations.remove(validation));
+        long firstPoll = Math.min(warmup.toMillis(), deadline.toMillis());
+        scheduler.schedule(validation::poll, Math.max(0, firstPoll), TimeUnit.MILLISECONDS);
+        return validation.span.endWhenDone(validation.result);
+    }
+
+    /**
+     * Record the outcome and duration of every finished validation
+     */
+    public void setMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public int getActiveValidations() {
+        return activeValidations.size();
+    }
+
+    /**
+     * Current phase of an in-progress validation, or null if none is running
+     */
+    public Phase getPhase(String canaryWorkload) {
+        for (Validation validation : activeValidations) {
+            if (validation.canaryWorkload.equals(canaryWorkload)) {
+                return validation.phase;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        for (Validation validation : activeValidations) {
+            validation.finish(Phase.FAILED, "Validator shut down");
+        }
+    }
+
+    /**
+     * One-sided p-value that the canary mean exceeds the tolerated baseline mean
+     * (Welch t-test; the baseline samples are scaled by the tolerance)
+     */
+    double latencyWorseP(double[] canary, double[] baseline) {
+        double canaryMean = StatUtils.mean(canary);
+        double toleratedMean = StatUtils.mean(baseline) * maxLatencyIncrease;
+        double canaryTerm = StatUtils.variance(canary) / canary.length;
+        double baselineTerm = StatUtils.variance(baseline) * maxLatencyIncrease * maxLatencyIncrease
+            / baseline.length;
+        double standardError = Math.sqrt(canaryTerm + baselineTerm);
+        if (standardError == 0.0) {
+            return signP(canaryMean - toleratedMean);
+        }
+
+        double t = (canaryMean - toleratedMean) / standardError;
+        double degreesOfFreedom = Math.pow(canaryTerm + baselineTerm, 2)
+            / (canaryTerm * canaryTerm / (canary.length - 1) + baselineTerm * baselineTerm / (baseline.length - 1));
+        return 1.0 - new TDistribution(degreesOfFreedom).cumulativeProbability(t);
+    }
+
+    /**
+     * One-sided p-value that the canary error rate exceeds the tolerated baseline rate
+     * (two-proportion z-test)
+     */
+    double errorRateWorseP(long canaryErrors, long canaryRequests, long baselineErrors, long baselineRequests) {
+        if (canaryRequests == 0 || baselineRequests == 0) {
+            return 0.5; // No evidence either way
+        }
+        double canaryRate = canaryErrors / (double) canaryRequests;
+        double baselineRate = baselineErrors / (double) baselineRequests;
+        double toleratedRate = baselineRate * maxErrorRateIncrease;
+        double standardError = Math.sqrt(
+            canaryRate * (1 - canaryRate) / canaryRequests
+                + maxErrorRateIncrease * maxErrorRateIncrease * baselineRate * (1 - baselineRate) / baselineRequests);
+        if (standardError == 0.0) {
+            return signP(canaryRate - toleratedRate);
+        }
+        return 1.0 - standardNormal.cumulativeProbability((canaryRate - toleratedRate) / standardError);
+    }
+
+    private static double signP(double difference) {
+        return difference > 0 ? 0.0 : difference < 0 ? 1.0 : 0.5;
+    }
+
+    /**
+     * State for one canary under analysis. Polls are strictly sequential, so the
+     * accumulated samples are only touched by one callback at a time.
+     */
+    private class Validation {
+        private final String namespace;
+        private final String baselineWorkload;
+        private final String canaryWorkload;
+        private final Duration deadline;
+        private final boolean budgeted;
+        private final long startNanos = System.nanoTime();
+        private final CompletableFuture<CanaryVerdict> result = new CompletableFuture<>();
+        private final PipelineTrace.Span span;
+        private final List<Double> baselineLatencies = new ArrayList<>();
+        private final List<Double> canaryLatencies = new ArrayList<>();
+        private long baselineRequests;
+        private long baselineErrors;
+        private long canaryRequests;
+        private long canaryErrors;
+        private int consecutiveFetchFailures;
+        private volatile Phase phase = Phase.WARMING_UP;
+
+        Validation(String namespace, String baselineWorkload, String canaryWorkload, Duration deadline,
+                   boolean budgeted) {
+            this.namespace = namespace;
+            this.baselineWorkload = baselineWorkload;
+            this.canaryWorkload = canaryWorkload;
+            this.deadline = deadline;
+            this.budgeted = budgeted;
+            this.span = PipelineTrace.currentSpan().startChild("canary validation")
+                .setAttribute("k8s.namespace", namespace)
+                .setAttribute("sdi.canary", canaryWorkload);
+            if (budgeted) {
+                span.setAttribute("sdi.budget-ms", deadline.toMillis());
+            }
+        }
+
+        void poll() {
+            if (result.isDone()) {
+                return; // Cancelled by the caller
+            }
+            phase = Phase.SAMPLING;
+            // Metric queries of every poll belong to this validation's span
+            try (PipelineTrace.Scope scope = span.makeCurrent()) {
+                metricsSource.fetch(namespace, baselineWorkload)
+                    .thenCombine(metricsSource.fetch(namespace, canaryWorkload),
+                        (baseline, canary) -> new MetricsSample[]{baseline, canary})
+                    .whenComplete((samples, error) -> {
+                        try {
+                            onSamples(samples, error);
+                        } catch (RuntimeException e) {
+                            finish(Phase.FAILED, "Canary analysis error: " + e.getMessage());
+                        }
+                    });
+            } catch (RuntimeException e) {
+                onSamples(null, e);
+            }
+        }
+
+        private void onSamples(MetricsSample[] samples, Throwable error) {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                System.err.println("Canary metrics fetch failed for " + canaryWorkload + ": " + cause.getMessage());
+                if (++consecutiveFetchFailures >= MAX_CONSECUTIVE_FETCH_FAILURES) {
+                    finish(Phase.FAILED, "Metrics unavailable: " + cause.getMessage());
+                } else {
+                    scheduleNextOrFinish();
+                }
+                return;
+            }
+            consecutiveFetchFailures = 0;
+
+            MetricsSample baseline = samples[0];
+            MetricsSample canary = samples[1];
+            if (baseline.hasTraffic() && canary.hasTraffic()) {
+                baselineLatencies.add(baseline.getAvgLatencyMs());
+                canaryLatencies.add(canary.getAvgLatencyMs());
+            }
+            baselineRequests += baseline.getRequests();
+            baselineErrors += baseline.getErrors();
+            canaryRequests += canary.getRequests();
+            canaryErrors += canary.getErrors();
+
+            if (canaryLatencies.size() >= minSamples && decideEarly()) {
+                return;
+            }
+            scheduleNextOrFinish();
+        }
+
+        /**
+         * @return true if a verdict was reached
+         */
+        private boolean decideEarly() {
+            double[] canary = toArray(canaryLatencies);
+            double[] baseline = toArray(baselineLatencies);
+            double latencyWorse = latencyWorseP(canary, baseline);
+            double errorWorse = errorRateWorseP(canaryErrors, canaryRequests, baselineErrors, baselineRequests);
+
+            if (latencyWorse < significance) {
+                finish(Phase.FAILED, String.format("Latency significantly above %.0f%% of baseline (p=%.4f)",
+                    maxLatencyIncrease * 100, latencyWorse));
+                return true;
+            }
+            if (errorWorse < significance) {
+                finish(Phase.FAILED, String.format("Error rate significantly above %.0f%% of baseline (p=%.4f)",
+                    maxErrorRateIncrease * 100, errorWorse));
+                return true;
+            }
+            if (1.0 - latencyWorse < significance && canaryRequests >= minCanaryRequests) {
+                finish(Phase.PASSED, String.format("Latency significantly within tolerance (p=%.4f)",
+                    1.0 - latencyWorse));
+                return true;
+            }
+            return false;
+        }
+
+        private void scheduleNextOrFinish() {
+            if (System.nanoTime() - startNanos + pollInterval.toNanos() > deadline.toNanos()) {
+                decideAtDeadline();
+                return;
+            }
+            try {
+                scheduler.schedule(this::poll, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                finish(Phase.FAILED, "Validator shut down");
+            }
+        }
+
+        private void decideAtDeadline() {
+            if (canaryLatencies.isEmpty()) {
+                finish(Phase.FAILED, "No canary traffic observed");
+                return;
+            }
+            boolean latencyOk = mean(canaryLatencies) <= mean(baselineLatencies) * maxLatencyIncrease;
+            boolean errorsOk = rate(canaryErrors, canaryRequests)
+                <= rate(baselineErrors, baselineRequests) * maxErrorRateIncrease;
+            String when = budgeted ? "Inconclusive at latency budget" : "Inconclusive at deadline";
+            if (budgeted) {
+                span.setAttribute("sdi.canary.budget-reached", true);
+            }
+            if (latencyOk && errorsOk) {
+                finish(Phase.PASSED, when + "; point estimates within tolerance");
+            } else {
+                finish(Phase.FAILED, when + "; point estimates exceed tolerance");
+            }
+        }
+
+        void finish(Phase outcome, String reason) {
+            phase = outcome;
+            CanaryVerdict verdict = new CanaryVerdict(
+                outcome == Phase.PASSED,
+                reason,
+                canaryLatencies.size(),
+                mean(baselineLatencies),
+                mean(canaryLatencies),
+                rate(baselineErrors, baselineRequests),
+                rate(canaryErrors, canaryRequests),
+                Duration.ofNanos(System.nanoTime() - startNanos)
+            );
+            if (!result.isDone()) {
+                span.setAttribute("sdi.canary.outcome", outcome.name())
+                    .setAttribute("sdi.canary.samples", canaryLatencies.size());
+            }
+            if (result.complete(verdict)) {
+                metrics.recordCanaryValidation(outcome, verdict.getElapsed().toNanos());
+                System.out.println("Canary " + canaryWorkload + " " + outcome + ": " + reason);
+            }
+        }
+    }
+
+    private static double[] toArray(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static double mean(List<Double> values) {
+        return values.isEmpty() ? Double.NaN : StatUtils.mean(toArray(values));
+    }
+
+    private static double rate(long errors, long requests) {
+        return requests == 0 ? 0.0 : errors / (double) requests;
+    }
+
+    // Inner classes
+    public static class CanaryVerdict {
+        private final boolean passed;
+        private final String reason;
+        private final int samples;
+        private final double baselineLatencyMs;
+        private final double canaryLatencyMs;
+        private final double baselineErrorRate;
+        private final double canaryErrorRate;
+        private final Duration elapsed;
+
+        public CanaryVerdict(boolean passed, String reason, int samples,
+                             double baselineLatencyMs, double canaryLatencyMs,
+                             double baselineErrorRate, double canaryErrorRate, Duration elapsed) {
+            this.passed = passed;
+            this.reason = reason;
+            this.samples = samples;
+            this.baselineLatencyMs = baselineLatencyMs;
+            this.canaryLatencyMs = canaryLatencyMs;
+            this.baselineErrorRate = baselineErrorRate;
+            this.canaryErrorRate = canaryErrorRate;
+            this.elapsed = elapsed;
+        }
+
+        public boolean isPassed() { return passed; }
+        public String getReason() { return reason; }
+        public int getSamples() { return samples; }
+        public double getBaselineLatencyMs() { return baselineLatencyMs; }
+        public double getCanaryLatencyMs() { return canaryLatencyMs; }
+        public double getBaselineErrorRate() { return baselineErrorRate; }
+        public double getCanaryErrorRate() { return canaryErrorRate; }
+        public Duration getElapsed() { return elapsed; }
+    }
+}
@@ -0,0 +1,49 @@
+package com.sdi.deployer;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prunes finished entries from a state map
+ *
+ * Running entries stay until they finish; of the finished ones only the
+ * most recent are kept for status lookups, so the map holds one entry per
+ * running rollout plus a fixed tail instead of one per immunization ever.
+ */
+final class FinishedStates {
+
+    static final int DEFAULT_MAX_FINISHED = 100;
+
+    private final Map<String, ?> states;
+    private final int maxFinished;
+    private final Queue<Map.Entry<String, Object>> finished = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+
+    /**
+     * @param states Map whose entries are pruned
+     * @param maxFinished Finished entries kept; the oldest are removed first
+     */
+    FinishedStates(Map<String, ?> states, int maxFinished) {
+        this.states = states;
+        this.maxFinished = Math.max(0, maxFinished);
+    }
+
+    /**
+     * Record that an entry reached a terminal state, pruning the oldest finished ones
+     */
+    void finished(String id, Object state) {
+        finished.add(Map.entry(id, state));
+        finishedCount.incrementAndGet();
+        while (finishedCount.get() > maxFinished) {
+            Map.Entry<String, Object> oldest = finished.poll();
+            if (oldest == null) {
+                return;
+            }
+            finishedCount.decrementAndGet();
+            // Ids are only unique per millisecond; never drop a newer entry under the same id
+            states.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.sdi.deployer;
+
+import com.sdi.deployer.ImmunizationDeployer.DeploymentTarget;
+import com.sdi.deployer.ProgressiveRollout.RolloutResult;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.ApiException;
+import io.kubernetes.client.openapi.apis.AppsV1Api;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.util.ClientBuilder;
+import io.kubernetes.client.util.Config;
+import io.kubernetes.client.util.KubeConfig;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Fleet-wide propagation of an immunized build
+ *
+ * Discovers every deployment of the affected service across the configured
+ * kube contexts and namespaces (in parallel), then rolls the image out in
+ * waves of geometrically growing size: a small first wave limits the blast
+ * radius, later waves fan out so the time to the Immunized Fleet State grows
+ * with the number of waves rather than the number of clusters. Within a wave
+ * every target runs its own gated progressive rollout; a global permit pool
+ * caps concurrent rollouts across all propagations. A wave whose failure
+ * ratio exceeds the limit halts the propagation. A validation budget is
+ * shared out evenly over the waves still to run.
+ */
+public class FleetPropagationPlanner implements AutoCloseable {
+
+    private final ImmunizationDeployer deployer;
+    private final Map<String, AppsV1Api> clusters;
+    private final List<String> namespaces;
+    private final int firstWaveSize;
+    private final double waveGrowthFactor;
+    private final double maxWaveFailureRatio;
+    private final AsyncPermits rolloutPermits;
+    private final ExecutorService discoveryExecutor;
+    private final Map<String, PropagationState> propagations = new ConcurrentHashMap<>();
+    private final FinishedStates finishedPropagations =
+        new FinishedStates(propagations, FinishedStates.DEFAULT_MAX_FINISHED);
+
+    /**
+     * @param deployer Deployer performing the per-target progressive rollouts
+     * @param clusters Apps API per kube context
+     * @param namespaces Namespaces searched in every cluster
+     * @param maxConcurrentRollouts Global limit on target rollouts in flight
+     * @param firstWaveSize Targets in the first wave
+     * @param waveGrowthFactor Size multiplier from one wave to the next
+     * @param maxWaveFailureRatio Failed fraction of a wave that still lets the next wave start
+     */
+    public FleetPropagationPlanner(ImmunizationDeployer deployer, Map<String, AppsV1Api> clusters,
+                                   List<String> namespaces, int maxConcurrentRollouts, int firstWaveSize,
+                                   double waveGrowthFactor, double maxWaveFailureRatio) {
+        this.deployer = deployer;
+        this.clusters = new LinkedHashMap<>(clusters);
+        this.namespaces = List.copyOf(namespaces);
+        this.firstWaveSize = Math.max(1, firstWaveSize);
+        this.waveGrowthFactor = Math.max(1.0, waveGrowthFactor);
+        this.maxWaveFailureRatio = maxWaveFailureRatio;
+        this.rolloutPermits = new AsyncPermits(Math.max(1, maxConcurrentRollouts));
+        this.discoveryExecutor = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(8, clusters.size() * namespaces.size())), runnable -> {
+                Thread thread = new Thread(runnable, "sdi-fleet-discovery");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Build an API client per kube context from the default kubeconfig
+     *
+     * @param contexts Context names; empty selects the default client only
+     */
+    public static Map<String, AppsV1Api> loadClusters(List<String> contexts) throws IOException {
+        Map<String, AppsV1Api> clusters = new LinkedHashMap<>();
+        if (contexts == null || contexts.isEmpty()) {
+            clusters.put(DeploymentTarget.DEFAULT_CONTEXT, new AppsV1Api(Config.defaultClient()));
+            return clusters;
+        }
+        Path kubeconfig = Path.of(System.getenv().getOrDefault("KUBECONFIG",
+            Path.of(System.getProperty("user.home"), ".kube", "config").toString()));
+        for (String context : contexts) {
+            try (Reader reader = new FileReader(kubeconfig.toFile())) {
+                KubeConfig config = KubeConfig.loadKubeConfig(reader);
+                if (!config.setContext(context)) {
+                    throw new IOException("Unknown kube context: " + context);
+                }
+                ApiClient client = ClientBuilder.kubeconfig(config).build();
+                clusters.put(context, new AppsV1Api(client));
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * Start propagating a patch to the whole fleet
+     *
+     * @return Propagation identifier for {@link #getPropagationState}
+     */
+    public String propagate(MutationPatch patch) {
+        return propagate(patch, null, null);
+    }
+
+    /**
+     * Start propagating a patch to the whole fleet within a validation budget
+     *
+     * @param validationBudget Time from now until every wave must be decided
+     *        (build and discovery included), or null for the validator's own deadlines
+     * @param completionListener Notified with the final state (may be null)
+     * @return Propagation identifier for {@link #getPropagationState}
+     */
+    public String propagate(MutationPatch patch, Duration validationBudget,
+                            Consumer<PropagationState> completionListener) {
+        long startNanos = System.nanoTime();
+        String propagationId = "propagation-" + patch.getServiceId() + "-" + System.currentTimeMillis();
+        PropagationState state = new PropagationState(propagationId, patch.getServiceId());
+        propagations.put(propagationId, state);
+
+        // Build and discovery run concurrently
+        deployer.buildImage(patch)
+            .thenCombine(discover(patch.getServiceId()), (imageTag, targets) -> propagate(state, imageTag, targets,
+                ImmunizationDeployer.remainingBudget(validationBudget, startNanos)))
+            .thenCompose(propagation -> propagation)
+            .exceptionally(error -> {
+                state.finish(PropagationStatus.FAILED, "Propagation failed: " + error.getMessage());
+                return state;
+            })
+            .thenAccept(finished -> {
+                finishedPropagations.finished(propagationId, state);
+                if (completionListener != null) {
+                    completionListener.accept(finished);
+                }
+            });
+        return propagationId;
+    }
+
+    /**
+     * Roll an image out to already discovered targets
+     *
+     * @return Future completed with the final state (never exceptionally)
+     */
+    public CompletableFuture<PropagationState> propagate(String serviceId, String imageTag,
+                                                         List<DeploymentTarget> targets) {
+        PropagationState state = new PropagationState(
+            "propagation-" + serviceId + "-" + System.currentTimeMillis(), serviceId);
+        propagations.put(state.getPropagationId(), state);
+        return propagate(state, imageTag, targets, null)
+            .whenComplete((finished, error) -> finishedPropagations.finished(state.getPropagationId(), state));
+    }
+
+    /**
+     * State of a running or recently finished propagation
+     */
+    public PropagationState getPropagationState(String propagationId) {
+        return propagations.get(propagationId);
+    }
+
+    /**
+     * Find all deployments of a service in the configured clusters and namespaces
+     *
+     * Deployments are matched by the {@code app} label; SDI canaries are excluded.
+     */
+    public CompletableFuture<List<DeploymentTarget>> discover(String serviceId) {
+        String selector = "app=" + serviceId + ",version!=canary";
+        List<CompletableFuture<List<DeploymentTarget>>> lookups = new ArrayList<>();
+        for (Map.Entry<String, AppsV1Api> cluster : clusters.entrySet()) {
+            for (String namespace : namespaces) {
+                lookups.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        List<DeploymentTarget> found = new ArrayList<>();
+                        for (V1Deployment deployment : cluster.getValue().listNamespacedDeployment(namespace)
+                                .labelSelector(selector).execute().getItems()) {
+                            found.add(new DeploymentTarget(cluster.getKey(), namespace,
+                                deployment.getMetadata().getName(), serviceId, cluster.getValue()));
+                        }
+                        return found;
+                    } catch (ApiException e) {
+                        // One unreachable cluster must not block the rest of the fleet
+                        System.err.println("Discovery failed in " + cluster.getKey() + "/" + namespace +
+                                         ": " + e.getMessage());
+                        return List.<DeploymentTarget>of();
+                    }
+                }, discoveryExecutor));
+            }
+        }
+
+        return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<DeploymentTarget> targets = new ArrayList<>();
+            for (CompletableFuture<List<DeploymentTarget>> lookup : lookups) {
+                targets.addAll(lookup.join());
+            }
+            System.out.println("Discovered " + targets.size() + " deployments of " + serviceId +
+                             " across " + clusters.size() + " clusters");
+            return targets;
+        });
+    }
+
+    /**
+     * Split targets into waves of growing size
+     *
+     * Targets are interleaved across clusters first, so every wave spreads
+     * over as many clusters as it can and no single cluster is hit at once.
+     */
+    public List<List<DeploymentTarget>> planWaves(List<DeploymentTarget> targets) {
+        Map<String, Deque<DeploymentTarget>> byCluster = new LinkedHashMap<>();
+        for (DeploymentTarget target : targets) {
+            byCluster.computeIfAbsent(target.getContext(), context -> new ArrayDeque<>()).add(target);
+        }
+        List<DeploymentTarget> interleaved = new ArrayList<>(targets.size());
+        while (interleaved.size() < targets.size()) {
+            for (Deque<DeploymentTarget> queue : byCluster.values()) {
+                if (!queue.isEmpty()) {
+                    interleaved.add(queue.poll());
+                }
+            }
+        }
+
+        List<List<DeploymentTarget>> waves = new ArrayList<>();
+        int index = 0;
+        double waveSize = firstWaveSize;
+        while (index < interleaved.size()) {
+            int end = Math.min(interleaved.size(), index + (int) Math.ceil(waveSize));
+            waves.add(new ArrayList<>(interleaved.subList(index, end)));
+            index = end;
+            waveSize *= waveGrowthFactor;
+        }
+        return waves;
+    }
+
+    @Override
+    public void close() {
+        discoveryExecutor.shutdownNow();
+    }
+
+    /**
+     * @param validationBudget Time from now for all waves, or null
+     */
+    private CompletableFuture<PropagationState> propagate(PropagationState state, String imageTag,
+                                                          List<DeploymentTarget> targets, Duration validationBudget) {
+        if (targets.isEmpty()) {
+            state.finish(PropagationStatus.FAILED, "No deployments found for " + state.getServiceId());
+            return CompletableFuture.completedFuture(state);
+        }
+        List<List<DeploymentTarget>> waves = planWaves(targets);
+        state.start(targets.size(), waves.size());
+        return runWave(state, imageTag, waves, 0, validationBudget, System.nanoTime());
+    }
+
+    private CompletableFuture<PropagationState> runWave(PropagationState state, String imageTag,
+                                                        List<List<DeploymentTarget>> waves, int waveIndex,
+                                                        Duration validationBudget, long startNanos) {
+        if (waveIndex == waves.size()) {
+            state.finish(PropagationStatus.IMMUNIZED, "All " + waves.size() + " waves immunized");
+            return CompletableFuture.completedFuture(state);
+        }
+
+        List<DeploymentTarget> wave = waves.get(waveIndex);
+        state.setCurrentWave(waveIndex + 1);
+        System.out.println("Propagation " + state.getPropagationId() + ": wave " + (waveIndex + 1) +
+                         "/" + waves.size() + " with " + wave.size() + " targets");
+
+        // This wave's share of what is left of the budget
+        Duration remaining = ImmunizationDeployer.remainingBudget(validationBudget, startNanos);
+        Duration waveBudget = remaining != null ? remaining.dividedBy(waves.size() - waveIndex) : null;
+        List<CompletableFuture<RolloutResult>> rollouts = new ArrayList<>(wave.size());
+        for (DeploymentTarget target : wave) {
+            rollouts.add(rolloutPermits.acquire()
+                .thenCompose(permit -> waveBudget != null
+                    ? deployer.rollout(target, imageTag, null, waveBudget)
+                    : deployer.rollout(target, imageTag, null))
+                .whenComplete((result, error) -> rolloutPermits.release())
+                .exceptionally(error -> new RolloutResult(false, 0.0, error.getMessage(), List.of()))
+                .thenApply(result -> {
+                    state.record(target, result);
+                    return result;
+                }));
+        }
+
+        return CompletableFuture.allOf(rollouts.toArray(new CompletableFuture<?>[0]))
+            .thenCompose(done -> {
+                long failed = rollouts.stream().filter(rollout -> !rollout.join().isSucceeded()).count();
+                double failureRatio = failed / (double) wave.size();
+                // Health gate between waves
+                if (failureRatio > maxWaveFailureRatio) {
+                    state.finish(PropagationStatus.HALTED, String.format(
+                        "Wave %d failed on %d of %d targets", waveIndex + 1, failed, wave.size()));
+                    return CompletableFuture.completedFuture(state);
+                }
+                return runWave(state, imageTag, waves, waveIndex + 1, validationBudget, startNanos);
+            });
+    }
+
+    /**
+     * Counting semaphore whose acquire returns a future instead of blocking
+     */
+    static final class AsyncPermits {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Deque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+        private int available;
+
+        AsyncPermits(int permits) {
+            this.available = permits;
+        }
+
+        CompletableFuture<Void> acquire() {
+            lock.lock();
+            try {
+                if (available > 0) {
+                    available--;
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<Void> waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+                return waiter;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            CompletableFuture<Void> next;
+            lock.lock();
+            try {
+                next = waiters.poll();
+                if (next == null) {
+                    available++;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Hand the permit over outside the lock
+            next.complete(null);
+        }
+    }
+
+    // Inner classes
+    public enum PropagationStatus {
+        DISCOVERING,
+        PROPAGATING,
+        IMMUNIZED,
+        HALTED,
+        FAILED
+    }
+
+    public static class PropagationState {
+        private final String propagationId;
+        private final String serviceId;
+        private final Map<String, RolloutResult> results = new ConcurrentHashMap<>();
+        private volatile PropagationStatus status = PropagationStatus.DISCOVERING;
+        private volatile int totalTargets;
+        private volatile int totalWaves;
+        private volatile int currentWave;
+        private volatile String reason;
+
+        public PropagationState(String propagationId, String serviceId) {
+            this.propagationId = propagationId;
+            this.serviceId = serviceId;
+        }
+
+        void start(int totalTargets, int totalWaves) {
+            this.totalTargets = totalTargets;
+            this.totalWaves = totalWaves;
+            this.status = PropagationStatus.PROPAGATING;
+        }
+
+        void setCurrentWave(int currentWave) {
+            this.currentWave = currentWave;
+        }
+
+        void record(DeploymentTarget target, RolloutResult result) {
+            results.put(target.toString(), result);
+        }
+
+        void finish(PropagationStatus status, String reason) {
+            this.reason = reason;
+            this.status = status;
+            System.out.println("Propagation " + propagationId + " " + status + ": " + reason);
+        }
+
+        public String getPropagationId() { return propagationId; }
+        public String getServiceId() { return serviceId; }
+        public PropagationStatus getStatus() { return status; }
+        public int getTotalTargets() { return totalTargets; }
+        public int getTotalWaves() { return totalWaves; }
+        public int getCurrentWave() { return currentWave; }
+        public String getReason() { return reason; }
+        /** Rollout outcome per target ("context/namespace/deployment") */
+        public Map<String, RolloutResult> getResults() { return results; }
+    }
+}
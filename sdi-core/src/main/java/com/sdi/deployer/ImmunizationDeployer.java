@@ -1,7 +1,9 @@
 package com.sdi.deployer;
 
+import com.sdi.deployer.ProgressiveRollout.RolloutResult;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
 import com.sdi.mutation.MutationSynthesizer.MutationPatch;
-import io.kubernetes.client.openapi.ApiException;
+import com.sdi.trace.PipelineTrace;
 import io.kubernetes.client.openapi.apis.AppsV1Api;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.models.V1Deployment;
@@ -9,9 +11,13 @@ import io.kubernetes.client.openapi.models.V1DeploymentSpec;
 import io.kubernetes.client.openapi.models.V1PodTemplateSpec;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
 
 /**
  * Phase 5: Propagation - Distributed Immunization
@@ -22,18 +28,52 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class ImmunizationDeployer {
     
-    private static final double CANARY_PERCENTAGE = 0.05; // 5% canary
-    private static final int CANARY_VALIDATION_SECONDS = 60;
-    private static final double MAX_LATENCY_INCREASE = 1.2; // 20% increase allowed
-    private static final double MAX_ERROR_RATE_INCREASE = 1.1; // 10% increase allowed
+    private static final String NAMESPACE = "default";
+    private static final double DEFAULT_CANARY_PERCENTAGE = 0.05; // 5% canary
+    private static final List<Double> DEFAULT_ROLLOUT_STEPS = List.of(0.25, 0.5, 1.0);
     
     private final AppsV1Api appsApi;
     private final CoreV1Api coreApi;
-    private final Map<String, DeploymentState> activeDeployments = new HashMap<>();
+    private final KubernetesOperationDispatcher dispatcher;
+    private final CanaryValidator canaryValidator;
+    private final List<Double> rolloutWeights;
+    private final Map<String, DeploymentState> activeDeployments = new ConcurrentHashMap<>();
+    private final FinishedStates finishedDeployments =
+        new FinishedStates(activeDeployments, FinishedStates.DEFAULT_MAX_FINISHED);
+    private PatchImageBuilder imageBuilder;
     
     public ImmunizationDeployer() {
+        this(new KubernetesOperationDispatcher());
+    }
+    
+    /**
+     * @param dispatcher Shared rate-limited dispatcher for deployment create/replace/delete calls
+     */
+    public ImmunizationDeployer(KubernetesOperationDispatcher dispatcher) {
+        this(dispatcher, new CanaryValidator(new StubMetricsSource()));
+    }
+    
+    /**
+     * @param dispatcher Shared rate-limited dispatcher for deployment create/replace/delete calls
+     * @param canaryValidator Scheduler-driven canary analysis
+     */
+    public ImmunizationDeployer(KubernetesOperationDispatcher dispatcher, CanaryValidator canaryValidator) {
+        this(dispatcher, canaryValidator, DEFAULT_CANARY_PERCENTAGE, DEFAULT_ROLLOUT_STEPS);
+    }
+    
+    /**
+     * @param dispatcher Shared rate-limited dispatcher for deployment create/replace/delete calls
+     * @param canaryValidator Analysis gate run after every rollout step
+     * @param canaryPercentage Traffic weight of the first (canary) step
+     * @param rolloutSteps Further traffic weights, e.g. 0.25, 0.5, 1.0
+     */
+    public ImmunizationDeployer(KubernetesOperationDispatcher dispatcher, CanaryValidator canaryValidator,
+                                double canaryPercentage, List<Double> rolloutSteps) {
         this.appsApi = new AppsV1Api();
         this.coreApi = new CoreV1Api();
+        this.dispatcher = dispatcher;
+        this.canaryValidator = canaryValidator;
+        this.rolloutWeights = ProgressiveRollout.rolloutWeights(canaryPercentage, rolloutSteps);
     }
     
     /**
@@ -43,35 +83,57 @@ public class ImmunizationDeployer {
      * @return Deployment identifier
      */
     public String deploy(MutationPatch patch) {
+        return deploy(patch, null, null);
+    }
+    
+    /**
+     * Deploy mutation patch, keeping the whole rollout within a validation budget
+     * 
+     * @param patch Mutation patch to deploy
+     * @param validationBudget Time from now until the rollout must be decided
+     *        (image build included), or null for the validator's own deadlines
+     * @param completionListener Notified with the final state once the rollout
+     *        has succeeded or failed (may be null)
+     * @return Deployment identifier
+     */
+    public String deploy(MutationPatch patch, Duration validationBudget,
+                         Consumer<DeploymentState> completionListener) {
+        long startNanos = System.nanoTime();
         String deploymentId = "immunized-" + patch.getServiceId() + "-" + System.currentTimeMillis();
         
         try {
-            // Step 1: Trigger CI/CD build
-            String imageTag = triggerCICDBuild(patch);
-            
-            // Step 2: Deploy canary
-            String canaryDeploymentName = deployCanary(patch.getServiceId(), imageTag);
-            
-            // Step 3: Validate canary
-            CompletableFuture<Boolean> validation = validateCanary(canaryDeploymentName);
-            
-            // Step 4: If valid, roll out to full fleet
-            validation.thenAccept(valid -> {
-                if (valid) {
-                    rolloutToFleet(patch.getServiceId(), imageTag);
-                    activeDeployments.put(deploymentId, 
-                        new DeploymentState(deploymentId, patch.getServiceId(), 
-                                          DeploymentStatus.IMMUNIZED));
-                } else {
-                    rollbackCanary(canaryDeploymentName);
-                    activeDeployments.put(deploymentId,
-                        new DeploymentState(deploymentId, patch.getServiceId(),
-                                          DeploymentStatus.FAILED));
-                }
-            });
-            
+            String serviceId = patch.getServiceId();
             activeDeployments.put(deploymentId,
-                new DeploymentState(deploymentId, patch.getServiceId(), DeploymentStatus.DEPLOYING));
+                new DeploymentState(deploymentId, serviceId, DeploymentStatus.DEPLOYING));
+            
+            // Step 1: Build the immunized image
+            // Steps 2-4: Canary, then shift traffic step by step gated by canary analysis
+            DeploymentTarget target = new DeploymentTarget(
+                DeploymentTarget.DEFAULT_CONTEXT, NAMESPACE, serviceId, serviceId, appsApi);
+            // The rollout outlives deploy(); its span collects the build, Kubernetes and canary calls
+            PipelineTrace.Span span = PipelineTrace.currentSpan().startChild("immunization rollout")
+                .setAttribute("sdi.deployment", deploymentId);
+            try (PipelineTrace.Scope scope = span.makeCurrent()) {
+                buildImage(patch)
+                    .thenCompose(imageTag -> rollout(target, imageTag, weight -> activeDeployments.put(deploymentId,
+                        new DeploymentState(deploymentId, serviceId, DeploymentStatus.DEPLOYING, weight)),
+                        remainingBudget(validationBudget, startNanos)))
+                    .thenAccept(result -> {
+                        // Final state first, so it is visible once the span has ended
+                        finish(new DeploymentState(deploymentId, serviceId,
+                            result.isSucceeded() ? DeploymentStatus.IMMUNIZED : DeploymentStatus.FAILED,
+                            result.isSucceeded() ? 1.0 : 0.0), completionListener);
+                        span.setAttribute("sdi.rollout.succeeded", result.isSucceeded()).end();
+                    })
+                    .exceptionally(error -> {
+                        System.err.println("Failed to build immunized image for " + serviceId + ": " +
+                                         error.getMessage());
+                        finish(new DeploymentState(deploymentId, serviceId, DeploymentStatus.FAILED),
+                               completionListener);
+                        span.end(error);
+                        return null;
+                    });
+            }
             
             return deploymentId;
             
@@ -80,10 +142,115 @@ public class ImmunizationDeployer {
         }
     }
     
+    private void finish(DeploymentState state, Consumer<DeploymentState> completionListener) {
+        activeDeployments.put(state.getDeploymentId(), state);
+        finishedDeployments.finished(state.getDeploymentId(), state);
+        if (completionListener != null) {
+            completionListener.accept(state);
+        }
+    }
+    
+    /**
+     * What is left of a budget started at the given time, or null without a budget
+     */
+    static Duration remainingBudget(Duration budget, long startNanos) {
+        if (budget == null) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, budget.toNanos() - (System.nanoTime() - startNanos)));
+    }
+    
+    /**
+     * Progressively roll an already built image out to one deployment
+     * 
+     * Canary creation and every later step run on the dispatcher and the
+     * canary validator, so no calling thread is held.
+     * 
+     * @param target Deployment to immunize
+     * @param imageTag Immunized image
+     * @param weightListener Notified whenever the canary weight changes (may be null)
+     * @return Future completed with the rollout outcome (never exceptionally)
+     */
+    public CompletableFuture<RolloutResult> rollout(DeploymentTarget target, String imageTag,
+                                                    DoubleConsumer weightListener) {
+        return rollout(target, imageTag, weightListener, null);
+    }
+    
+    /**
+     * Progressively roll an already built image out to one deployment,
+     * sharing a validation budget between its analysis gates
+     * 
+     * @param validationBudget Time from now the analysis gates may take in total,
+     *        or null for the validator's own deadline per gate
+     */
+    public CompletableFuture<RolloutResult> rollout(DeploymentTarget target, String imageTag,
+                                                    DoubleConsumer weightListener, Duration validationBudget) {
+        long startNanos = System.nanoTime();
+        String canaryName = target.getDeploymentName() + "-canary-" + System.currentTimeMillis();
+        int[] fleetReplicas = new int[1];
+        
+        return dispatcher.create(target.getQualifiedNamespace(), "deployment/" + canaryName, () -> {
+                V1Deployment current = target.getAppsApi()
+                    .readNamespacedDeployment(target.getDeploymentName(), target.getNamespace()).execute();
+                if (current == null || current.getSpec() == null) {
+                    throw new IllegalStateException("Service deployment not found: " + target);
+                }
+                Integer replicas = current.getSpec().getReplicas();
+                fleetReplicas[0] = replicas != null ? replicas : 1;
+                V1Deployment canary = buildCanary(current, target.getServiceId(), canaryName, imageTag,
+                    ProgressiveRollout.canaryReplicas(rolloutWeights.get(0), fleetReplicas[0]));
+                V1Deployment created = target.getAppsApi()
+                    .createNamespacedDeployment(target.getNamespace(), canary).execute();
+                System.out.println("Deployed canary: " + canaryName + " with " + 
+                                 canary.getSpec().getReplicas() + " replicas (" + target + ")");
+                return created;
+            })
+            .thenCompose(created -> new ProgressiveRollout(
+                workloadOperations(target), canaryValidator, target.getNamespace(),
+                target.getDeploymentName(), canaryName, imageTag, fleetReplicas[0],
+                rolloutWeights, weightListener, remainingBudget(validationBudget, startNanos)).start())
+            .exceptionally(error -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                System.err.println("Failed to start rollout for " + target + ": " + cause.getMessage());
+                return new RolloutResult(false, 0.0, "Canary creation failed: " + cause.getMessage(), List.of());
+            });
+    }
+    
+    /**
+     * Build the immunized image, incrementally when an image builder is configured
+     * 
+     * An image builder without a registry only writes the local OCI layout,
+     * which canary pods cannot pull from, so the build fails instead of
+     * starting a rollout that could never become ready.
+     * 
+     * @return Future completed with the image reference
+     */
+    public CompletableFuture<String> buildImage(MutationPatch patch) {
+        if (imageBuilder == null) {
+            return CompletableFuture.completedFuture(triggerCICDBuild(patch));
+        }
+        if (!imageBuilder.isPushing()) {
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                "Patched images for " + patch.getServiceId() + " are not pushed; set " +
+                "sdi.deployment.image-build.registry before rolling them out"));
+        }
+        return imageBuilder.build(patch).thenApply(PatchImageBuilder.BuildResult::getImageTag);
+    }
+    
+    /**
+     * Build patched images locally instead of through the CI/CD pipeline
+     */
+    public void setImageBuilder(PatchImageBuilder imageBuilder) {
+        this.imageBuilder = imageBuilder;
+    }
+    
     /**
      * Trigger CI/CD build (integrate with Jenkins/GitLab)
+     * 
+     * @return Image tag of the immunized build
      */
-    private String triggerCICDBuild(MutationPatch patch) {
+    public String triggerCICDBuild(MutationPatch patch) {
         // In production, this would:
         // 1. Commit mutated code to Git
         // 2. Trigger CI/CD pipeline
@@ -101,18 +268,10 @@ public class ImmunizationDeployer {
     }
     
     /**
-     * Deploy canary version (5% of pods)
+     * Build a canary deployment alongside the current deployment
      */
-    private String deployCanary(String serviceId, String imageTag) throws ApiException {
-        String canaryName = serviceId + "-canary-" + System.currentTimeMillis();
-        
-        // Get current deployment
-        V1Deployment currentDeployment = appsApi.readNamespacedDeployment(serviceId, "default").execute();
-        
-        if (currentDeployment == null) {
-            throw new RuntimeException("Service deployment not found: " + serviceId);
-        }
-        
+    private V1Deployment buildCanary(V1Deployment currentDeployment, String serviceId, String canaryName,
+                                     String imageTag, int canaryReplicas) {
         // Create canary deployment
         V1Deployment canaryDeployment = new V1Deployment();
         canaryDeployment.setApiVersion("apps/v1");
@@ -133,9 +292,7 @@ public class ImmunizationDeployer {
         V1DeploymentSpec spec = currentDeployment.getSpec();
         V1DeploymentSpec canarySpec = new V1DeploymentSpec();
         
-        // Scale down to 5% of original replicas
-        int originalReplicas = spec.getReplicas() != null ? spec.getReplicas() : 1;
-        int canaryReplicas = Math.max(1, (int) Math.ceil(originalReplicas * CANARY_PERCENTAGE));
+        // Sized for the first rollout step
         canarySpec.setReplicas(canaryReplicas);
         
         // Update image in container
@@ -158,125 +315,128 @@ public class ImmunizationDeployer {
         canarySpec.setSelector(spec.getSelector());
         canaryDeployment.setSpec(canarySpec);
         
-        // Create canary deployment
-        appsApi.createNamespacedDeployment("default", canaryDeployment).execute();
-        
-        System.out.println("Deployed canary: " + canaryName + " with " + canaryReplicas + " replicas");
-        
-        return canaryName;
+        return canaryDeployment;
     }
     
     /**
-     * Validate canary deployment
+     * Kubernetes operations for the progressive rollout, all routed through the dispatcher
      */
-    private CompletableFuture<Boolean> validateCanary(String canaryName) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                // Wait for pods to be ready
-                Thread.sleep(10000); // 10 seconds
-                
-                // Collect metrics
-                Metrics baseline = getBaselineMetrics();
-                Metrics canary = getCanaryMetrics(canaryName);
-                
-                // Check latency
-                if (canary.avgLatency > baseline.avgLatency * MAX_LATENCY_INCREASE) {
-                    System.out.println("Canary validation failed: latency too high");
-                    return false;
-                }
-                
-                // Check error rate
-                if (canary.errorRate > baseline.errorRate * MAX_ERROR_RATE_INCREASE) {
-                    System.out.println("Canary validation failed: error rate too high");
-                    return false;
-                }
-                
-                System.out.println("Canary validation passed");
-                return true;
-                
-            } catch (Exception e) {
-                System.err.println("Canary validation error: " + e.getMessage());
-                return false;
+    private ProgressiveRollout.WorkloadOperations workloadOperations(DeploymentTarget target) {
+        return new ProgressiveRollout.WorkloadOperations() {
+            @Override
+            public CompletableFuture<?> scale(String deploymentName, int replicas) {
+                return updateDeployment(target, deploymentName,
+                    deployment -> deployment.getSpec().setReplicas(replicas));
             }
-        });
-    }
-    
-    /**
-     * Rollout to full fleet
-     */
-    private void rolloutToFleet(String serviceId, String imageTag) {
-        try {
-            // Update main deployment with new image
-            V1Deployment deployment = appsApi.readNamespacedDeployment(serviceId, "default").execute();
             
-            if (deployment != null && deployment.getSpec() != null) {
-                deployment.getSpec().getTemplate().getSpec().getContainers().forEach(container -> {
-                    if (container.getName().equals(serviceId)) {
-                        container.setImage(imageTag);
-                    }
+            @Override
+            public CompletableFuture<?> promote(String deploymentName, String imageTag, int replicas) {
+                return updateDeployment(target, deploymentName, deployment -> {
+                    deployment.getSpec().setReplicas(replicas);
+                    deployment.getSpec().getTemplate().getSpec().getContainers().forEach(container -> {
+                        if (container.getName().equals(target.getServiceId())) {
+                            container.setImage(imageTag);
+                        }
+                    });
                 });
-                
-                appsApi.replaceNamespacedDeployment(serviceId, "default", deployment).execute();
-                
-                System.out.println("Rolled out immunized version to full fleet: " + serviceId);
             }
-        } catch (ApiException e) {
-            throw new RuntimeException("Failed to rollout to fleet: " + e.getMessage(), e);
-        }
+            
+            @Override
+            public CompletableFuture<?> delete(String deploymentName) {
+                return dispatcher.delete(target.getQualifiedNamespace(), "deployment/" + deploymentName,
+                    () -> target.getAppsApi().deleteNamespacedDeployment(deploymentName, target.getNamespace()).execute());
+            }
+        };
     }
     
     /**
-     * Rollback canary deployment
+     * Read-modify-replace on the dispatcher so it is rate limited and ordered
      */
-    private void rollbackCanary(String canaryName) {
-        try {
-            appsApi.deleteNamespacedDeployment(canaryName, "default").execute();
-            System.out.println("Rolled back canary: " + canaryName);
-        } catch (ApiException e) {
-            System.err.println("Failed to rollback canary: " + e.getMessage());
-        }
+    private CompletableFuture<V1Deployment> updateDeployment(DeploymentTarget target, String name,
+                                                             Consumer<V1Deployment> update) {
+        AppsV1Api api = target.getAppsApi();
+        return dispatcher.replace(target.getQualifiedNamespace(), "deployment/" + name, () -> {
+            V1Deployment deployment = api.readNamespacedDeployment(name, target.getNamespace()).execute();
+            if (deployment == null || deployment.getSpec() == null) {
+                throw new IllegalStateException("Deployment not found: " + name);
+            }
+            update.accept(deployment);
+            return api.replaceNamespacedDeployment(name, target.getNamespace(), deployment).execute();
+        });
     }
     
     /**
-     * Get baseline metrics
+     * Get deployment state; only the most recent finished deployments are kept
      */
-    private Metrics getBaselineMetrics() {
-        // In production, query Prometheus/CloudWatch
-        // For demo, return simulated metrics
-        return new Metrics(100.0, 0.01); // 100ms latency, 1% error rate
+    public DeploymentState getDeploymentState(String deploymentId) {
+        return activeDeployments.get(deploymentId);
     }
     
-    /**
-     * Get canary metrics
-     */
-    private Metrics getCanaryMetrics(String canaryName) {
-        // In production, query metrics for canary pods
-        // For demo, return simulated metrics (slightly better)
-        return new Metrics(95.0, 0.005); // 95ms latency, 0.5% error rate
-    }
+    // Inner classes
     
     /**
-     * Get deployment state
+     * One deployment of a service in a namespace of a cluster (kube context)
      */
-    public DeploymentState getDeploymentState(String deploymentId) {
-        return activeDeployments.get(deploymentId);
+    public static class DeploymentTarget {
+        public static final String DEFAULT_CONTEXT = "default";
+        
+        private final String context;
+        private final String namespace;
+        private final String deploymentName;
+        private final String serviceId;
+        private final AppsV1Api appsApi;
+        
+        public DeploymentTarget(String context, String namespace, String deploymentName,
+                                String serviceId, AppsV1Api appsApi) {
+            this.context = context;
+            this.namespace = namespace;
+            this.deploymentName = deploymentName;
+            this.serviceId = serviceId;
+            this.appsApi = appsApi;
+        }
+        
+        public String getContext() { return context; }
+        public String getNamespace() { return namespace; }
+        public String getDeploymentName() { return deploymentName; }
+        public String getServiceId() { return serviceId; }
+        public AppsV1Api getAppsApi() { return appsApi; }
+        
+        /**
+         * Namespace key for the dispatcher's per-namespace limits (distinct per cluster)
+         */
+        public String getQualifiedNamespace() {
+            return DEFAULT_CONTEXT.equals(context) ? namespace : context + "/" + namespace;
+        }
+        
+        @Override
+        public String toString() {
+            return context + "/" + namespace + "/" + deploymentName;
+        }
     }
     
-    // Inner classes
     public static class DeploymentState {
         private String deploymentId;
         private String serviceId;
         private DeploymentStatus status;
+        private double trafficWeight;
         
         public DeploymentState(String deploymentId, String serviceId, DeploymentStatus status) {
+            this(deploymentId, serviceId, status, 0.0);
+        }
+        
+        public DeploymentState(String deploymentId, String serviceId, DeploymentStatus status,
+                               double trafficWeight) {
             this.deploymentId = deploymentId;
             this.serviceId = serviceId;
             this.status = status;
+            this.trafficWeight = trafficWeight;
         }
         
         public String getDeploymentId() { return deploymentId; }
         public String getServiceId() { return serviceId; }
         public DeploymentStatus getStatus() { return status; }
+        /** Share of replicas running the immunized image */
+        public double getTrafficWeight() { return trafficWeight; }
     }
     
     public enum DeploymentStatus {
@@ -284,15 +444,4 @@ public class ImmunizationDeployer {
         IMMUNIZED,
         FAILED
     }
-    
-    private static class Metrics {
-        double avgLatency;
-        double errorRate;
-        
-        Metrics(double avgLatency, double errorRate) {
-            this.avgLatency = avgLatency;
-            this.errorRate = errorRate;
-        }
-    }
 }
-
@@ -0,0 +1,636 @@
+package com.sdi.deployer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import com.sdi.trace.PipelineTrace;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental image build for mutation patches
+ *
+ * Instead of rebuilding the whole service, only the mutated compilation unit
+ * is compiled (javax.tools, in memory) against the service's dependency jars.
+ * The resulting classes are packed into one thin layer placed on top of the
+ * service's current image, which must already be present in an OCI image
+ * layout directory. Jib-style images load classes from {@code /app/classes}
+ * ahead of the jars, so the patched classes shadow the originals. The new
+ * config, manifest and layer are written as content-addressed blobs into the
+ * same layout, so base layers are shared and nothing runs through a container
+ * daemon. With a {@link RegistryPusher} the image is pushed before the build
+ * completes and the result carries the registry reference pods can pull;
+ * without one the image only exists in the layout.
+ *
+ * Builds are keyed by a SHA-256 over service, base image, dependency
+ * classpath and patch source. Identical patches from several replicas or
+ * retries share one build, whether it is still running or already in the
+ * layout (the key is recorded as a manifest annotation). Failed builds are
+ * not cached.
+ *
+ * Dependency jars are read from {@code <dependencyDir>/<serviceId>} when that
+ * directory exists and from {@code dependencyDir} otherwise; they should
+ * include the service's own jar so the changed unit resolves its neighbours.
+ * The compiler's file manager is kept per classpath, so opened jar indexes
+ * are reused across builds until the jars change.
+ */
+public class PatchImageBuilder implements AutoCloseable {
+
+    static final String REPOSITORY = "sdi-immunized";
+    static final String REF_NAME_ANNOTATION = "org.opencontainers.image.ref.name";
+    static final String PATCH_HASH_ANNOTATION = "com.sdi.patch.sha256";
+    static final String MANIFEST_MEDIA_TYPE = "application/vnd.oci.image.manifest.v1+json";
+    static final String CONFIG_MEDIA_TYPE = "application/vnd.oci.image.config.v1+json";
+    static final String LAYER_MEDIA_TYPE = "application/vnd.oci.image.layer.v1.tar+gzip";
+
+    private static final int MAX_CACHED_BUILDS = 256;
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final Pattern PUBLIC_TYPE = Pattern.compile(
+        "\\bpublic\\s+(?:(?:abstract|final|sealed|non-sealed|strictfp|static)\\s+)*" +
+        "(?:class|interface|enum|record|@interface)\\s+(\\w+)");
+    private static final Gson GSON = new Gson();
+
+    private final Path layoutDir;
+    private final String baseImage;
+    private final Path dependencyDir;
+    private final String classesPath;
+    private final JavaCompiler compiler;
+    private final RegistryPusher pusher;
+    private final ExecutorService buildExecutor;
+    private final Map<String, CompileContext> compileContexts = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<BuildResult>> builds = Collections.synchronizedMap(
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<BuildResult>> eldest) {
+                return size() > MAX_CACHED_BUILDS;
+            }
+        });
+    private final ReentrantLock layoutLock = new ReentrantLock();
+    private final AtomicLong compilations = new AtomicLong();
+
+    /**
+     * @param layoutDir OCI image layout holding the base images; patched images are added to it
+     * @param baseImage Base image ref name in the layout; {@code {service}} is replaced by the service id
+     * @param dependencyDir Directory of dependency jars (optionally one subdirectory per service)
+     * @param classesPath Directory inside the image the patched classes are written to
+     * @param maxConcurrentBuilds Builds running at the same time
+     */
+    public PatchImageBuilder(Path layoutDir, String baseImage, Path dependencyDir, String classesPath,
+                             int maxConcurrentBuilds) {
+        this(layoutDir, baseImage, dependencyDir, classesPath, maxConcurrentBuilds, null);
+    }
+
+    /**
+     * @param layoutDir OCI image layout holding the base images; patched images are added to it
+     * @param baseImage Base image ref name in the layout; {@code {service}} is replaced by the service id
+     * @param dependencyDir Directory of dependency jars (optionally one subdirectory per service)
+     * @param classesPath Directory inside the image the patched classes are written to
+     * @param maxConcurrentBuilds Builds running at the same time
+     * @param pusher Registry every built image is pushed to, or null to keep images in the layout only
+     */
+    public PatchImageBuilder(Path layoutDir, String baseImage, Path dependencyDir, String classesPath,
+                             int maxConcurrentBuilds, RegistryPusher pusher) {
+        this.compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("Incremental image builds require a JDK (no system Java compiler)");
+        }
+        this.layoutDir = layoutDir;
+        this.baseImage = baseImage;
+        this.dependencyDir = dependencyDir;
+        this.classesPath = classesPath.replaceAll("^/+|/+$", "");
+        this.pusher = pusher;
+        this.buildExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentBuilds), runnable -> {
+            Thread thread = new Thread(runnable, "sdi-image-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Build (or reuse) the patched image for a mutation patch
+     *
+     * @return Future completed with the image in the layout, after it was pushed when a registry is set
+     */
+    public CompletableFuture<BuildResult> build(MutationPatch patch) {
+        String serviceId = patch.getServiceId();
+        String base = baseImageFor(serviceId);
+        List<Path> classpath = classpathFor(serviceId);
+        String patchHash = sha256Hex(String.join("\n", serviceId, base, classpathFingerprint(classpath),
+            patch.getMutatedCode()).getBytes(StandardCharsets.UTF_8));
+
+        CompletableFuture<BuildResult> build = builds.computeIfAbsent(patchHash, key ->
+            CompletableFuture.supplyAsync(() -> buildImage(patch, base, classpath, key), buildExecutor));
+        build.whenComplete((result, error) -> {
+            if (error != null) {
+                // Let a retry rebuild
+                builds.remove(patchHash, build);
+            }
+        });
+        return PipelineTrace.currentSpan().startCall("image build")
+            .setAttribute("sdi.service", serviceId)
+            .setAttribute("sdi.patch.hash", patchHash.substring(0, 12))
+            .endWhenDone(build);
+    }
+
+    /**
+     * Whether built images are pushed, i.e. whether their tags can be pulled by pods
+     */
+    public boolean isPushing() {
+        return pusher != null;
+    }
+
+    /**
+     * Number of compiler invocations so far (cache hits do not compile)
+     */
+    public long getCompilations() {
+        return compilations.get();
+    }
+
+    @Override
+    public void close() {
+        buildExecutor.shutdownNow();
+        compileContexts.values().forEach(CompileContext::close);
+        compileContexts.clear();
+    }
+
+    private BuildResult buildImage(MutationPatch patch, String base, List<Path> classpath, String patchHash) {
+        long start = System.currentTimeMillis();
+        String imageTag = REPOSITORY + ":" + patch.getServiceId() + "-" + patchHash.substring(0, 12);
+        try {
+            BuildResult existing = findInLayout(patchHash, imageTag);
+            if (existing != null) {
+                System.out.println("Reusing patched image " + imageTag + " from " + layoutDir);
+                // It may have been built before a registry was configured or before a failed push
+                return push(existing);
+            }
+
+            Map<String, byte[]> classes = compile(patch, classpath);
+            byte[] tar = layerTar(classes);
+            byte[] layer = gzip(tar);
+            String layerDigest = "sha256:" + sha256Hex(layer);
+            String diffId = "sha256:" + sha256Hex(tar);
+            writeBlob(layerDigest, layer);
+
+            String manifestDigest = addImage(base, imageTag, patchHash, layerDigest, layer.length, diffId);
+            long elapsed = System.currentTimeMillis() - start;
+            System.out.println("Built patched image " + imageTag + " (" + classes.size() + " classes, " +
+                             layer.length + " byte layer) in " + elapsed + "ms");
+            return push(new BuildResult(imageTag, patchHash, manifestDigest, layerDigest, layer.length,
+                classes.size(), false, elapsed));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to build patched image for " + patch.getServiceId() + ": " +
+                                     e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Push the image so the rollout can reference it
+     *
+     * @return Result naming the registry reference instead of the layout tag
+     */
+    private BuildResult push(BuildResult built) throws IOException {
+        if (pusher == null) {
+            return built;
+        }
+        String reference = pusher.push(layoutDir, built.getImageTag(), built.getManifestDigest());
+        return new BuildResult(reference, built.getPatchHash(), built.getManifestDigest(), built.getLayerDigest(),
+            built.getLayerSize(), built.getClassCount(), built.isCached(), built.getBuildMillis());
+    }
+
+    /**
+     * Compile the mutated unit in memory
+     *
+     * @return Class files keyed by binary name
+     */
+    Map<String, byte[]> compile(MutationPatch patch, List<Path> classpath) throws IOException {
+        String source = patch.getMutatedCode();
+        Matcher type = PUBLIC_TYPE.matcher(source);
+        String simpleName = type.find() ? type.group(1) : patch.getServiceId().replaceAll("\\W", "_");
+        Matcher pkg = PACKAGE.matcher(source);
+        String className = pkg.find() ? pkg.group(1) + "." + simpleName : simpleName;
+
+        String fingerprint = classpathFingerprint(classpath);
+        CompileContext context = compileContexts.compute(classpath.toString(), (key, current) -> {
+            if (current != null && current.fingerprint.equals(fingerprint)) {
+                return current;
+            }
+            if (current != null) {
+                // Jars changed; wait for a compile still using the old file manager
+                current.lock.lock();
+                try {
+                    current.close();
+                } finally {
+                    current.lock.unlock();
+                }
+            }
+            return new CompileContext(compiler, classpath, fingerprint);
+        });
+
+        Map<String, byte[]> classes = new TreeMap<>();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject unit = new SimpleJavaFileObject(
+                URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        // A file manager is not thread-safe; builds sharing a classpath take turns
+        context.lock.lock();
+        try {
+            ForwardingJavaFileManager<StandardJavaFileManager> output =
+                    new ForwardingJavaFileManager<>(context.fileManager) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String name,
+                                                           JavaFileObject.Kind kind, FileObject sibling) {
+                    return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension),
+                            kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            return new ByteArrayOutputStream() {
+                                @Override
+                                public void close() {
+                                    classes.put(name, toByteArray());
+                                }
+                            };
+                        }
+                    };
+                }
+
+                @Override
+                public void flush() {
+                    // Keep the shared file manager's caches open
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+            compilations.incrementAndGet();
+            Boolean success = compiler.getTask(null, output, diagnostics,
+                List.of("-g", "-proc:none", "-nowarn"), null, List.of(unit)).call();
+            if (!Boolean.TRUE.equals(success)) {
+                String errors = diagnostics.getDiagnostics().stream()
+                    .filter(diagnostic -> diagnostic.getKind() == Diagnostic.Kind.ERROR)
+                    .map(diagnostic -> "line " + diagnostic.getLineNumber() + ": " + diagnostic.getMessage(null))
+                    .collect(Collectors.joining("; "));
+                throw new IllegalStateException("Compilation of " + className + " failed: " + errors);
+            }
+        } finally {
+            context.lock.unlock();
+        }
+        return classes;
+    }
+
+    /**
+     * Deterministic ustar archive of the class files under the classes path
+     */
+    byte[] layerTar(Map<String, byte[]> classes) throws IOException {
+        TreeMap<String, byte[]> files = new TreeMap<>();
+        TreeSet<String> directories = new TreeSet<>();
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            String path = classesPath + "/" + entry.getKey().replace('.', '/') + ".class";
+            files.put(path, entry.getValue());
+            for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+                directories.add(path.substring(0, slash + 1));
+            }
+        }
+
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        for (String directory : directories) {
+            tar.write(tarHeader(directory, 0, 0755, '5'));
+        }
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            byte[] content = file.getValue();
+            tar.write(tarHeader(file.getKey(), content.length, 0644, '0'));
+            tar.write(content);
+            tar.write(new byte[(512 - content.length % 512) % 512]);
+        }
+        tar.write(new byte[1024]);
+        return tar.toByteArray();
+    }
+
+    private static byte[] tarHeader(String path, long size, int mode, char type) {
+        byte[] header = new byte[512];
+        byte[] name = path.getBytes(StandardCharsets.UTF_8);
+        if (name.length <= 100) {
+            System.arraycopy(name, 0, header, 0, name.length);
+        } else {
+            int split = path.lastIndexOf('/', path.length() - 2);
+            byte[] prefix = path.substring(0, split).getBytes(StandardCharsets.UTF_8);
+            byte[] rest = path.substring(split + 1).getBytes(StandardCharsets.UTF_8);
+            if (split < 0 || prefix.length > 155 || rest.length > 100) {
+                throw new IllegalArgumentException("Path too long for a tar entry: " + path);
+            }
+            System.arraycopy(rest, 0, header, 0, rest.length);
+            System.arraycopy(prefix, 0, header, 345, prefix.length);
+        }
+        octal(header, 100, 8, mode);
+        octal(header, 108, 8, 0);
+        octal(header, 116, 8, 0);
+        octal(header, 124, 12, size);
+        octal(header, 136, 12, 0);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+
+        // Checksum is computed with its own field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        byte[] digits = String.format("%06o", checksum).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(digits, 0, header, 148, 6);
+        header[154] = 0;
+        header[155] = ' ';
+        return header;
+    }
+
+    private static void octal(byte[] header, int offset, int length, long value) {
+        byte[] digits = String.format("%0" + (length - 1) + "o", value).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(digits, 0, header, offset, length - 1);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Append the layer to the base image and register the result in index.json
+     *
+     * @return Digest of the new manifest
+     */
+    private String addImage(String base, String imageTag, String patchHash, String layerDigest,
+                            long layerSize, String diffId) throws IOException {
+        layoutLock.lock();
+        try {
+            JsonObject index = readIndex();
+            JsonObject baseDescriptor = findManifest(index, base);
+            if (baseDescriptor == null) {
+                throw new IllegalStateException("Base image " + base + " not found in OCI layout " + layoutDir);
+            }
+            JsonObject manifest = readBlobJson(baseDescriptor.get("digest").getAsString());
+            JsonObject config = readBlobJson(manifest.getAsJsonObject("config").get("digest").getAsString());
+
+            String created = Instant.now().toString();
+            config.addProperty("created", created);
+            config.getAsJsonObject("rootfs").getAsJsonArray("diff_ids").add(diffId);
+            JsonObject history = new JsonObject();
+            history.addProperty("created", created);
+            history.addProperty("created_by", "sdi patch " + patchHash.substring(0, 12));
+            if (!config.has("history")) {
+                config.add("history", new JsonArray());
+            }
+            config.getAsJsonArray("history").add(history);
+            byte[] configBytes = GSON.toJson(config).getBytes(StandardCharsets.UTF_8);
+            String configDigest = "sha256:" + sha256Hex(configBytes);
+            writeBlob(configDigest, configBytes);
+
+            manifest.add("config", descriptor(CONFIG_MEDIA_TYPE, configDigest, configBytes.length));
+            manifest.getAsJsonArray("layers").add(descriptor(LAYER_MEDIA_TYPE, layerDigest, layerSize));
+            byte[] manifestBytes = GSON.toJson(manifest).getBytes(StandardCharsets.UTF_8);
+            String manifestDigest = "sha256:" + sha256Hex(manifestBytes);
+            writeBlob(manifestDigest, manifestBytes);
+
+            JsonObject entry = descriptor(MANIFEST_MEDIA_TYPE, manifestDigest, manifestBytes.length);
+            JsonObject annotations = new JsonObject();
+            annotations.addProperty(REF_NAME_ANNOTATION, imageTag);
+            annotations.addProperty(PATCH_HASH_ANNOTATION, patchHash);
+            entry.add("annotations", annotations);
+            index.getAsJsonArray("manifests").add(entry);
+            writeAtomically(layoutDir.resolve("index.json"), GSON.toJson(index).getBytes(StandardCharsets.UTF_8));
+            return manifestDigest;
+        } finally {
+            layoutLock.unlock();
+        }
+    }
+
+    /**
+     * Image built earlier for the same patch hash (e.g. before a restart)
+     */
+    private BuildResult findInLayout(String patchHash, String imageTag) throws IOException {
+        layoutLock.lock();
+        try {
+            for (JsonElement element : readIndex().getAsJsonArray("manifests")) {
+                JsonObject descriptor = element.getAsJsonObject();
+                JsonObject annotations = descriptor.getAsJsonObject("annotations");
+                if (annotations != null && annotations.has(PATCH_HASH_ANNOTATION) &&
+                    patchHash.equals(annotations.get(PATCH_HASH_ANNOTATION).getAsString())) {
+                    JsonArray layers = readBlobJson(descriptor.get("digest").getAsString()).getAsJsonArray("layers");
+                    JsonObject layer = layers.get(layers.size() - 1).getAsJsonObject();
+                    return new BuildResult(imageTag, patchHash, descriptor.get("digest").getAsString(),
+                        layer.get("digest").getAsString(), layer.get("size").getAsLong(), 0, true, 0);
+                }
+            }
+            return null;
+        } finally {
+            layoutLock.unlock();
+        }
+    }
+
+    private JsonObject findManifest(JsonObject index, String ref) {
+        String tag = ref.substring(ref.lastIndexOf(':') + 1);
+        for (JsonElement element : index.getAsJsonArray("manifests")) {
+            JsonObject descriptor = element.getAsJsonObject();
+            JsonObject annotations = descriptor.getAsJsonObject("annotations");
+            if (annotations == null || !annotations.has(REF_NAME_ANNOTATION)) {
+                continue;
+            }
+            // Tools such as skopeo record only the tag as the ref name
+            String name = annotations.get(REF_NAME_ANNOTATION).getAsString();
+            if (name.equals(ref) || name.equals(tag)) {
+                return descriptor;
+            }
+        }
+        return null;
+    }
+
+    private JsonObject readIndex() throws IOException {
+        Path index = layoutDir.resolve("index.json");
+        if (!Files.exists(index)) {
+            throw new IllegalStateException("Not an OCI image layout (no index.json): " + layoutDir);
+        }
+        return JsonParser.parseString(Files.readString(index)).getAsJsonObject();
+    }
+
+    private JsonObject readBlobJson(String digest) throws IOException {
+        return JsonParser.parseString(Files.readString(blobPath(digest))).getAsJsonObject();
+    }
+
+    private void writeBlob(String digest, byte[] content) throws IOException {
+        Path blob = blobPath(digest);
+        if (!Files.exists(blob)) {
+            Files.createDirectories(blob.getParent());
+            writeAtomically(blob, content);
+        }
+    }
+
+    private Path blobPath(String digest) {
+        int colon = digest.indexOf(':');
+        return layoutDir.resolve("blobs").resolve(digest.substring(0, colon)).resolve(digest.substring(colon + 1));
+    }
+
+    private static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".sdi-", ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static JsonObject descriptor(String mediaType, String digest, long size) {
+        JsonObject descriptor = new JsonObject();
+        descriptor.addProperty("mediaType", mediaType);
+        descriptor.addProperty("digest", digest);
+        descriptor.addProperty("size", size);
+        return descriptor;
+    }
+
+    private String baseImageFor(String serviceId) {
+        return baseImage.replace("{service}", serviceId);
+    }
+
+    private List<Path> classpathFor(String serviceId) {
+        Path serviceDir = dependencyDir.resolve(serviceId);
+        Path dir = Files.isDirectory(serviceDir) ? serviceDir : dependencyDir;
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(".jar")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list dependency jars in " + dir + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Cheap change detector for the dependency jars (name, size, mtime)
+     */
+    private static String classpathFingerprint(List<Path> classpath) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Path jar : classpath) {
+            try {
+                fingerprint.append(jar.getFileName()).append(':').append(Files.size(jar)).append(':')
+                    .append(Files.getLastModifiedTime(jar).toMillis()).append(';');
+            } catch (IOException e) {
+                fingerprint.append(jar.getFileName()).append(":missing;");
+            }
+        }
+        return fingerprint.toString();
+    }
+
+    static String sha256Hex(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compiler file manager bound to one dependency classpath
+     */
+    private static final class CompileContext {
+        final StandardJavaFileManager fileManager;
+        final String fingerprint;
+        final ReentrantLock lock = new ReentrantLock();
+
+        CompileContext(JavaCompiler compiler, List<Path> classpath, String fingerprint) {
+            this.fingerprint = fingerprint;
+            this.fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+            try {
+                fileManager.setLocationFromPaths(StandardLocation.CLASS_PATH, new ArrayList<>(classpath));
+            } catch (IOException e) {
+                throw new RuntimeException("Invalid dependency classpath: " + e.getMessage(), e);
+            }
+        }
+
+        void close() {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close compiler file manager: " + e.getMessage());
+            }
+        }
+    }
+
+    // Inner classes
+    public static class BuildResult {
+        private final String imageTag;
+        private final String patchHash;
+        private final String manifestDigest;
+        private final String layerDigest;
+        private final long layerSize;
+        private final int classCount;
+        private final boolean cached;
+        private final long buildMillis;
+
+        public BuildResult(String imageTag, String patchHash, String manifestDigest, String layerDigest,
+                           long layerSize, int classCount, boolean cached, long buildMillis) {
+            this.imageTag = imageTag;
+            this.patchHash = patchHash;
+            this.manifestDigest = manifestDigest;
+            this.layerDigest = layerDigest;
+            this.layerSize = layerSize;
+            this.classCount = classCount;
+            this.cached = cached;
+            this.buildMillis = buildMillis;
+        }
+
+        public String getImageTag() { return imageTag; }
+        public String getPatchHash() { return patchHash; }
+        public String getManifestDigest() { return manifestDigest; }
+        public String getLayerDigest() { return layerDigest; }
+        public long getLayerSize() { return layerSize; }
+        public int getClassCount() { return classCount; }
+        public boolean isCached() { return cached; }
+        public long getBuildMillis() { return buildMillis; }
+    }
+}
@@ -0,0 +1,272 @@
+package com.sdi.deployer;
+
+import com.sdi.deployer.CanaryValidator.CanaryVerdict;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Progressive canary rollout with an analysis gate per step
+ *
+ * Traffic weight is shifted by replica counts: at weight w the canary runs
+ * ceil(fleet * w) replicas and the baseline the remainder (at least one, so
+ * there is always a baseline to compare against). After each step the
+ * CanaryValidator gates the next one; the final step promotes the new image
+ * onto the baseline deployment at full size and deletes the canary. Any
+ * failed gate or Kubernetes error restores the baseline and deletes the canary.
+ *
+ * Steps whose replica counts equal the previous step's are skipped, so small
+ * fleets are not analyzed repeatedly for an unchanged split.
+ *
+ * With a validation budget, each gate gets an equal share of what is left
+ * of it for the remaining gates, so a slow early step shortens the later
+ * analyses instead of pushing the rollout past its budget.
+ */
+public class ProgressiveRollout {
+
+    /**
+     * Kubernetes operations the rollout drives
+     */
+    public interface WorkloadOperations {
+        CompletableFuture<?> scale(String deploymentName, int replicas);
+
+        /**
+         * Switch the deployment to the new image at the given size
+         */
+        CompletableFuture<?> promote(String deploymentName, String imageTag, int replicas);
+
+        CompletableFuture<?> delete(String deploymentName);
+    }
+
+    private final WorkloadOperations operations;
+    private final CanaryValidator validator;
+    private final String namespace;
+    private final String serviceId;
+    private final String canaryName;
+    private final String imageTag;
+    private final int fleetReplicas;
+    private final List<Double> weights;
+    private final DoubleConsumer weightListener;
+    private final Duration validationBudget;
+    private final List<CanaryVerdict> verdicts = Collections.synchronizedList(new ArrayList<>());
+    private volatile double currentWeight;
+    private volatile long startNanos;
+
+    /**
+     * @param operations Kubernetes operations for scaling, promotion and cleanup
+     * @param validator Analysis gate run after every step
+     * @param namespace Namespace of the service
+     * @param serviceId Baseline deployment name
+     * @param canaryName Canary deployment name (already created at the first step's size)
+     * @param imageTag Immunized image
+     * @param fleetReplicas Baseline replica count before the rollout
+     * @param weights Ascending traffic weights ending with 1.0 (see {@link #rolloutWeights})
+     * @param weightListener Notified whenever the canary weight changes
+     */
+    public ProgressiveRollout(WorkloadOperations operations, CanaryValidator validator, String namespace,
+                              String serviceId, String canaryName, String imageTag, int fleetReplicas,
+                              List<Double> weights, DoubleConsumer weightListener) {
+        this(operations, validator, namespace, serviceId, canaryName, imageTag, fleetReplicas, weights,
+             weightListener, null);
+    }
+
+    /**
+     * @param validationBudget Total time all analysis gates may take, counted from
+     *        {@link #start}, or null for the validator's own deadline per gate
+     */
+    public ProgressiveRollout(WorkloadOperations operations, CanaryValidator validator, String namespace,
+                              String serviceId, String canaryName, String imageTag, int fleetReplicas,
+                              List<Double> weights, DoubleConsumer weightListener, Duration validationBudget) {
+        this.operations = operations;
+        this.validator = validator;
+        this.namespace = namespace;
+        this.serviceId = serviceId;
+        this.canaryName = canaryName;
+        this.imageTag = imageTag;
+        this.fleetReplicas = Math.max(1, fleetReplicas);
+        this.weights = List.copyOf(weights);
+        this.weightListener = weightListener;
+        this.validationBudget = validationBudget;
+    }
+
+    /**
+     * Build the weight schedule: the canary percentage first, then every
+     * configured step above it, always ending at full rollout
+     */
+    public static List<Double> rolloutWeights(double canaryPercentage, List<Double> steps) {
+        if (canaryPercentage <= 0.0 || canaryPercentage > 1.0) {
+            throw new IllegalArgumentException("Canary percentage must be in (0, 1]: " + canaryPercentage);
+        }
+        TreeSet<Double> schedule = new TreeSet<>();
+        schedule.add(canaryPercentage);
+        for (Double step : steps) {
+            if (step != null && step > canaryPercentage && step < 1.0) {
+                schedule.add(step);
+            }
+        }
+        schedule.add(1.0);
+        return new ArrayList<>(schedule);
+    }
+
+    /**
+     * Canary replicas for a traffic weight (always at least one)
+     */
+    public static int canaryReplicas(double weight, int fleetReplicas) {
+        return Math.max(1, (int) Math.ceil(fleetReplicas * weight));
+    }
+
+    /**
+     * Baseline replicas while the canary serves the given weight
+     */
+    static int baselineReplicas(double weight, int fleetReplicas) {
+        return Math.max(1, fleetReplicas - canaryReplicas(weight, fleetReplicas));
+    }
+
+    /**
+     * Run the rollout; the canary must already exist at the first step's size
+     *
+     * @return Future completed with the outcome (never exceptionally)
+     */
+    public CompletableFuture<RolloutResult> start() {
+        startNanos = System.nanoTime();
+        setWeight(weights.get(0));
+        return operations.scale(serviceId, baselineReplicas(weights.get(0), fleetReplicas))
+            .thenCompose(scaled -> gate(0))
+            .exceptionallyCompose(error -> rollback("Rollout error: " + rootMessage(error)));
+    }
+
+    public double getCurrentWeight() {
+        return currentWeight;
+    }
+
+    private CompletableFuture<RolloutResult> gate(int step) {
+        return validator.validate(namespace, serviceId, canaryName, gateBudget(step)).thenCompose(verdict -> {
+            verdicts.add(verdict);
+            if (!verdict.isPassed()) {
+                return rollback(String.format("Analysis failed at %.0f%%: %s",
+                    weights.get(step) * 100, verdict.getReason()));
+            }
+            int next = nextEffectiveStep(step);
+            if (weights.get(next) >= 1.0) {
+                return promote();
+            }
+            return shift(next).thenCompose(shifted -> gate(next));
+        });
+    }
+
+    /**
+     * Share of the remaining validation budget for the gate at this step,
+     * or null without a budget
+     */
+    private Duration gateBudget(int step) {
+        if (validationBudget == null) {
+            return null;
+        }
+        int gates = 1;
+        for (int s = step; weights.get(s) < 1.0; s = nextEffectiveStep(s)) {
+            if (weights.get(nextEffectiveStep(s)) < 1.0) {
+                gates++;
+            }
+        }
+        long remaining = validationBudget.toNanos() - (System.nanoTime() - startNanos);
+        return Duration.ofNanos(Math.max(0, remaining) / gates);
+    }
+
+    /**
+     * Next step that changes the replica split (the final step always does)
+     */
+    private int nextEffectiveStep(int step) {
+        int current = canaryReplicas(weights.get(step), fleetReplicas);
+        int next = Math.min(step + 1, weights.size() - 1);
+        while (next < weights.size() - 1 && canaryReplicas(weights.get(next), fleetReplicas) == current) {
+            next++;
+        }
+        return next;
+    }
+
+    private CompletableFuture<?> shift(int step) {
+        double weight = weights.get(step);
+        System.out.println(String.format("Shifting %s to %.0f%% canary", serviceId, weight * 100));
+        // Add canary capacity before removing baseline capacity
+        return operations.scale(canaryName, canaryReplicas(weight, fleetReplicas))
+            .thenCompose(scaled -> operations.scale(serviceId, baselineReplicas(weight, fleetReplicas)))
+            .thenRun(() -> setWeight(weight));
+    }
+
+    private CompletableFuture<RolloutResult> promote() {
+        return operations.promote(serviceId, imageTag, fleetReplicas)
+            .thenCompose(promoted -> {
+                setWeight(1.0);
+                // Fleet is already immunized; a failed cleanup is only logged
+                return deleteCanary().handle((deleted, error) -> null);
+            })
+            .thenApply(deleted -> {
+                System.out.println("Rolled out immunized version to full fleet: " + serviceId);
+                return new RolloutResult(true, 1.0, "Promoted after " + verdicts.size() + " analysis gates",
+                    new ArrayList<>(verdicts));
+            });
+    }
+
+    private CompletableFuture<RolloutResult> rollback(String reason) {
+        double reached = currentWeight;
+        System.err.println("Rolling back " + canaryName + ": " + reason);
+        return operations.scale(serviceId, fleetReplicas)
+            .handle((restored, error) -> {
+                if (error != null) {
+                    System.err.println("Failed to restore " + serviceId + ": " + rootMessage(error));
+                }
+                return null;
+            })
+            .thenCompose(restored -> deleteCanary())
+            .handle((deleted, error) -> {
+                setWeight(0.0);
+                return new RolloutResult(false, reached, reason, new ArrayList<>(verdicts));
+            });
+    }
+
+    private CompletableFuture<?> deleteCanary() {
+        return operations.delete(canaryName).whenComplete((status, error) -> {
+            if (error != null) {
+                System.err.println("Failed to delete canary " + canaryName + ": " + rootMessage(error));
+            }
+        });
+    }
+
+    private void setWeight(double weight) {
+        currentWeight = weight;
+        if (weightListener != null) {
+            weightListener.accept(weight);
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause.getMessage();
+    }
+
+    // Inner classes
+    public static class RolloutResult {
+        private final boolean succeeded;
+        private final double reachedWeight;
+        private final String reason;
+        private final List<CanaryVerdict> verdicts;
+
+        public RolloutResult(boolean succeeded, double reachedWeight, String reason, List<CanaryVerdict> verdicts) {
+            this.succeeded = succeeded;
+            this.reachedWeight = reachedWeight;
+            this.reason = reason;
+            this.verdicts = verdicts;
+        }
+
+        public boolean isSucceeded() { return succeeded; }
+        public double getReachedWeight() { return reachedWeight; }
+        public String getReason() { return reason; }
+        public List<CanaryVerdict> getVerdicts() { return verdicts; }
+    }
+}
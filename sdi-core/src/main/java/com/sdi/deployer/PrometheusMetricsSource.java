@@ -0,0 +1,110 @@
+package com.sdi.deployer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sdi.trace.PipelineTrace;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Canary metrics from the Prometheus HTTP query API
+ *
+ * Issues three instant queries per sample (mean latency, request count,
+ * 5xx count) over the polling window using the asynchronous HTTP client,
+ * so no thread waits on Prometheus. Pods are matched by the Deployment
+ * naming scheme {@code <workload>-<replicaset hash>-<pod hash>}, which keeps
+ * the baseline selector from also matching {@code <service>-canary-*} pods.
+ */
+public class PrometheusMetricsSource implements CanaryMetricsSource {
+
+    private final HttpClient httpClient;
+    private final URI queryEndpoint;
+    private final String requestMetric;
+    private final Duration window;
+    private final Duration queryTimeout;
+
+    /**
+     * @param baseUrl Prometheus base URL, e.g. http://prometheus:9090
+     * @param requestMetric Histogram base name, e.g. http_server_requests_seconds
+     * @param window Range the rates are computed over (normally the polling interval)
+     * @param queryTimeout Timeout for each query
+     */
+    public PrometheusMetricsSource(String baseUrl, String requestMetric, Duration window, Duration queryTimeout) {
+        this.httpClient = HttpClient.newBuilder().connectTimeout(queryTimeout).build();
+        this.queryEndpoint = URI.create(baseUrl.replaceAll("/+$", "") + "/api/v1/query");
+        this.requestMetric = requestMetric;
+        this.window = window;
+        this.queryTimeout = queryTimeout;
+    }
+
+    @Override
+    public CompletableFuture<MetricsSample> fetch(String namespace, String workload) {
+        String selector = String.format("namespace=\"%s\",pod=~\"%s-[a-z0-9]+-[a-z0-9]+\"",
+            namespace, workload);
+        String errorSelector = selector + ",status=~\"5..\"";
+        String range = "[" + Math.max(1, window.toSeconds()) + "s]";
+
+        PipelineTrace.Span span = PipelineTrace.currentSpan().startCall("prometheus query")
+            .setAttribute("k8s.namespace", namespace)
+            .setAttribute("sdi.workload", workload);
+        CompletableFuture<Double> latency = query(String.format(
+            "1000 * sum(rate(%1$s_sum{%2$s}%3$s)) / sum(rate(%1$s_count{%2$s}%3$s))",
+            requestMetric, selector, range));
+        CompletableFuture<Double> requests = query(String.format(
+            "sum(increase(%s_count{%s}%s))", requestMetric, selector, range));
+        CompletableFuture<Double> errors = query(String.format(
+            "sum(increase(%s_count{%s}%s))", requestMetric, errorSelector, range));
+
+        return span.endWhenDone(latency
+            .thenCombine(requests, (latencyMs, requestCount) -> new double[]{latencyMs, requestCount})
+            .thenCombine(errors, (values, errorCount) -> new MetricsSample(
+                values[0],
+                Math.round(orZero(values[1])),
+                Math.round(orZero(errorCount))
+            )));
+    }
+
+    /**
+     * Run an instant query returning a single scalar (NaN for an empty result)
+     */
+    private CompletableFuture<Double> query(String promql) {
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create(queryEndpoint + "?query=" + URLEncoder.encode(promql, StandardCharsets.UTF_8)))
+            .timeout(queryTimeout)
+            .GET()
+            .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Prometheus query failed with HTTP " + response.statusCode());
+                }
+                return parseScalar(response.body());
+            });
+    }
+
+    static double parseScalar(String body) {
+        JsonObject json = JsonParser.parseString(body).getAsJsonObject();
+        if (!"success".equals(json.get("status").getAsString())) {
+            throw new IllegalStateException("Prometheus query error: " + json.get("error"));
+        }
+        JsonArray result = json.getAsJsonObject("data").getAsJsonArray("result");
+        if (result.isEmpty()) {
+            return Double.NaN;
+        }
+        // Instant vector sample: [ <unix time>, "<value>" ]
+        return Double.parseDouble(result.get(0).getAsJsonObject().getAsJsonArray("value").get(1).getAsString());
+    }
+
+    private static double orZero(double value) {
+        return Double.isNaN(value) ? 0.0 : value;
+    }
+}
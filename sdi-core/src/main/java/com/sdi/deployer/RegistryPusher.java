@@ -0,0 +1,224 @@
+package com.sdi.deployer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pushes images from an OCI image layout to a registry
+ *
+ * Speaks the OCI distribution API directly: every layer and the config are
+ * uploaded unless the registry already has them (a HEAD per blob, so base
+ * layers are sent once), then the manifest is put under the tag. Registries
+ * answering 401 with a Bearer challenge get the usual token exchange, using
+ * the credentials as basic auth against the token realm when they are set.
+ */
+public class RegistryPusher {
+
+    private static final Pattern CHALLENGE_PARAM = Pattern.compile("(\\w+)=\"([^\"]*)\"");
+
+    private final String registry;
+    private final URI endpoint;
+    private final String basicAuth;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private volatile String bearerToken;
+
+    /**
+     * @param registry Registry host with an optional path prefix, e.g. registry.example.com:5000/team
+     * @param insecure Use plain HTTP instead of HTTPS
+     * @param username Registry user, or null for anonymous pushes
+     * @param password Registry password or access token
+     * @param timeout Timeout for each request
+     */
+    public RegistryPusher(String registry, boolean insecure, String username, String password, Duration timeout) {
+        this.registry = registry.replaceAll("^\\w+://|/+$", "");
+        int slash = this.registry.indexOf('/');
+        String host = slash < 0 ? this.registry : this.registry.substring(0, slash);
+        this.endpoint = URI.create((insecure ? "http://" : "https://") + host + "/v2/");
+        this.basicAuth = username == null || username.isEmpty() ? null : "Basic " + Base64.getEncoder()
+            .encodeToString((username + ":" + (password == null ? "" : password)).getBytes(StandardCharsets.UTF_8));
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    /**
+     * Reference pods pull a pushed image by, e.g. registry.example.com/team/sdi-immunized:svc-1a2b
+     */
+    public String reference(String imageTag) {
+        return registry + "/" + imageTag;
+    }
+
+    /**
+     * Upload an image's missing blobs and its manifest
+     *
+     * @param layoutDir OCI image layout the blobs are read from
+     * @param imageTag Repository and tag, e.g. sdi-immunized:svc-1a2b
+     * @param manifestDigest Digest of the image manifest in the layout
+     * @return Pullable reference of the pushed image
+     */
+    public String push(Path layoutDir, String imageTag, String manifestDigest) throws IOException {
+        int colon = imageTag.lastIndexOf(':');
+        String repository = registryPath() + imageTag.substring(0, colon);
+        String tag = imageTag.substring(colon + 1);
+
+        byte[] manifestBytes = Files.readAllBytes(blobPath(layoutDir, manifestDigest));
+        JsonObject manifest = JsonParser.parseString(new String(manifestBytes, StandardCharsets.UTF_8))
+            .getAsJsonObject();
+        List<String> blobs = new ArrayList<>();
+        for (JsonElement layer : manifest.getAsJsonArray("layers")) {
+            blobs.add(layer.getAsJsonObject().get("digest").getAsString());
+        }
+        blobs.add(manifest.getAsJsonObject("config").get("digest").getAsString());
+
+        int uploaded = 0;
+        for (String digest : blobs) {
+            if (uploadBlob(layoutDir, repository, digest)) {
+                uploaded++;
+            }
+        }
+        String mediaType = manifest.has("mediaType") ? manifest.get("mediaType").getAsString()
+                                                     : PatchImageBuilder.MANIFEST_MEDIA_TYPE;
+        HttpResponse<String> response = send(HttpRequest.newBuilder(
+                endpoint.resolve(repository + "/manifests/" + tag))
+            .header("Content-Type", mediaType)
+            .PUT(HttpRequest.BodyPublishers.ofByteArray(manifestBytes)));
+        expect(response, 201, "put manifest " + repository + ":" + tag);
+
+        String reference = reference(imageTag);
+        System.out.println("Pushed " + reference + " (" + uploaded + " of " + blobs.size() + " blobs uploaded)");
+        return reference;
+    }
+
+    /**
+     * @return Whether the blob was uploaded (false when the registry already had it)
+     */
+    private boolean uploadBlob(Path layoutDir, String repository, String digest) throws IOException {
+        HttpResponse<String> head = send(HttpRequest.newBuilder(endpoint.resolve(repository + "/blobs/" + digest))
+            .method("HEAD", HttpRequest.BodyPublishers.noBody()));
+        if (head.statusCode() == 200) {
+            return false;
+        }
+        Path blob = blobPath(layoutDir, digest);
+        if (!Files.exists(blob)) {
+            throw new IOException("Blob " + digest + " missing from OCI layout " + layoutDir +
+                                  " and from the registry");
+        }
+
+        HttpResponse<String> start = send(HttpRequest.newBuilder(endpoint.resolve(repository + "/blobs/uploads/"))
+            .POST(HttpRequest.BodyPublishers.noBody()));
+        expect(start, 202, "start upload of " + digest);
+        String location = start.headers().firstValue("Location")
+            .orElseThrow(() -> new IOException("Registry returned no upload location for " + digest));
+        URI upload = endpoint.resolve(location);
+        String separator = upload.getRawQuery() == null ? "?" : "&";
+
+        HttpResponse<String> put = send(HttpRequest.newBuilder(
+                URI.create(upload + separator + "digest=" + URLEncoder.encode(digest, StandardCharsets.UTF_8)))
+            .header("Content-Type", "application/octet-stream")
+            .PUT(HttpRequest.BodyPublishers.ofFile(blob)));
+        expect(put, 201, "upload " + digest);
+        return true;
+    }
+
+    /**
+     * Send with the current credentials, fetching a token once on a Bearer challenge
+     */
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException {
+        HttpResponse<String> response = sendAuthorized(request);
+        if (response.statusCode() == 401) {
+            String challenge = response.headers().firstValue("WWW-Authenticate").orElse("");
+            if (challenge.regionMatches(true, 0, "Bearer ", 0, 7)) {
+                bearerToken = fetchToken(challenge.substring(7));
+                response = sendAuthorized(request);
+            }
+        }
+        return response;
+    }
+
+    private HttpResponse<String> sendAuthorized(HttpRequest.Builder request) throws IOException {
+        String authorization = bearerToken != null ? "Bearer " + bearerToken : basicAuth;
+        if (authorization != null) {
+            request.setHeader("Authorization", authorization);
+        }
+        try {
+            return httpClient.send(request.timeout(timeout).build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while pushing to " + registry, e);
+        }
+    }
+
+    private String fetchToken(String challenge) throws IOException {
+        Map<String, String> params = new LinkedHashMap<>();
+        Matcher param = CHALLENGE_PARAM.matcher(challenge);
+        while (param.find()) {
+            params.put(param.group(1), param.group(2));
+        }
+        String realm = params.remove("realm");
+        if (realm == null) {
+            throw new IOException("Registry " + registry + " sent a Bearer challenge without a realm");
+        }
+        StringBuilder uri = new StringBuilder(realm);
+        char separator = realm.contains("?") ? '&' : '?';
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            uri.append(separator).append(entry.getKey()).append('=')
+               .append(URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8));
+            separator = '&';
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(uri.toString())).timeout(timeout).GET();
+        if (basicAuth != null) {
+            request.header("Authorization", basicAuth);
+        }
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while authenticating to " + registry, e);
+        }
+        expect(response, 200, "fetch registry token");
+        JsonObject token = JsonParser.parseString(response.body()).getAsJsonObject();
+        JsonElement value = token.has("token") ? token.get("token") : token.get("access_token");
+        if (value == null) {
+            throw new IOException("Registry " + registry + " token response carried no token");
+        }
+        return value.getAsString();
+    }
+
+    private String registryPath() {
+        int slash = registry.indexOf('/');
+        return slash < 0 ? "" : registry.substring(slash + 1) + "/";
+    }
+
+    private static Path blobPath(Path layoutDir, String digest) {
+        int colon = digest.indexOf(':');
+        return layoutDir.resolve("blobs").resolve(digest.substring(0, colon)).resolve(digest.substring(colon + 1));
+    }
+
+    private void expect(HttpResponse<String> response, int status, String action) throws IOException {
+        if (response.statusCode() != status) {
+            throw new IOException("Registry " + registry + " failed to " + action + ": HTTP " +
+                                  response.statusCode() + " " + response.body());
+        }
+    }
+}
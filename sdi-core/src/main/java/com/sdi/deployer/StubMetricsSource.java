@@ -0,0 +1,50 @@
+package com.sdi.deployer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local metrics source for running without Prometheus
+ *
+ * Returns simulated samples with a little noise: canary workloads
+ * (names containing "-canary-") get the canary profile, everything else
+ * the baseline profile.
+ */
+public class StubMetricsSource implements CanaryMetricsSource {
+
+    private static final double LATENCY_NOISE = 0.05; // 5% relative standard deviation
+
+    private final double baselineLatencyMs;
+    private final double baselineErrorRate;
+    private final double canaryLatencyMs;
+    private final double canaryErrorRate;
+    private final long requestsPerSample;
+
+    /**
+     * Baseline 100ms / 1% errors, canary 95ms / 0.5% errors
+     */
+    public StubMetricsSource() {
+        this(100.0, 0.01, 95.0, 0.005, 1000);
+    }
+
+    public StubMetricsSource(double baselineLatencyMs, double baselineErrorRate,
+                             double canaryLatencyMs, double canaryErrorRate, long requestsPerSample) {
+        this.baselineLatencyMs = baselineLatencyMs;
+        this.baselineErrorRate = baselineErrorRate;
+        this.canaryLatencyMs = canaryLatencyMs;
+        this.canaryErrorRate = canaryErrorRate;
+        this.requestsPerSample = requestsPerSample;
+    }
+
+    @Override
+    public CompletableFuture<MetricsSample> fetch(String namespace, String workload) {
+        boolean canary = workload.contains("-canary-");
+        double latency = canary ? canaryLatencyMs : baselineLatencyMs;
+        double errorRate = canary ? canaryErrorRate : baselineErrorRate;
+
+        double noisyLatency = latency * (1.0 + LATENCY_NOISE * ThreadLocalRandom.current().nextGaussian());
+        long errors = Math.round(requestsPerSample * errorRate);
+        return CompletableFuture.completedFuture(
+            new MetricsSample(Math.max(0.0, noisyLatency), requestsPerSample, errors));
+    }
+}
@@ -1,13 +1,18 @@
 package com.sdi.detector;
 
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.trace.PipelineTrace;
 import org.apache.commons.math3.distribution.MixtureMultivariateNormalDistribution;
 import org.apache.commons.math3.distribution.MultivariateNormalDistribution;
 import org.apache.commons.math3.random.RandomGenerator;
 import org.apache.commons.math3.random.Well19937c;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 /**
  * Phase 1: Detection - Probabilistic Anomaly Triggering
@@ -16,15 +21,26 @@ import java.util.concurrent.ConcurrentHashMap;
  * representing normal behavior. An anomaly is declared when P(R | GMM) < threshold.
  * 
  * Complexity: O(1) per request with fixed number of mixture components.
+ * 
+ * Models can also be trained elsewhere and installed as a {@link GmmSnapshot};
+ * the active model is swapped atomically, so requests never see a
+ * half-installed model.
  */
 @Component
 public class AnomalyDetector {
     
     private double anomalyThreshold = 0.01; // epsilon - configurable
+    private double suspicionThreshold = 0.0; // reporting-only band above epsilon, 0 = off
     private static final int FEATURE_DIMENSION = 10; // Request vector dimension
     private static final int MIXTURE_COMPONENTS = 5;
+    private static final double DENSITY_SCALE = 1000.0; // GMM density -> probability-like value
     
-    private MixtureMultivariateNormalDistribution gmm;
+    private volatile MixtureMultivariateNormalDistribution gmm;
+    private volatile GmmSnapshot snapshot; // null while running the untrained default model
+    private volatile Consumer<GmmSnapshot> trainingListener;
+    private volatile PortableModel exported; // Cache for exportModel()
+    private SdiMetrics metrics = SdiMetrics.NOOP;
+    private final ReentrantLock installLock = new ReentrantLock();
     private final RandomGenerator rng = new Well19937c();
     private final Map<String, List<double[]>> trainingData = new ConcurrentHashMap<>();
     
@@ -41,6 +57,87 @@ public class AnomalyDetector {
         this.anomalyThreshold = threshold;
     }
     
+    /**
+     * Probability below which requests that are not anomalous on their own are
+     * still reported as suspect, so fleet-wide aggregation can see attacks that
+     * are spread thinly across nodes (0 disables)
+     */
+    public void setSuspicionThreshold(double suspicionThreshold) {
+        this.suspicionThreshold = suspicionThreshold;
+    }
+    
+    /**
+     * Record the latency of every detect and screen call
+     */
+    @Autowired(required = false)
+    public void setMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Called with every model this detector trains, e.g. to distribute it to other nodes
+     */
+    public void setTrainingListener(Consumer<GmmSnapshot> trainingListener) {
+        this.trainingListener = trainingListener;
+    }
+    
+    /**
+     * Parameters of the active model, or null while the untrained default model is active
+     */
+    public GmmSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    /**
+     * The active model for clients that score locally, or null while the
+     * untrained default model is active (it is random per node, so clients
+     * should ask the sidecar)
+     */
+    public PortableModel exportModel() {
+        GmmSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        double screeningThreshold = Math.max(anomalyThreshold, suspicionThreshold);
+        PortableModel cached = exported;
+        if (cached != null && cached.getVersion() == current.getVersion() &&
+            cached.getAnomalyThreshold() == anomalyThreshold && cached.getScreeningThreshold() == screeningThreshold) {
+            return cached;
+        }
+        cached = new PortableModel(current, DENSITY_SCALE, anomalyThreshold, screeningThreshold);
+        exported = cached;
+        return cached;
+    }
+    
+    /**
+     * Atomically replace the active model with a snapshot trained elsewhere
+     * 
+     * @return false if the snapshot is not newer than the active model or is unusable
+     */
+    public boolean install(GmmSnapshot candidate) {
+        if (candidate.getDimension() != FEATURE_DIMENSION) {
+            System.err.println("Ignoring GMM snapshot v" + candidate.getVersion() + " with dimension " +
+                             candidate.getDimension() + " (expected " + FEATURE_DIMENSION + ")");
+            return false;
+        }
+        installLock.lock();
+        try {
+            GmmSnapshot current = snapshot;
+            if (current != null && candidate.getVersion() <= current.getVersion()) {
+                return false;
+            }
+            MixtureMultivariateNormalDistribution distribution = toDistribution(candidate);
+            this.gmm = distribution;
+            this.snapshot = candidate;
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("Ignoring unusable GMM snapshot v" + candidate.getVersion() + ": " + e.getMessage());
+            return false;
+        } finally {
+            installLock.unlock();
+        }
+    }
+    
     /**
      * Initialize GMM with default parameters (in production, load from trained model)
      * Creates a default GMM with random components for initial use
@@ -75,7 +172,7 @@ public class AnomalyDetector {
         // Create the GMM using the components
         // Note: MixtureMultivariateNormalDistribution constructor takes weights and distributions arrays
         try {
-            this.gmm = new MixtureMultivariateNormalDistribution(weights, distributions);
+            this.gmm = new MixtureMultivariateNormalDistribution(toComponents(weights, distributions));
         } catch (Exception e) {
             // Fallback: if GMM construction fails, set to null and use simplified method
             System.err.println("Warning: Failed to initialize GMM, using simplified detection: " + e.getMessage());
@@ -108,23 +205,69 @@ public class AnomalyDetector {
      * @return AnomalyToken if anomaly detected, null otherwise
      */
     public AnomalyToken detect(RequestVector request) {
-        double[] features = extractFeatures(request);
-        
+        return evaluate(request, anomalyThreshold);
+    }
+    
+    /**
+     * Detect anomalies and, with a suspicion threshold set, suspect requests
+     * 
+     * @param request The request to evaluate
+     * @return AnomalyToken (marked suspect below the anomaly threshold), null otherwise
+     */
+    public AnomalyToken screen(RequestVector request) {
+        return evaluate(request, Math.max(anomalyThreshold, suspicionThreshold));
+    }
+    
+    /**
+     * Detect anomaly in a feature vector extracted by the caller
+     * 
+     * @param features Features in {@link #extractFeatures} order
+     * @return AnomalyToken if anomaly detected, null otherwise
+     */
+    public AnomalyToken detect(String serviceId, Map<String, String> metadata, double[] features) {
+        return evaluate(serviceId, metadata, checkDimension(features), anomalyThreshold);
+    }
+    
+    /**
+     * Screen a feature vector extracted by the caller (see {@link #screen(RequestVector)})
+     * 
+     * @param features Features in {@link #extractFeatures} order
+     */
+    public AnomalyToken screen(String serviceId, Map<String, String> metadata, double[] features) {
+        return evaluate(serviceId, metadata, checkDimension(features), Math.max(anomalyThreshold, suspicionThreshold));
+    }
+    
+    private AnomalyToken evaluate(RequestVector request, double threshold) {
+        return evaluate(request.getServiceId(), request.getMetadata(), extractFeatures(request), threshold);
+    }
+    
+    private AnomalyToken evaluate(String serviceId, Map<String, String> metadata, double[] features,
+                                  double threshold) {
+        long start = System.nanoTime();
         // Simplified probability computation (in production, use trained GMM)
         double probability = computeProbability(features);
         
-        if (probability < anomalyThreshold) {
+        AnomalyToken token = null;
+        if (probability < threshold) {
             double anomalyScore = 1.0 - probability;
-            return new AnomalyToken(
-                request.getServiceId(),
-                request.getMetadata(),
+            token = new AnomalyToken(
+                serviceId,
+                metadata,
                 System.currentTimeMillis(),
                 anomalyScore,
-                features
+                features,
+                probability >= anomalyThreshold
             );
         }
-        
-        return null;
+        metrics.recordDetection(System.nanoTime() - start, token);
+        return token;
+    }
+    
+    private static double[] checkDimension(double[] features) {
+        if (features.length != FEATURE_DIMENSION) {
+            throw new IllegalArgumentException("Expected " + FEATURE_DIMENSION + " features, got " + features.length);
+        }
+        return features;
     }
     
     /**
@@ -132,6 +275,8 @@ public class AnomalyDetector {
      * Uses the trained GMM if available, otherwise falls back to simplified distance-based method
      */
     private double computeProbability(double[] features) {
+        // Read the model once; it may be swapped concurrently
+        MixtureMultivariateNormalDistribution gmm = this.gmm;
         // Use GMM if it's been trained and initialized
         if (gmm != null) {
             try {
@@ -139,7 +284,7 @@ public class AnomalyDetector {
                 double probability = gmm.density(features);
                 // Normalize to [0, 1] range (GMM density can be very small, so we normalize)
                 // Using a sigmoid-like normalization to convert density to probability-like value
-                return Math.min(1.0, probability * 1000.0); // Scale factor may need tuning
+                return Math.min(1.0, probability * DENSITY_SCALE); // Scale factor may need tuning
             } catch (Exception e) {
                 // If GMM evaluation fails, fall back to simplified method
                 System.err.println("Warning: GMM evaluation failed, using fallback: " + e.getMessage());
@@ -184,11 +329,20 @@ public class AnomalyDetector {
         
         // Store training data
         trainingData.put("normal", featureVectors);
-        
+        trainOnFeatures(featureVectors);
+    }
+    
+    /**
+     * Train on already extracted feature vectors (e.g. pooled from many nodes)
+     * and install the result
+     * 
+     * @return The trained model, or null if training was not possible
+     */
+    public GmmSnapshot trainOnFeatures(List<double[]> featureVectors) {
         // Simple GMM training: compute mean and covariance from training data
         if (featureVectors.size() < MIXTURE_COMPONENTS) {
             System.err.println("Warning: Not enough training samples. Need at least " + MIXTURE_COMPONENTS);
-            return;
+            return null;
         }
         
         // Compute overall mean
@@ -226,35 +380,61 @@ public class AnomalyDetector {
         // Create GMM components centered around clusters in the data
         // Simplified: use k-means-like initialization (random sampling)
         double[] weights = new double[MIXTURE_COMPONENTS];
-        MultivariateNormalDistribution[] distributions = new MultivariateNormalDistribution[MIXTURE_COMPONENTS];
+        double[][] means = new double[MIXTURE_COMPONENTS][];
+        double[][][] covariances = new double[MIXTURE_COMPONENTS][][];
         
         for (int i = 0; i < MIXTURE_COMPONENTS; i++) {
             weights[i] = 1.0 / MIXTURE_COMPONENTS;
             
             // Sample a random point from training data as component mean
             int randomIndex = rng.nextInt(featureVectors.size());
-            double[] componentMean = Arrays.copyOf(featureVectors.get(randomIndex), FEATURE_DIMENSION);
+            means[i] = Arrays.copyOf(featureVectors.get(randomIndex), FEATURE_DIMENSION);
             
-            // Use the computed covariance (scaled for each component)
-            double[][] componentCov = new double[FEATURE_DIMENSION][FEATURE_DIMENSION];
-            for (int j = 0; j < FEATURE_DIMENSION; j++) {
-                System.arraycopy(covariance[j], 0, componentCov[j], 0, FEATURE_DIMENSION);
-            }
-            
-            distributions[i] = new MultivariateNormalDistribution(rng, componentMean, componentCov);
+            // Use the computed covariance (shared by all components)
+            covariances[i] = covariance;
         }
         
-        // Create the trained GMM
+        // Create and install the trained GMM
+        GmmSnapshot current = snapshot;
+        long version = Math.max(System.currentTimeMillis(), current != null ? current.getVersion() + 1 : 0);
+        GmmSnapshot trained;
         try {
-            this.gmm = new MixtureMultivariateNormalDistribution(weights, distributions);
-            System.out.println("GMM trained successfully on " + featureVectors.size() + " samples");
-        } catch (Exception e) {
+            trained = new GmmSnapshot(version, featureVectors.size(), weights, means, covariances);
+        } catch (IllegalArgumentException e) {
             System.err.println("Error training GMM: " + e.getMessage());
-            e.printStackTrace();
+            return null;
+        }
+        if (!install(trained)) {
             // Keep existing GMM or use fallback
+            return null;
         }
+        System.out.println("GMM trained successfully on " + featureVectors.size() + " samples");
+        Consumer<GmmSnapshot> listener = trainingListener;
+        if (listener != null) {
+            listener.accept(trained);
+        }
+        return trained;
     }
     
+    private MixtureMultivariateNormalDistribution toDistribution(GmmSnapshot model) {
+        double[] weights = new double[model.getComponents()];
+        MultivariateNormalDistribution[] distributions = new MultivariateNormalDistribution[model.getComponents()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = model.getWeight(i);
+            distributions[i] = new MultivariateNormalDistribution(rng, model.getMean(i), model.getCovariance(i));
+        }
+        return new MixtureMultivariateNormalDistribution(toComponents(weights, distributions));
+    }
+    
+    private static List<org.apache.commons.math3.util.Pair<Double, MultivariateNormalDistribution>> toComponents(
+            double[] weights, MultivariateNormalDistribution[] distributions) {
+        List<org.apache.commons.math3.util.Pair<Double, MultivariateNormalDistribution>> components = new ArrayList<>();
+        for (int i = 0; i < weights.length; i++) {
+            components.add(new org.apache.commons.math3.util.Pair<>(weights[i], distributions[i]));
+        }
+        return components;
+    }
+
     // Inner classes
     public static class RequestVector {
         private String serviceId;
@@ -303,14 +483,38 @@ public class AnomalyDetector {
         private long timestamp;
         private double anomalyScore;
         private double[] featureVector;
+        private boolean suspect;
+        private String traceId;
+        private String spanId;
         
         public AnomalyToken(String serviceId, Map<String, String> metadata, 
                            long timestamp, double anomalyScore, double[] featureVector) {
+            this(serviceId, metadata, timestamp, anomalyScore, featureVector, false);
+        }
+        
+        /**
+         * @param suspect Below the suspicion threshold only; reported for fleet aggregation, not acted on
+         */
+        public AnomalyToken(String serviceId, Map<String, String> metadata, 
+                           long timestamp, double anomalyScore, double[] featureVector, boolean suspect) {
+            this(serviceId, metadata, timestamp, anomalyScore, featureVector, suspect,
+                 PipelineTrace.newTraceId(), PipelineTrace.newSpanId());
+        }
+        
+        /**
+         * @param traceId Trace the detection belongs to (32 hex digits); the response pipeline continues it
+         * @param spanId Span of the detection itself (16 hex digits)
+         */
+        public AnomalyToken(String serviceId, Map<String, String> metadata, long timestamp, double anomalyScore,
+                           double[] featureVector, boolean suspect, String traceId, String spanId) {
             this.serviceId = serviceId;
             this.metadata = metadata != null ? new HashMap<>(metadata) : new HashMap<>();
             this.timestamp = timestamp;
             this.anomalyScore = anomalyScore;
             this.featureVector = Arrays.copyOf(featureVector, featureVector.length);
+            this.suspect = suspect;
+            this.traceId = traceId;
+            this.spanId = spanId;
         }
         
         // Getters
@@ -319,6 +523,9 @@ public class AnomalyDetector {
         public long getTimestamp() { return timestamp; }
         public double getAnomalyScore() { return anomalyScore; }
         public double[] getFeatureVector() { return Arrays.copyOf(featureVector, featureVector.length); }
+        public boolean isSuspect() { return suspect; }
+        public String getTraceId() { return traceId; }
+        public String getSpanId() { return spanId; }
     }
     
     private static class Pair<K, V> {
@@ -0,0 +1,80 @@
+package com.sdi.detector;
+
+import java.util.Arrays;
+
+/**
+ * Immutable, versioned parameters of a trained Gaussian Mixture Model
+ *
+ * This is what a training node distributes to sidecars: mixture weights,
+ * component means and full covariance matrices. Versions only grow, so a
+ * detector can ignore a snapshot older than the model it already runs.
+ */
+public final class GmmSnapshot {
+
+    private final long version;
+    private final long trainedSamples;
+    private final double[] weights;
+    private final double[][] means;
+    private final double[][][] covariances;
+
+    /**
+     * @param version Monotonic model version
+     * @param trainedSamples Feature vectors the model was trained on
+     * @param weights Mixture weight per component
+     * @param means Mean vector per component
+     * @param covariances Covariance matrix per component
+     */
+    public GmmSnapshot(long version, long trainedSamples, double[] weights, double[][] means,
+                       double[][][] covariances) {
+        if (weights.length == 0 || means.length != weights.length || covariances.length != weights.length) {
+            throw new IllegalArgumentException("GMM snapshot needs one weight, mean and covariance per component");
+        }
+        int dimension = means[0].length;
+        for (int i = 0; i < weights.length; i++) {
+            if (means[i].length != dimension || covariances[i].length != dimension) {
+                throw new IllegalArgumentException("GMM snapshot component " + i + " does not have dimension " + dimension);
+            }
+            for (double[] row : covariances[i]) {
+                if (row.length != dimension) {
+                    throw new IllegalArgumentException("GMM snapshot covariance " + i + " is not square");
+                }
+            }
+        }
+        this.version = version;
+        this.trainedSamples = trainedSamples;
+        this.weights = weights.clone();
+        this.means = new double[means.length][];
+        this.covariances = new double[covariances.length][][];
+        for (int i = 0; i < weights.length; i++) {
+            this.means[i] = means[i].clone();
+            this.covariances[i] = new double[dimension][];
+            for (int j = 0; j < dimension; j++) {
+                this.covariances[i][j] = covariances[i][j].clone();
+            }
+        }
+    }
+
+    public long getVersion() { return version; }
+    public long getTrainedSamples() { return trainedSamples; }
+    public int getComponents() { return weights.length; }
+    public int getDimension() { return means[0].length; }
+    public double getWeight(int component) { return weights[component]; }
+    public double[] getMean(int component) { return means[component].clone(); }
+    public double getCovariance(int component, int row, int column) { return covariances[component][row][column]; }
+
+    public double[][] getCovariance(int component) {
+        double[][] copy = new double[covariances[component].length][];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = covariances[component][i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Same parameters (the version is not compared)
+     */
+    public boolean sameParameters(GmmSnapshot other) {
+        return Arrays.equals(weights, other.weights) && Arrays.deepEquals(means, other.means) &&
+               Arrays.deepEquals(covariances, other.covariances);
+    }
+}
@@ -0,0 +1,120 @@
+package com.sdi.detector;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.EigenDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The active detection model in a form any client can evaluate without a math library
+ *
+ * Everything expensive is precomputed: each component carries its
+ * normalized weight, mean, precision (inverse covariance, row-major) and
+ * log normalization constant, so the probability the detector compares
+ * against its thresholds is
+ *   min(1, densityScale * sum_k weight_k * exp(logNormalizer_k - q_k / 2))
+ * with q_k = (x - mean_k)^T precision_k (x - mean_k). Clients that score
+ * locally can skip the sidecar when that is comfortably above
+ * {@link #getScreeningThreshold()}. Serialized as JSON by the REST APIs.
+ */
+public final class PortableModel {
+
+    public static final String FORMAT = "sdi-gmm/1";
+
+    private final long version;
+    private final int dimension;
+    private final double densityScale;
+    private final double anomalyThreshold;
+    private final double screeningThreshold;
+    private final List<Component> components;
+
+    PortableModel(GmmSnapshot snapshot, double densityScale, double anomalyThreshold, double screeningThreshold) {
+        this.version = snapshot.getVersion();
+        this.dimension = snapshot.getDimension();
+        this.densityScale = densityScale;
+        this.anomalyThreshold = anomalyThreshold;
+        this.screeningThreshold = screeningThreshold;
+
+        double weightSum = 0.0;
+        for (int i = 0; i < snapshot.getComponents(); i++) {
+            weightSum += snapshot.getWeight(i);
+        }
+        List<Component> components = new ArrayList<>();
+        for (int i = 0; i < snapshot.getComponents(); i++) {
+            // Same decomposition MultivariateNormalDistribution uses, so local scores match the sidecar's
+            EigenDecomposition decomposition = new EigenDecomposition(new Array2DRowRealMatrix(snapshot.getCovariance(i)));
+            RealMatrix inverse = decomposition.getSolver().getInverse();
+            double[] precision = new double[dimension * dimension];
+            for (int row = 0; row < dimension; row++) {
+                for (int column = 0; column < dimension; column++) {
+                    precision[row * dimension + column] = inverse.getEntry(row, column);
+                }
+            }
+            double logNormalizer = -0.5 * (dimension * Math.log(2 * Math.PI) + Math.log(decomposition.getDeterminant()));
+            components.add(new Component(snapshot.getWeight(i) / weightSum, snapshot.getMean(i), precision, logNormalizer));
+        }
+        this.components = List.copyOf(components);
+    }
+
+    /**
+     * Reference implementation of the client-side computation
+     */
+    public double probability(double[] features) {
+        double density = 0.0;
+        for (Component component : components) {
+            double[] mean = component.getMean();
+            double[] precision = component.getPrecision();
+            double q = 0.0;
+            for (int row = 0; row < dimension; row++) {
+                double d = features[row] - mean[row];
+                double sum = 0.0;
+                for (int column = 0; column < dimension; column++) {
+                    sum += precision[row * dimension + column] * (features[column] - mean[column]);
+                }
+                q += d * sum;
+            }
+            density += component.getWeight() * Math.exp(component.getLogNormalizer() - q / 2);
+        }
+        return Math.min(1.0, density * densityScale);
+    }
+
+    /**
+     * Entity tag for HTTP caching; changes with the model version or thresholds
+     */
+    @JsonIgnore
+    public String getEtag() {
+        return "\"" + version + "-" + Long.toHexString(Double.doubleToLongBits(anomalyThreshold) ^
+            Double.doubleToLongBits(screeningThreshold) * 31) + "\"";
+    }
+
+    public String getFormat() { return FORMAT; }
+    public long getVersion() { return version; }
+    public int getDimension() { return dimension; }
+    public double getDensityScale() { return densityScale; }
+    public double getAnomalyThreshold() { return anomalyThreshold; }
+    /** Probability below which the sidecar reports a request (anomalous or suspect) */
+    public double getScreeningThreshold() { return screeningThreshold; }
+    public List<Component> getComponents() { return components; }
+
+    public static final class Component {
+        private final double weight;
+        private final double[] mean;
+        private final double[] precision;
+        private final double logNormalizer;
+
+        Component(double weight, double[] mean, double[] precision, double logNormalizer) {
+            this.weight = weight;
+            this.mean = mean;
+            this.precision = precision;
+            this.logNormalizer = logNormalizer;
+        }
+
+        public double getWeight() { return weight; }
+        public double[] getMean() { return mean; }
+        public double[] getPrecision() { return precision; }
+        public double getLogNormalizer() { return logNormalizer; }
+    }
+}
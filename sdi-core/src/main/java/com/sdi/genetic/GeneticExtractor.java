@@ -2,8 +2,15 @@
 package com.sdi.genetic;
 
 import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.trace.PipelineTrace;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -23,6 +30,16 @@ public class GeneticExtractor {
     private static final double CROSSOVER_RATE = 0.7;
     private static final double CONVERGENCE_THRESHOLD = 0.95;
     
+    private SdiMetrics metrics = SdiMetrics.NOOP;
+    
+    /**
+     * Record generations-to-convergence of every extraction
+     */
+    @Autowired(required = false)
+    public void setMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
     /**
      * Extract vulnerability signature from exploit trace bundle
      * 
@@ -30,12 +47,27 @@ public class GeneticExtractor {
      * @return Vulnerability Signature
      */
     public VulnerabilitySignature extract(ExploitTraceBundle etb) {
+        return extract(etb, null);
+    }
+    
+    /**
+     * Extract within a time budget
+     * 
+     * Once the budget is spent the search stops after the current generation
+     * and the fittest genome so far is decoded, converged or not.
+     * 
+     * @param budget Time the search may take, or null for no limit
+     */
+    public VulnerabilitySignature extract(ExploitTraceBundle etb, Duration budget) {
+        long startNanos = System.nanoTime();
+        
         // Initialize population
         List<Genome> population = initializePopulation();
         
         double bestFitness = 0.0;
         Genome bestGenome = null;
         int generation = 0;
+        boolean deadlineReached = false;
         
         // GA main loop
         while (generation < MAX_GENERATIONS && bestFitness < CONVERGENCE_THRESHOLD) {
@@ -53,10 +85,23 @@ public class GeneticExtractor {
                 break;
             }
             
+            // Out of time: settle for the best so far
+            if (budget != null && System.nanoTime() - startNanos >= budget.toNanos()) {
+                deadlineReached = true;
+                break;
+            }
+            
             // Selection, crossover, mutation
             population = evolve(population);
             generation++;
         }
+        metrics.recordGenerations(generation, bestFitness >= CONVERGENCE_THRESHOLD);
+        PipelineTrace.Span span = PipelineTrace.currentSpan()
+            .setAttribute("sdi.ga.generations", generation)
+            .setAttribute("sdi.ga.fitness", bestFitness);
+        if (deadlineReached) {
+            span.setAttribute("sdi.ga.deadline-reached", true);
+        }
         
         // Decode best genome to vulnerability signature
         return decodeGenome(bestGenome != null ? bestGenome : population.get(0), etb);
@@ -217,9 +262,12 @@ public class GeneticExtractor {
         // Extract exploit class (first 8 bits)
         int exploitClass = bitsToInt(genome.genes, 0, 8);
         
-        // Extract vulnerable line range (next 16 bits)
-        int lineStart = bitsToInt(genome.genes, 8, 16);
-        int lineEnd = bitsToInt(genome.genes, 24, 16);
+        // Extract vulnerable line range (next 16 bits); the two ends are
+        // evolved independently, so order them into a valid range
+        int lineA = bitsToInt(genome.genes, 8, 16);
+        int lineB = bitsToInt(genome.genes, 24, 16);
+        int lineStart = Math.min(lineA, lineB);
+        int lineEnd = Math.max(lineA, lineB);
         
         // Extract data-flow pattern (next 64 bits)
         String dataFlowPattern = bitsToString(genome.genes, 40, 64);
@@ -295,6 +343,22 @@ public class GeneticExtractor {
         public String getDataFlowPattern() { return dataFlowPattern; }
         public String getRemediationTemplate() { return remediationTemplate; }
         public String getServiceId() { return serviceId; }
+        
+        /**
+         * Stable identity of the vulnerability: the same exploit class, code
+         * location and data flow in the same service give the same fingerprint
+         * on every node (the remediation is an output, so it is not included)
+         */
+        public String fingerprint() {
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                String identity = serviceId + '\0' + exploitClass + '\0' + vulnerableLineStart + '\0' +
+                                  vulnerableLineEnd + '\0' + dataFlowPattern;
+                return HexFormat.of().formatHex(digest.digest(identity.getBytes(StandardCharsets.UTF_8)), 0, 16);
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException("SHA-256 not available", e);
+            }
+        }
     }
 }
 
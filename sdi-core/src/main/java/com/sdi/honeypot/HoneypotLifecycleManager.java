@@ -0,0 +1,257 @@
+package com.sdi.honeypot;
+
+import io.kubernetes.client.informer.ResourceEventHandler;
+import io.kubernetes.client.informer.SharedIndexInformer;
+import io.kubernetes.client.informer.SharedInformerFactory;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.apis.CoreV1Api;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodCondition;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.util.CallGeneratorParams;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Watch-based lifecycle tracking for honeypot pods
+ *
+ * A single shared informer (label app=sdi-honeypot) keeps a local cache of
+ * honeypot pods. Readiness futures and TTL reaping are served from that cache,
+ * so API-server load stays flat no matter how many honeypots churn.
+ */
+public class HoneypotLifecycleManager implements ResourceEventHandler<V1Pod> {
+
+    public static final String HONEYPOT_LABEL_SELECTOR = "app=sdi-honeypot";
+
+    private static final long INFORMER_RESYNC_MILLIS = 0L; // watch events only
+
+    private final String namespace;
+    private final Duration honeypotTtl;
+    private final Duration readyTimeout;
+    private final Function<String, CompletableFuture<?>> podDeleter;
+
+    private final Map<String, V1Pod> podCache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<V1Pod>> readinessFutures = new ConcurrentHashMap<>();
+    private final Set<String> reapRequested = ConcurrentHashMap.newKeySet();
+
+    private SharedInformerFactory informerFactory;
+    private ScheduledExecutorService reaperScheduler;
+
+    /**
+     * @param namespace Namespace honeypots are spawned in
+     * @param honeypotTtl Maximum lifetime before a honeypot pod is reaped as an orphan
+     * @param readyTimeout How long readiness futures wait before failing
+     * @param podDeleter Deletes a pod by name (used by the reaper)
+     */
+    public HoneypotLifecycleManager(String namespace, Duration honeypotTtl, Duration readyTimeout,
+                                    Function<String, CompletableFuture<?>> podDeleter) {
+        this.namespace = namespace;
+        this.honeypotTtl = honeypotTtl;
+        this.readyTimeout = readyTimeout;
+        this.podDeleter = podDeleter;
+    }
+
+    /**
+     * Start the pod informer and the periodic orphan reaper
+     */
+    public synchronized void start(ApiClient client, CoreV1Api coreApi) {
+        if (informerFactory != null) {
+            return;
+        }
+
+        // Watches are long-polls, and the informer refuses clients that would time them out
+        if (client.getReadTimeout() != 0) {
+            client.setReadTimeout(0);
+        }
+        informerFactory = new SharedInformerFactory(client);
+        SharedIndexInformer<V1Pod> podInformer = informerFactory.sharedIndexInformerFor(
+            (CallGeneratorParams params) -> coreApi.listNamespacedPod(namespace)
+                .labelSelector(HONEYPOT_LABEL_SELECTOR)
+                .resourceVersion(params.resourceVersion)
+                .timeoutSeconds(params.timeoutSeconds)
+                .watch(params.watch)
+                .buildCall(null),
+            V1Pod.class,
+            V1PodList.class,
+            INFORMER_RESYNC_MILLIS
+        );
+        podInformer.addEventHandler(this);
+        informerFactory.startAllRegisteredInformers();
+
+        reaperScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sdi-honeypot-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepMillis = Math.max(1000L, honeypotTtl.toMillis() / 2);
+        reaperScheduler.scheduleWithFixedDelay(this::reapExpired, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether the informer and reaper are running
+     */
+    public synchronized boolean isRunning() {
+        return informerFactory != null;
+    }
+
+    /**
+     * Stop watching and reaping
+     */
+    public synchronized void stop() {
+        if (informerFactory != null) {
+            informerFactory.stopAllRegisteredInformers();
+            informerFactory = null;
+        }
+        if (reaperScheduler != null) {
+            reaperScheduler.shutdownNow();
+            reaperScheduler = null;
+        }
+        readinessFutures.values().forEach(future ->
+            future.completeExceptionally(new IllegalStateException("Honeypot lifecycle tracking stopped")));
+        readinessFutures.clear();
+    }
+
+    /**
+     * Future that completes once the pod reports Ready, or fails if the pod
+     * terminates, is deleted, or does not become ready within the timeout.
+     */
+    public CompletableFuture<V1Pod> awaitReady(String podName) {
+        CompletableFuture<V1Pod> future = readinessFutures.computeIfAbsent(podName, name -> {
+            CompletableFuture<V1Pod> created = new CompletableFuture<>();
+            created.orTimeout(readyTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((pod, error) -> readinessFutures.remove(name, created));
+            return created;
+        });
+
+        // Pod may already be in the cache
+        V1Pod cached = podCache.get(podName);
+        if (cached != null) {
+            resolveReadiness(podName, cached);
+        }
+        return future;
+    }
+
+    /**
+     * Fail the readiness future of a pod that will never be created
+     */
+    public void cancelReadiness(String podName) {
+        CompletableFuture<V1Pod> future = readinessFutures.remove(podName);
+        if (future != null) {
+            future.completeExceptionally(new CancellationException("Honeypot pod never created: " + podName));
+        }
+    }
+
+    @Override
+    public void onAdd(V1Pod pod) {
+        String podName = podName(pod);
+        if (podName == null) {
+            return;
+        }
+        podCache.put(podName, pod);
+        resolveReadiness(podName, pod);
+    }
+
+    @Override
+    public void onUpdate(V1Pod oldPod, V1Pod newPod) {
+        onAdd(newPod);
+    }
+
+    @Override
+    public void onDelete(V1Pod pod, boolean deletedFinalStateUnknown) {
+        String podName = podName(pod);
+        if (podName == null) {
+            return;
+        }
+        podCache.remove(podName);
+        reapRequested.remove(podName);
+        CompletableFuture<V1Pod> future = readinessFutures.remove(podName);
+        if (future != null) {
+            future.completeExceptionally(new IllegalStateException("Honeypot pod deleted before ready: " + podName));
+        }
+    }
+
+    /**
+     * Delete cached honeypot pods older than the TTL.
+     *
+     * @return Number of pods scheduled for deletion
+     */
+    public int reapExpired() {
+        OffsetDateTime cutoff = OffsetDateTime.now().minus(honeypotTtl);
+        int reaped = 0;
+
+        for (V1Pod pod : podCache.values()) {
+            OffsetDateTime createdAt = pod.getMetadata().getCreationTimestamp();
+            boolean terminating = pod.getMetadata().getDeletionTimestamp() != null;
+            if (createdAt == null || terminating || createdAt.isAfter(cutoff)) {
+                continue;
+            }
+
+            String podName = pod.getMetadata().getName();
+            if (!reapRequested.add(podName)) {
+                continue; // Deletion already in flight
+            }
+            podDeleter.apply(podName).whenComplete((result, error) -> {
+                if (error != null) {
+                    // Allow the next sweep to try again
+                    reapRequested.remove(podName);
+                    System.err.println("Failed to reap honeypot pod " + podName + ": " + error.getMessage());
+                }
+            });
+            reaped++;
+            System.out.println("Reaping expired honeypot pod: " + podName);
+        }
+        return reaped;
+    }
+
+    /**
+     * Snapshot of honeypot pods currently known from the watch
+     */
+    public Collection<V1Pod> getCachedPods() {
+        return Collections.unmodifiableCollection(podCache.values());
+    }
+
+    public boolean isTracked(String podName) {
+        return podCache.containsKey(podName);
+    }
+
+    private void resolveReadiness(String podName, V1Pod pod) {
+        CompletableFuture<V1Pod> future = readinessFutures.get(podName);
+        if (future == null) {
+            return;
+        }
+        if (isReady(pod)) {
+            future.complete(pod);
+        } else if (isTerminated(pod)) {
+            future.completeExceptionally(new IllegalStateException(
+                "Honeypot pod terminated before ready: " + podName + " (" + pod.getStatus().getPhase() + ")"));
+        }
+    }
+
+    static boolean isReady(V1Pod pod) {
+        if (pod.getStatus() == null || pod.getStatus().getConditions() == null) {
+            return false;
+        }
+        for (V1PodCondition condition : pod.getStatus().getConditions()) {
+            if ("Ready".equals(condition.getType()) && "True".equals(condition.getStatus())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean isTerminated(V1Pod pod) {
+        if (pod.getStatus() == null) {
+            return false;
+        }
+        String phase = pod.getStatus().getPhase();
+        return "Failed".equals(phase) || "Succeeded".equals(phase);
+    }
+
+    private static String podName(V1Pod pod) {
+        return pod != null && pod.getMetadata() != null ? pod.getMetadata().getName() : null;
+    }
+}
@@ -1,18 +1,27 @@
 package com.sdi.honeypot;
 
 import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import com.sdi.metrics.SdiMetrics;
 import io.kubernetes.client.openapi.ApiClient;
-import io.kubernetes.client.openapi.ApiException;
 import io.kubernetes.client.openapi.Configuration;
 import io.kubernetes.client.openapi.apis.CoreV1Api;
 import io.kubernetes.client.openapi.models.V1Pod;
 import io.kubernetes.client.openapi.models.V1PodSpec;
 import io.kubernetes.client.openapi.models.V1Container;
 import io.kubernetes.client.util.Config;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+import java.util.function.IntUnaryOperator;
 
 /**
  * Phase 2: Isolation - Controlled Exploit Capture
@@ -23,15 +32,58 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class HoneypotManager {
     
+    private static final String DEFAULT_NAMESPACE = "default";
+    private static final Duration DEFAULT_HONEYPOT_TTL = Duration.ofMinutes(10);
+    private static final Duration DEFAULT_READY_TIMEOUT = Duration.ofSeconds(60);
+    
+    private final ApiClient client;
     private final CoreV1Api k8sApi;
+    private final KubernetesOperationDispatcher dispatcher;
+    private final String namespace;
+    private final HoneypotLifecycleManager lifecycleManager;
     private final Map<String, HoneypotInstance> activeHoneypots = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<V1Pod>> pendingCreations = new ConcurrentHashMap<>();
     private final Map<String, ExploitTraceBundle> capturedTraces = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<ExploitTraceBundle>> traceFutures = new ConcurrentHashMap<>();
+    private volatile boolean traceStreamingEnabled;
+    private SdiMetrics metrics = SdiMetrics.NOOP;
     
     public HoneypotManager() throws Exception {
+        this(Config.defaultClient(), new KubernetesOperationDispatcher(),
+             DEFAULT_NAMESPACE, DEFAULT_HONEYPOT_TTL, DEFAULT_READY_TIMEOUT);
+    }
+    
+    /**
+     * Pods are only watched and reaped once {@link #start} is called
+     * 
+     * @param client Kubernetes API client
+     * @param dispatcher Shared rate-limited dispatcher for pod create/delete calls
+     * @param namespace Namespace honeypots are spawned in
+     * @param honeypotTtl Lifetime after which leaked honeypot pods are reaped
+     * @param readyTimeout How long callers wait for a honeypot to become ready
+     */
+    public HoneypotManager(ApiClient client, KubernetesOperationDispatcher dispatcher, String namespace,
+                          Duration honeypotTtl, Duration readyTimeout) {
         // Initialize Kubernetes client
-        ApiClient client = Config.defaultClient();
         Configuration.setDefaultApiClient(client);
+        this.client = client;
         this.k8sApi = new CoreV1Api(client);
+        this.dispatcher = dispatcher;
+        this.namespace = namespace;
+        
+        // Watch honeypot pods instead of polling them
+        this.lifecycleManager = new HoneypotLifecycleManager(
+            namespace, honeypotTtl, readyTimeout, this::reapPod);
+    }
+    
+    /**
+     * Start watching honeypot pods and reaping leaked ones
+     * 
+     * Kept out of the constructor so creating the manager without a
+     * reachable cluster does not leave watch threads retrying forever.
+     */
+    public void start() {
+        lifecycleManager.start(client, k8sApi);
     }
     
     /**
@@ -41,28 +93,76 @@ public class HoneypotManager {
      * @return HoneypotInstance identifier
      */
     public String spawnHoneypot(AnomalyToken token) {
+        long spawnStart = System.nanoTime();
         String serviceId = token.getServiceId();
         String honeypotId = "honeypot-" + serviceId + "-" + System.currentTimeMillis();
         
-        try {
-            // Create isolated pod with restricted security context
-            V1Pod honeypotPod = createHoneypotPod(honeypotId, serviceId);
-            k8sApi.createNamespacedPod("default", honeypotPod).execute();
-            
-            HoneypotInstance instance = new HoneypotInstance(
-                honeypotId,
-                serviceId,
-                token,
-                System.currentTimeMillis(),
-                honeypotPod.getMetadata().getName()
-            );
-            
-            activeHoneypots.put(honeypotId, instance);
-            
-            return honeypotId;
-        } catch (ApiException e) {
-            throw new RuntimeException("Failed to spawn honeypot: " + e.getMessage(), e);
+        // Create isolated pod with restricted security context
+        V1Pod honeypotPod = createHoneypotPod(honeypotId, serviceId);
+        String podName = honeypotPod.getMetadata().getName();
+        
+        HoneypotInstance instance = new HoneypotInstance(
+            honeypotId,
+            serviceId,
+            token,
+            System.currentTimeMillis(),
+            podName
+        );
+        activeHoneypots.put(honeypotId, instance);
+        
+        // Queued on the shared dispatcher; readiness is observed via the pod watch
+        CompletableFuture<V1Pod> creation = dispatcher.create(namespace, "pod/" + podName,
+            () -> k8sApi.createNamespacedPod(namespace, honeypotPod).execute());
+        pendingCreations.put(honeypotId, creation);
+        creation.whenComplete((pod, error) -> {
+            pendingCreations.remove(honeypotId, creation);
+            if (error != null) {
+                activeHoneypots.remove(honeypotId);
+                System.err.println("Failed to spawn honeypot " + honeypotId + ": " + error.getMessage());
+                return;
+            }
+            if (pod == null) {
+                // Merged away by a delete queued behind it: no pod will ever report ready
+                lifecycleManager.cancelReadiness(podName);
+                return;
+            }
+            lifecycleManager.awaitReady(podName).thenRun(
+                () -> metrics.recordHoneypotSpawn(System.nanoTime() - spawnStart));
+        });
+        
+        return honeypotId;
+    }
+    
+    /**
+     * Record honeypot spawn-to-ready times
+     */
+    @Autowired(required = false)
+    public void setMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Wait for a spawned honeypot to become ready
+     * 
+     * @param honeypotId The honeypot instance identifier
+     * @return Future completed from the pod watch once the pod is Ready
+     */
+    public CompletableFuture<V1Pod> awaitReady(String honeypotId) {
+        HoneypotInstance instance = activeHoneypots.get(honeypotId);
+        if (instance == null) {
+            return CompletableFuture.failedFuture(
+                new IllegalArgumentException("Honeypot not found: " + honeypotId));
         }
+        CompletableFuture<V1Pod> creation = pendingCreations.getOrDefault(
+            honeypotId, CompletableFuture.completedFuture(null));
+        return creation.thenCompose(created -> {
+            if (created == null && !activeHoneypots.containsKey(honeypotId)) {
+                // Destroyed before the create was ever sent
+                return CompletableFuture.failedFuture(
+                    new CancellationException("Honeypot destroyed before creation: " + honeypotId));
+            }
+            return lifecycleManager.awaitReady(instance.getPodName());
+        });
     }
     
     /**
@@ -118,6 +218,7 @@ public class HoneypotManager {
         if (instance == null) {
             throw new IllegalArgumentException("Honeypot not found: " + honeypotId);
         }
+        traceData.trimToSize();
         
         ExploitTraceBundle etb = new ExploitTraceBundle(
             honeypotId,
@@ -127,6 +228,56 @@ public class HoneypotManager {
         );
         
         capturedTraces.put(honeypotId, etb);
+        
+        CompletableFuture<ExploitTraceBundle> waiting = traceFutures.remove(honeypotId);
+        if (waiting != null) {
+            waiting.complete(etb);
+        }
+    }
+    
+    /**
+     * Receive traces streamed by honeypots to the trace collector
+     * 
+     * Partial snapshots replace earlier ones, so the bundle always holds
+     * the most complete trace received so far.
+     */
+    public void attachTraceCollector(StreamingTraceCollector collector) {
+        traceStreamingEnabled = true;
+        // Refused at HELLO, before the peer can send anything else
+        collector.setHoneypotFilter(activeHoneypots::containsKey);
+        collector.addListener((honeypotId, trace, complete) -> {
+            if (activeHoneypots.containsKey(honeypotId)) {
+                captureTrace(honeypotId, trace);
+            } else {
+                System.err.println("Ignoring trace from unknown honeypot: " + honeypotId);
+            }
+        });
+    }
+    
+    public boolean isTraceStreamingEnabled() {
+        return traceStreamingEnabled;
+    }
+    
+    /**
+     * Wait for the first (possibly partial) trace from a honeypot
+     * 
+     * @param honeypotId The honeypot instance identifier
+     * @return Future completed with the first captured trace bundle
+     */
+    public CompletableFuture<ExploitTraceBundle> awaitTrace(String honeypotId) {
+        ExploitTraceBundle captured = capturedTraces.get(honeypotId);
+        if (captured != null) {
+            return CompletableFuture.completedFuture(captured);
+        }
+        CompletableFuture<ExploitTraceBundle> future = 
+            traceFutures.computeIfAbsent(honeypotId, id -> new CompletableFuture<>());
+        // Trace may have arrived between the two lookups
+        captured = capturedTraces.get(honeypotId);
+        if (captured != null) {
+            future.complete(captured);
+            traceFutures.remove(honeypotId, future);
+        }
+        return future;
     }
     
     /**
@@ -140,15 +291,58 @@ public class HoneypotManager {
      * Cleanup honeypot instance
      */
     public void destroyHoneypot(String honeypotId) {
-        try {
-            HoneypotInstance instance = activeHoneypots.remove(honeypotId);
-            if (instance != null) {
-                k8sApi.deleteNamespacedPod(instance.getPodName(), "default").execute();
-            }
-        } catch (ApiException e) {
-            // Log error but don't fail
-            System.err.println("Failed to destroy honeypot " + honeypotId + ": " + e.getMessage());
+        HoneypotInstance instance = forget(honeypotId);
+        if (instance != null) {
+            // A still-queued create is cancelled by the dispatcher instead of sent
+            deletePod(instance.getPodName()).whenComplete((status, error) -> {
+                if (error != null) {
+                    // Log error but don't fail; the lifecycle reaper removes it after its TTL
+                    System.err.println("Failed to destroy honeypot " + honeypotId + ": " + error.getMessage());
+                }
+            });
+        }
+    }
+    
+    /**
+     * Drop everything kept for a honeypot
+     * 
+     * @return The honeypot, or null if it was already forgotten
+     */
+    private HoneypotInstance forget(String honeypotId) {
+        HoneypotInstance instance = activeHoneypots.remove(honeypotId);
+        // Callers already hold the bundle; keeping it would grow without bound
+        capturedTraces.remove(honeypotId);
+        CompletableFuture<ExploitTraceBundle> waiting = traceFutures.remove(honeypotId);
+        if (waiting != null) {
+            waiting.completeExceptionally(new IllegalStateException("Honeypot destroyed: " + honeypotId));
         }
+        return instance;
+    }
+    
+    /**
+     * Delete a pod the lifecycle reaper found past its TTL
+     */
+    private CompletableFuture<?> reapPod(String podName) {
+        // Pods are named after their honeypot; drop what its pipeline never cleaned up
+        forget(podName);
+        return deletePod(podName);
+    }
+    
+    /**
+     * Stop watching honeypot pods
+     */
+    @PreDestroy
+    public void shutdown() {
+        lifecycleManager.stop();
+    }
+    
+    public HoneypotLifecycleManager getLifecycleManager() {
+        return lifecycleManager;
+    }
+    
+    private CompletableFuture<?> deletePod(String podName) {
+        return dispatcher.delete(namespace, "pod/" + podName,
+            () -> k8sApi.deleteNamespacedPod(podName, namespace).execute());
     }
     
     // Inner classes
@@ -175,37 +369,246 @@ public class HoneypotManager {
         public String getPodName() { return podName; }
     }
     
+    /**
+     * Captured execution trace
+     * 
+     * Symbols (methods, variables, syscalls, exception types) are interned in a
+     * TraceSymbolTable (the shared one, or one per streamed trace) and stored as primitive id arrays, so repeated names
+     * cost 4 bytes per occurrence and traces compare as integer arrays. The
+     * collection getters return read-only views resolved through the table.
+     */
     public static class ExecutionTrace {
-        private List<String> taintedVariables;
-        private List<String> controlFlowPath;
-        private Map<String, Object> exceptionGraph;
+        private static final int[] EMPTY = new int[0];
+        
+        private final TraceSymbolTable symbols;
+        private int[] controlFlow = EMPTY;
+        private int controlFlowSize;
+        private int[] tainted = EMPTY;
+        private int taintedSize;
+        private int[] syscallIds = EMPTY;
+        private int[] syscallCounts = EMPTY;
+        private int syscallSize;
+        private int[] exceptionThrown = EMPTY;
+        private int[] exceptionHandler = EMPTY;
+        private int exceptionSize;
         private String payload;
-        private Map<String, Object> syscalls;
         
         public ExecutionTrace() {
-            this.taintedVariables = new ArrayList<>();
-            this.controlFlowPath = new ArrayList<>();
-            this.exceptionGraph = new HashMap<>();
-            this.syscalls = new HashMap<>();
+            this(TraceSymbolTable.shared());
+        }
+        
+        public ExecutionTrace(TraceSymbolTable symbols) {
+            this.symbols = symbols;
+        }
+        
+        /**
+         * Build directly from interned ids (arrays are adopted, not copied)
+         */
+        ExecutionTrace(TraceSymbolTable symbols, int[] controlFlow, int[] tainted, String payload) {
+            this.symbols = symbols;
+            this.controlFlow = controlFlow;
+            this.controlFlowSize = controlFlow.length;
+            this.tainted = tainted;
+            this.taintedSize = tainted.length;
+            this.payload = payload;
+        }
+        
+        // Incremental builders
+        public void appendControlFlow(String method) {
+            appendControlFlowId(symbols.intern(method));
+        }
+        
+        public void appendControlFlowId(int symbolId) {
+            controlFlow = ensureCapacity(controlFlow, controlFlowSize);
+            controlFlow[controlFlowSize++] = symbolId;
+        }
+        
+        public void addTaintedVariable(String variable) {
+            tainted = ensureCapacity(tainted, taintedSize);
+            tainted[taintedSize++] = symbols.intern(variable);
+        }
+        
+        /**
+         * Add occurrences of a syscall, merging with earlier counts
+         */
+        public void recordSyscall(String syscall, int occurrences) {
+            recordSyscallId(symbols.intern(syscall), occurrences);
+        }
+        
+        void recordSyscallId(int symbolId, int occurrences) {
+            for (int i = 0; i < syscallSize; i++) {
+                if (syscallIds[i] == symbolId) {
+                    syscallCounts[i] += occurrences;
+                    return;
+                }
+            }
+            syscallIds = ensureCapacity(syscallIds, syscallSize);
+            syscallCounts = ensureCapacity(syscallCounts, syscallSize);
+            syscallIds[syscallSize] = symbolId;
+            syscallCounts[syscallSize++] = occurrences;
+        }
+        
+        /**
+         * Record the handler for a thrown exception type (replacing an earlier edge)
+         */
+        public void addExceptionEdge(String thrown, String handler) {
+            addExceptionEdgeIds(symbols.intern(thrown), symbols.intern(handler));
+        }
+        
+        void addExceptionEdgeIds(int thrownId, int handlerId) {
+            for (int i = 0; i < exceptionSize; i++) {
+                if (exceptionThrown[i] == thrownId) {
+                    exceptionHandler[i] = handlerId;
+                    return;
+                }
+            }
+            exceptionThrown = ensureCapacity(exceptionThrown, exceptionSize);
+            exceptionHandler = ensureCapacity(exceptionHandler, exceptionSize);
+            exceptionThrown[exceptionSize] = thrownId;
+            exceptionHandler[exceptionSize++] = handlerId;
         }
         
-        // Getters and setters
-        public List<String> getTaintedVariables() { return taintedVariables; }
+        /**
+         * Drop spare array capacity once the trace is complete
+         */
+        public void trimToSize() {
+            controlFlow = Arrays.copyOf(controlFlow, controlFlowSize);
+            tainted = Arrays.copyOf(tainted, taintedSize);
+            syscallIds = Arrays.copyOf(syscallIds, syscallSize);
+            syscallCounts = Arrays.copyOf(syscallCounts, syscallSize);
+            exceptionThrown = Arrays.copyOf(exceptionThrown, exceptionSize);
+            exceptionHandler = Arrays.copyOf(exceptionHandler, exceptionSize);
+        }
+        
+        // Integer comparisons
+        public int[] getControlFlowIds() {
+            return Arrays.copyOf(controlFlow, controlFlowSize);
+        }
+        
+        public boolean hasSameControlFlow(ExecutionTrace other) {
+            if (other.symbols != symbols) {
+                return getControlFlowPath().equals(other.getControlFlowPath());
+            }
+            return Arrays.equals(controlFlow, 0, controlFlowSize, other.controlFlow, 0, other.controlFlowSize);
+        }
+        
+        /**
+         * Hash of the control-flow id sequence (stable within one symbol table)
+         */
+        public int controlFlowFingerprint() {
+            int hash = 1;
+            for (int i = 0; i < controlFlowSize; i++) {
+                hash = 31 * hash + controlFlow[i];
+            }
+            return hash;
+        }
+        
+        // Getters (read-only views) and setters
+        public List<String> getTaintedVariables() {
+            return new SymbolListView(() -> taintedSize, i -> tainted[i]);
+        }
         public void setTaintedVariables(List<String> taintedVariables) { 
-            this.taintedVariables = taintedVariables; 
+            taintedSize = 0;
+            taintedVariables.forEach(this::addTaintedVariable);
+        }
+        public List<String> getControlFlowPath() {
+            return new SymbolListView(() -> controlFlowSize, i -> controlFlow[i]);
         }
-        public List<String> getControlFlowPath() { return controlFlowPath; }
         public void setControlFlowPath(List<String> controlFlowPath) { 
-            this.controlFlowPath = controlFlowPath; 
+            controlFlowSize = 0;
+            controlFlowPath.forEach(this::appendControlFlow);
+        }
+        public Map<String, Object> getExceptionGraph() {
+            return new SymbolMapView(() -> exceptionSize, i -> exceptionThrown[i],
+                i -> symbols.symbol(exceptionHandler[i]));
         }
-        public Map<String, Object> getExceptionGraph() { return exceptionGraph; }
         public void setExceptionGraph(Map<String, Object> exceptionGraph) { 
-            this.exceptionGraph = exceptionGraph; 
+            exceptionSize = 0;
+            exceptionGraph.forEach((thrown, handler) -> addExceptionEdge(thrown, String.valueOf(handler)));
         }
         public String getPayload() { return payload; }
         public void setPayload(String payload) { this.payload = payload; }
-        public Map<String, Object> getSyscalls() { return syscalls; }
-        public void setSyscalls(Map<String, Object> syscalls) { this.syscalls = syscalls; }
+        public Map<String, Object> getSyscalls() {
+            return new SymbolMapView(() -> syscallSize, i -> syscallIds[i], i -> syscallCounts[i]);
+        }
+        public void setSyscalls(Map<String, Object> syscalls) {
+            syscallSize = 0;
+            syscalls.forEach((syscall, count) -> {
+                if (!(count instanceof Number number)) {
+                    throw new IllegalArgumentException("Syscall count must be numeric: " + syscall);
+                }
+                recordSyscall(syscall, number.intValue());
+            });
+        }
+        
+        private static int[] ensureCapacity(int[] array, int size) {
+            return size < array.length ? array : Arrays.copyOf(array, Math.max(4, size + (size >> 1)));
+        }
+        
+        private class SymbolListView extends AbstractList<String> implements RandomAccess {
+            private final IntSupplier size;
+            private final IntUnaryOperator ids;
+            
+            SymbolListView(IntSupplier size, IntUnaryOperator ids) {
+                this.size = size;
+                this.ids = ids;
+            }
+            
+            @Override
+            public String get(int index) {
+                Objects.checkIndex(index, size.getAsInt());
+                return symbols.symbol(ids.applyAsInt(index));
+            }
+            
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+        }
+        
+        private class SymbolMapView extends AbstractMap<String, Object> {
+            private final IntSupplier size;
+            private final IntUnaryOperator keys;
+            private final IntFunction<Object> values;
+            
+            SymbolMapView(IntSupplier size, IntUnaryOperator keys, IntFunction<Object> values) {
+                this.size = size;
+                this.keys = keys;
+                this.values = values;
+            }
+            
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<String, Object>> iterator() {
+                        return new Iterator<>() {
+                            private int next;
+                            
+                            @Override
+                            public boolean hasNext() {
+                                return next < size.getAsInt();
+                            }
+                            
+                            @Override
+                            public Entry<String, Object> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                int i = next++;
+                                return new SimpleImmutableEntry<>(
+                                    symbols.symbol(keys.applyAsInt(i)), values.apply(i));
+                            }
+                        };
+                    }
+                    
+                    @Override
+                    public int size() {
+                        return size.getAsInt();
+                    }
+                };
+            }
+        }
     }
     
     public static class ExploitTraceBundle {
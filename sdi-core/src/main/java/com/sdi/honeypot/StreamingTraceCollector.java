@@ -0,0 +1,332 @@
+package com.sdi.honeypot;
+
+import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
+import com.sdi.transport.FramedChannelServer;
+import com.sdi.transport.FramedChannelServer.FramedConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Streaming ingestion of honeypot execution traces
+ *
+ * Honeypots push length-prefixed binary trace frames over TCP or a Unix domain
+ * socket. Frames are decoded incrementally into interned symbol ids, and
+ * listeners receive partial snapshots while the stream is still open, so
+ * antigen extraction can start before a multi-megabyte trace has arrived.
+ *
+ * Frame payload: u8 type, then
+ *   HELLO (1):           u8 version, u16 length + UTF-8 honeypot id
+ *   SYMBOL (2):          u32 local id, u16 length + UTF-8 symbol
+ *   CONTROL_FLOW (3):    u32 count, count x u32 local id
+ *   TAINTED (4):         u32 count, count x u32 local id
+ *   SYSCALLS (5):        u32 count, count x (u32 local id, u32 occurrences)
+ *   EXCEPTION_EDGES (6): u32 count, count x (u32 thrown local id, u32 handler local id)
+ *   PAYLOAD (7):         raw payload bytes (appended, capped)
+ *   END (8):             no body
+ *
+ * Local ids are chosen by the honeypot and interned into a symbol table owned
+ * by the connection's trace, so a remote peer cannot grow any process-wide
+ * state. Connections announcing an unknown honeypot id, and local ids at or
+ * above the symbol limit, are dropped.
+ */
+public class StreamingTraceCollector implements AutoCloseable {
+
+    public static final int PROTOCOL_VERSION = 1;
+
+    static final byte FRAME_HELLO = 1;
+    static final byte FRAME_SYMBOL = 2;
+    static final byte FRAME_CONTROL_FLOW = 3;
+    static final byte FRAME_TAINTED = 4;
+    static final byte FRAME_SYSCALLS = 5;
+    static final byte FRAME_EXCEPTION_EDGES = 6;
+    static final byte FRAME_PAYLOAD = 7;
+    static final byte FRAME_END = 8;
+
+    /**
+     * Receives trace snapshots as they are decoded
+     */
+    public interface TraceListener {
+        /**
+         * @param honeypotId Honeypot that produced the trace
+         * @param trace Snapshot of everything received so far
+         * @param complete True once the honeypot sent END or disconnected
+         */
+        void onTrace(String honeypotId, ExecutionTrace trace, boolean complete);
+    }
+
+    private final int maxFrameBytes;
+    private final int maxPayloadBytes;
+    private final int maxSymbols;
+    private final long partialPublishNanos;
+    private final List<TraceListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Predicate<String> knownHoneypot = honeypotId -> true;
+    private FramedChannelServer server;
+
+    /**
+     * @param maxFrameBytes Largest accepted frame
+     * @param maxPayloadBytes Payload bytes retained per trace
+     * @param partialPublishInterval Minimum interval between partial snapshots per trace
+     */
+    public StreamingTraceCollector(int maxFrameBytes, int maxPayloadBytes, Duration partialPublishInterval) {
+        this(maxFrameBytes, maxPayloadBytes, 64 * 1024, partialPublishInterval);
+    }
+
+    /**
+     * @param maxFrameBytes Largest accepted frame
+     * @param maxPayloadBytes Payload bytes retained per trace
+     * @param maxSymbols Local symbol ids accepted per connection (ids 0 to maxSymbols - 1)
+     * @param partialPublishInterval Minimum interval between partial snapshots per trace
+     */
+    public StreamingTraceCollector(int maxFrameBytes, int maxPayloadBytes,
+                                   int maxSymbols, Duration partialPublishInterval) {
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.maxSymbols = maxSymbols;
+        this.partialPublishNanos = partialPublishInterval.toNanos();
+    }
+
+    public void addListener(TraceListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Only accept streams whose HELLO names a honeypot the predicate knows
+     */
+    public void setHoneypotFilter(Predicate<String> knownHoneypot) {
+        this.knownHoneypot = knownHoneypot;
+    }
+
+    /**
+     * Start accepting honeypot connections
+     *
+     * @param tcpAddress TCP listen address, or null to disable TCP
+     * @param unixSocketPath Unix domain socket path, or null to disable
+     */
+    public synchronized void start(InetSocketAddress tcpAddress, Path unixSocketPath) throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = new FramedChannelServer("sdi-trace-collector", maxFrameBytes, TraceStreamDecoder::new);
+        if (tcpAddress != null) {
+            server.bindTcp(tcpAddress);
+        }
+        if (unixSocketPath != null) {
+            server.bindUnix(unixSocketPath);
+        }
+        server.start();
+    }
+
+    public List<SocketAddress> getLocalAddresses() throws IOException {
+        return server != null ? server.getLocalAddresses() : List.of();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+    }
+
+    private void publish(String honeypotId, ExecutionTrace trace, boolean complete) {
+        for (TraceListener listener : listeners) {
+            try {
+                listener.onTrace(honeypotId, trace, complete);
+            } catch (RuntimeException e) {
+                System.err.println("Trace listener failed for " + honeypotId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Incremental decoder for one honeypot connection
+     */
+    private class TraceStreamDecoder implements FramedChannelServer.ConnectionHandler {
+        private String honeypotId;
+        private TraceSymbolTable symbols;
+        private int[] localToShared = new int[256];
+        private final IntList controlFlow = new IntList();
+        private final IntList tainted = new IntList();
+        private final IntList syscallIds = new IntList();
+        private final IntList syscallCounts = new IntList();
+        private final IntList exceptionThrown = new IntList();
+        private final IntList exceptionHandler = new IntList();
+        private final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        private boolean dirty;
+        private boolean complete;
+        private long lastPublishNanos;
+
+        @Override
+        public void onFrame(FramedConnection connection, ByteBuffer frame) throws IOException {
+            byte type = frame.get();
+            if (honeypotId == null && type != FRAME_HELLO) {
+                throw new IOException("Trace stream must start with HELLO");
+            }
+
+            switch (type) {
+                case FRAME_HELLO -> {
+                    int version = frame.get() & 0xFF;
+                    if (version != PROTOCOL_VERSION) {
+                        throw new IOException("Unsupported trace protocol version " + version);
+                    }
+                    String announced = readString(frame);
+                    if (!knownHoneypot.test(announced)) {
+                        throw new IOException("Trace stream from unknown honeypot " + announced);
+                    }
+                    honeypotId = announced;
+                    symbols = new TraceSymbolTable(maxSymbols);
+                }
+                case FRAME_SYMBOL -> {
+                    int localId = frame.getInt();
+                    if (localId < 0 || localId >= maxSymbols) {
+                        throw new IOException("Local symbol id " + localId + " outside 0.." + (maxSymbols - 1));
+                    }
+                    String symbol = readString(frame);
+                    try {
+                        mapLocal(localId, symbols.intern(symbol));
+                    } catch (IllegalStateException e) {
+                        throw new IOException(e.getMessage(), e);
+                    }
+                }
+                case FRAME_CONTROL_FLOW -> readIds(frame, controlFlow);
+                case FRAME_TAINTED -> readIds(frame, tainted);
+                case FRAME_SYSCALLS -> {
+                    int count = readCount(frame, 2);
+                    for (int i = 0; i < count; i++) {
+                        syscallIds.add(shared(frame.getInt()));
+                        syscallCounts.add(frame.getInt());
+                    }
+                }
+                case FRAME_EXCEPTION_EDGES -> {
+                    int count = readCount(frame, 2);
+                    for (int i = 0; i < count; i++) {
+                        exceptionThrown.add(shared(frame.getInt()));
+                        exceptionHandler.add(shared(frame.getInt()));
+                    }
+                }
+                case FRAME_PAYLOAD -> {
+                    int keep = Math.min(frame.remaining(), maxPayloadBytes - payload.size());
+                    if (keep > 0) {
+                        byte[] chunk = new byte[keep];
+                        frame.get(chunk);
+                        payload.write(chunk, 0, keep);
+                    }
+                }
+                case FRAME_END -> {
+                    complete = true;
+                    publishSnapshot();
+                    connection.close();
+                    return;
+                }
+                default -> throw new IOException("Unknown trace frame type " + type);
+            }
+
+            dirty = dirty || type != FRAME_HELLO && type != FRAME_SYMBOL;
+            if (dirty && System.nanoTime() - lastPublishNanos >= partialPublishNanos) {
+                publishSnapshot();
+            }
+        }
+
+        @Override
+        public void onClose(FramedConnection connection) {
+            if (honeypotId != null && !complete) {
+                // Disconnected mid-stream: hand over what arrived
+                complete = true;
+                publishSnapshot();
+            }
+        }
+
+        private void publishSnapshot() {
+            dirty = false;
+            lastPublishNanos = System.nanoTime();
+            publish(honeypotId, snapshot(), complete);
+        }
+
+        private ExecutionTrace snapshot() {
+            ExecutionTrace trace = new ExecutionTrace(symbols, controlFlow.toArray(), tainted.toArray(),
+                payload.toString(StandardCharsets.UTF_8));
+            for (int i = 0; i < syscallIds.size(); i++) {
+                trace.recordSyscallId(syscallIds.get(i), syscallCounts.get(i));
+            }
+            for (int i = 0; i < exceptionThrown.size(); i++) {
+                trace.addExceptionEdgeIds(exceptionThrown.get(i), exceptionHandler.get(i));
+            }
+            return trace;
+        }
+        
+        private void readIds(ByteBuffer frame, IntList target) throws IOException {
+            int count = readCount(frame, 1);
+            for (int i = 0; i < count; i++) {
+                target.add(shared(frame.getInt()));
+            }
+        }
+
+        private int readCount(ByteBuffer frame, int intsPerEntry) throws IOException {
+            int count = frame.getInt();
+            if (count < 0 || count > frame.remaining() / (Integer.BYTES * intsPerEntry)) {
+                throw new IOException("Malformed list of length " + count);
+            }
+            return count;
+        }
+
+        private void mapLocal(int localId, int sharedId) {
+            if (localId >= localToShared.length) {
+                int length = localToShared.length;
+                localToShared = Arrays.copyOf(localToShared, Math.min(maxSymbols, Math.max(localId + 1, length * 2)));
+            }
+            localToShared[localId] = sharedId + 1; // 0 marks "undefined"
+        }
+
+        private int shared(int localId) throws IOException {
+            if (localId < 0 || localId >= localToShared.length || localToShared[localId] == 0) {
+                throw new IOException("Undefined local symbol id " + localId);
+            }
+            return localToShared[localId] - 1;
+        }
+
+        private String readString(ByteBuffer frame) {
+            int length = frame.getShort() & 0xFFFF;
+            byte[] bytes = new byte[length];
+            frame.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Growable primitive int list
+     */
+    static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.sdi.honeypot;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Interning table for trace symbols (method names, syscalls, variables)
+ *
+ * Each distinct string is stored once and identified by a dense int id, so
+ * traces can hold primitive id arrays and compare symbols as integers.
+ * Lookups by id are lock-free; only the first sighting of a symbol locks.
+ * The table is capped; streamed traces each intern into a table of their own.
+ */
+public final class TraceSymbolTable {
+
+    /** Default cap on distinct symbols */
+    public static final int DEFAULT_MAX_SYMBOLS = 1 << 20;
+
+    private static final TraceSymbolTable SHARED = new TraceSymbolTable();
+
+    private final int maxSymbols;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private volatile String[] symbols = new String[1024];
+    private volatile int size;
+
+    public TraceSymbolTable() {
+        this(DEFAULT_MAX_SYMBOLS);
+    }
+
+    /**
+     * @param maxSymbols Distinct symbols the table accepts before intern fails
+     */
+    public TraceSymbolTable(int maxSymbols) {
+        this.maxSymbols = maxSymbols;
+    }
+
+    /**
+     * Process-wide table shared by all captured traces
+     */
+    public static TraceSymbolTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Id for the symbol, assigning the next id on first sight
+     *
+     * @throws IllegalStateException if the symbol is new and the table is full
+     */
+    public int intern(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+
+        appendLock.lock();
+        try {
+            id = ids.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            int next = size;
+            if (next >= maxSymbols) {
+                throw new IllegalStateException("Trace symbol table full (" + maxSymbols + " symbols)");
+            }
+            String[] current = symbols;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[next] = symbol;
+            symbols = current;
+            size = next + 1;
+            ids.put(symbol, next);
+            return next;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Symbol for a previously interned id
+     */
+    public String symbol(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown symbol id: " + id);
+        }
+        return symbols[id];
+    }
+
+    public int size() {
+        return size;
+    }
+}
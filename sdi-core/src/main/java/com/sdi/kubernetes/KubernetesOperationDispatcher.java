@@ -0,0 +1,427 @@
+package com.sdi.kubernetes;
+
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.support.VirtualThreads;
+import com.sdi.trace.PipelineTrace;
+import io.kubernetes.client.openapi.ApiException;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared dispatcher for mutating Kubernetes API calls
+ *
+ * Honeypot and deployment components enqueue create/replace/delete calls here
+ * instead of executing them on the calling thread. The dispatcher:
+ * - applies a token-bucket rate limit across all operations
+ * - caps concurrent calls globally and per namespace
+ * - merges redundant queued operations on the same object
+ *   (create then delete cancels both, repeated deletes/replaces collapse)
+ * - retries throttling, server and I/O errors with jittered exponential backoff
+ *
+ * Operations on the same object always execute in submission order.
+ */
+public class KubernetesOperationDispatcher implements AutoCloseable {
+
+    public enum OperationType {
+        CREATE,
+        REPLACE,
+        DELETE
+    }
+
+    /**
+     * A single Kubernetes API call
+     */
+    @FunctionalInterface
+    public interface ApiCall<T> {
+        T execute() throws ApiException;
+    }
+
+    private static final long IDLE_WAIT_MILLIS = 1000L;
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int maxConcurrent;
+    private final int maxConcurrentPerNamespace;
+    private final int maxRetries;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queueChanged = lock.newCondition();
+    private final LinkedList<PendingOperation<?>> queue = new LinkedList<>();
+    private final Map<String, Integer> inFlightPerNamespace = new HashMap<>();
+    private final Set<String> inFlightObjects = new HashSet<>();
+    private int inFlight;
+
+    private final AtomicInteger mergedOperations = new AtomicInteger();
+    private final AtomicInteger retriedOperations = new AtomicInteger();
+
+    private final ExecutorService workers;
+    private final Thread dispatchThread;
+    private volatile boolean running = true;
+
+    /**
+     * Dispatcher with conservative defaults (10 qps, burst 20)
+     */
+    public KubernetesOperationDispatcher() {
+        this(10.0, 20, 16, 4, 5, Duration.ofMillis(200), Duration.ofSeconds(10));
+    }
+
+    /**
+     * @param qps Sustained API calls per second
+     * @param burst Calls allowed back-to-back before throttling kicks in
+     * @param maxConcurrent Maximum calls in flight overall
+     * @param maxConcurrentPerNamespace Maximum calls in flight per namespace
+     * @param maxRetries Retries for throttled, server or I/O failures
+     * @param initialBackoff Backoff before the first retry
+     * @param maxBackoff Upper bound on the backoff between retries
+     */
+    public KubernetesOperationDispatcher(double qps, int burst, int maxConcurrent,
+                                         int maxConcurrentPerNamespace, int maxRetries,
+                                         Duration initialBackoff, Duration maxBackoff) {
+        this(qps, burst, maxConcurrent, maxConcurrentPerNamespace, maxRetries, initialBackoff, maxBackoff, false);
+    }
+
+    /**
+     * @param virtualThreads Run API calls on virtual threads (Java 21+); maxConcurrent still caps calls in flight
+     */
+    public KubernetesOperationDispatcher(double qps, int burst, int maxConcurrent,
+                                         int maxConcurrentPerNamespace, int maxRetries,
+                                         Duration initialBackoff, Duration maxBackoff, boolean virtualThreads) {
+        this.rateLimiter = new TokenBucketRateLimiter(qps, burst);
+        this.maxConcurrent = maxConcurrent;
+        this.maxConcurrentPerNamespace = maxConcurrentPerNamespace;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+
+        this.workers = VirtualThreads.newExecutor(virtualThreads, maxConcurrent, "sdi-k8s-worker");
+        this.dispatchThread = new Thread(this::dispatchLoop, "sdi-k8s-dispatcher");
+        this.dispatchThread.setDaemon(true);
+        this.dispatchThread.start();
+    }
+
+    public <T> CompletableFuture<T> create(String namespace, String objectKey, ApiCall<T> call) {
+        return submit(OperationType.CREATE, namespace, objectKey, call);
+    }
+
+    public <T> CompletableFuture<T> replace(String namespace, String objectKey, ApiCall<T> call) {
+        return submit(OperationType.REPLACE, namespace, objectKey, call);
+    }
+
+    public <T> CompletableFuture<T> delete(String namespace, String objectKey, ApiCall<T> call) {
+        return submit(OperationType.DELETE, namespace, objectKey, call);
+    }
+
+    /**
+     * Enqueue an operation
+     *
+     * @param type Operation type (used for merging)
+     * @param namespace Target namespace
+     * @param objectKey Object identity within the namespace, e.g. "pod/honeypot-x"
+     * @param call The API call to execute
+     * @return Future completed with the call's result; a create cancelled by a
+     *         later delete, and that delete, both complete with null
+     */
+    public <T> CompletableFuture<T> submit(OperationType type, String namespace,
+                                           String objectKey, ApiCall<T> call) {
+        // Queue wait included: it is part of what the pipeline waits for
+        PipelineTrace.Span span = PipelineTrace.currentSpan()
+            .startCall("kubernetes " + type.name().toLowerCase(Locale.ROOT))
+            .setAttribute("k8s.namespace", namespace)
+            .setAttribute("k8s.object", objectKey);
+        return span.endWhenDone(enqueue(type, namespace, objectKey, call));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> enqueue(OperationType type, String namespace,
+                                             String objectKey, ApiCall<T> call) {
+        lock.lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Kubernetes dispatcher is closed"));
+            }
+
+            PendingOperation<?> previous = lastQueuedFor(namespace, objectKey);
+            if (previous != null) {
+                if (previous.type == OperationType.CREATE && type == OperationType.DELETE) {
+                    // Object was never created: drop both
+                    queue.remove(previous);
+                    previous.future.complete(null);
+                    mergedOperations.incrementAndGet();
+                    queueChanged.signalAll();
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (previous.type == type && type != OperationType.CREATE) {
+                    // Collapse repeated deletes; latest replace wins
+                    if (type == OperationType.REPLACE) {
+                        ((PendingOperation<T>) previous).call = call;
+                    }
+                    mergedOperations.incrementAndGet();
+                    return (CompletableFuture<T>) previous.future;
+                }
+            }
+
+            PendingOperation<T> operation = new PendingOperation<>(type, namespace, objectKey, call);
+            queue.addLast(operation);
+            queueChanged.signalAll();
+            return operation.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Report the depth of the operation queue
+     */
+    public void registerMetrics(SdiMetrics metrics) {
+        metrics.gaugeQueue("kubernetes", this, KubernetesOperationDispatcher::getQueueDepth);
+    }
+
+    /**
+     * Operations waiting to be sent
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Operations currently executing against the API server
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMergedOperations() {
+        return mergedOperations.get();
+    }
+
+    public int getRetriedOperations() {
+        return retriedOperations.get();
+    }
+
+    @Override
+    public void close() {
+        List<PendingOperation<?>> abandoned;
+        lock.lock();
+        try {
+            running = false;
+            abandoned = new ArrayList<>(queue);
+            queue.clear();
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        abandoned.forEach(operation -> operation.future.completeExceptionally(
+            new RejectedExecutionException("Kubernetes dispatcher closed")));
+        dispatchThread.interrupt();
+        workers.shutdown();
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            PendingOperation<?> operation;
+            lock.lock();
+            try {
+                operation = nextRunnable();
+                if (operation == null) {
+                    queueChanged.await(untilNextEligibleMillis(), TimeUnit.MILLISECONDS);
+                    continue;
+                }
+                queue.remove(operation);
+                markInFlight(operation);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                rateLimiter.acquire();
+                workers.execute(() -> execute(operation));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                operation.future.completeExceptionally(e);
+                return;
+            } catch (RejectedExecutionException e) {
+                operation.future.completeExceptionally(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * First queued operation that is due, within concurrency limits, and not
+     * ordered behind another operation on the same object. Caller holds the lock.
+     */
+    private PendingOperation<?> nextRunnable() {
+        if (inFlight >= maxConcurrent) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        Set<String> blockedObjects = new HashSet<>();
+
+        for (PendingOperation<?> operation : queue) {
+            String identity = operation.identity();
+            boolean runnable = operation.notBefore <= now
+                && !blockedObjects.contains(identity)
+                && !inFlightObjects.contains(identity)
+                && inFlightPerNamespace.getOrDefault(operation.namespace, 0) < maxConcurrentPerNamespace;
+            if (runnable) {
+                return operation;
+            }
+            blockedObjects.add(identity);
+        }
+        return null;
+    }
+
+    private long untilNextEligibleMillis() {
+        long now = System.currentTimeMillis();
+        long wait = IDLE_WAIT_MILLIS;
+        for (PendingOperation<?> operation : queue) {
+            if (operation.notBefore > now) {
+                wait = Math.min(wait, operation.notBefore - now);
+            }
+        }
+        return Math.max(1L, wait);
+    }
+
+    private <T> void execute(PendingOperation<T> operation) {
+        try {
+            T result = operation.call.execute();
+            release(operation);
+            operation.future.complete(result);
+        } catch (ApiException e) {
+            if (isRetryable(e) && operation.attempts < maxRetries) {
+                scheduleRetry(operation, e);
+            } else {
+                release(operation);
+                operation.future.completeExceptionally(e);
+            }
+        } catch (RuntimeException e) {
+            release(operation);
+            operation.future.completeExceptionally(e);
+        }
+    }
+
+    private void scheduleRetry(PendingOperation<?> operation, ApiException cause) {
+        operation.attempts++;
+        long backoff = Math.max(jitteredBackoff(operation.attempts), retryAfterMillis(cause));
+        retriedOperations.incrementAndGet();
+
+        lock.lock();
+        try {
+            unmarkInFlight(operation);
+            operation.notBefore = System.currentTimeMillis() + backoff;
+            // Head of queue keeps per-object ordering ahead of later submissions
+            queue.addFirst(operation);
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        System.err.println("Retrying Kubernetes " + operation.type + " " + operation.identity() +
+                         " in " + backoff + "ms (attempt " + operation.attempts + "): " + cause.getMessage());
+    }
+
+    /**
+     * Full-jitter exponential backoff
+     */
+    private long jitteredBackoff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private static long retryAfterMillis(ApiException e) {
+        Map<String, List<String>> headers = e.getResponseHeaders();
+        if (headers == null) {
+            return 0L;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                try {
+                    return Long.parseLong(header.getValue().get(0).trim()) * 1000L;
+                } catch (NumberFormatException ignored) {
+                    return 0L;
+                }
+            }
+        }
+        return 0L;
+    }
+
+    static boolean isRetryable(ApiException e) {
+        int code = e.getCode();
+        // 0 means the request never got an HTTP response (I/O failure)
+        return code == 0 || code == 429 || code >= 500;
+    }
+
+    private void markInFlight(PendingOperation<?> operation) {
+        inFlight++;
+        inFlightObjects.add(operation.identity());
+        inFlightPerNamespace.merge(operation.namespace, 1, Integer::sum);
+    }
+
+    private void unmarkInFlight(PendingOperation<?> operation) {
+        inFlight--;
+        inFlightObjects.remove(operation.identity());
+        inFlightPerNamespace.computeIfPresent(operation.namespace, (ns, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void release(PendingOperation<?> operation) {
+        lock.lock();
+        try {
+            unmarkInFlight(operation);
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PendingOperation<?> lastQueuedFor(String namespace, String objectKey) {
+        Iterator<PendingOperation<?>> it = queue.descendingIterator();
+        while (it.hasNext()) {
+            PendingOperation<?> operation = it.next();
+            if (operation.namespace.equals(namespace) && operation.objectKey.equals(objectKey)) {
+                // Never merge into a retry: it has already reached the API server
+                return operation.attempts == 0 ? operation : null;
+            }
+        }
+        return null;
+    }
+
+    private static class PendingOperation<T> {
+        final OperationType type;
+        final String namespace;
+        final String objectKey;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        ApiCall<T> call;
+        int attempts;
+        long notBefore;
+
+        PendingOperation(OperationType type, String namespace, String objectKey, ApiCall<T> call) {
+            this.type = type;
+            this.namespace = namespace;
+            this.objectKey = objectKey;
+            this.call = call;
+        }
+
+        String identity() {
+            return namespace + "/" + objectKey;
+        }
+    }
+}
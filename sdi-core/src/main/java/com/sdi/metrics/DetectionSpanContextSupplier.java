@@ -0,0 +1,34 @@
+package com.sdi.metrics;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import io.prometheus.client.exemplars.tracer.common.SpanContextSupplier;
+
+/**
+ * Links detection latency observations to the pipeline trace they start
+ *
+ * Spring Boot's Prometheus export attaches exemplars to histogram buckets
+ * when a SpanContextSupplier bean exists. This one reports the trace and
+ * detection span ids of the anomaly token being recorded, so an anomalous
+ * request in sdi.detection.latency leads to its pipeline trace. Detections
+ * without a token, and anything else the registry records, are not sampled.
+ */
+public class DetectionSpanContextSupplier implements SpanContextSupplier {
+
+    @Override
+    public String getTraceId() {
+        AnomalyToken anomaly = ExemplarContext.current().getAnomaly();
+        return anomaly != null ? anomaly.getTraceId() : null;
+    }
+
+    @Override
+    public String getSpanId() {
+        AnomalyToken anomaly = ExemplarContext.current().getAnomaly();
+        return anomaly != null ? anomaly.getSpanId() : null;
+    }
+
+    @Override
+    public boolean isSampled() {
+        AnomalyToken anomaly = ExemplarContext.current().getAnomaly();
+        return anomaly != null && anomaly.getTraceId() != null;
+    }
+}
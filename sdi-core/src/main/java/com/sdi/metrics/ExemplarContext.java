@@ -0,0 +1,35 @@
+package com.sdi.metrics;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+
+/**
+ * Detection being recorded on the current thread
+ *
+ * {@link MicrometerSdiMetrics} sets it around recording a detection that
+ * produced a token, and {@link DetectionSpanContextSupplier} reads it when
+ * the Prometheus registry samples an exemplar for that observation. One
+ * instance per thread is reused, so recording allocates nothing.
+ */
+final class ExemplarContext {
+
+    private static final ThreadLocal<ExemplarContext> CURRENT = ThreadLocal.withInitial(ExemplarContext::new);
+
+    private AnomalyToken anomaly;
+
+    private ExemplarContext() {
+    }
+
+    static ExemplarContext current() {
+        return CURRENT.get();
+    }
+
+    AnomalyToken getAnomaly() { return anomaly; }
+
+    void set(AnomalyToken anomaly) {
+        this.anomaly = anomaly;
+    }
+
+    void clear() {
+        this.anomaly = null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.sdi.metrics;
+
+import com.sdi.deployer.CanaryValidator;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.pre.PolymorphicResponseEngine.PipelinePhase;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * {@link SdiMetrics} backed by a Micrometer registry
+ *
+ * Meters (visible under /actuator/metrics):
+ * - sdi.detection.latency: detector calls, with a percentile histogram; with
+ *   Prometheus, anomalies carry their pipeline trace as exemplars
+ *   ({@link DetectionSpanContextSupplier})
+ * - sdi.pipeline.phase (phase): isolation, antigen-extraction, mutation-synthesis, propagation
+ * - sdi.genetic.generations (converged): GA generations per extraction
+ * - sdi.mutation.retries: mutation syntheses repeated after missing their constraints
+ * - sdi.honeypot.spawn: honeypot pod request to ready
+ * - sdi.canary.validation (outcome): passed / failed validations and their duration
+ * - sdi.pipeline.time-to-immunize (slo): pipeline start to rollout end, met / missed
+ * - sdi.pipeline.budget.exhausted (phase): phases cut short by their latency budget
+ * - sdi.pipeline.queue.wait: time pipelines waited for the scheduler
+ * - sdi.pipeline.preempted: queued pipelines dropped for critical exploits
+ * - sdi.queue.depth (queue): work queues of the components that exist
+ */
+public class MicrometerSdiMetrics extends SdiMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer detection;
+    private final Timer[] phases = new Timer[PipelinePhase.values().length];
+    private final DistributionSummary convergedGenerations;
+    private final DistributionSummary exhaustedGenerations;
+    private final Counter mutationRetries;
+    private final Timer honeypotSpawn;
+    private final Timer canaryPassed;
+    private final Timer canaryFailed;
+    private final Timer immunizedWithinSlo;
+    private final Timer immunizedOutsideSlo;
+    private final Counter[] budgetsExhausted = new Counter[PipelinePhase.values().length];
+    private final Timer pipelineWait;
+    private final Counter pipelinesPreempted;
+
+    public MicrometerSdiMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.detection = Timer.builder("sdi.detection.latency")
+            .description("Time to score one request")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(1_000))
+            .maximumExpectedValue(Duration.ofMillis(100))
+            .register(registry);
+        for (PipelinePhase phase : new PipelinePhase[] {PipelinePhase.ISOLATION, PipelinePhase.ANTIGEN_EXTRACTION,
+                                                         PipelinePhase.MUTATION_SYNTHESIS, PipelinePhase.PROPAGATION}) {
+            String name = phase.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            phases[phase.ordinal()] = Timer.builder("sdi.pipeline.phase")
+                .description("Duration of a PRE phase")
+                .tag("phase", name)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(Duration.ofMinutes(30))
+                .register(registry);
+            budgetsExhausted[phase.ordinal()] = Counter.builder("sdi.pipeline.budget.exhausted")
+                .description("PRE phases cut short by their latency budget")
+                .tag("phase", name)
+                .register(registry);
+        }
+        this.convergedGenerations = generations(registry, true);
+        this.exhaustedGenerations = generations(registry, false);
+        this.mutationRetries = Counter.builder("sdi.mutation.retries")
+            .description("Mutation syntheses repeated after missing their constraints")
+            .register(registry);
+        this.honeypotSpawn = Timer.builder("sdi.honeypot.spawn")
+            .description("Time from requesting a honeypot pod to the pod being ready")
+            .publishPercentileHistogram()
+            .maximumExpectedValue(Duration.ofMinutes(5))
+            .register(registry);
+        this.canaryPassed = canary(registry, CanaryValidator.Phase.PASSED);
+        this.canaryFailed = canary(registry, CanaryValidator.Phase.FAILED);
+        this.immunizedWithinSlo = timeToImmunize(registry, true);
+        this.immunizedOutsideSlo = timeToImmunize(registry, false);
+        this.pipelineWait = Timer.builder("sdi.pipeline.queue.wait")
+            .description("Time a pipeline waited in the priority queue before it started")
+            .publishPercentileHistogram()
+            .maximumExpectedValue(Duration.ofMinutes(30))
+            .register(registry);
+        this.pipelinesPreempted = Counter.builder("sdi.pipeline.preempted")
+            .description("Queued pipelines dropped to make room for a critical exploit")
+            .register(registry);
+    }
+
+    @Override
+    public void recordDetection(long nanos, AnomalyToken anomaly) {
+        if (anomaly == null) {
+            detection.record(nanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        ExemplarContext context = ExemplarContext.current();
+        context.set(anomaly);
+        try {
+            detection.record(nanos, TimeUnit.NANOSECONDS);
+        } finally {
+            context.clear();
+        }
+    }
+
+    @Override
+    public void recordPhase(PipelinePhase phase, long nanos) {
+        Timer timer = phases[phase.ordinal()];
+        if (timer != null) {
+            timer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void recordGenerations(int generations, boolean converged) {
+        (converged ? convergedGenerations : exhaustedGenerations).record(generations);
+    }
+
+    @Override
+    public void recordMutationRetry() {
+        mutationRetries.increment();
+    }
+
+    @Override
+    public void recordHoneypotSpawn(long nanos) {
+        honeypotSpawn.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordCanaryValidation(CanaryValidator.Phase outcome, long nanos) {
+        (outcome == CanaryValidator.Phase.PASSED ? canaryPassed : canaryFailed).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordTimeToImmunize(long nanos, boolean withinSlo) {
+        (withinSlo ? immunizedWithinSlo : immunizedOutsideSlo).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordBudgetExhausted(PipelinePhase phase) {
+        Counter counter = budgetsExhausted[phase.ordinal()];
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    @Override
+    public void recordPipelineWait(long nanos) {
+        pipelineWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordPipelinePreempted() {
+        pipelinesPreempted.increment();
+    }
+
+    @Override
+    public <T> void gaugeQueue(String queue, T owner, ToDoubleFunction<T> depth) {
+        Gauge.builder("sdi.queue.depth", owner, depth)
+            .description("Items waiting in an SDI work queue")
+            .tag("queue", queue)
+            .strongReference(true)
+            .register(registry);
+    }
+
+    private static DistributionSummary generations(MeterRegistry registry, boolean converged) {
+        return DistributionSummary.builder("sdi.genetic.generations")
+            .description("Genetic algorithm generations per antigen extraction")
+            .tag("converged", Boolean.toString(converged))
+            .publishPercentileHistogram()
+            .minimumExpectedValue(1.0)
+            .maximumExpectedValue(100.0)
+            .register(registry);
+    }
+
+    private static Timer canary(MeterRegistry registry, CanaryValidator.Phase outcome) {
+        return Timer.builder("sdi.canary.validation")
+            .description("Finished canary validations")
+            .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+            .maximumExpectedValue(Duration.ofMinutes(30))
+            .register(registry);
+    }
+
+    private static Timer timeToImmunize(MeterRegistry registry, boolean withinSlo) {
+        return Timer.builder("sdi.pipeline.time-to-immunize")
+            .description("Time from the start of a pipeline to the end of its rollout")
+            .tag("slo", withinSlo ? "met" : "missed")
+            .publishPercentileHistogram()
+            .maximumExpectedValue(Duration.ofHours(1))
+            .register(registry);
+    }
+}
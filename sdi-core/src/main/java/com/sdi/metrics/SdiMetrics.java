@@ -0,0 +1,99 @@
+package com.sdi.metrics;
+
+import com.sdi.deployer.CanaryValidator;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.pre.PolymorphicResponseEngine.PipelinePhase;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Instrumentation points of the detector and the PRE pipeline
+ *
+ * Components record into this class, which does nothing; when Micrometer
+ * is on the classpath and a MeterRegistry exists, the auto-configuration
+ * hands them a {@link MicrometerSdiMetrics} instead. Durations are passed
+ * as nanoTime deltas and every meter is registered up front, so recording
+ * allocates nothing and never looks a meter up by name or tags.
+ */
+public class SdiMetrics {
+
+    public static final SdiMetrics NOOP = new SdiMetrics();
+
+    protected SdiMetrics() {
+    }
+
+    /**
+     * One call to the detector (detect or screen)
+     *
+     * @param anomaly Token the call produced, or null; its trace becomes the exemplar of the observation
+     */
+    public void recordDetection(long nanos, AnomalyToken anomaly) {
+    }
+
+    /**
+     * One of the PRE phases after detection (isolation through propagation)
+     */
+    public void recordPhase(PipelinePhase phase, long nanos) {
+    }
+
+    /**
+     * Generations the genetic algorithm ran before converging or giving up
+     */
+    public void recordGenerations(int generations, boolean converged) {
+    }
+
+    /**
+     * A mutation that missed its constraints and is synthesized again
+     */
+    public void recordMutationRetry() {
+    }
+
+    /**
+     * Time from requesting a honeypot pod to the pod being ready
+     */
+    public void recordHoneypotSpawn(long nanos) {
+    }
+
+    /**
+     * Finished canary validation and how long it took
+     *
+     * @param outcome PASSED or FAILED
+     */
+    public void recordCanaryValidation(CanaryValidator.Phase outcome, long nanos) {
+    }
+
+    /**
+     * Time from the start of a pipeline to the end of its rollout
+     *
+     * @param withinSlo True if the patch was rolled out within the time-to-immunize target
+     */
+    public void recordTimeToImmunize(long nanos, boolean withinSlo) {
+    }
+
+    /**
+     * A phase that used up its latency budget and settled for its best result so far
+     */
+    public void recordBudgetExhausted(PipelinePhase phase) {
+    }
+
+    /**
+     * Time a pipeline waited in the priority queue before it started
+     */
+    public void recordPipelineWait(long nanos) {
+    }
+
+    /**
+     * A queued pipeline dropped to make room for a critical exploit
+     */
+    public void recordPipelinePreempted() {
+    }
+
+    /**
+     * Report the depth of a work queue
+     *
+     * @param queue Queue name, used as the queue tag
+     * @param owner Object holding the queue; sampled when the gauge is read
+     */
+    public <T> void gaugeQueue(String queue, T owner, ToDoubleFunction<T> depth) {
+    }
+}
@@ -9,6 +9,9 @@ import com.github.javaparser.ast.stmt.BlockStmt;
 import com.github.javaparser.ast.stmt.Statement;
 import com.github.javaparser.printer.lexicalpreservation.LexicalPreservingPrinter;
 import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.trace.PipelineTrace;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -17,6 +20,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -33,7 +37,17 @@ import java.util.*;
 public class MutationSynthesizer {
     
     private static final double POLYMORPHIC_THRESHOLD = 0.30; // 30% bytecode change required
+    private static final int MAX_RETRIES = 3;
     private final JavaParser parser = new JavaParser();
+    private SdiMetrics metrics = SdiMetrics.NOOP;
+    
+    /**
+     * Count syntheses repeated after missing the mutation constraints
+     */
+    @Autowired(required = false)
+    public void setMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+    }
     
     /**
      * Synthesize mutation patch from vulnerability signature
@@ -43,39 +57,103 @@ public class MutationSynthesizer {
      * @return Mutation Patch
      */
     public MutationPatch synthesize(VulnerabilitySignature vs, String sourceCodePath) {
-        try {
-            // Parse source code
-            Path path = Paths.get(sourceCodePath);
-            String originalCode = Files.readString(path);
-            CompilationUnit cu = parser.parse(originalCode).getResult().orElseThrow();
-            
-            // Apply transformations
-            CompilationUnit mutatedCu = applyTransformations(cu, vs);
-            
-            // Generate mutated code
-            String mutatedCode = LexicalPreservingPrinter.print(mutatedCu);
-            
-            // Verify constraints
-            if (!verifyConstraints(originalCode, mutatedCode, vs)) {
+        return synthesize(vs, sourceCodePath, null);
+    }
+    
+    /**
+     * Synthesize a mutation patch within a time budget
+     * 
+     * Attempts are repeated until one meets the mutation constraints. Once
+     * the budget is spent or the retries run out, the candidate with the
+     * largest bytecode delta so far is returned instead; without a budget,
+     * running out of retries fails.
+     * 
+     * @param budget Time the synthesis may take, or null for no limit
+     */
+    public MutationPatch synthesize(VulnerabilitySignature vs, String sourceCodePath, Duration budget) {
+        long startNanos = System.nanoTime();
+        MutationPatch best = null;
+        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
+            if (attempt > 0) {
                 // Retry with adjusted transformations
-                return synthesizeWithRetry(vs, sourceCodePath, 3);
+                metrics.recordMutationRetry();
+            }
+            MutationPatch candidate = null;
+            try {
+                candidate = synthesizeOnce(vs, sourceCodePath);
+            } catch (Exception e) {
+                if (attempt == 0) {
+                    throw new RuntimeException("Failed to synthesize mutation: " + e.getMessage(), e);
+                }
+                // Continue to next retry
             }
             
-            // Compute bytecode delta
-            double bytecodeDelta = computeBytecodeDelta(originalCode, mutatedCode);
-            
-            return new MutationPatch(
-                vs.getServiceId(),
-                mutatedCode,
-                bytecodeDelta,
-                vs.getVulnerableLineStart(),
-                vs.getVulnerableLineEnd(),
-                System.currentTimeMillis()
-            );
+            if (candidate != null) {
+                if (verifyConstraints(candidate, vs)) {
+                    return candidate;
+                }
+                if (best == null || candidate.getBytecodeDelta() > best.getBytecodeDelta()) {
+                    best = candidate;
+                }
+            }
             
+            if (budget != null && best != null && System.nanoTime() - startNanos >= budget.toNanos()) {
+                System.err.println("Mutation budget of " + budget + " spent, using best candidate (delta " +
+                                   best.getBytecodeDelta() + ")");
+                PipelineTrace.currentSpan()
+                    .setAttribute("sdi.mutation.deadline-reached", true)
+                    .setAttribute("sdi.mutation.delta", best.getBytecodeDelta());
+                return best;
+            }
+        }
+        
+        if (budget != null && best != null) {
+            System.err.println("Mutation retries exhausted within budget, using best candidate (delta " +
+                               best.getBytecodeDelta() + ")");
+            PipelineTrace.currentSpan()
+                .setAttribute("sdi.mutation.retries-exhausted", true)
+                .setAttribute("sdi.mutation.delta", best.getBytecodeDelta());
+            return best;
+        }
+        throw new RuntimeException("Failed to synthesize valid mutation after " + MAX_RETRIES + " retries");
+    }
+    
+    /**
+     * Parse, transform and print the source once
+     */
+    private MutationPatch synthesizeOnce(VulnerabilitySignature vs, String sourceCodePath) throws Exception {
+        // Parse source code
+        PipelineTrace.Span parse = PipelineTrace.currentSpan().startChild("parse")
+            .setAttribute("sdi.source", sourceCodePath);
+        Path path = Paths.get(sourceCodePath);
+        String originalCode;
+        CompilationUnit cu;
+        try {
+            originalCode = Files.readString(path);
+            cu = parser.parse(originalCode).getResult().orElseThrow();
+            parse.end();
         } catch (Exception e) {
-            throw new RuntimeException("Failed to synthesize mutation: " + e.getMessage(), e);
+            parse.end(e);
+            throw e;
         }
+        
+        // Apply transformations
+        CompilationUnit mutatedCu = applyTransformations(cu, vs);
+        
+        // Generate mutated code
+        String mutatedCode = LexicalPreservingPrinter.print(mutatedCu);
+        
+        // Compute bytecode delta
+        double bytecodeDelta = computeBytecodeDelta(originalCode, mutatedCode);
+        
+        return new MutationPatch(
+            vs.getServiceId(),
+            mutatedCode,
+            bytecodeDelta,
+            vs.getVulnerableLineStart(),
+            vs.getVulnerableLineEnd(),
+            System.currentTimeMillis()
+        );
     }
     
     /**
@@ -178,11 +256,9 @@ public class MutationSynthesizer {
     /**
      * Verify constraints: bytecode delta and functional equivalence
      */
-    private boolean verifyConstraints(String originalCode, String mutatedCode, 
-                                     VulnerabilitySignature vs) {
+    private boolean verifyConstraints(MutationPatch patch, VulnerabilitySignature vs) {
         // Check bytecode delta
-        double delta = computeBytecodeDelta(originalCode, mutatedCode);
-        if (delta < POLYMORPHIC_THRESHOLD) {
+        if (patch.getBytecodeDelta() < POLYMORPHIC_THRESHOLD) {
             return false;
         }
         
@@ -215,25 +291,6 @@ public class MutationSynthesizer {
         return differences / (double) maxLen;
     }
     
-    /**
-     * Retry synthesis with adjusted parameters
-     */
-    private MutationPatch synthesizeWithRetry(VulnerabilitySignature vs, 
-                                             String sourceCodePath, int maxRetries) {
-        for (int i = 0; i < maxRetries; i++) {
-            try {
-                MutationPatch patch = synthesize(vs, sourceCodePath);
-                if (patch.getBytecodeDelta() >= POLYMORPHIC_THRESHOLD) {
-                    return patch;
-                }
-            } catch (Exception e) {
-                // Continue to next retry
-            }
-        }
-        
-        throw new RuntimeException("Failed to synthesize valid mutation after " + maxRetries + " retries");
-    }
-    
     /**
      * Save mutated code to file
      */
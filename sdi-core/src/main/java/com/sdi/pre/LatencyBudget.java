@@ -0,0 +1,89 @@
+package com.sdi.pre;
+
+import com.sdi.pre.PolymorphicResponseEngine.PipelinePhase;
+
+import java.time.Duration;
+
+/**
+ * Time-to-immunize target and per-phase latency budgets of the PRE pipeline
+ *
+ * A phase may take the smaller of its own budget and what is left of the
+ * end-to-end target; phases without a budget of their own only share the
+ * target. A phase that runs out settles for its best result so far instead
+ * of failing: the fittest signature, the most diverse mutation, a canary
+ * verdict on the samples collected.
+ */
+public class LatencyBudget {
+
+    /** No target and no phase budgets */
+    public static final LatencyBudget UNBOUNDED = new LatencyBudget(null, null, null, null, null);
+
+    private final Duration timeToImmunize;
+    private final Duration isolation;
+    private final Duration extraction;
+    private final Duration mutation;
+    private final Duration validation;
+
+    /**
+     * Null durations are unbounded
+     *
+     * @param timeToImmunize Target from pipeline start to the end of the rollout
+     * @param isolation Honeypot and exploit trace wait
+     * @param extraction Genetic search
+     * @param mutation Mutation search
+     * @param validation Canary analysis over all rollout steps
+     */
+    public LatencyBudget(Duration timeToImmunize, Duration isolation, Duration extraction, Duration mutation,
+                         Duration validation) {
+        this.timeToImmunize = timeToImmunize;
+        this.isolation = isolation;
+        this.extraction = extraction;
+        this.mutation = mutation;
+        this.validation = validation;
+    }
+
+    /**
+     * Time the phase may take if it starts now, or null if it is unbounded
+     *
+     * @param pipelineStartNanos nanoTime at which the pipeline started
+     */
+    public Duration remaining(PipelinePhase phase, long pipelineStartNanos) {
+        Duration budget = getPhaseBudget(phase);
+        if (timeToImmunize != null) {
+            long left = Math.max(0, timeToImmunize.toNanos() - (System.nanoTime() - pipelineStartNanos));
+            if (budget == null || left < budget.toNanos()) {
+                budget = Duration.ofNanos(left);
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * True if a pipeline that took this long met the time-to-immunize target
+     */
+    public boolean isMet(long elapsedNanos) {
+        return timeToImmunize == null || elapsedNanos <= timeToImmunize.toNanos();
+    }
+
+    /**
+     * Own budget of a phase, or null if it only shares the target
+     */
+    public Duration getPhaseBudget(PipelinePhase phase) {
+        switch (phase) {
+            case ISOLATION:
+                return isolation;
+            case ANTIGEN_EXTRACTION:
+                return extraction;
+            case MUTATION_SYNTHESIS:
+                return mutation;
+            case PROPAGATION:
+                return validation;
+            default:
+                return null;
+        }
+    }
+
+    public Duration getTimeToImmunize() {
+        return timeToImmunize;
+    }
+}
@@ -0,0 +1,267 @@
+package com.sdi.pre;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.pre.PolymorphicResponseEngine.PipelineState;
+import com.sdi.support.VirtualThreads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Runs response pipelines most dangerous first
+ *
+ * Pipelines hold scarce resources (honeypot pods, image builds, canary
+ * slots), so only a fixed number run at once and the rest wait in a
+ * priority queue instead of running in arrival order. A pipeline's priority
+ * is its anomaly score times the configured criticality of its service,
+ * raised by one for every aging interval it has waited, so low-priority
+ * work is delayed but never starved. A service may only run a capped number
+ * of pipelines at once; its other pipelines wait without blocking the
+ * queue for other services.
+ *
+ * When the queue is full, a critical exploit (priority at or above the
+ * critical priority) preempts the lowest-priority queued pipeline, which
+ * is dropped; anything else is rejected. Running pipelines are never
+ * interrupted, since stopping one mid-rollout would leave its canary behind.
+ */
+public class PipelineScheduler implements AutoCloseable {
+
+    private static final Comparator<Entry> HIGHEST_FIRST = Comparator
+        .comparingDouble((Entry entry) -> entry.rank).reversed()
+        .thenComparingLong(entry -> entry.sequence);
+
+    private final Function<AnomalyToken, PipelineState> pipeline;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final int maxPerService;
+    private final Map<String, Integer> serviceCaps;
+    private final Map<String, Double> serviceCriticality;
+    private final long agingNanos;
+    private final double criticalPriority;
+    private final long epochNanos = System.nanoTime();
+    private final ExecutorService workers;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Entry> queue = new TreeSet<>(HIGHEST_FIRST);
+    private final Map<String, Integer> runningPerService = new HashMap<>();
+    private int running;
+    private long sequence;
+    private boolean closed;
+    private SdiMetrics metrics = SdiMetrics.NOOP;
+
+    /**
+     * @param pipeline Runs one pipeline to completion (e.g. the engine's respondToAnomaly)
+     * @param maxConcurrent Pipelines running at once
+     * @param maxQueued Pipelines allowed to wait
+     * @param maxPerService Pipelines of one service running at once
+     * @param serviceCaps Per-service overrides of maxPerService
+     * @param serviceCriticality Priority multiplier per service (others 1.0)
+     * @param aging Wait that raises a pipeline's priority by one (an anomaly score's full range)
+     * @param criticalPriority Priority from which an arriving pipeline preempts queued ones when the queue is full
+     */
+    public PipelineScheduler(Function<AnomalyToken, PipelineState> pipeline, int maxConcurrent, int maxQueued,
+                             int maxPerService, Map<String, Integer> serviceCaps,
+                             Map<String, Double> serviceCriticality, Duration aging, double criticalPriority) {
+        this(pipeline, maxConcurrent, maxQueued, maxPerService, serviceCaps, serviceCriticality, aging,
+             criticalPriority, false);
+    }
+
+    /**
+     * @param virtualThreads Run pipelines on virtual threads (Java 21+); maxConcurrent still caps pipelines running
+     */
+    public PipelineScheduler(Function<AnomalyToken, PipelineState> pipeline, int maxConcurrent, int maxQueued,
+                             int maxPerService, Map<String, Integer> serviceCaps,
+                             Map<String, Double> serviceCriticality, Duration aging, double criticalPriority,
+                             boolean virtualThreads) {
+        this.pipeline = pipeline;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(1, maxQueued);
+        this.maxPerService = Math.max(1, maxPerService);
+        this.serviceCaps = Map.copyOf(serviceCaps);
+        this.serviceCriticality = Map.copyOf(serviceCriticality);
+        this.agingNanos = Math.max(1, aging.toNanos());
+        this.criticalPriority = criticalPriority;
+        this.workers = VirtualThreads.newExecutor(virtualThreads, this.maxConcurrent, "sdi-pipeline");
+    }
+
+    /**
+     * Queue a pipeline for the anomaly
+     *
+     * @return Future completed with the final pipeline state; completed with a
+     *         RejectedExecutionException if the pipeline was rejected or preempted
+     */
+    public CompletableFuture<PipelineState> submit(AnomalyToken token) {
+        double priority = priority(token);
+        Entry evicted = null;
+        Entry entry;
+        lock.lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Pipeline scheduler closed"));
+            }
+            long now = System.nanoTime();
+            // Ranking by priority minus enqueue time in aging intervals orders by aged priority at any later time
+            entry = new Entry(token, priority - (now - epochNanos) / (double) agingNanos, sequence++, now);
+            if (queue.size() >= maxQueued) {
+                Entry lowest = queue.last();
+                if (priority < criticalPriority || HIGHEST_FIRST.compare(entry, lowest) > 0) {
+                    System.err.println("SDI pipeline queue full, dropping trigger for " + token.getServiceId() +
+                                     " (priority " + String.format("%.2f", priority) + ")");
+                    return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Pipeline queue full (" + maxQueued + ")"));
+                }
+                queue.remove(lowest);
+                evicted = lowest;
+            }
+            queue.add(entry);
+        } finally {
+            lock.unlock();
+        }
+
+        if (evicted != null) {
+            System.err.println("Critical exploit on " + token.getServiceId() + " preempted queued pipeline for " +
+                             evicted.token.getServiceId());
+            metrics.recordPipelinePreempted();
+            evicted.result.completeExceptionally(new RejectedExecutionException(
+                "Preempted by critical exploit on " + token.getServiceId()));
+        }
+        dispatch();
+        return entry.result;
+    }
+
+    /**
+     * Priority before aging: anomaly score times service criticality
+     */
+    public double priority(AnomalyToken token) {
+        return token.getAnomalyScore() * serviceCriticality.getOrDefault(token.getServiceId(), 1.0);
+    }
+
+    /**
+     * Record queue waits and preemptions, and report the queue depth
+     */
+    public void registerMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+        metrics.gaugeQueue("pipeline-scheduler", this, PipelineScheduler::getQueued);
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop starting pipelines; queued ones are rejected, running ones finish on their own
+     */
+    @Override
+    public void close() {
+        List<Entry> dropped;
+        lock.lock();
+        try {
+            closed = true;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdown();
+        for (Entry entry : dropped) {
+            entry.result.completeExceptionally(new RejectedExecutionException("Pipeline scheduler closed"));
+        }
+    }
+
+    /**
+     * Start the highest-priority queued pipelines that fit the concurrency caps
+     */
+    private void dispatch() {
+        List<Entry> started = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<Entry> candidates = queue.iterator();
+            while (running < maxConcurrent && !closed && candidates.hasNext()) {
+                Entry entry = candidates.next();
+                String serviceId = entry.token.getServiceId();
+                int serviceRunning = runningPerService.getOrDefault(serviceId, 0);
+                if (serviceRunning >= serviceCaps.getOrDefault(serviceId, maxPerService)) {
+                    continue; // Waits for its own service, not for the others
+                }
+                candidates.remove();
+                runningPerService.put(serviceId, serviceRunning + 1);
+                running++;
+                started.add(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (Entry entry : started) {
+            metrics.recordPipelineWait(System.nanoTime() - entry.enqueuedNanos);
+            try {
+                workers.execute(() -> run(entry));
+            } catch (RejectedExecutionException e) {
+                finished(entry);
+                entry.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void run(Entry entry) {
+        try {
+            entry.result.complete(pipeline.apply(entry.token));
+        } catch (RuntimeException e) {
+            System.err.println("SDI pipeline failed for " + entry.token.getServiceId() + ": " + e.getMessage());
+            entry.result.completeExceptionally(e);
+        } finally {
+            finished(entry);
+            dispatch();
+        }
+    }
+
+    private void finished(Entry entry) {
+        lock.lock();
+        try {
+            running--;
+            runningPerService.computeIfPresent(entry.token.getServiceId(), (service, count) -> count > 1 ? count - 1 : null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        final AnomalyToken token;
+        final double rank;
+        final long sequence;
+        final long enqueuedNanos;
+        final CompletableFuture<PipelineState> result = new CompletableFuture<>();
+
+        Entry(AnomalyToken token, double rank, long sequence, long enqueuedNanos) {
+            this.token = token;
+            this.rank = rank;
+            this.sequence = sequence;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.sdi.pre;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.sdi.bus.FleetAnomalyAggregator;
+import com.sdi.bus.ImmuneBusPublisher;
 import com.sdi.detector.AnomalyDetector;
 import com.sdi.detector.AnomalyDetector.AnomalyToken;
 import com.sdi.detector.AnomalyDetector.RequestVector;
@@ -10,22 +13,68 @@ import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
 import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
 import com.sdi.mutation.MutationSynthesizer;
 import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import com.sdi.deployer.FleetPropagationPlanner;
+import com.sdi.deployer.FleetPropagationPlanner.PropagationStatus;
 import com.sdi.deployer.ImmunizationDeployer;
-import org.springframework.kafka.core.KafkaTemplate;
+import com.sdi.deployer.ImmunizationDeployer.DeploymentStatus;
+import com.sdi.metrics.SdiMetrics;
+import com.sdi.registry.SignatureRegistry;
+import com.sdi.registry.SignatureRegistry.Claim;
+import com.sdi.trace.PipelineTrace;
+import com.sdi.trace.PipelineTracer;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.lang.Nullable;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Unified PRE Pipeline Orchestrator
  * 
  * Coordinates the five-phase pipeline:
  * Detection → Isolation → Antigen Extraction → Mutation Synthesis → Propagation
+ * 
+ * With a {@link SignatureRegistry}, engines across the fleet deduplicate
+ * their work: the exploit (service and feature cluster) is claimed before
+ * isolation and the extracted vulnerability signature before mutation, and
+ * an engine that loses either claim waits for the winner's result instead
+ * of running its own honeypot, GA, mutation and rollout. Claims stay held
+ * (and renewed) while the rollout runs; they are completed only once it
+ * immunized the service and released when it fails, so a peer can retry.
+ * 
+ * Every pipeline is traced ({@link PipelineTrace}) in the trace of the
+ * detection that started it: a span per phase, and below them the honeypot,
+ * registry, Kubernetes, image build and canary calls. The spans back
+ * {@link #getTimeline} and, with OpenTelemetry, are exported. Finished
+ * pipelines stay available for a retention period, and only the most
+ * recent ones are kept.
+ * 
+ * With a {@link LatencyBudget}, every phase is bounded by its own budget and
+ * what is left of the time-to-immunize target, and each pipeline records
+ * whether its rollout finished within the target. Without a deployer the
+ * end of the pipeline counts as immunization; failed pipelines miss the
+ * target, and pipelines that reuse a peer's response are not counted.
+ * 
+ * With a {@link PipelineScheduler}, detected anomalies queue for a bounded
+ * number of pipeline slots, most dangerous first, instead of running on
+ * the detecting thread in arrival order.
  */
 @Service
 public class PolymorphicResponseEngine {
@@ -35,9 +84,26 @@ public class PolymorphicResponseEngine {
     private final GeneticExtractor geneticExtractor;
     private final MutationSynthesizer mutationSynthesizer;
     private final ImmunizationDeployer deployer;
-    private final Optional<KafkaTemplate<String, String>> kafkaTemplate;
+    private final ImmuneBusPublisher immuneBus;
+    private FleetPropagationPlanner fleetPropagationPlanner;
+    
+    private final Map<String, PipelineState> activePipelines = new ConcurrentHashMap<>();
+    private final Queue<PipelineState> finishedPipelines = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger finishedCount = new AtomicInteger();
+    private Duration pipelineRetention = Duration.ofHours(1);
+    private int maxFinishedPipelines = 1000;
+    private Duration traceWaitTimeout = Duration.ofSeconds(30);
+    private volatile boolean busDriven;
+    private SignatureRegistry signatureRegistry;
+    private String instanceId;
+    private Duration registryLease = Duration.ofMinutes(10);
+    private ScheduledExecutorService claimRenewal;
+    private SdiMetrics metrics = SdiMetrics.NOOP;
+    private PipelineTracer tracer = PipelineTracer.IN_MEMORY;
+    private LatencyBudget latencyBudget = LatencyBudget.UNBOUNDED;
+    private volatile PipelineScheduler pipelineScheduler;
     
-    private final Map<String, PipelineState> activePipelines = new HashMap<>();
+    private static final int EXPLOIT_CLUSTER_BITS = 16;
     
     @Autowired(required = false)
     public PolymorphicResponseEngine(
@@ -46,13 +112,13 @@ public class PolymorphicResponseEngine {
             GeneticExtractor geneticExtractor,
             MutationSynthesizer mutationSynthesizer,
             @Nullable ImmunizationDeployer deployer,
-            @Nullable KafkaTemplate<String, String> kafkaTemplate) {
+            @Nullable ImmuneBusPublisher immuneBus) {
         this.detector = detector;
         this.honeypotManager = honeypotManager;
         this.geneticExtractor = geneticExtractor;
         this.mutationSynthesizer = mutationSynthesizer;
         this.deployer = deployer;
-        this.kafkaTemplate = Optional.ofNullable(kafkaTemplate);
+        this.immuneBus = immuneBus;
     }
     
     /**
@@ -60,116 +126,555 @@ public class PolymorphicResponseEngine {
      */
     public void processRequest(RequestVector request) {
         // Phase 1: Detection
-        AnomalyToken token = detector.detect(request);
+        processScreened(detector.screen(request));
+    }
+    
+    /**
+     * Continue the PRE pipeline after a caller already screened the request
+     * (e.g. pre-extracted features from binary ingestion)
+     * 
+     * @param token Result of {@link AnomalyDetector#screen}, or null if nothing was detected
+     */
+    public void processScreened(AnomalyToken token) {
         if (token == null) {
             return; // No anomaly detected
         }
         
-        String pipelineId = "pipeline-" + System.currentTimeMillis();
-        PipelineState state = new PipelineState(pipelineId, request.getServiceId());
+        // Publish to Immune Bus (Kafka)
+        publishAnomalyEvent(token);
+        
+        if (token.isSuspect() || busDriven) {
+            // Suspects only feed fleet aggregation; otherwise a bus consumer runs the response
+            return;
+        }
+        submit(token);
+    }
+    
+    /**
+     * Run phases 2-5 for a detected anomaly through the pipeline scheduler,
+     * or inline without one
+     * 
+     * @return Future completed with the final pipeline state; without a
+     *         scheduler it is already complete and failures are thrown
+     */
+    public CompletableFuture<PipelineState> submit(AnomalyToken token) {
+        PipelineScheduler scheduler = pipelineScheduler;
+        if (scheduler == null) {
+            return CompletableFuture.completedFuture(respondToAnomaly(token));
+        }
+        return scheduler.submit(token);
+    }
+    
+    /**
+     * Run phases 2-5 for a detected anomaly (inline or from the Immune Bus)
+     * 
+     * @return Final pipeline state
+     */
+    public PipelineState respondToAnomaly(AnomalyToken token) {
+        String pipelineId = pipelineIdFor(token);
+        PipelineTrace trace = tracer.start("sdi pipeline", token.getTraceId(), token.getSpanId());
+        trace.getRoot()
+            .setAttribute("sdi.pipeline", pipelineId)
+            .setAttribute("sdi.service", token.getServiceId())
+            .setAttribute("sdi.anomaly.score", token.getAnomalyScore());
+        PipelineState state = new PipelineState(pipelineId, token.getServiceId(), trace);
         activePipelines.put(pipelineId, state);
         
         state.setPhase(PipelinePhase.DETECTION);
         state.setAnomalyToken(token);
         
-        // Publish to Immune Bus (Kafka)
-        publishAnomalyEvent(token);
+        try (PipelineTrace.Scope scope = trace.getRoot().makeCurrent()) {
+            // Only one engine in the fleet responds to the same exploit
+            List<Claim> claims = state.claims;
+            if (signatureRegistry != null && !claimOrAwait(exploitFingerprint(token), state, claims)) {
+                trace.getRoot().end();
+                retire(state);
+                return state;
+            }
+            
+            boolean rolloutPending;
+            try {
+                rolloutPending = runResponse(token, state, claims);
+            } catch (RuntimeException e) {
+                recordTimeToImmunize(state, false);
+                trace.endPhase(e);
+                trace.getRoot().end(e);
+                retire(state);
+                settleClaims(state, null);
+                throw e;
+            } finally {
+                // The rollout does not need the honeypot; a failed phase must not leak it to the TTL reaper
+                if (honeypotManager != null && state.getHoneypotId() != null) {
+                    honeypotManager.destroyHoneypot(state.getHoneypotId());
+                }
+            }
+            if (!rolloutPending) {
+                settleClaims(state, resultOf(state));
+            }
+            trace.getRoot().end();
+        }
+        
+        System.out.println("PRE Pipeline completed: " + pipelineId);
+        return state;
+    }
+    
+    /**
+     * Id the pipeline responding to this anomaly gets; known before it starts
+     */
+    public static String pipelineIdFor(AnomalyToken token) {
+        return "pipeline-" + token.getTraceId();
+    }
+    
+    /**
+     * @return true if a rollout was started; it settles the pipeline and its claims when it finishes
+     */
+    private boolean runResponse(AnomalyToken token, PipelineState state, List<Claim> claims) {
+        boolean rolloutPending = false;
         
         // Phase 2: Isolation (if honeypot is available)
         ExploitTraceBundle etb = null;
+        Duration budget = enterPhase(state, PipelinePhase.ISOLATION);
         if (honeypotManager != null) {
-            state.setPhase(PipelinePhase.ISOLATION);
             String honeypotId = honeypotManager.spawnHoneypot(token);
             state.setHoneypotId(honeypotId);
             
-            // Simulate exploit capture (in production, this happens asynchronously)
-            ExecutionTrace trace = captureExploitTrace(honeypotId, request);
-            honeypotManager.captureTrace(honeypotId, trace);
+            // Wait for the pod watch to report the honeypot ready
+            PipelineTrace.Span ready = PipelineTrace.currentSpan().startChild("honeypot ready")
+                .setAttribute("sdi.honeypot", honeypotId);
+            try {
+                CompletableFuture<?> whenReady = honeypotManager.awaitReady(honeypotId);
+                if (budget != null) {
+                    whenReady = whenReady.copy().orTimeout(budget.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                whenReady.join();
+                ready.end();
+            } catch (CompletionException e) {
+                ready.end(e);
+                System.err.println("Honeypot " + honeypotId + " not ready, continuing: " + 
+                                 (e.getCause() instanceof TimeoutException ? "isolation budget spent"
+                                                                           : e.getCause().getMessage()));
+            }
             
-            etb = honeypotManager.getTraceBundle(honeypotId);
+            etb = awaitStreamedTrace(honeypotId, phaseRemaining(state));
+            if (etb == null) {
+                // Simulate exploit capture when no streamed trace is available
+                ExecutionTrace trace = captureExploitTrace(honeypotId, token.getMetadata());
+                honeypotManager.captureTrace(honeypotId, trace);
+                etb = honeypotManager.getTraceBundle(honeypotId);
+            }
             state.setExploitTraceBundle(etb);
         } else {
             // Simplified trace bundle without honeypot
-            ExecutionTrace trace = captureExploitTrace(null, request);
+            ExecutionTrace trace = captureExploitTrace(null, token.getMetadata());
             etb = new ExploitTraceBundle("no-honeypot", token, trace, System.currentTimeMillis());
             state.setExploitTraceBundle(etb);
         }
+        endPhase(state, PipelinePhase.ISOLATION);
         
         // Phase 3: Antigen Extraction
-        state.setPhase(PipelinePhase.ANTIGEN_EXTRACTION);
-        VulnerabilitySignature vs = geneticExtractor.extract(etb);
+        budget = enterPhase(state, PipelinePhase.ANTIGEN_EXTRACTION);
+        renewClaims(claims);
+        VulnerabilitySignature vs = budget != null ? geneticExtractor.extract(etb, budget)
+                                                   : geneticExtractor.extract(etb);
         state.setVulnerabilitySignature(vs);
+        endPhase(state, PipelinePhase.ANTIGEN_EXTRACTION);
         
-        // Phase 4: Mutation Synthesis
-        state.setPhase(PipelinePhase.MUTATION_SYNTHESIS);
-        String sourceCodePath = getSourceCodePath(request.getServiceId());
-        MutationPatch mp = mutationSynthesizer.synthesize(vs, sourceCodePath);
-        state.setMutationPatch(mp);
-        
-        // Phase 5: Propagation (if deployer is available)
-        if (deployer != null) {
-            state.setPhase(PipelinePhase.PROPAGATION);
-            String deploymentId = deployer.deploy(mp);
-            state.setDeploymentId(deploymentId);
+        // A different exploit of the same vulnerability may already be patched or in progress
+        if (signatureRegistry == null || claimOrAwait("signature:" + vs.fingerprint(), state, claims)) {
+            // Phase 4: Mutation Synthesis
+            budget = enterPhase(state, PipelinePhase.MUTATION_SYNTHESIS);
+            renewClaims(claims);
+            String sourceCodePath = getSourceCodePath(token.getServiceId());
+            MutationPatch mp = budget != null ? mutationSynthesizer.synthesize(vs, sourceCodePath, budget)
+                                              : mutationSynthesizer.synthesize(vs, sourceCodePath);
+            state.setMutationPatch(mp);
+            endPhase(state, PipelinePhase.MUTATION_SYNTHESIS);
+            
+            // Phase 5: Propagation (if deployer is available)
+            // The rollout outlives the phase; the pipeline is immunized when it finishes
+            if (fleetPropagationPlanner != null) {
+                Duration validationBudget = enterPhase(state, PipelinePhase.PROPAGATION);
+                long startNanos = System.nanoTime();
+                holdClaims(state);
+                state.setDeploymentId(fleetPropagationPlanner.propagate(mp, validationBudget,
+                    propagation -> rolloutFinished(state, propagation.getStatus() == PropagationStatus.IMMUNIZED
+                                                              ? propagation.getPropagationId() : null,
+                                                   validationBudget, startNanos)));
+                endPhase(state, PipelinePhase.PROPAGATION);
+                rolloutPending = true;
+            } else if (deployer != null) {
+                Duration validationBudget = enterPhase(state, PipelinePhase.PROPAGATION);
+                long startNanos = System.nanoTime();
+                holdClaims(state);
+                String deploymentId = deployer.deploy(mp, validationBudget,
+                    deployment -> rolloutFinished(state, deployment.getStatus() == DeploymentStatus.IMMUNIZED
+                                                             ? deployment.getDeploymentId() : null,
+                                                  validationBudget, startNanos));
+                state.setDeploymentId(deploymentId);
+                endPhase(state, PipelinePhase.PROPAGATION);
+                rolloutPending = true;
+            }
         }
         
         state.setPhase(PipelinePhase.COMPLETE);
-        
-        // Cleanup honeypot (if used)
-        if (honeypotManager != null && state.getHoneypotId() != null) {
-            honeypotManager.destroyHoneypot(state.getHoneypotId());
+        if (!rolloutPending) {
+            recordTimeToImmunize(state, true);
+            retire(state);
+        }
+        return rolloutPending;
+    }
+    
+    /**
+     * Start the phase span
+     * 
+     * @return Time the phase may take, or null if it is unbounded
+     */
+    private Duration enterPhase(PipelineState state, PipelinePhase phase) {
+        state.setPhase(phase);
+        PipelineTrace.Span span = state.getTrace().startPhase(phase.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        Duration budget = latencyBudget.remaining(phase, state.startNanos);
+        state.phaseBudget = budget;
+        state.phaseStartNanos = System.nanoTime();
+        if (budget != null) {
+            span.setAttribute("sdi.budget-ms", budget.toMillis());
         }
+        return budget;
+    }
+    
+    /**
+     * End the phase span and record its duration and whether it ran out of budget
+     */
+    private void endPhase(PipelineState state, PipelinePhase phase) {
+        // Propagation only starts the rollout; its budget is settled in rolloutFinished
+        if (phase != PipelinePhase.PROPAGATION && budgetExhausted(state.phaseBudget, state.phaseStartNanos)) {
+            PipelineTrace.currentSpan().setAttribute("sdi.budget.exhausted", true);
+            budgetExhausted(state, phase);
+        }
+        PipelineTrace.Span span = state.getTrace().endPhase(null);
+        if (span != null) {
+            metrics.recordPhase(phase, span.getDurationNanos());
+        }
+    }
+    
+    /**
+     * Time left of the running phase's budget, or null if it is unbounded
+     */
+    private static Duration phaseRemaining(PipelineState state) {
+        if (state.phaseBudget == null) {
+            return null;
+        }
+        long left = state.phaseBudget.toNanos() - (System.nanoTime() - state.phaseStartNanos);
+        return Duration.ofNanos(Math.max(0, left));
+    }
+    
+    private static boolean budgetExhausted(Duration budget, long startNanos) {
+        return budget != null && System.nanoTime() - startNanos >= budget.toNanos();
+    }
+    
+    private void budgetExhausted(PipelineState state, PipelinePhase phase) {
+        state.exhaustedBudgets.add(phase);
+        metrics.recordBudgetExhausted(phase);
+    }
+    
+    /**
+     * Settle the propagation budget, the time-to-immunize and the claims of a finished rollout
+     * 
+     * @param result Deployment or propagation id if the rollout immunized the service, null if it failed
+     */
+    private void rolloutFinished(PipelineState state, String result, Duration validationBudget,
+                                 long startNanos) {
+        if (budgetExhausted(validationBudget, startNanos)) {
+            budgetExhausted(state, PipelinePhase.PROPAGATION);
+        }
+        recordTimeToImmunize(state, result != null);
+        retire(state);
+        settleClaims(state, result);
+    }
+    
+    /**
+     * Keep renewing the pipeline's claims until its rollout finishes
+     */
+    private void holdClaims(PipelineState state) {
+        if (signatureRegistry == null || state.claims.isEmpty()) {
+            return;
+        }
+        renewClaims(state.claims);
+        long period = Math.max(1000, registryLease.toMillis() / 3);
+        state.claimRenewal = claimRenewal.scheduleAtFixedRate(() -> renewClaims(state.claims),
+            period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Complete the pipeline's claims with its result, or release them so a
+     * peer can respond again; only the first call has an effect
+     * 
+     * @param result Result to publish, or null if the response failed
+     */
+    private void settleClaims(PipelineState state, String result) {
+        if (signatureRegistry == null || !state.claimsSettled.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledFuture<?> renewal = state.claimRenewal;
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+        for (Claim claim : state.claims) {
+            if (result != null) {
+                signatureRegistry.complete(claim, result);
+            } else {
+                signatureRegistry.release(claim);
+            }
+        }
+    }
+    
+    /**
+     * Keep a finished pipeline for the timeline until it is past retention or
+     * too many newer pipelines finished
+     */
+    private void retire(PipelineState state) {
+        if (!state.retired.compareAndSet(false, true)) {
+            return; // A rollout outliving a failed pipeline finishes it again
+        }
+        state.finishedNanos = System.nanoTime();
+        finishedPipelines.add(state);
+        finishedCount.incrementAndGet();
         
-        System.out.println("PRE Pipeline completed: " + pipelineId);
+        long cutoff = System.nanoTime() - pipelineRetention.toNanos();
+        PipelineState oldest;
+        while ((oldest = finishedPipelines.peek()) != null &&
+               (finishedCount.get() > maxFinishedPipelines || oldest.finishedNanos - cutoff < 0)) {
+            if (finishedPipelines.remove(oldest)) {
+                finishedCount.decrementAndGet();
+                // A redelivered anomaly may have started a new pipeline under the same id
+                activePipelines.remove(oldest.getPipelineId(), oldest);
+            }
+        }
     }
     
     /**
-     * Listen to anomaly events from Kafka (Immune Bus)
-     * Only active if Kafka is enabled and available
+     * Record the time from pipeline start to now against the time-to-immunize target
+     * 
+     * @param immunized False if the pipeline or its rollout failed, which misses the target
      */
-    @org.springframework.kafka.annotation.KafkaListener(
-        topics = "${sdi.kafka.topic:sdi-anomalies}", 
-        groupId = "sdi-pre"
-    )
-    public void handleAnomalyEvent(String eventJson) {
-        // Parse event and trigger pipeline
-        // Simplified for demo
-        System.out.println("Received anomaly event: " + eventJson);
+    private void recordTimeToImmunize(PipelineState state, boolean immunized) {
+        long nanos = System.nanoTime() - state.startNanos;
+        boolean met = immunized && latencyBudget.isMet(nanos);
+        state.timeToImmunizeMillis = nanos / 1_000_000.0;
+        state.sloMet = met;
+        metrics.recordTimeToImmunize(nanos, met);
+        if (!met) {
+            System.err.println("Pipeline " + state.getPipelineId() + " missed its time-to-immunize target (" +
+                             (immunized ? String.format("%.0f ms", state.timeToImmunizeMillis) : "failed") + ")");
+        }
+    }
+    
+    /**
+     * Claim a fingerprint, or wait for the engine holding it to finish
+     * 
+     * @return true if this engine should do the work (the claim is added to claims),
+     *         false if a peer's result was adopted into the state
+     */
+    private boolean claimOrAwait(String fingerprint, PipelineState state, List<Claim> claims) {
+        PipelineTrace.Span span = PipelineTrace.currentSpan().startCall("registry claim")
+            .setAttribute("sdi.fingerprint", fingerprint);
+        try {
+            boolean claimed = claimOrAwait(fingerprint, state, claims, span);
+            span.setAttribute("sdi.claimed", claimed).end();
+            return claimed;
+        } catch (RuntimeException e) {
+            span.end(e);
+            throw e;
+        }
+    }
+    
+    private boolean claimOrAwait(String fingerprint, PipelineState state, List<Claim> claims,
+                                 PipelineTrace.Span span) {
+        while (true) {
+            Claim claim = signatureRegistry.claim(fingerprint, instanceId, registryLease);
+            if (claim.isGranted()) {
+                claims.add(claim);
+                return true;
+            }
+            if (claim.getHolder() == null && !claim.isCompleted()) {
+                System.err.println("Signature registry unavailable for " + fingerprint + ", responding without deduplication");
+                span.setAttribute("sdi.registry.unavailable", true);
+                return true;
+            }
+            span.setAttribute("sdi.claim.holder", claim.getHolder());
+            try {
+                // Wait for the holder's result; if its lease runs out first, try to take over
+                long wait = Math.max(1000, claim.getLeaseUntil() - System.currentTimeMillis());
+                String result = claim.getResult().get(wait, TimeUnit.MILLISECONDS);
+                if (result != null) {
+                    System.out.println("Reusing response of " + claim.getHolder() + " for " + fingerprint + ": " + result);
+                    state.setDeduplicatedBy(claim.getHolder());
+                    state.setDeploymentId(result);
+                    state.setPhase(PipelinePhase.COMPLETE);
+                    return false;
+                }
+            } catch (TimeoutException e) {
+                // Lease expired without a result
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Waiting for " + fingerprint + " failed: " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted waiting for " + fingerprint, e);
+            }
+        }
+    }
+    
+    private void renewClaims(List<Claim> claims) {
+        for (Claim claim : claims) {
+            if (!signatureRegistry.renew(claim, registryLease)) {
+                System.err.println("Lost registry claim on " + claim.getFingerprint() + ", a peer may duplicate this response");
+            }
+        }
+    }
+    
+    private static String exploitFingerprint(AnomalyToken token) {
+        long cluster = FleetAnomalyAggregator.featureCluster(token.getFeatureVector(), EXPLOIT_CLUSTER_BITS);
+        return "exploit:" + token.getServiceId() + ":" + Long.toHexString(cluster);
+    }
+    
+    private static String resultOf(PipelineState state) {
+        if (state.getDeploymentId() != null) {
+            return state.getDeploymentId();
+        }
+        MutationPatch patch = state.getMutationPatch();
+        return patch != null ? "patch:" + patch.getServiceId() + "@" + patch.getCreatedAt() : "complete:" + state.getPipelineId();
     }
     
     /**
      * Publish anomaly event to Immune Bus (if Kafka is available)
      */
     private void publishAnomalyEvent(AnomalyToken token) {
-        if (kafkaTemplate != null) {
-            String eventJson = String.format(
-                "{\"serviceId\":\"%s\",\"timestamp\":%d,\"score\":%.4f}",
-                token.getServiceId(),
-                token.getTimestamp(),
-                token.getAnomalyScore()
-            );
-            kafkaTemplate.ifPresent(template -> 
-                template.send("sdi-anomalies", token.getServiceId(), eventJson)
-            );
-        } else {
+        if (immuneBus != null) {
+            immuneBus.publish(token);
+        } else if (!token.isSuspect()) {
             // Log locally if Kafka not available
             System.out.println("SDI Anomaly detected: " + token.getServiceId() + 
                              " (score: " + token.getAnomalyScore() + ")");
         }
     }
     
+    /**
+     * Wait for the honeypot to stream its first (possibly partial) trace
+     * 
+     * @return Trace bundle, or null if streaming is disabled or nothing arrived in time
+     */
+    private ExploitTraceBundle awaitStreamedTrace(String honeypotId, Duration budget) {
+        if (!honeypotManager.isTraceStreamingEnabled()) {
+            return null;
+        }
+        PipelineTrace.Span span = PipelineTrace.currentSpan().startChild("exploit trace")
+            .setAttribute("sdi.honeypot", honeypotId);
+        try {
+            Duration wait = budget != null && budget.compareTo(traceWaitTimeout) < 0 ? budget : traceWaitTimeout;
+            ExploitTraceBundle bundle = honeypotManager.awaitTrace(honeypotId)
+                .get(wait.toMillis(), TimeUnit.MILLISECONDS);
+            span.end();
+            return bundle;
+        } catch (TimeoutException | ExecutionException e) {
+            span.end(e);
+            System.err.println("No streamed trace from " + honeypotId + ", using simulated capture");
+            return null;
+        } catch (InterruptedException e) {
+            span.end(e);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+    
+    public void setTraceWaitTimeout(Duration traceWaitTimeout) {
+        this.traceWaitTimeout = traceWaitTimeout;
+    }
+    
+    /**
+     * Record the duration of phases 2-5
+     */
+    @Autowired(required = false)
+    public void setMetrics(SdiMetrics metrics) {
+        this.metrics = metrics;
+    }
+    
+    /**
+     * Export pipeline spans (defaults to keeping them in memory for the timeline only)
+     */
+    @Autowired(required = false)
+    public void setTracer(PipelineTracer tracer) {
+        this.tracer = tracer;
+    }
+    
+    /**
+     * Bound every phase and track the time-to-immunize target (defaults to unbounded)
+     */
+    public void setLatencyBudget(LatencyBudget latencyBudget) {
+        this.latencyBudget = latencyBudget;
+    }
+    
+    /**
+     * Bound the finished pipelines kept for {@link #getPipelineState} and the timeline
+     * 
+     * @param retention How long a finished pipeline is kept
+     * @param maxFinished Finished pipelines kept at most; the oldest go first
+     */
+    public void setPipelineRetention(Duration retention, int maxFinished) {
+        this.pipelineRetention = retention;
+        this.maxFinishedPipelines = Math.max(0, maxFinished);
+    }
+    
+    /**
+     * Queue pipelines by priority instead of running them on the detecting thread
+     */
+    public void setPipelineScheduler(PipelineScheduler pipelineScheduler) {
+        this.pipelineScheduler = pipelineScheduler;
+    }
+    
+    /**
+     * Leave phases 2-5 to the Immune Bus consumer instead of running them inline
+     */
+    public void setBusDriven(boolean busDriven) {
+        this.busDriven = busDriven;
+    }
+    
+    /**
+     * Deduplicate responses with the other engines of the fleet
+     * 
+     * @param instanceId Stable id of this engine instance
+     * @param lease Claim lease; renewed at every phase and periodically while a rollout runs
+     */
+    public void setSignatureRegistry(SignatureRegistry signatureRegistry, String instanceId, Duration lease) {
+        this.signatureRegistry = signatureRegistry;
+        this.instanceId = instanceId;
+        this.registryLease = lease;
+        if (claimRenewal == null) {
+            claimRenewal = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sdi-claim-renewal");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * Propagate patches to every deployment of the service instead of the local one
+     */
+    public void setFleetPropagationPlanner(FleetPropagationPlanner fleetPropagationPlanner) {
+        this.fleetPropagationPlanner = fleetPropagationPlanner;
+    }
+    
     /**
      * Capture exploit trace (simplified)
      */
-    private ExecutionTrace captureExploitTrace(String honeypotId, RequestVector request) {
+    private ExecutionTrace captureExploitTrace(String honeypotId, Map<String, String> metadata) {
         ExecutionTrace trace = new ExecutionTrace();
-        if (request.getMetadata() != null) {
-            trace.setPayload(request.getMetadata().getOrDefault("payload", ""));
+        if (metadata != null) {
+            trace.setPayload(metadata.getOrDefault("payload", ""));
         }
-        trace.getControlFlowPath().add("entry");
-        trace.getControlFlowPath().add("vulnerable_method");
-        trace.getControlFlowPath().add("exploit_execution");
-        trace.getTaintedVariables().add("userInput");
+        trace.appendControlFlow("entry");
+        trace.appendControlFlow("vulnerable_method");
+        trace.appendControlFlow("exploit_execution");
+        trace.addTaintedVariable("userInput");
         return trace;
     }
     
@@ -188,6 +693,20 @@ public class PolymorphicResponseEngine {
         return activePipelines.get(pipelineId);
     }
     
+    /**
+     * Spans of a pipeline so far, or null if the pipeline is unknown
+     */
+    public Timeline getTimeline(String pipelineId) {
+        PipelineState state = activePipelines.get(pipelineId);
+        if (state == null || state.getTrace() == null) {
+            return null;
+        }
+        PipelineTrace trace = state.getTrace();
+        return new Timeline(pipelineId, state.getServiceId(), state.getPhase(), trace.getTraceId(),
+                            trace.getStartedAt(), trace.getRoot().getDurationMillis(),
+                            state.getTimeToImmunizeMillis(), state.getSloMet(), trace.getSpans());
+    }
+    
     // Inner classes
     public static class PipelineState {
         private String pipelineId;
@@ -199,11 +718,29 @@ public class PolymorphicResponseEngine {
         private VulnerabilitySignature vulnerabilitySignature;
         private MutationPatch mutationPatch;
         private String deploymentId;
+        private String deduplicatedBy;
+        private PipelineTrace trace;
+        private final long startNanos = System.nanoTime();
+        private final List<PipelinePhase> exhaustedBudgets = new CopyOnWriteArrayList<>();
+        private volatile Double timeToImmunizeMillis;
+        private volatile Boolean sloMet;
+        private Duration phaseBudget;
+        private long phaseStartNanos;
+        private final AtomicBoolean retired = new AtomicBoolean();
+        private volatile long finishedNanos;
+        private final List<Claim> claims = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean claimsSettled = new AtomicBoolean();
+        private volatile ScheduledFuture<?> claimRenewal;
         
         public PipelineState(String pipelineId, String serviceId) {
+            this(pipelineId, serviceId, PipelineTracer.IN_MEMORY.start("sdi pipeline", null, null));
+        }
+        
+        public PipelineState(String pipelineId, String serviceId, PipelineTrace trace) {
             this.pipelineId = pipelineId;
             this.serviceId = serviceId;
             this.phase = PipelinePhase.INITIALIZED;
+            this.trace = trace;
         }
         
         // Getters and setters
@@ -227,6 +764,60 @@ public class PolymorphicResponseEngine {
         public void setMutationPatch(MutationPatch mutationPatch) { this.mutationPatch = mutationPatch; }
         public String getDeploymentId() { return deploymentId; }
         public void setDeploymentId(String deploymentId) { this.deploymentId = deploymentId; }
+        /** Engine whose response was reused instead of running this pipeline's own, if any */
+        public String getDeduplicatedBy() { return deduplicatedBy; }
+        public void setDeduplicatedBy(String deduplicatedBy) { this.deduplicatedBy = deduplicatedBy; }
+        /** Phases that used up their latency budget */
+        public List<PipelinePhase> getExhaustedBudgets() { return exhaustedBudgets; }
+        /** From pipeline start to the end of the rollout; null until then */
+        public Double getTimeToImmunizeMillis() { return timeToImmunizeMillis; }
+        /** Whether the time-to-immunize target was met; null until the rollout ends */
+        public Boolean getSloMet() { return sloMet; }
+        @JsonIgnore
+        public PipelineTrace getTrace() { return trace; }
+    }
+    
+    /**
+     * Pipeline spans in start order, as served by the timeline endpoint
+     */
+    public static class Timeline {
+        private final String pipelineId;
+        private final String serviceId;
+        private final PipelinePhase phase;
+        private final String traceId;
+        private final long startedAt;
+        private final Double durationMillis;
+        private final Double timeToImmunizeMillis;
+        private final Boolean sloMet;
+        private final List<PipelineTrace.Span> spans;
+        
+        public Timeline(String pipelineId, String serviceId, PipelinePhase phase, String traceId,
+                        long startedAt, Double durationMillis, Double timeToImmunizeMillis, Boolean sloMet,
+                        List<PipelineTrace.Span> spans) {
+            this.pipelineId = pipelineId;
+            this.serviceId = serviceId;
+            this.phase = phase;
+            this.traceId = traceId;
+            this.startedAt = startedAt;
+            this.durationMillis = durationMillis;
+            this.timeToImmunizeMillis = timeToImmunizeMillis;
+            this.sloMet = sloMet;
+            this.spans = spans;
+        }
+        
+        public String getPipelineId() { return pipelineId; }
+        public String getServiceId() { return serviceId; }
+        public PipelinePhase getPhase() { return phase; }
+        public String getTraceId() { return traceId; }
+        /** Epoch milliseconds */
+        public long getStartedAt() { return startedAt; }
+        /** Null while the pipeline is running */
+        public Double getDurationMillis() { return durationMillis; }
+        /** Null until the rollout ends */
+        public Double getTimeToImmunizeMillis() { return timeToImmunizeMillis; }
+        /** Null until the rollout ends */
+        public Boolean getSloMet() { return sloMet; }
+        public List<PipelineTrace.Span> getSpans() { return spans; }
     }
     
     public enum PipelinePhase {
@@ -0,0 +1,68 @@
+package com.sdi.registry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Signature registry for a single process (tests and single-instance setups)
+ */
+public class InMemorySignatureRegistry implements SignatureRegistry {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, RegistryEntry> entries = new HashMap<>();
+    private final LongSupplier clock;
+    private long sequence;
+
+    public InMemorySignatureRegistry() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock Epoch millis used for leases
+     */
+    public InMemorySignatureRegistry(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public Claim claim(String fingerprint, String owner, Duration lease) {
+        lock.lock();
+        try {
+            RegistryEntry entry = entries.computeIfAbsent(fingerprint, key -> new RegistryEntry());
+            long epoch = ++sequence;
+            entry.apply(RegistryEntry.Operation.CLAIM, owner, epoch, lease.toMillis(), null, clock.getAsLong());
+            return entry.toClaim(fingerprint, owner, epoch);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean renew(Claim claim, Duration lease) {
+        return apply(claim, RegistryEntry.Operation.RENEW, lease.toMillis(), null);
+    }
+
+    @Override
+    public void complete(Claim claim, String result) {
+        apply(claim, RegistryEntry.Operation.COMPLETE, 0, result);
+    }
+
+    @Override
+    public void release(Claim claim) {
+        apply(claim, RegistryEntry.Operation.RELEASE, 0, null);
+    }
+
+    private boolean apply(Claim claim, RegistryEntry.Operation operation, long leaseMillis, String result) {
+        lock.lock();
+        try {
+            RegistryEntry entry = entries.computeIfAbsent(claim.getFingerprint(), key -> new RegistryEntry());
+            entry.apply(operation, claim.getOwner(), claim.getEpoch(), leaseMillis, result, clock.getAsLong());
+            return entry.isHeldBy(claim.getOwner(), claim.getEpoch());
+        } finally {
+            lock.unlock();
+        }
+    }
+}
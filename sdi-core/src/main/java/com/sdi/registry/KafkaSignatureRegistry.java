@@ -0,0 +1,354 @@
+package com.sdi.registry;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Signature registry replicated through a compacted Kafka topic
+ *
+ * Operations are records keyed by fingerprint, so all operations on one
+ * fingerprint share a partition and have a total order. Every instance
+ * reads all partitions from the beginning and applies the records to its
+ * own {@link RegistryEntry} replicas, using the record offset as the claim
+ * epoch and the record timestamp as the lease clock; all instances
+ * therefore agree on the holder. An operation returns once the instance
+ * has read its own record back, at which point the outcome is decided.
+ * Compaction keeps the latest operation per fingerprint, which is enough:
+ * a completion is final (a late claim that lands after one restates it),
+ * a release or an expired claim leaves the fingerprint free either way,
+ * and renewals carry their claim's epoch.
+ */
+public class KafkaSignatureRegistry implements SignatureRegistry {
+
+    private static final byte MAGIC = 0x5F;
+    private static final byte VERSION = 1;
+    private static final RegistryEntry.Operation[] OPERATIONS = RegistryEntry.Operation.values();
+
+    private final KafkaTemplate<String, byte[]> template;
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final String topic;
+    private final Duration initialLoadTimeout;
+    private final Duration operationTimeout;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, RegistryEntry> entries = new HashMap<>();
+    private final Map<Integer, Long> applied = new HashMap<>();
+    private final List<PendingOffset> pending = new ArrayList<>();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile boolean running;
+    private volatile Consumer<String, byte[]> consumer;
+    private Thread poller;
+
+    /**
+     * @param template Template over a String/byte[] producer
+     * @param consumerFactory Factory for String/byte[] consumers (see {@link #consumerConfig})
+     * @param topic Compacted registry topic (see {@link #newTopic})
+     * @param initialLoadTimeout How long {@link #start()} waits to replay the topic
+     * @param operationTimeout How long an operation waits to read its own record back
+     */
+    public KafkaSignatureRegistry(KafkaTemplate<String, byte[]> template, ConsumerFactory<String, byte[]> consumerFactory,
+                                  String topic, Duration initialLoadTimeout, Duration operationTimeout) {
+        this.template = template;
+        this.consumerFactory = consumerFactory;
+        this.topic = topic;
+        this.initialLoadTimeout = initialLoadTimeout;
+        this.operationTimeout = operationTimeout;
+    }
+
+    /**
+     * Definition of the registry topic, created on startup by Spring's KafkaAdmin
+     */
+    public static NewTopic newTopic(String name, int partitions) {
+        return TopicBuilder.name(name).partitions(Math.max(1, partitions)).compact().build();
+    }
+
+    /**
+     * Consumer settings on top of the application's Kafka settings; no group
+     * is used, as every instance reads the whole topic
+     */
+    public static Map<String, Object> consumerConfig(Map<String, Object> base) {
+        Map<String, Object> config = new HashMap<>(base);
+        config.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class);
+        config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return config;
+    }
+
+    /**
+     * Start following the topic; blocks until the existing records are applied
+     */
+    public void start() {
+        running = true;
+        poller = new Thread(this::poll, "sdi-signature-registry");
+        poller.setDaemon(true);
+        poller.start();
+        try {
+            if (!loaded.await(initialLoadTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                System.err.println("Signature registry not replayed within " + initialLoadTimeout +
+                                 "; claims may briefly duplicate work");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public Claim claim(String fingerprint, String owner, Duration lease) {
+        lock.lock();
+        try {
+            RegistryEntry entry = entries.get(fingerprint);
+            if (entry != null && entry.isCompleted()) {
+                return entry.toClaim(fingerprint, owner, -1);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        long epoch = write(fingerprint, RegistryEntry.Operation.CLAIM, owner, -1, lease.toMillis(), null);
+        Claim claim;
+        RegistryEntry completed = null;
+        lock.lock();
+        try {
+            RegistryEntry entry = entries.computeIfAbsent(fingerprint, key -> new RegistryEntry());
+            claim = entry.toClaim(fingerprint, owner, epoch);
+            if (epoch >= 0 && entry.isCompleted()) {
+                completed = entry;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (completed != null) {
+            // Our claim is now the latest record; restate the result so compaction keeps it
+            send(fingerprint, RegistryEntry.Operation.COMPLETE, completed.getHolder(), completed.getEpoch(), 0,
+                 completed.getResult());
+        }
+        return claim;
+    }
+
+    @Override
+    public boolean renew(Claim claim, Duration lease) {
+        write(claim.getFingerprint(), RegistryEntry.Operation.RENEW, claim.getOwner(), claim.getEpoch(),
+              lease.toMillis(), null);
+        lock.lock();
+        try {
+            RegistryEntry entry = entries.get(claim.getFingerprint());
+            return entry != null && entry.isHeldBy(claim.getOwner(), claim.getEpoch());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void complete(Claim claim, String result) {
+        write(claim.getFingerprint(), RegistryEntry.Operation.COMPLETE, claim.getOwner(), claim.getEpoch(), 0, result);
+    }
+
+    @Override
+    public void release(Claim claim) {
+        write(claim.getFingerprint(), RegistryEntry.Operation.RELEASE, claim.getOwner(), claim.getEpoch(), 0, null);
+    }
+
+    /**
+     * Apply one record of the registry topic
+     */
+    public void apply(ConsumerRecord<String, byte[]> record) {
+        lock.lock();
+        try {
+            if (record.key() != null && record.value() != null) {
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(record.value());
+                    if (buffer.get() != MAGIC || buffer.get() > VERSION) {
+                        throw new IllegalArgumentException("unknown format");
+                    }
+                    RegistryEntry.Operation operation = OPERATIONS[buffer.get()];
+                    long epoch = getVarLong(buffer) - 1;
+                    long leaseMillis = getVarLong(buffer);
+                    String owner = getString(buffer);
+                    String result = getString(buffer);
+                    entries.computeIfAbsent(record.key(), key -> new RegistryEntry()).apply(
+                        operation, owner,
+                        operation == RegistryEntry.Operation.CLAIM ? record.offset() : epoch,
+                        leaseMillis, result.isEmpty() ? null : result, record.timestamp());
+                } catch (IllegalArgumentException | BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+                    System.err.println("Skipping malformed registry record at " + record.topic() + "-" +
+                                     record.partition() + "@" + record.offset());
+                }
+            }
+            applied.merge(record.partition(), record.offset(), Math::max);
+            for (Iterator<PendingOffset> it = pending.iterator(); it.hasNext(); ) {
+                PendingOffset waiter = it.next();
+                if (applied.getOrDefault(waiter.partition, -1L) >= waiter.offset) {
+                    waiter.done.complete(null);
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Send an operation and wait until it has been read back
+     *
+     * @return Offset of the record, or -1 if it could not be confirmed in time
+     */
+    private long write(String fingerprint, RegistryEntry.Operation operation, String owner, long epoch,
+                       long leaseMillis, String result) {
+        try {
+            SendResult<String, byte[]> sent = send(fingerprint, operation, owner, epoch, leaseMillis, result)
+                .get(operationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            int partition = sent.getRecordMetadata().partition();
+            long offset = sent.getRecordMetadata().offset();
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            lock.lock();
+            try {
+                if (applied.getOrDefault(partition, -1L) >= offset) {
+                    return offset;
+                }
+                pending.add(new PendingOffset(partition, offset, done));
+            } finally {
+                lock.unlock();
+            }
+            done.get(operationTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return offset;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Signature registry " + operation + " for " + fingerprint + " not confirmed: " +
+                             e.getMessage());
+        }
+        return -1;
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> send(String fingerprint, RegistryEntry.Operation operation,
+                                                               String owner, long epoch, long leaseMillis,
+                                                               String result) {
+        byte[] ownerBytes = owner.getBytes(StandardCharsets.UTF_8);
+        byte[] resultBytes = (result != null ? result : "").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(3 + 10 + 10 + 5 + ownerBytes.length + 5 + resultBytes.length);
+        buffer.put(MAGIC);
+        buffer.put(VERSION);
+        buffer.put((byte) operation.ordinal());
+        putVarLong(buffer, epoch + 1);
+        putVarLong(buffer, leaseMillis);
+        putVarLong(buffer, ownerBytes.length);
+        buffer.put(ownerBytes);
+        putVarLong(buffer, resultBytes.length);
+        buffer.put(resultBytes);
+        byte[] value = new byte[buffer.position()];
+        buffer.flip().get(value);
+        return template.send(topic, fingerprint, value);
+    }
+
+    private void poll() {
+        try (Consumer<String, byte[]> kafka = consumerFactory.createConsumer()) {
+            consumer = kafka;
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (PartitionInfo info : kafka.partitionsFor(topic)) {
+                partitions.add(new TopicPartition(topic, info.partition()));
+            }
+            kafka.assign(partitions);
+            kafka.seekToBeginning(partitions);
+            Map<TopicPartition, Long> end = kafka.endOffsets(partitions);
+            while (running) {
+                if (end != null && end.entrySet().stream().allMatch(e -> kafka.position(e.getKey()) >= e.getValue())) {
+                    loaded.countDown();
+                    end = null;
+                }
+                for (ConsumerRecord<String, byte[]> record : kafka.poll(Duration.ofMillis(200))) {
+                    apply(record);
+                }
+            }
+        } catch (WakeupException e) {
+            // Closing
+        } catch (Exception e) {
+            System.err.println("Signature registry stopped following " + topic + ": " + e.getMessage());
+        } finally {
+            consumer = null;
+            loaded.countDown();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Consumer<String, byte[]> kafka = consumer;
+        if (kafka != null) {
+            kafka.wakeup();
+        }
+        if (poller != null) {
+            try {
+                poller.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        long length = getVarLong(buffer);
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length out of range");
+        }
+        String value = new String(buffer.array(), buffer.position(), (int) length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + (int) length);
+        return value;
+    }
+
+    private static final class PendingOffset {
+        private final int partition;
+        private final long offset;
+        private final CompletableFuture<Void> done;
+
+        PendingOffset(int partition, long offset, CompletableFuture<Void> done) {
+            this.partition = partition;
+            this.offset = offset;
+            this.done = done;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.sdi.registry;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Lease state of one fingerprint, driven by an ordered stream of operations
+ *
+ * Every registry replica applies the same operations in the same order with
+ * the same timestamps, so all replicas agree on the holder without talking
+ * to each other. Claims are identified by an epoch (the position of the
+ * claim operation in the stream). A renewal names its epoch, so even when
+ * the claim itself has been compacted away, a renewal of an earlier epoch
+ * that this replica never saw superseded wins over a later competing
+ * claim. Not thread-safe; callers synchronize.
+ */
+final class RegistryEntry {
+
+    enum Operation { CLAIM, RENEW, COMPLETE, RELEASE }
+
+    private String holder;
+    private long epoch = -1;
+    private long superseded = -1; // Latest epoch known to have expired, been released or replaced
+    private long leaseUntil;
+    private String result;
+    private CompletableFuture<String> outcome = new CompletableFuture<>();
+
+    /**
+     * @param epoch The claim's epoch; for {@link Operation#CLAIM} its own position in the stream
+     * @param timestamp Time of the operation (the same on every replica)
+     */
+    void apply(Operation operation, String owner, long epoch, long leaseMillis, String result, long timestamp) {
+        if (this.result != null) {
+            return; // Completed is final
+        }
+        switch (operation) {
+            case CLAIM -> {
+                if (!isHeld(timestamp)) {
+                    grant(owner, epoch, timestamp + leaseMillis);
+                }
+            }
+            case RENEW -> {
+                if (epoch <= superseded) {
+                    return; // Stale holder
+                }
+                if (this.epoch == epoch && owner.equals(holder)) {
+                    leaseUntil = Math.max(leaseUntil, timestamp + leaseMillis);
+                } else if (!isHeld(timestamp) || epoch < this.epoch) {
+                    grant(owner, epoch, timestamp + leaseMillis);
+                }
+            }
+            case COMPLETE -> {
+                this.result = result;
+                this.holder = owner;
+                this.epoch = epoch;
+                outcome.complete(result);
+            }
+            case RELEASE -> {
+                if (this.epoch == epoch && owner.equals(holder)) {
+                    holder = null;
+                    leaseUntil = 0;
+                    superseded = Math.max(superseded, epoch);
+                    replaceOutcome();
+                }
+            }
+        }
+    }
+
+    boolean isHeld(long now) {
+        return result == null && holder != null && now < leaseUntil;
+    }
+
+    boolean isHeldBy(String owner, long epoch) {
+        return result == null && owner.equals(holder) && this.epoch == epoch;
+    }
+
+    boolean isCompleted() {
+        return result != null;
+    }
+
+    String getHolder() { return holder; }
+    long getEpoch() { return epoch; }
+    long getLeaseUntil() { return leaseUntil; }
+    String getResult() { return result; }
+    CompletableFuture<String> getOutcome() { return outcome; }
+
+    SignatureRegistry.Claim toClaim(String fingerprint, String owner, long claimEpoch) {
+        return new SignatureRegistry.Claim(fingerprint, owner, claimEpoch, isHeldBy(owner, claimEpoch), holder,
+            leaseUntil, outcome);
+    }
+
+    private void grant(String owner, long epoch, long leaseUntil) {
+        if (holder != null) {
+            superseded = Math.max(superseded, this.epoch);
+            replaceOutcome(); // Waiters on the previous holder re-check
+        }
+        this.holder = owner;
+        this.epoch = epoch;
+        this.leaseUntil = leaseUntil;
+    }
+
+    private void replaceOutcome() {
+        CompletableFuture<String> previous = outcome;
+        outcome = new CompletableFuture<>();
+        previous.complete(null);
+    }
+}
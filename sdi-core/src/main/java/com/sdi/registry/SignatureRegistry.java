@@ -0,0 +1,93 @@
+package com.sdi.registry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Fleet-wide registry of exploit and vulnerability fingerprints
+ *
+ * When one exploit hits many replicas, only the engine that claims its
+ * fingerprint first runs the response; the others wait for the claim's
+ * result and reuse it. A claim is a lease: the holder renews it while it
+ * works and completes it with its result, or releases it on failure. A
+ * holder that dies simply stops renewing, and once the lease has expired
+ * the next claim on the fingerprint wins. Completed fingerprints stay
+ * completed, so later hits reuse the result without any new work.
+ */
+public interface SignatureRegistry extends AutoCloseable {
+
+    /**
+     * Try to claim a fingerprint
+     *
+     * @param owner Stable id of the claiming engine instance
+     * @param lease How long the claim lasts without a renewal
+     * @return The claim, granted or not; a claim that was not granted carries the current holder's result
+     */
+    Claim claim(String fingerprint, String owner, Duration lease);
+
+    /**
+     * Extend a granted claim
+     *
+     * @return false if the claim has been lost (e.g. its lease had expired and another engine took over)
+     */
+    boolean renew(Claim claim, Duration lease);
+
+    /**
+     * Publish the result of a granted claim; waiters receive it and the fingerprint stays completed
+     */
+    void complete(Claim claim, String result);
+
+    /**
+     * Give up a granted claim without a result, so another engine can claim it
+     */
+    void release(Claim claim);
+
+    @Override
+    default void close() {
+    }
+
+    /**
+     * Outcome of a claim attempt
+     */
+    final class Claim {
+        private final String fingerprint;
+        private final String owner;
+        private final long epoch;
+        private final boolean granted;
+        private final String holder;
+        private final long leaseUntil;
+        private final CompletableFuture<String> result;
+
+        /**
+         * @param epoch Registry-assigned id of the claim, distinguishing repeated claims by one owner
+         * @param holder Owner holding the fingerprint after this attempt (null if completed without a holder)
+         * @param leaseUntil Epoch millis the holder's lease ends
+         * @param result Completes with the holder's result, or with null if the holder gave up or was replaced
+         */
+        public Claim(String fingerprint, String owner, long epoch, boolean granted, String holder, long leaseUntil,
+                     CompletableFuture<String> result) {
+            this.fingerprint = fingerprint;
+            this.owner = owner;
+            this.epoch = epoch;
+            this.granted = granted;
+            this.holder = holder;
+            this.leaseUntil = leaseUntil;
+            this.result = result;
+        }
+
+        public String getFingerprint() { return fingerprint; }
+        public String getOwner() { return owner; }
+        public long getEpoch() { return epoch; }
+        public boolean isGranted() { return granted; }
+        public String getHolder() { return holder; }
+        public long getLeaseUntil() { return leaseUntil; }
+        public CompletableFuture<String> getResult() { return result; }
+
+        /**
+         * Whether the fingerprint was already completed (the result is available now)
+         */
+        public boolean isCompleted() {
+            return result.isDone() && !result.isCompletedExceptionally() && result.getNow(null) != null;
+        }
+    }
+}
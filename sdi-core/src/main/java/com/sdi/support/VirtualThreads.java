@@ -0,0 +1,83 @@
+package com.sdi.support;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for SDI's blocking work, on virtual threads where the JVM has them
+ *
+ * SDI is built for Java 17, so the Java 21 API is looked up reflectively.
+ * On an older JVM every executor falls back to a fixed pool of daemon
+ * platform threads. Code running on these executors must not block while
+ * holding a monitor (synchronized), since that pins the carrier thread;
+ * SDI uses {@link java.util.concurrent.locks.ReentrantLock} on blocking paths.
+ */
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final Method THREAD_PER_TASK;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        Method threadPerTask = null;
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            threadPerTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null; // Before Java 21
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        THREAD_PER_TASK = threadPerTask;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Whether this JVM supports virtual threads
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Executor for blocking tasks
+     *
+     * @param virtual Start a new virtual thread per task (if supported)
+     * @param platformThreads Pool size when running on platform threads
+     * @param name Thread name prefix
+     */
+    public static ExecutorService newExecutor(boolean virtual, int platformThreads, String name) {
+        if (virtual && isSupported()) {
+            return newThreadPerTaskExecutor(name);
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(String name) {
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", 1L);
+            ThreadFactory factory = (ThreadFactory) FACTORY.invoke(builder);
+            return (ExecutorService) THREAD_PER_TASK.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Failed to create virtual thread executor: " + e.getMessage(), e);
+        }
+    }
+}
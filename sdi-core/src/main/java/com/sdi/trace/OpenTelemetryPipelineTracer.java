@@ -0,0 +1,97 @@
+package com.sdi.trace;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PipelineTracer} that exports every span through OpenTelemetry
+ *
+ * Spans are started in OpenTelemetry when they start in the pipeline, with
+ * the same start time, so the exporter sees the hierarchy the timeline
+ * shows. The root joins the trace of the detection that triggered the
+ * pipeline: it is started under a remote parent built from the token's
+ * trace and span ids. The ids OpenTelemetry assigns to the exported spans
+ * below the root are its own; the trace id is shared.
+ */
+public class OpenTelemetryPipelineTracer extends PipelineTracer {
+
+    private static final String INSTRUMENTATION = "com.sdi.pre";
+
+    private final Tracer tracer;
+
+    public OpenTelemetryPipelineTracer(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION);
+    }
+
+    @Override
+    public PipelineTrace start(String rootName, String traceId, String parentSpanId) {
+        // The exported root can only join the detection's trace if its ids are valid W3C ids
+        if (traceId == null || !isValid(traceId, parentSpanId)) {
+            return super.start(rootName, null, null);
+        }
+        return super.start(rootName, traceId, parentSpanId);
+    }
+
+    @Override
+    protected void spanStarted(PipelineTrace.Span span) {
+        SpanBuilder builder = tracer.spanBuilder(span.getName())
+            .setSpanKind(span.isCall() ? SpanKind.CLIENT : SpanKind.INTERNAL)
+            .setStartTimestamp(span.getStartEpochNanos(), TimeUnit.NANOSECONDS);
+        PipelineTrace.Span parent = span.getParent();
+        if (parent != null && parent.exported instanceof Span exportedParent) {
+            builder.setParent(Context.root().with(exportedParent));
+        } else if (span.getParentSpanId() != null) {
+            SpanContext remote = SpanContext.createFromRemoteParent(span.getTraceId(), span.getParentSpanId(),
+                                                                    TraceFlags.getSampled(), TraceState.getDefault());
+            builder.setParent(Context.root().with(Span.wrap(remote)));
+        } else {
+            builder.setNoParent();
+        }
+        span.exported = builder.startSpan();
+    }
+
+    @Override
+    protected void spanEnded(PipelineTrace.Span span) {
+        if (!(span.exported instanceof Span exported)) {
+            return;
+        }
+        Map<String, Object> attributes = span.getAttributes();
+        if (!attributes.isEmpty()) {
+            AttributesBuilder builder = Attributes.builder();
+            attributes.forEach((key, value) -> {
+                if (value instanceof Long || value instanceof Integer) {
+                    builder.put(key, ((Number) value).longValue());
+                } else if (value instanceof Number number) {
+                    builder.put(key, number.doubleValue());
+                } else if (value instanceof Boolean flag) {
+                    builder.put(key, flag);
+                } else {
+                    builder.put(key, String.valueOf(value));
+                }
+            });
+            exported.setAllAttributes(builder.build());
+        }
+        if (span.getError() != null) {
+            exported.setStatus(StatusCode.ERROR, span.getError());
+        }
+        exported.end(span.getEndEpochNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static boolean isValid(String traceId, String spanId) {
+        return SpanContext.createFromRemoteParent(traceId, spanId != null ? spanId : "0000000000000001",
+                                                  TraceFlags.getSampled(), TraceState.getDefault()).isValid();
+    }
+}
@@ -0,0 +1,309 @@
+package com.sdi.trace;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spans of one PRE pipeline run
+ *
+ * The pipeline opens a root span, one span per phase and one per external
+ * call (Kubernetes operations, image builds, metric queries, registry
+ * claims). Components that make external calls are not handed the trace;
+ * they start their span under {@link #currentSpan()}, the span active on
+ * the calling thread, and return a future that completes inside the
+ * caller's span ({@link Span#endWhenDone}). Work chained on that future
+ * (the next rollout step, the canary poll) therefore lands in the same
+ * trace although it runs on another thread. Without an active span every
+ * call is a no-op on {@link Span#NOOP}.
+ *
+ * The trace id and the root's parent come from the anomaly token, so the
+ * trace continues the detection the pipeline responds to. The recorded
+ * spans back the timeline endpoint, and a {@link PipelineTracer} may mirror
+ * them to a tracing backend.
+ */
+public final class PipelineTrace {
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final PipelineTracer tracer;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final List<Span> spans = new CopyOnWriteArrayList<>();
+    private final Span root;
+    private volatile Span phase;
+
+    PipelineTrace(PipelineTracer tracer, String traceId, String parentSpanId, String rootName) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.startEpochNanos = System.currentTimeMillis() * 1_000_000L;
+        this.startNanos = System.nanoTime();
+        this.root = new Span(this, null, parentSpanId, rootName, false);
+        spans.add(root);
+        tracer.spanStarted(root);
+    }
+
+    /**
+     * Span active on this thread, or {@link Span#NOOP}
+     */
+    public static Span currentSpan() {
+        Span span = CURRENT.get();
+        return span != null ? span : Span.NOOP;
+    }
+
+    /**
+     * 32 hex digits, as used by W3C trace context
+     */
+    public static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high;
+        long low;
+        do {
+            high = random.nextLong();
+            low = random.nextLong();
+        } while (high == 0 && low == 0);
+        return hex(high) + hex(low);
+    }
+
+    /**
+     * 16 hex digits, as used by W3C trace context
+     */
+    public static String newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return hex(id);
+    }
+
+    /**
+     * Start a phase span under the root, ending the running phase, and make it current on this thread
+     */
+    public Span startPhase(String name) {
+        endPhase(null);
+        Span started = root.startChild(name);
+        phase = started;
+        CURRENT.set(started);
+        return started;
+    }
+
+    /**
+     * End the running phase, if any, and make the root current again
+     *
+     * @param error Failure that ended the phase, or null
+     * @return The ended phase span, or null if no phase was running
+     */
+    public Span endPhase(Throwable error) {
+        Span ended = phase;
+        if (ended == null) {
+            return null;
+        }
+        phase = null;
+        ended.end(error);
+        if (CURRENT.get() == ended) {
+            CURRENT.set(root);
+        }
+        return ended;
+    }
+
+    public String getTraceId() { return traceId; }
+    public Span getRoot() { return root; }
+    /** Epoch milliseconds at which the root span started */
+    public long getStartedAt() { return startEpochNanos / 1_000_000L; }
+    /** All spans in start order, including ones still running */
+    public List<Span> getSpans() { return new ArrayList<>(spans); }
+
+    long toEpochNanos(long nanoTime) {
+        return startEpochNanos + (nanoTime - startNanos);
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0000000000000000".substring(digits.length()) + digits;
+    }
+
+    /**
+     * Restores the previously active span when closed
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @JsonPropertyOrder({"spanId", "parentSpanId", "name", "call", "startOffsetMillis", "durationMillis", "status",
+                        "error", "attributes"})
+    public static final class Span {
+
+        /** Span of work outside any pipeline; records nothing */
+        public static final Span NOOP = new Span(null, null, null, "noop", false);
+
+        private static final Scope NOOP_SCOPE = () -> { };
+
+        private final PipelineTrace trace;
+        private final Span parent;
+        private final String spanId;
+        private final String parentSpanId;
+        private final String name;
+        private final boolean call;
+        private final long startNanos;
+        private final AtomicLong endNanos = new AtomicLong(-1L);
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private volatile String error;
+        volatile Object exported; // Backend span mirrored by the tracer
+
+        private Span(PipelineTrace trace, Span parent, String parentSpanId, String name, boolean call) {
+            this.trace = trace;
+            this.parent = parent;
+            this.spanId = trace != null ? newSpanId() : null;
+            this.parentSpanId = parentSpanId;
+            this.name = name;
+            this.call = call;
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * Start a span for work done inside this one
+         */
+        public Span startChild(String name) {
+            return start(name, false);
+        }
+
+        /**
+         * Start a span for a call to an external system (Kubernetes, registry, Prometheus, ...)
+         */
+        public Span startCall(String name) {
+            return start(name, true);
+        }
+
+        public Span setAttribute(String key, Object value) {
+            if (trace != null && value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        /**
+         * Make this span current on the calling thread until the scope is closed
+         */
+        public Scope makeCurrent() {
+            if (trace == null) {
+                return NOOP_SCOPE;
+            }
+            Span previous = CURRENT.get();
+            CURRENT.set(this);
+            return () -> {
+                if (previous != null) {
+                    CURRENT.set(previous);
+                } else {
+                    CURRENT.remove();
+                }
+            };
+        }
+
+        public void end() {
+            end(null);
+        }
+
+        /**
+         * End the span; only the first call counts
+         *
+         * @param error Failure the span ended with, or null
+         */
+        public void end(Throwable error) {
+            if (trace == null || !endNanos.compareAndSet(-1L, System.nanoTime())) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error.getCause() != null && error instanceof java.util.concurrent.CompletionException
+                    ? error.getCause() : error;
+                this.error = cause.getClass().getSimpleName() + ": " + cause.getMessage();
+            }
+            trace.tracer.spanEnded(this);
+        }
+
+        /**
+         * End this span when the future completes
+         *
+         * @return Future completed after the span ends, with the parent span
+         *         current, so stages chained on it stay in the trace; cancelling
+         *         it cancels the original
+         */
+        public <T> CompletableFuture<T> endWhenDone(CompletableFuture<T> future) {
+            if (trace == null) {
+                return future;
+            }
+            CompletableFuture<T> traced = new CompletableFuture<>();
+            future.whenComplete((result, failure) -> {
+                end(failure);
+                try (Scope scope = parent != null ? parent.makeCurrent() : NOOP_SCOPE) {
+                    if (failure != null) {
+                        traced.completeExceptionally(failure);
+                    } else {
+                        traced.complete(result);
+                    }
+                }
+            });
+            traced.whenComplete((result, failure) -> {
+                if (traced.isCancelled()) {
+                    future.cancel(false);
+                }
+            });
+            return traced;
+        }
+
+        public String getSpanId() { return spanId; }
+        public String getParentSpanId() { return parent != null ? parent.spanId : parentSpanId; }
+        public String getName() { return name; }
+        /** True for calls to external systems, false for internal work */
+        public boolean isCall() { return call; }
+        /** Milliseconds from the start of the pipeline */
+        public double getStartOffsetMillis() {
+            return trace != null ? (startNanos - trace.startNanos) / 1_000_000.0 : 0.0;
+        }
+        /** Null while the span is running */
+        public Double getDurationMillis() {
+            long end = endNanos.get();
+            return end >= 0 ? (end - startNanos) / 1_000_000.0 : null;
+        }
+        /** RUNNING, OK or ERROR */
+        public String getStatus() {
+            return endNanos.get() < 0 ? "RUNNING" : error != null ? "ERROR" : "OK";
+        }
+        public String getError() { return error; }
+        public Map<String, Object> getAttributes() { return new LinkedHashMap<>(attributes); }
+
+        @JsonIgnore
+        public String getTraceId() { return trace != null ? trace.traceId : null; }
+        @JsonIgnore
+        public long getDurationNanos() {
+            long end = endNanos.get();
+            return end >= 0 ? end - startNanos : -1L;
+        }
+        @JsonIgnore
+        Span getParent() { return parent; }
+        @JsonIgnore
+        long getStartEpochNanos() { return trace.toEpochNanos(startNanos); }
+        @JsonIgnore
+        long getEndEpochNanos() { return trace.toEpochNanos(endNanos.get()); }
+
+        private Span start(String name, boolean call) {
+            if (trace == null) {
+                return NOOP;
+            }
+            Span child = new Span(trace, this, null, name, call);
+            trace.spans.add(child);
+            trace.tracer.spanStarted(child);
+            return child;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.sdi.trace;
+
+/**
+ * Starts pipeline traces and mirrors their spans to a tracing backend
+ *
+ * This class keeps spans in memory only, which is all the timeline
+ * endpoint needs; {@link OpenTelemetryPipelineTracer} also exports them.
+ * The hooks run on the thread that starts or ends the span.
+ */
+public class PipelineTracer {
+
+    public static final PipelineTracer IN_MEMORY = new PipelineTracer();
+
+    protected PipelineTracer() {
+    }
+
+    /**
+     * Start a trace with its root span
+     *
+     * @param rootName Name of the root span
+     * @param traceId Trace to continue (32 hex digits), or null for a new one
+     * @param parentSpanId Remote span the root is a child of (16 hex digits), or null
+     */
+    public PipelineTrace start(String rootName, String traceId, String parentSpanId) {
+        return new PipelineTrace(this, traceId != null ? traceId : PipelineTrace.newTraceId(), parentSpanId, rootName);
+    }
+
+    /**
+     * Called after a span has been created, the root first
+     */
+    protected void spanStarted(PipelineTrace.Span span) {
+    }
+
+    /**
+     * Called once when a span ends, with its status and attributes final
+     */
+    protected void spanEnded(PipelineTrace.Span span) {
+    }
+}
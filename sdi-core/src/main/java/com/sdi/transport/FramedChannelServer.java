@@ -0,0 +1,379 @@
+package com.sdi.transport;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Length-prefixed binary frame server over TCP and Unix domain sockets
+ *
+ * Every frame on the wire is a 4-byte big-endian payload length followed by
+ * the payload. A single selector thread reads all connections and hands each
+ * complete frame to that connection's handler without copying it, so large
+ * streams are decoded incrementally and never buffered as a whole.
+ *
+ * Frames sent back are queued per connection. Once a connection's queued
+ * bytes exceed the outbound limit, the server stops reading from it until
+ * the client has read half of the backlog, so a client that pipelines
+ * requests without reading replies is throttled instead of filling the heap.
+ */
+public class FramedChannelServer implements AutoCloseable {
+
+    /**
+     * Per-connection frame handler. Handlers run on the selector thread.
+     */
+    public interface ConnectionHandler {
+        /**
+         * @param connection Source connection (may be used to send frames back)
+         * @param frame Frame payload; only valid for the duration of the call
+         */
+        void onFrame(FramedConnection connection, ByteBuffer frame) throws IOException;
+
+        default void onClose(FramedConnection connection) {
+        }
+    }
+
+    private static final int INITIAL_READ_BUFFER_BYTES = 64 * 1024;
+    private static final int LENGTH_PREFIX_BYTES = 4;
+
+    /** Default queued outbound bytes per connection before reads pause */
+    public static final int DEFAULT_MAX_OUTBOUND_BYTES = 1024 * 1024;
+
+    private final String name;
+    private final int maxFrameBytes;
+    private final long maxOutboundBytes;
+    private final Supplier<ConnectionHandler> handlerFactory;
+    private final Selector selector;
+    private final List<ServerSocketChannel> listeners = new ArrayList<>();
+    private final List<Path> unixSocketPaths = new ArrayList<>();
+    private final Queue<FramedConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    /**
+     * @param name Server name (used for the selector thread)
+     * @param maxFrameBytes Largest accepted frame payload; larger frames close the connection
+     * @param handlerFactory Creates one handler per accepted connection
+     */
+    public FramedChannelServer(String name, int maxFrameBytes,
+                               Supplier<ConnectionHandler> handlerFactory) throws IOException {
+        this(name, maxFrameBytes, DEFAULT_MAX_OUTBOUND_BYTES, handlerFactory);
+    }
+
+    /**
+     * @param name Server name (used for the selector thread)
+     * @param maxFrameBytes Largest accepted frame payload; larger frames close the connection
+     * @param maxOutboundBytes Queued outbound bytes per connection above which reads pause
+     * @param handlerFactory Creates one handler per accepted connection
+     */
+    public FramedChannelServer(String name, int maxFrameBytes, long maxOutboundBytes,
+                               Supplier<ConnectionHandler> handlerFactory) throws IOException {
+        this.name = name;
+        this.maxFrameBytes = maxFrameBytes;
+        this.maxOutboundBytes = Math.max(1, maxOutboundBytes);
+        this.handlerFactory = handlerFactory;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Listen on a TCP address
+     */
+    public FramedChannelServer bindTcp(SocketAddress address) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(address);
+        register(channel);
+        return this;
+    }
+
+    /**
+     * Listen on a Unix domain socket path (replacing a stale socket file)
+     */
+    public FramedChannelServer bindUnix(Path socketPath) throws IOException {
+        Files.deleteIfExists(socketPath);
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.bind(UnixDomainSocketAddress.of(socketPath));
+        unixSocketPaths.add(socketPath);
+        register(channel);
+        return this;
+    }
+
+    /**
+     * Local addresses of all listeners (useful when bound to port 0)
+     */
+    public List<SocketAddress> getLocalAddresses() throws IOException {
+        List<SocketAddress> addresses = new ArrayList<>();
+        for (ServerSocketChannel listener : listeners) {
+            addresses.add(listener.getLocalAddress());
+        }
+        return addresses;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        selectorThread = new Thread(this::selectLoop, name + "-selector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        selector.wakeup();
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof FramedConnection connection) {
+                connection.close();
+            }
+            closeQuietly(key.channel());
+        }
+        listeners.forEach(FramedChannelServer::closeQuietly);
+        closeQuietly(selector);
+        for (Path socketPath : unixSocketPaths) {
+            try {
+                Files.deleteIfExists(socketPath);
+            } catch (IOException ignored) {
+                // Best effort
+            }
+        }
+    }
+
+    private void register(ServerSocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_ACCEPT);
+        listeners.add(channel);
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+                FramedConnection writable;
+                while ((writable = pendingWrites.poll()) != null) {
+                    writable.updateInterest();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept((ServerSocketChannel) key.channel());
+                        continue;
+                    }
+                    FramedConnection connection = (FramedConnection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.readFrames();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println(name + ": closing connection: " + e.getMessage());
+                        connection.close();
+                    }
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    System.err.println(name + ": selector failure: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void accept(ServerSocketChannel listener) throws IOException {
+        SocketChannel channel = listener.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        FramedConnection connection = new FramedConnection(channel, handlerFactory.get());
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Best effort
+        }
+    }
+
+    /**
+     * A single client connection
+     */
+    public class FramedConnection {
+        private final SocketChannel channel;
+        private final ConnectionHandler handler;
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        private final AtomicLong outboundBytes = new AtomicLong();
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_BYTES);
+        private SelectionKey key;
+        private volatile boolean open = true;
+        private boolean readsPaused;
+        private Object attachment;
+
+        FramedConnection(SocketChannel channel, ConnectionHandler handler) {
+            this.channel = channel;
+            this.handler = handler;
+        }
+
+        /**
+         * Queue a frame for sending; safe to call from any thread
+         */
+        public void send(ByteBuffer payload) {
+            if (!open) {
+                return;
+            }
+            ByteBuffer frame = ByteBuffer.allocate(LENGTH_PREFIX_BYTES + payload.remaining());
+            frame.putInt(payload.remaining()).put(payload).flip();
+            outboundBytes.addAndGet(frame.remaining());
+            outbound.add(frame);
+            pendingWrites.add(this);
+            selector.wakeup();
+        }
+
+        public boolean isOpen() {
+            return open;
+        }
+
+        /**
+         * Bytes queued for sending and not yet written to the socket
+         */
+        public long getOutboundBytes() {
+            return outboundBytes.get();
+        }
+
+        /**
+         * Handler-owned per-connection state
+         */
+        public Object getAttachment() {
+            return attachment;
+        }
+
+        public void setAttachment(Object attachment) {
+            this.attachment = attachment;
+        }
+
+        public void close() {
+            if (!open) {
+                return;
+            }
+            open = false;
+            if (key != null) {
+                key.cancel();
+            }
+            closeQuietly(channel);
+            handler.onClose(this);
+        }
+
+        void readFrames() throws IOException {
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            handleFrames();
+        }
+
+        /**
+         * Hand buffered frames to the handler until the buffer runs dry or
+         * the outbound backlog pauses reading
+         */
+        private void handleFrames() throws IOException {
+            readBuffer.flip();
+            while (readBuffer.remaining() >= LENGTH_PREFIX_BYTES) {
+                if (outboundBytes.get() > maxOutboundBytes) {
+                    // Leave the rest buffered until the client reads its replies
+                    readsPaused = true;
+                    updateInterest();
+                    break;
+                }
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < 0 || length > maxFrameBytes) {
+                    throw new IOException("Frame length " + length + " exceeds limit " + maxFrameBytes);
+                }
+                if (readBuffer.remaining() < LENGTH_PREFIX_BYTES + length) {
+                    break;
+                }
+                int frameStart = readBuffer.position() + LENGTH_PREFIX_BYTES;
+                ByteBuffer frame = readBuffer.duplicate();
+                frame.position(frameStart).limit(frameStart + length);
+                readBuffer.position(frameStart + length);
+                handler.onFrame(this, frame.slice());
+                if (!open) {
+                    return;
+                }
+            }
+            readBuffer.compact();
+            ensureCapacityForNextFrame();
+        }
+
+        /**
+         * Grow the read buffer only when a single frame does not fit
+         */
+        private void ensureCapacityForNextFrame() {
+            if (readBuffer.position() < LENGTH_PREFIX_BYTES || readBuffer.hasRemaining()) {
+                return;
+            }
+            int needed = LENGTH_PREFIX_BYTES + readBuffer.getInt(0);
+            if (needed > readBuffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(needed);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+        }
+
+        /**
+         * Read unless paused by the outbound backlog, write while frames are queued
+         */
+        void updateInterest() {
+            if (open && key != null && key.isValid()) {
+                key.interestOps((readsPaused ? 0 : SelectionKey.OP_READ)
+                              | (outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+            }
+        }
+
+        void flush() throws IOException {
+            ByteBuffer head;
+            while ((head = outbound.peek()) != null) {
+                int written = channel.write(head);
+                outboundBytes.addAndGet(-written);
+                if (head.hasRemaining()) {
+                    break; // Socket buffer full; wait for the next OP_WRITE
+                }
+                outbound.poll();
+            }
+            if (readsPaused && outboundBytes.get() <= maxOutboundBytes / 2) {
+                readsPaused = false;
+                handleFrames();
+                if (!open) {
+                    return;
+                }
+            }
+            updateInterest();
+        }
+    }
+}
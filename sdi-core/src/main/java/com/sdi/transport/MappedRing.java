@@ -0,0 +1,160 @@
+package com.sdi.transport;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+
+/**
+ * Single-producer/single-consumer ring of fixed-size records in shared memory
+ *
+ * The ring lives in a region of a memory-mapped file so that another process
+ * (in any language) can be the producer or the consumer. All integers are
+ * little-endian. Region layout:
+ *   0:   u32 magic, u32 version, u32 slots (power of two), u32 record bytes
+ *   64:  u64 head, records consumed so far (written only by the consumer)
+ *   128: u64 tail, records published so far (written only by the producer)
+ *   192: slots x record bytes
+ * Head and tail sit on their own cache lines. A producer writes the record
+ * and then publishes it by storing the tail with release semantics; the
+ * consumer reads the tail with acquire semantics, so it never sees a
+ * half-written record. Each side caches the other side's index and only
+ * re-reads it when the ring looks full or empty.
+ */
+public final class MappedRing {
+
+    public static final int MAGIC = 0x52494453; // "SDIR"
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 192;
+
+    private static final int SLOTS_OFFSET = 8;
+    private static final int RECORD_BYTES_OFFSET = 12;
+    private static final int HEAD_OFFSET = 64;
+    private static final int TAIL_OFFSET = 128;
+
+    private static final VarHandle LONGS =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final ByteBuffer region;
+    private final int slots;
+    private final int recordBytes;
+    private final long mask;
+    private long head;       // Consumer's own position
+    private long tail;       // Producer's own position
+    private long cachedHead; // Producer's view of the consumer
+    private long cachedTail; // Consumer's view of the producer
+
+    private MappedRing(ByteBuffer region) {
+        this.region = region.order(ByteOrder.LITTLE_ENDIAN);
+        if (region.getInt(0) != MAGIC || region.getInt(4) != VERSION) {
+            throw new IllegalStateException("Not an SDI ring (magic " + Integer.toHexString(region.getInt(0)) + ")");
+        }
+        this.slots = region.getInt(SLOTS_OFFSET);
+        this.recordBytes = region.getInt(RECORD_BYTES_OFFSET);
+        this.mask = slots - 1;
+        this.head = (long) LONGS.getAcquire(region, HEAD_OFFSET);
+        this.tail = (long) LONGS.getAcquire(region, TAIL_OFFSET);
+        this.cachedHead = head;
+        this.cachedTail = tail;
+    }
+
+    /**
+     * Bytes a region needs for a ring of this shape
+     */
+    public static int regionBytes(int slots, int recordBytes) {
+        return HEADER_BYTES + slots * recordBytes;
+    }
+
+    /**
+     * Initialize an empty ring at the start of a region
+     *
+     * @param slots Record slots (power of two)
+     * @param recordBytes Size of every record (multiple of 8)
+     */
+    public static MappedRing create(ByteBuffer region, int slots, int recordBytes) {
+        if (Integer.bitCount(slots) != 1 || recordBytes <= 0 || recordBytes % 8 != 0) {
+            throw new IllegalArgumentException("Slots must be a power of two and record bytes a multiple of 8");
+        }
+        if (region.capacity() < regionBytes(slots, recordBytes)) {
+            throw new IllegalArgumentException("Region too small for " + slots + " x " + recordBytes + " bytes");
+        }
+        region.order(ByteOrder.LITTLE_ENDIAN);
+        region.putInt(SLOTS_OFFSET, slots).putInt(RECORD_BYTES_OFFSET, recordBytes);
+        LONGS.setRelease(region, HEAD_OFFSET, 0L);
+        LONGS.setRelease(region, TAIL_OFFSET, 0L);
+        region.putInt(4, VERSION);
+        region.putInt(0, MAGIC); // Last, so a reader never sees a half-initialized header
+        return new MappedRing(region);
+    }
+
+    /**
+     * Attach to a ring another process initialized
+     */
+    public static MappedRing open(ByteBuffer region) {
+        return new MappedRing(region);
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public int getRecordBytes() {
+        return recordBytes;
+    }
+
+    /**
+     * Publish one record (producer side)
+     *
+     * @param writer Fills the record; receives a zeroed slot positioned at 0 with limit = record bytes
+     * @return false if the ring is full (the record is dropped)
+     */
+    public boolean offer(Consumer<ByteBuffer> writer) {
+        if (tail - cachedHead >= slots) {
+            cachedHead = (long) LONGS.getAcquire(region, HEAD_OFFSET);
+            if (tail - cachedHead >= slots) {
+                return false;
+            }
+        }
+        ByteBuffer slot = slot(tail);
+        for (int i = 0; i < recordBytes; i += 8) {
+            slot.putLong(i, 0L);
+        }
+        writer.accept(slot);
+        tail++;
+        LONGS.setRelease(region, TAIL_OFFSET, tail);
+        return true;
+    }
+
+    /**
+     * Consume up to max published records (consumer side)
+     *
+     * The slots are handed out in order and released together after the
+     * batch, so the producer can reuse them only once the handler is done.
+     *
+     * @param handler Reads one record; the buffer is only valid during the call
+     * @return Records consumed
+     */
+    public int drain(int max, Consumer<ByteBuffer> handler) {
+        long available = cachedTail - head;
+        if (available <= 0) {
+            cachedTail = (long) LONGS.getAcquire(region, TAIL_OFFSET);
+            available = cachedTail - head;
+            if (available <= 0) {
+                return 0;
+            }
+        }
+        int count = (int) Math.min(available, max);
+        for (int i = 0; i < count; i++) {
+            handler.accept(slot(head + i));
+        }
+        head += count;
+        LONGS.setRelease(region, HEAD_OFFSET, head);
+        return count;
+    }
+
+    private ByteBuffer slot(long position) {
+        int offset = HEADER_BYTES + (int) (position & mask) * recordBytes;
+        return region.slice(offset, recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
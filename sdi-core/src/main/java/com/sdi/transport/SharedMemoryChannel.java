@@ -0,0 +1,99 @@
+package com.sdi.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory-mapped file holding a request ring and a response ring
+ *
+ * The application produces into the request ring and consumes the response
+ * ring; the sidecar does the opposite. The request ring starts at offset 0
+ * and the response ring at the next 64-byte boundary after it (see
+ * {@link MappedRing} for the ring layout). Put the file on a tmpfs such as
+ * /dev/shm so the rings never touch disk.
+ */
+public final class SharedMemoryChannel {
+
+    private final Path path;
+    private final MappedRing requests;
+    private final MappedRing responses;
+
+    private SharedMemoryChannel(Path path, MappedRing requests, MappedRing responses) {
+        this.path = path;
+        this.requests = requests;
+        this.responses = responses;
+    }
+
+    /**
+     * Create (or reset) a channel file with empty rings
+     *
+     * @param requestSlots Request ring slots (power of two)
+     * @param requestRecordBytes Request record size
+     * @param responseSlots Response ring slots (power of two)
+     * @param responseRecordBytes Response record size
+     */
+    public static SharedMemoryChannel create(Path path, int requestSlots, int requestRecordBytes,
+                                             int responseSlots, int responseRecordBytes) throws IOException {
+        int responseOffset = align(MappedRing.regionBytes(requestSlots, requestRecordBytes));
+        int size = responseOffset + MappedRing.regionBytes(responseSlots, responseRecordBytes);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        MappedByteBuffer mapping = map(path, size, true);
+        for (int i = 0; i < size; i += 8) {
+            mapping.putLong(i, 0L); // Reset a reused file; magic goes in last
+        }
+        MappedRing responses = MappedRing.create(mapping.slice(responseOffset, size - responseOffset),
+            responseSlots, responseRecordBytes);
+        MappedRing requests = MappedRing.create(mapping.slice(0, responseOffset), requestSlots, requestRecordBytes);
+        return new SharedMemoryChannel(path, requests, responses);
+    }
+
+    /**
+     * Attach to a channel file another process created
+     */
+    public static SharedMemoryChannel open(Path path) throws IOException {
+        MappedByteBuffer mapping = map(path, Files.size(path), false);
+        MappedRing requests = MappedRing.open(mapping.slice(0, mapping.capacity()));
+        int responseOffset = align(MappedRing.regionBytes(requests.getSlots(), requests.getRecordBytes()));
+        MappedRing responses = MappedRing.open(mapping.slice(responseOffset, mapping.capacity() - responseOffset));
+        return new SharedMemoryChannel(path, requests, responses);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public MappedRing requests() {
+        return requests;
+    }
+
+    public MappedRing responses() {
+        return responses;
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 63) & ~63;
+    }
+
+    private static MappedByteBuffer map(Path path, long size, boolean create) throws IOException {
+        StandardOpenOption[] options = create
+            ? new StandardOpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+            : new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            if (create) {
+                channel.truncate(size);
+                if (channel.size() < size) {
+                    channel.write(ByteBuffer.allocate(1), size - 1);
+                }
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
@@ -9,7 +9,7 @@ import org.springframework.context.annotation.Bean;
  * Auto-configuration for web endpoints
  */
 @AutoConfiguration
-@ConditionalOnWebApplication
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @ConditionalOnClass(name = "org.springframework.web.bind.annotation.RestController")
 public class SdiWebAutoConfiguration {
     
@@ -0,0 +1,148 @@
+package com.sdi.admission;
+
+import com.sdi.admission.AdmissionController.Admission;
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DisplayName("Admission Controller Tests")
+class AdmissionControllerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private volatile double cpu = 0.2;
+
+    @Test
+    @DisplayName("Should sample under CPU overload while honouring service minimums and always-score rules")
+    void testAdaptiveSampling() {
+        AdmissionController controller = new AdmissionController(new AnomalyDetector(), Duration.ofMillis(5), 4, 0.85,
+            0.01, Map.of("payments", 1.0), Map.of("body-size", 65536.0), () -> cpu, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(controller.detect(request("search", 10)).isScored());
+        }
+
+        cpu = 0.95;
+        for (int i = 0; i < 12; i++) {
+            tick(controller);
+        }
+        assertTrue(controller.isOverloaded());
+        assertTrue(controller.getStats().getSampleRate() < 0.001);
+
+        int scored = 0;
+        for (int i = 0; i < 2000; i++) {
+            scored += controller.detect(request("search", 10)).isScored() ? 1 : 0;
+        }
+        assertTrue(scored > 0 && scored < 100, "Search held near its 1% floor, scored " + scored);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(controller.detect(request("payments", 10)).isScored(), "Payments keeps a 100% minimum");
+            assertTrue(controller.detect(request("search", 100_000)).isScored(), "Large bodies are always scored");
+        }
+
+        cpu = 0.2;
+        for (int i = 0; i < 25; i++) {
+            tick(controller);
+        }
+        assertFalse(controller.isOverloaded());
+        assertEquals(1.0, controller.getStats().getSampleRate());
+
+        AdmissionController.Stats stats = controller.getStats();
+        assertEquals(2000 - scored, stats.getSampledOut());
+        assertEquals(100 + scored + 200 + 37, stats.getScored()); // 37 ticks, one request each
+        assertEquals(0, stats.getShed());
+    }
+
+    @Test
+    @DisplayName("Should pass a request unscored rather than wait past the latency budget")
+    void testShedsWhenSaturated() throws Exception {
+        CountDownLatch scoring = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AnomalyDetector slow = new AnomalyDetector() {
+            @Override
+            public AnomalyToken detect(String serviceId, Map<String, String> metadata, double[] features) {
+                scoring.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        AdmissionController controller = new AdmissionController(slow, Duration.ofMillis(20), 1, 0.85,
+            0.01, Map.of(), Map.of());
+
+        CompletableFuture<Admission> first = CompletableFuture.supplyAsync(() -> controller.detect(request("a", 10)));
+        assertTrue(scoring.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        Admission second = controller.detect(request("a", 10));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertFalse(second.isScored());
+        assertNull(second.getToken());
+        assertTrue(waitedMillis < 1000, "Waited " + waitedMillis + "ms");
+        assertTrue(first.get(5, TimeUnit.SECONDS).isScored());
+        assertEquals(1, controller.getStats().getShed());
+    }
+
+    @Test
+    @DisplayName("Should shed at once on the non-blocking path while saturated")
+    void testTryDetectNeverWaits() throws Exception {
+        CountDownLatch scoring = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AnomalyDetector slow = new AnomalyDetector() {
+            @Override
+            public AnomalyToken detect(String serviceId, Map<String, String> metadata, double[] features) {
+                scoring.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        // A budget long enough that any wait would show
+        AdmissionController controller = new AdmissionController(slow, Duration.ofSeconds(30), 1, 0.85,
+            0.01, Map.of(), Map.of());
+
+        CompletableFuture<Admission> first = CompletableFuture.supplyAsync(() -> controller.tryDetect(request("a", 10)));
+        assertTrue(scoring.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        Admission second = controller.tryDetect(request("a", 10));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        release.countDown();
+
+        assertFalse(second.isScored());
+        assertTrue(waitedMillis < 1000, "Waited " + waitedMillis + "ms");
+        assertTrue(first.get(5, TimeUnit.SECONDS).isScored());
+        assertEquals(1, controller.getStats().getShed());
+    }
+
+    private void tick(AdmissionController controller) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        controller.detect(request("payments", 10)); // Adjustments happen on the request path
+    }
+
+    private static RequestVector request(String serviceId, int bodySize) {
+        RequestVector vector = new RequestVector();
+        vector.setServiceId(serviceId);
+        vector.setPathLength(12);
+        vector.setHeaderCount(4);
+        vector.setBodySize(bodySize);
+        vector.setMethodHash("GET".hashCode());
+        return vector;
+    }
+}
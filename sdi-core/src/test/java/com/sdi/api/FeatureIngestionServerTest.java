@@ -0,0 +1,207 @@
+package com.sdi.api;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.transport.SharedMemoryChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Feature Ingestion Server Tests")
+class FeatureIngestionServerTest {
+
+    private static final double[] NORMAL = {12, 1, 6, 0, 70, 3, 0.5, 0.5, 0.2, 1};
+    private static final double[] ATTACK = {800, 40, 90, 50_000, 9_000, 7, 80, 0.1, 9, 30};
+
+    @TempDir
+    Path tempDir;
+
+    private FeatureIngestionServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FeatureIngestionServer(new AnomalyDetector(), null, 64 * 1024, 1, 10);
+        server.start(new InetSocketAddress("127.0.0.1", 0), tempDir.resolve("ingest.sock"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    @Test
+    @DisplayName("Should stream verdicts for pipelined requests over a Unix domain socket")
+    void testPipelinedScoresOverUnixSocket() throws Exception {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(tempDir.resolve("ingest.sock")));
+            write(channel, hello("checkout"));
+            for (long id = 1; id <= 50; id++) {
+                write(channel, score(id, "", id % 2 == 0 ? ATTACK : NORMAL));
+            }
+
+            Map<Long, Integer> flags = new HashMap<>();
+            for (int i = 0; i < 50; i++) {
+                ByteBuffer verdict = read(channel);
+                assertEquals(FeatureIngestionServer.FRAME_VERDICT, verdict.get());
+                long id = verdict.getLong();
+                flags.put(id, Byte.toUnsignedInt(verdict.get()));
+                double score = verdict.getDouble();
+                assertTrue(score >= 0.0 && score <= 1.0);
+            }
+            assertEquals(50, flags.size(), "One verdict per request id");
+            assertNotEquals(0, flags.get(2L) & FeatureIngestionServer.FLAG_ANOMALY, "Attack vector flagged");
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer a bad vector with an error and keep the stream open over TCP")
+    void testErrorKeepsStreamOpen() throws Exception {
+        InetSocketAddress address = (InetSocketAddress) server.getLocalAddresses().get(0);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            write(channel, hello("search"));
+            write(channel, score(7, "", new double[] {1, 2, 3}));
+            write(channel, score(8, "search", ATTACK));
+
+            ByteBuffer error = read(channel);
+            assertEquals(FeatureIngestionServer.FRAME_ERROR, error.get());
+            assertEquals(7, error.getLong());
+
+            ByteBuffer verdict = read(channel);
+            assertEquals(FeatureIngestionServer.FRAME_VERDICT, verdict.get());
+            assertEquals(8, verdict.getLong());
+        }
+    }
+
+    @Test
+    @DisplayName("Should score records from a shared-memory ring and return verdicts in order")
+    void testSharedMemoryRing() throws Exception {
+        server.attachSharedMemory(tempDir.resolve("checkout.ring"), 64);
+        SharedMemoryChannel app = SharedMemoryChannel.open(tempDir.resolve("checkout.ring"));
+
+        int total = 5_000; // Many times the ring size, so both rings wrap around
+        List<Long> verdicts = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (long id = 1; id <= total; id++) {
+            long requestId = id;
+            double[] features = id % 2 == 0 ? ATTACK : NORMAL;
+            while (!app.requests().offer(record -> {
+                record.putLong(0, requestId).put(8, (byte) FeatureIngestionServer.RING_FLAG_WANT_VERDICT)
+                    .put(9, (byte) features.length);
+                for (int i = 0; i < features.length; i++) {
+                    record.putDouble(16 + i * 8, features[i]);
+                }
+            })) {
+                app.responses().drain(64, verdict -> verdicts.add(verdict.getLong(0)));
+                assertTrue(System.nanoTime() < deadline, "Sidecar stopped draining");
+            }
+            app.responses().drain(64, verdict -> verdicts.add(verdict.getLong(0)));
+        }
+        while (verdicts.size() + server.getDroppedVerdicts() < total && System.nanoTime() < deadline) {
+            app.responses().drain(64, verdict -> verdicts.add(verdict.getLong(0)));
+        }
+
+        // Verdicts the app was too slow to collect are dropped, never reordered or duplicated
+        assertEquals(total, verdicts.size() + server.getDroppedVerdicts());
+        assertTrue(verdicts.size() > total / 2);
+        for (int i = 1; i < verdicts.size(); i++) {
+            assertTrue(verdicts.get(i) > verdicts.get(i - 1));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject a ring record the detector fails on and keep draining")
+    void testSharedMemoryRingSurvivesScoringFailure() throws Exception {
+        server.close();
+        AnomalyDetector failing = new AnomalyDetector() {
+            @Override
+            public AnomalyToken screen(String serviceId, Map<String, String> metadata, double[] features) {
+                if (features[0] < 0) {
+                    throw new IllegalStateException("model not loaded");
+                }
+                return super.screen(serviceId, metadata, features);
+            }
+        };
+        server = new FeatureIngestionServer(failing, null, 64 * 1024, 1, 10);
+        server.attachSharedMemory(tempDir.resolve("search.ring"), 64);
+        SharedMemoryChannel app = SharedMemoryChannel.open(tempDir.resolve("search.ring"));
+
+        double[] broken = NORMAL.clone();
+        broken[0] = -1;
+        for (long id = 1; id <= 2; id++) {
+            long requestId = id;
+            double[] features = id == 1 ? broken : NORMAL;
+            assertTrue(app.requests().offer(record -> {
+                record.putLong(0, requestId).put(8, (byte) FeatureIngestionServer.RING_FLAG_WANT_VERDICT)
+                    .put(9, (byte) features.length);
+                for (int i = 0; i < features.length; i++) {
+                    record.putDouble(16 + i * 8, features[i]);
+                }
+            }));
+        }
+
+        Map<Long, Integer> flags = new HashMap<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flags.size() < 2 && System.nanoTime() < deadline) {
+            app.responses().drain(64, verdict -> flags.put(verdict.getLong(0), Byte.toUnsignedInt(verdict.get(8))));
+        }
+        assertEquals(FeatureIngestionServer.FLAG_REJECTED, flags.get(1L));
+        assertEquals(0, flags.get(2L) & FeatureIngestionServer.FLAG_REJECTED, "Next record still scored");
+    }
+
+    private static ByteBuffer hello(String serviceId) {
+        byte[] id = serviceId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(1 + 1 + 2 + id.length);
+        frame.put((byte) 1).put((byte) FeatureIngestionServer.PROTOCOL_VERSION).putShort((short) id.length).put(id);
+        return frame.flip();
+    }
+
+    private static ByteBuffer score(long requestId, String serviceId, double[] features) {
+        byte[] id = serviceId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(1 + 8 + 2 + id.length + 1 + features.length * 8);
+        frame.put((byte) 2).putLong(requestId).putShort((short) id.length).put(id).put((byte) features.length);
+        for (double feature : features) {
+            frame.putDouble(feature);
+        }
+        return frame.flip();
+    }
+
+    private static void write(SocketChannel channel, ByteBuffer payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(4 + payload.remaining());
+        frame.putInt(payload.remaining()).put(payload).flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    private static ByteBuffer read(SocketChannel channel) throws IOException {
+        ByteBuffer length = readFully(channel, 4);
+        return readFully(channel, length.getInt());
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        return buffer.flip();
+    }
+}
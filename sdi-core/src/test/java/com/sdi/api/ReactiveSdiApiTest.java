@@ -0,0 +1,153 @@
+package com.sdi.api;
+
+import com.sdi.autoconfigure.SdiProperties;
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+import com.sdi.pre.PolymorphicResponseEngine;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ResponseStatusException;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+@DisplayName("Reactive SDI API Tests")
+class ReactiveSdiApiTest {
+
+    private static final String REQUEST = "{\"serviceId\":\"checkout\",\"path\":\"/api/orders\",\"method\":\"POST\"," +
+        "\"headers\":{\"Host\":\"shop\",\"Accept\":\"*/*\",\"X-Trace\":\"1\"}," +
+        "\"body\":\"{\\\"item\\\":\\\"caf\\u00e9 \\u2615\\\",\\\"qty\\\":2}\"," +
+        "\"extra\":{\"nested\":[1,{\"body\":\"ignored\"}]},\"metadata\":{\"ip\":\"10.0.0.7\"}}";
+
+    @Test
+    @DisplayName("Should build the same request vector however the body is split into chunks")
+    void testChunkedParsing() {
+        byte[] bytes = REQUEST.getBytes(StandardCharsets.UTF_8);
+        String body = "{\"item\":\"café ☕\",\"qty\":2}";
+
+        for (int split = 1; split < bytes.length; split++) {
+            AnalysisRequestParser parser = new AnalysisRequestParser(1024);
+            parser.feed(ByteBuffer.wrap(bytes, 0, split));
+            parser.feed(ByteBuffer.wrap(bytes, split, bytes.length - split));
+            RequestVector vector = parser.finish();
+
+            assertEquals("checkout", vector.getServiceId());
+            assertEquals("/api/orders".length(), vector.getPathLength());
+            assertEquals("POST".hashCode(), vector.getMethodHash());
+            assertEquals(3, vector.getHeaderCount());
+            assertEquals(body.length(), vector.getBodySize(), "Body counted like String.length()");
+            assertEquals("10.0.0.7", vector.getMetadata().get("ip"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject malformed and oversized requests")
+    void testRejectsBadRequests() {
+        AnalysisRequestParser truncated = new AnalysisRequestParser(1024);
+        truncated.feed(ByteBuffer.wrap("{\"serviceId\":\"a\"".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(HttpStatus.BAD_REQUEST,
+            assertThrows(ResponseStatusException.class, truncated::finish).getStatusCode());
+
+        AnalysisRequestParser oversized = new AnalysisRequestParser(16);
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, assertThrows(ResponseStatusException.class,
+            () -> oversized.feed(ByteBuffer.wrap(REQUEST.getBytes(StandardCharsets.UTF_8)))).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should serve detection over WebFlux")
+    void testEndpoints() {
+        SdiProperties properties = new SdiProperties();
+        properties.getWeb().setMaxRequestSize(DataSize.ofBytes(256));
+        AnomalyDetector detector = new AnomalyDetector();
+        ReactiveSdiApi api = new ReactiveSdiApi(detector,
+            new PolymorphicResponseEngine(detector, null, null, null, null, null), properties, null);
+        WebTestClient client = WebTestClient.bindToController(api).build();
+        try {
+            client.post().uri("/api/sdi/detect").contentType(MediaType.APPLICATION_JSON).bodyValue(REQUEST)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.anomalyDetected").isBoolean();
+
+            client.post().uri("/api/sdi/analyze").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"body\":\"" + "x".repeat(512) + "\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+
+            client.get().uri("/api/sdi/health").exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.mode").isEqualTo("reactive");
+        } finally {
+            api.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer a batch in request order and reject oversized batches")
+    void testBatch() {
+        SdiProperties properties = new SdiProperties();
+        properties.getWeb().setMaxBatchSize(3);
+        AnomalyDetector detector = new AnomalyDetector();
+        ReactiveSdiApi api = new ReactiveSdiApi(detector,
+            new PolymorphicResponseEngine(detector, null, null, null, null, null), properties, null);
+        WebTestClient client = WebTestClient.bindToController(api).build();
+        String normal = "{\"serviceId\":\"a\",\"path\":\"/\",\"method\":\"GET\"}";
+        String attack = "{\"serviceId\":\"b\",\"path\":\"" + "/x".repeat(500) + "\",\"method\":\"POST\"," +
+            "\"body\":\"" + "A".repeat(5000) + "\"}";
+        try {
+            client.post().uri("/api/sdi/analyze/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + normal + "," + attack + "," + normal + "]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[1].anomalyDetected").isEqualTo(true)
+                .jsonPath("$[1].serviceId").isEqualTo("b");
+
+            client.post().uri("/api/sdi/analyze/batch").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[" + String.join(",", normal, normal, normal, normal) + "]")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE);
+        } finally {
+            api.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should export the trained model with an ETag and answer revalidation with 304")
+    void testModelExport() {
+        AnomalyDetector detector = new AnomalyDetector();
+        ReactiveSdiApi api = new ReactiveSdiApi(detector,
+            new PolymorphicResponseEngine(detector, null, null, null, null, null), new SdiProperties(), null);
+        WebTestClient client = WebTestClient.bindToController(api).build();
+        try {
+            client.get().uri("/api/sdi/model").exchange().expectStatus().isNotFound();
+
+            List<double[]> training = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                training.add(new double[] {10 + i % 3, 0, 3 + i % 2, 20 + i, 70454, 0, 0, 0, 0, i % 4});
+            }
+            detector.trainOnFeatures(training);
+
+            String etag = client.get().uri("/api/sdi/model").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.format").isEqualTo("sdi-gmm/1")
+                .jsonPath("$.components.length()").isEqualTo(5)
+                .jsonPath("$.components[0].precision.length()").isEqualTo(100)
+                .returnResult().getResponseHeaders().getETag();
+            assertNotNull(etag);
+
+            client.get().uri("/api/sdi/model").header("If-None-Match", etag).exchange()
+                .expectStatus().isNotModified();
+        } finally {
+            api.close();
+        }
+    }
+}
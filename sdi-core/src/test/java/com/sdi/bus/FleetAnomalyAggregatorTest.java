@@ -0,0 +1,119 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@DisplayName("Fleet Anomaly Aggregator Tests")
+class FleetAnomalyAggregatorTest {
+
+    private static final long BUCKET = 10_000;
+    private static final double[] ATTACK = {250, 3, 12, 40_000, 7, 19, 2.5, 0.4, 5.2, 1};
+
+    @Test
+    @DisplayName("Should give similar feature vectors nearby cluster ids")
+    void testFeatureClusters() {
+        double[] similar = ATTACK.clone();
+        similar[3] = 41_000;
+        double[] different = {-3, 90, -7, 12, 0, -150, 0.1, 9, -2, 30};
+
+        long attack = FleetAnomalyAggregator.featureCluster(ATTACK, 16);
+        assertTrue(Long.bitCount(attack ^ FleetAnomalyAggregator.featureCluster(similar, 16)) <= 2);
+        assertTrue(Long.bitCount(attack ^ FleetAnomalyAggregator.featureCluster(different, 16)) >= 5);
+        assertEquals(attack, FleetAnomalyAggregator.featureCluster(ATTACK.clone(), 16), "Deterministic");
+    }
+
+    @Test
+    @DisplayName("Should escalate a low-and-slow attack spread across sidecars")
+    void testEscalatesDistributedAttack() {
+        FleetAnomalyAggregator aggregator = newAggregator();
+        Random random = new Random(7);
+
+        // Background: about one suspect per bucket fleet-wide
+        for (int bucket = 0; bucket < 12; bucket++) {
+            assertTrue(aggregator.observe(List.of(noise(random, bucket))).isEmpty());
+        }
+
+        // Attack: three suspects per bucket on each of five sidecars, all alike
+        List<AnomalyToken> escalations = new ArrayList<>();
+        int escalatedAt = -1;
+        for (int bucket = 12; bucket < 24; bucket++) {
+            List<AnomalyToken> batch = new ArrayList<>();
+            for (int sidecar = 0; sidecar < 5; sidecar++) {
+                for (int i = 0; i < 3; i++) {
+                    batch.add(suspect("checkout", bucket * BUCKET + sidecar * 100 + i, ATTACK,
+                        Map.of("sidecar", "node-" + sidecar)));
+                }
+            }
+            List<AnomalyToken> escalated = aggregator.observe(batch);
+            if (!escalated.isEmpty() && escalatedAt < 0) {
+                escalatedAt = bucket;
+            }
+            escalations.addAll(escalated);
+        }
+
+        assertEquals(1, escalations.size(), "Cooldown suppresses repeats within a window");
+        assertTrue(escalatedAt <= 14, "Escalated within the first buckets of the attack");
+        AnomalyToken token = escalations.get(0);
+        assertFalse(token.isSuspect());
+        assertEquals("fleet", token.getMetadata().get(FleetAnomalyAggregator.ESCALATION_KEY));
+        assertEquals(Long.toHexString(FleetAnomalyAggregator.featureCluster(ATTACK, 8)),
+            token.getMetadata().get(FleetAnomalyAggregator.CLUSTER_KEY));
+    }
+
+    @Test
+    @DisplayName("Should not escalate steady background or during baseline warm-up")
+    void testSteadyTrafficNotEscalated() {
+        FleetAnomalyAggregator aggregator = newAggregator();
+        Random random = new Random(11);
+
+        for (int bucket = 0; bucket < 60; bucket++) {
+            List<AnomalyToken> batch = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                batch.add(noise(random, bucket));
+            }
+            assertTrue(aggregator.observe(batch).isEmpty(), "bucket " + bucket);
+        }
+        assertEquals(1, aggregator.getTrackedServices());
+    }
+
+    @Test
+    @DisplayName("Should forget services that stay quiet")
+    void testQuietServicesForgotten() {
+        FleetAnomalyAggregator aggregator = newAggregator();
+        Random random = new Random(3);
+        aggregator.observe(List.of(suspect("search", 0, ATTACK, Map.of())));
+
+        // Two windows later the idle service's window is dropped, then remembered as quiet for ten windows
+        aggregator.observe(List.of(noise(random, 13)));
+        assertEquals(1, aggregator.getTrackedServices());
+        assertEquals(1, aggregator.getQuietServices());
+
+        aggregator.observe(List.of(noise(random, 13 + 61)));
+        assertEquals(0, aggregator.getQuietServices());
+    }
+
+    private static FleetAnomalyAggregator newAggregator() {
+        return new FleetAnomalyAggregator(Duration.ofMillis(6 * BUCKET), 6, 8, 20, 4.0, 0.5);
+    }
+
+    private static AnomalyToken noise(Random random, int bucket) {
+        double[] features = new double[ATTACK.length];
+        for (int d = 0; d < features.length; d++) {
+            features[d] = random.nextGaussian() * 50;
+        }
+        return suspect("checkout", bucket * BUCKET + random.nextInt((int) BUCKET), features, Map.of());
+    }
+
+    private static AnomalyToken suspect(String serviceId, long timestamp, double[] features,
+                                        Map<String, String> metadata) {
+        return new AnomalyToken(serviceId, metadata, timestamp, 0.93, features, true);
+    }
+}
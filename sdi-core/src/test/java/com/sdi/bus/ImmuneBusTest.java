@@ -0,0 +1,102 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@DisplayName("Immune Bus Tests")
+class ImmuneBusTest {
+
+    private static final double[] FEATURES = {0.125, 42.0, -3.5, 1e-3};
+
+    @Test
+    @DisplayName("Should round-trip anomaly events through the binary schema")
+    void testCodecRoundTrip() {
+        AnomalyToken token = new AnomalyToken("checkout", Map.of("payload", "' OR 1=1 --", "path", "/pay"),
+            1_700_000_000_000L, 0.9731, FEATURES);
+
+        AnomalyToken exact = AnomalyEventCodec.decode(AnomalyEventCodec.encode(token, false));
+        assertEquals("checkout", exact.getServiceId());
+        assertEquals(token.getMetadata(), exact.getMetadata());
+        assertEquals(token.getTimestamp(), exact.getTimestamp());
+        assertEquals(token.getAnomalyScore(), exact.getAnomalyScore());
+        assertArrayEquals(FEATURES, exact.getFeatureVector());
+
+        byte[] compact = AnomalyEventCodec.encode(token);
+        assertArrayEquals(FEATURES, AnomalyEventCodec.decode(compact).getFeatureVector(), 1e-6);
+        assertTrue(compact.length < AnomalyEventCodec.encode(token, false).length);
+    }
+
+    @Test
+    @DisplayName("Should reject unknown versions and truncated events")
+    void testCodecRejectsBadInput() {
+        byte[] encoded = AnomalyEventCodec.encode(new AnomalyToken("svc", Map.of(), 1L, 0.5, FEATURES));
+
+        byte[] future = encoded.clone();
+        future[1] = (byte) (AnomalyEventCodec.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> AnomalyEventCodec.decode(future));
+        assertThrows(IllegalArgumentException.class,
+            () -> AnomalyEventCodec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+        assertThrows(IllegalArgumentException.class,
+            () -> AnomalyEventCodec.decode("{\"serviceId\":\"svc\"}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("Should publish binary events keyed by service to the configured topic")
+    void testPublisherKeysByService() throws Exception {
+        MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer());
+        ImmuneBusPublisher publisher =
+            new ImmuneBusPublisher(new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)), "immune-bus");
+
+        publisher.publish(new AnomalyToken("checkout", Map.of(), 1L, 0.9, FEATURES)).get();
+
+        ProducerRecord<String, byte[]> record = producer.history().get(0);
+        assertEquals("immune-bus", record.topic());
+        assertEquals("checkout", record.key());
+        assertEquals(0.9, AnomalyEventCodec.decode(record.value()).getAnomalyScore());
+    }
+
+    @Test
+    @DisplayName("Should collapse a batch to the strongest event per service and skip malformed records")
+    void testConsumerBatch() {
+        List<AnomalyToken> handled = new CopyOnWriteArrayList<>();
+        ImmuneBusConsumer consumer = new ImmuneBusConsumer(
+            new DefaultKafkaConsumerFactory<>(ImmuneBusConsumer.consumerConfig(Map.of(), 10)),
+            "immune-bus", "sdi-pre", 1, 2, handled::add);
+        try {
+            consumer.onBatch(List.of(
+                record(0, "checkout", AnomalyEventCodec.encode(new AnomalyToken("checkout", Map.of(), 1L, 0.6, FEATURES))),
+                record(1, "checkout", AnomalyEventCodec.encode(new AnomalyToken("checkout", Map.of(), 2L, 0.95, FEATURES))),
+                record(2, "search", "not an event".getBytes(StandardCharsets.UTF_8)),
+                record(3, "search", AnomalyEventCodec.encode(new AnomalyToken("search", Map.of(), 3L, 0.7, FEATURES)))
+            )).join();
+
+            assertEquals(2, handled.size(), "One response per service");
+            AnomalyToken checkout = handled.stream()
+                .filter(token -> token.getServiceId().equals("checkout")).findFirst().orElseThrow();
+            assertEquals(0.95, checkout.getAnomalyScore());
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private static ConsumerRecord<String, byte[]> record(long offset, String key, byte[] value) {
+        return new ConsumerRecord<>("immune-bus", 0, offset, key, value);
+    }
+}
@@ -0,0 +1,138 @@
+package com.sdi.bus;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.GmmSnapshot;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@DisplayName("Model Distribution Tests")
+class ModelDistributionTest {
+
+    @Test
+    @DisplayName("Should round-trip keyframes and encode small changes as compact deltas")
+    void testCodec() {
+        GmmSnapshot keyframe = train(1);
+        GmmSnapshot next = withMean(keyframe, keyframe.getVersion() + 1, 2, 7.5);
+
+        GmmSnapshot decoded = ModelSnapshotCodec.decode(ModelSnapshotCodec.encodeKeyframe(keyframe), null);
+        assertEquals(keyframe.getVersion(), decoded.getVersion());
+        assertTrue(keyframe.sameParameters(decoded));
+
+        byte[] delta = ModelSnapshotCodec.encodeDelta(next, keyframe);
+        assertTrue(delta.length * 4 < ModelSnapshotCodec.encodeKeyframe(next).length, "delta is " + delta.length);
+        assertEquals(keyframe.getVersion(), ModelSnapshotCodec.baseVersion(delta));
+        assertTrue(next.sameParameters(ModelSnapshotCodec.decode(delta, keyframe)));
+
+        assertThrows(IllegalArgumentException.class, () -> ModelSnapshotCodec.decode(delta, null));
+        assertThrows(IllegalArgumentException.class, () -> ModelSnapshotCodec.decode(delta, next));
+    }
+
+    @Test
+    @DisplayName("Should publish keyframes and deltas that a fresh subscriber hot-swaps in")
+    void testPublishAndInstall() throws Exception {
+        // The template closes its producer after every send; keep the mock open across sends
+        MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()) {
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+        ModelSnapshotPublisher publisher = new ModelSnapshotPublisher(
+            new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)), "sdi-models", 3);
+
+        GmmSnapshot v1 = train(2);
+        List<GmmSnapshot> published = new ArrayList<>(List.of(v1));
+        for (int i = 1; i < 4; i++) {
+            published.add(withMean(published.get(i - 1), v1.getVersion() + i, i, i));
+        }
+        for (GmmSnapshot snapshot : published) {
+            publisher.publish(snapshot).get();
+        }
+
+        List<ProducerRecord<String, byte[]>> history = producer.history();
+        assertEquals(List.of(ModelSnapshotPublisher.KEYFRAME_KEY, ModelSnapshotPublisher.DELTA_KEY,
+                             ModelSnapshotPublisher.DELTA_KEY, ModelSnapshotPublisher.KEYFRAME_KEY),
+            history.stream().map(ProducerRecord::key).toList());
+        assertTrue(history.stream().allMatch(record -> record.partition() == 0));
+
+        // A subscriber that joins after compaction sees only the latest keyframe and delta
+        AnomalyDetector detector = new AnomalyDetector();
+        ModelSnapshotSubscriber subscriber = subscriber(detector);
+        subscriber.apply(history.get(2).value()); // delta before any keyframe: skipped
+        assertNull(detector.getSnapshot());
+        subscriber.apply(history.get(0).value());
+        subscriber.apply(history.get(2).value());
+        assertEquals(published.get(2).getVersion(), detector.getSnapshot().getVersion());
+        assertTrue(published.get(2).sameParameters(detector.getSnapshot()));
+
+        subscriber.apply(history.get(3).value());
+        assertEquals(published.get(3).getVersion(), subscriber.getLatest().getVersion());
+        assertFalse(detector.install(published.get(1)), "Older versions are never installed");
+    }
+
+    @Test
+    @DisplayName("Should notify the training listener with each locally trained model")
+    void testTrainingListener() {
+        AnomalyDetector detector = new AnomalyDetector();
+        List<GmmSnapshot> trained = new ArrayList<>();
+        detector.setTrainingListener(trained::add);
+
+        GmmSnapshot first = detector.trainOnFeatures(features(3, 50));
+        GmmSnapshot second = detector.trainOnFeatures(features(4, 50));
+
+        assertEquals(List.of(first, second), trained);
+        assertTrue(second.getVersion() > first.getVersion());
+        assertSame(second, detector.getSnapshot());
+        assertNull(detector.trainOnFeatures(features(5, 2)), "Too few samples");
+    }
+
+    private static ModelSnapshotSubscriber subscriber(AnomalyDetector detector) {
+        return new ModelSnapshotSubscriber(
+            new DefaultKafkaConsumerFactory<>(ModelSnapshotSubscriber.consumerConfig(Map.of())),
+            "sdi-models", Duration.ZERO, detector::install);
+    }
+
+    private static GmmSnapshot train(long seed) {
+        return new AnomalyDetector().trainOnFeatures(features(seed, 200));
+    }
+
+    private static List<double[]> features(long seed, int count) {
+        Random random = new Random(seed);
+        List<double[]> vectors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double[] vector = new double[10];
+            for (int d = 0; d < vector.length; d++) {
+                vector[d] = random.nextGaussian() * (d + 1);
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    private static GmmSnapshot withMean(GmmSnapshot snapshot, long version, int component, double value) {
+        double[] weights = new double[snapshot.getComponents()];
+        double[][] means = new double[snapshot.getComponents()][];
+        double[][][] covariances = new double[snapshot.getComponents()][][];
+        for (int c = 0; c < weights.length; c++) {
+            weights[c] = snapshot.getWeight(c);
+            means[c] = snapshot.getMean(c);
+            covariances[c] = snapshot.getCovariance(c);
+        }
+        means[component][0] = value;
+        return new GmmSnapshot(version, snapshot.getTrainedSamples(), weights, means, covariances);
+    }
+}
@@ -0,0 +1,110 @@
+package com.sdi.deployer;
+
+import com.sdi.deployer.CanaryMetricsSource.MetricsSample;
+import com.sdi.deployer.CanaryValidator.CanaryVerdict;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Canary Validator Tests")
+class CanaryValidatorTest {
+
+    private CanaryValidator validator;
+
+    @AfterEach
+    void tearDown() {
+        if (validator != null) {
+            validator.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should pass early when canary is clearly within tolerance")
+    void testEarlyPass() throws Exception {
+        validator = newValidator(new StubMetricsSource(100.0, 0.01, 95.0, 0.005, 1000), Duration.ofSeconds(30));
+
+        CanaryVerdict verdict = validator.validate("default", "svc", "svc-canary-1").get(5, TimeUnit.SECONDS);
+
+        assertTrue(verdict.isPassed(), verdict.getReason());
+        assertTrue(verdict.getReason().contains("significantly"), "Decided before the deadline");
+    }
+
+    @Test
+    @DisplayName("Should fail early when canary latency regresses")
+    void testEarlyLatencyFailure() throws Exception {
+        validator = newValidator(new StubMetricsSource(100.0, 0.01, 180.0, 0.01, 1000), Duration.ofSeconds(30));
+
+        CanaryVerdict verdict = validator.validate("default", "svc", "svc-canary-2").get(5, TimeUnit.SECONDS);
+
+        assertFalse(verdict.isPassed());
+        assertTrue(verdict.getReason().startsWith("Latency"), verdict.getReason());
+    }
+
+    @Test
+    @DisplayName("Should fail when canary error rate regresses")
+    void testErrorRateFailure() throws Exception {
+        validator = newValidator(new StubMetricsSource(100.0, 0.01, 100.0, 0.05, 1000), Duration.ofSeconds(30));
+
+        CanaryVerdict verdict = validator.validate("default", "svc", "svc-canary-3").get(5, TimeUnit.SECONDS);
+
+        assertFalse(verdict.isPassed());
+        assertTrue(verdict.getReason().startsWith("Error rate"), verdict.getReason());
+    }
+
+    @Test
+    @DisplayName("Should fail after repeated metric fetch failures")
+    void testFetchFailures() throws Exception {
+        AtomicInteger fetches = new AtomicInteger();
+        CanaryMetricsSource unavailable = (namespace, workload) -> {
+            fetches.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("connection refused"));
+        };
+        validator = newValidator(unavailable, Duration.ofSeconds(30));
+
+        CanaryVerdict verdict = validator.validate("default", "svc", "svc-canary-4").get(5, TimeUnit.SECONDS);
+
+        assertFalse(verdict.isPassed());
+        assertTrue(verdict.getReason().contains("connection refused"));
+        assertEquals(6, fetches.get(), "Three polls of baseline and canary");
+    }
+
+    @Test
+    @DisplayName("Should decide on point estimates at the deadline")
+    void testDeadlineVerdict() throws Exception {
+        // Too little canary traffic for an early pass
+        CanaryMetricsSource flat = (namespace, workload) ->
+            CompletableFuture.completedFuture(new MetricsSample(100.0, 10, 0));
+        validator = newValidator(flat, Duration.ofMillis(100));
+
+        CanaryVerdict verdict = validator.validate("default", "svc", "svc-canary-5").get(5, TimeUnit.SECONDS);
+
+        assertTrue(verdict.isPassed());
+        assertTrue(verdict.getReason().startsWith("Inconclusive at deadline"), verdict.getReason());
+    }
+
+    @Test
+    @DisplayName("Should decide at a latency budget shorter than the deadline")
+    void testBudgetVerdict() throws Exception {
+        CanaryMetricsSource flat = (namespace, workload) ->
+            CompletableFuture.completedFuture(new MetricsSample(100.0, 10, 0));
+        validator = newValidator(flat, Duration.ofSeconds(30));
+
+        CanaryVerdict verdict = validator.validate("default", "svc", "svc-canary-6", Duration.ofMillis(100))
+            .get(5, TimeUnit.SECONDS);
+
+        assertTrue(verdict.isPassed());
+        assertTrue(verdict.getReason().startsWith("Inconclusive at latency budget"), verdict.getReason());
+        assertTrue(verdict.getElapsed().compareTo(Duration.ofSeconds(1)) < 0, "Ended at the budget");
+    }
+
+    private static CanaryValidator newValidator(CanaryMetricsSource source, Duration maxDuration) {
+        return new CanaryValidator(source, Duration.ZERO, Duration.ofMillis(5), maxDuration,
+            3, 1000, 0.05, 1.2, 1.1);
+    }
+}
@@ -0,0 +1,138 @@
+package com.sdi.deployer;
+
+import com.sdi.deployer.FleetPropagationPlanner.PropagationState;
+import com.sdi.deployer.FleetPropagationPlanner.PropagationStatus;
+import com.sdi.deployer.ImmunizationDeployer.DeploymentTarget;
+import com.sdi.deployer.ProgressiveRollout.RolloutResult;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Collectors;
+
+@DisplayName("Fleet Propagation Planner Tests")
+class FleetPropagationPlannerTest {
+
+    private final KubernetesOperationDispatcher dispatcher = new KubernetesOperationDispatcher();
+    private final CanaryValidator validator = new CanaryValidator(new StubMetricsSource());
+    private FleetPropagationPlanner planner;
+
+    @AfterEach
+    void tearDown() {
+        if (planner != null) {
+            planner.close();
+        }
+        validator.close();
+        dispatcher.close();
+    }
+
+    @Test
+    @DisplayName("Should grow waves geometrically and interleave clusters")
+    void testPlanWaves() {
+        planner = newPlanner(new FakeDeployer(Set.of(), 0), 8);
+
+        List<List<DeploymentTarget>> waves = planner.planWaves(targets(2, 4));
+
+        assertEquals(List.of(1, 2, 4, 1), waves.stream().map(List::size).collect(Collectors.toList()));
+        List<String> secondWave = waves.get(1).stream().map(DeploymentTarget::getContext).collect(Collectors.toList());
+        assertEquals(List.of("cluster-1", "cluster-0"), secondWave, "Consecutive targets alternate clusters");
+    }
+
+    @Test
+    @DisplayName("Should immunize every target wave by wave within the concurrency limit")
+    void testPropagateAllWaves() throws Exception {
+        FakeDeployer deployer = new FakeDeployer(Set.of(), 5);
+        planner = newPlanner(deployer, 2);
+
+        PropagationState state = planner.propagate("svc", "img:v2", targets(3, 3)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(PropagationStatus.IMMUNIZED, state.getStatus(), state.getReason());
+        assertEquals(9, state.getResults().size());
+        assertEquals(4, state.getTotalWaves());
+        assertTrue(deployer.maxInFlight.get() <= 2, "At most two rollouts in flight");
+        assertSame(state, planner.getPropagationState(state.getPropagationId()));
+    }
+
+    @Test
+    @DisplayName("Should keep only the most recent finished propagations")
+    void testPrunesFinishedPropagations() throws Exception {
+        planner = newPlanner(new FakeDeployer(Set.of(), 0), 8);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i <= FinishedStates.DEFAULT_MAX_FINISHED; i++) {
+            ids.add(planner.propagate("svc", "img:v" + i, targets(1, 1)).get(10, TimeUnit.SECONDS).getPropagationId());
+        }
+
+        assertNull(planner.getPropagationState(ids.get(0)), "Oldest finished propagation pruned");
+        assertNotNull(planner.getPropagationState(ids.get(ids.size() - 1)));
+    }
+
+    @Test
+    @DisplayName("Should halt before the next wave when a wave fails")
+    void testHaltOnFailedWave() throws Exception {
+        List<DeploymentTarget> targets = targets(2, 2);
+        FakeDeployer deployer = new FakeDeployer(Set.of(targets.get(0).toString()), 0);
+        planner = newPlanner(deployer, 8);
+
+        PropagationState state = planner.propagate("svc", "img:v2", targets).get(10, TimeUnit.SECONDS);
+
+        assertEquals(PropagationStatus.HALTED, state.getStatus());
+        assertEquals(1, state.getCurrentWave());
+        assertEquals(1, deployer.rollouts.get(), "Later waves never started");
+    }
+
+    private FleetPropagationPlanner newPlanner(ImmunizationDeployer deployer, int maxConcurrentRollouts) {
+        return new FleetPropagationPlanner(deployer, Map.of(), List.of("default"),
+            maxConcurrentRollouts, 1, 2.0, 0.0);
+    }
+
+    private static List<DeploymentTarget> targets(int clusters, int perCluster) {
+        List<DeploymentTarget> targets = new ArrayList<>();
+        for (int c = 0; c < clusters; c++) {
+            for (int n = 0; n < perCluster; n++) {
+                targets.add(new DeploymentTarget("cluster-" + c, "ns-" + n, "svc", "svc", null));
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Deployer whose rollouts complete after a short delay without touching Kubernetes
+     */
+    private class FakeDeployer extends ImmunizationDeployer {
+        final Set<String> failing;
+        final long delayMillis;
+        final AtomicInteger rollouts = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        FakeDeployer(Set<String> failing, long delayMillis) {
+            super(dispatcher, validator);
+            this.failing = failing;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public CompletableFuture<RolloutResult> rollout(DeploymentTarget target, String imageTag,
+                                                        DoubleConsumer weightListener) {
+            rollouts.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            boolean succeeded = !failing.contains(target.toString());
+            return CompletableFuture.supplyAsync(() -> {
+                inFlight.decrementAndGet();
+                return new RolloutResult(succeeded, succeeded ? 1.0 : 0.05,
+                    succeeded ? "Promoted" : "Analysis failed", List.of());
+            }, CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+}
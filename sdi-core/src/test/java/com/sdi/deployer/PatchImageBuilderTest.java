@@ -0,0 +1,230 @@
+package com.sdi.deployer;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sdi.deployer.PatchImageBuilder.BuildResult;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+@DisplayName("Patch Image Builder Tests")
+class PatchImageBuilderTest {
+
+    private static final String HANDLER = "package com.example;\n" +
+        "public class Handler {\n" +
+        "    public int handle(int x) { return Math.max(0, x); }\n" +
+        "    static class Guard { }\n" +
+        "}\n";
+
+    @TempDir
+    Path layout;
+
+    private PatchImageBuilder builder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        writeBaseImage(layout);
+        builder = newBuilder();
+    }
+
+    @AfterEach
+    void tearDown() {
+        builder.close();
+    }
+
+    @Test
+    @DisplayName("Should add a thin class layer on top of the base image")
+    void testBuildsLayerOnBaseImage() throws Exception {
+        BuildResult result = builder.build(patch(HANDLER)).get(30, TimeUnit.SECONDS);
+
+        assertTrue(result.getImageTag().startsWith("sdi-immunized:svc-"));
+        assertEquals(2, result.getClassCount(), "Top-level and nested class");
+        assertFalse(result.isCached());
+
+        JsonArray manifests = readJson(layout.resolve("index.json")).getAsJsonArray("manifests");
+        assertEquals(2, manifests.size());
+        JsonObject manifest = readBlob(result.getManifestDigest());
+        JsonArray layers = manifest.getAsJsonArray("layers");
+        assertEquals(2, layers.size(), "Base layer plus patch layer");
+        assertEquals(result.getLayerDigest(), layers.get(1).getAsJsonObject().get("digest").getAsString());
+        JsonObject config = readBlob(manifest.getAsJsonObject("config").get("digest").getAsString());
+        assertEquals(2, config.getAsJsonObject("rootfs").getAsJsonArray("diff_ids").size());
+
+        byte[] tar = new GZIPInputStream(new ByteArrayInputStream(Files.readAllBytes(blob(result.getLayerDigest()))))
+            .readAllBytes();
+        String entries = new String(tar, StandardCharsets.ISO_8859_1);
+        assertTrue(entries.contains("app/classes/com/example/Handler.class"));
+        assertTrue(entries.contains("app/classes/com/example/Handler$Guard.class"));
+        assertEquals(0, tar.length % 512);
+    }
+
+    @Test
+    @DisplayName("Should build identical patches once, also across restarts")
+    void testCachesByPatchContent() throws Exception {
+        CompletableFuture<BuildResult> first = builder.build(patch(HANDLER));
+        CompletableFuture<BuildResult> second = builder.build(patch(HANDLER));
+
+        assertEquals(first.get(30, TimeUnit.SECONDS).getImageTag(), second.get(30, TimeUnit.SECONDS).getImageTag());
+        assertEquals(1, builder.getCompilations());
+
+        builder.close();
+        builder = newBuilder();
+        BuildResult restarted = builder.build(patch(HANDLER)).get(30, TimeUnit.SECONDS);
+
+        assertTrue(restarted.isCached());
+        assertEquals(first.get().getManifestDigest(), restarted.getManifestDigest());
+        assertEquals(0, builder.getCompilations());
+    }
+
+    @Test
+    @DisplayName("Should report compile errors and not cache failed builds")
+    void testCompileFailureNotCached() {
+        String broken = "package com.example;\npublic class Handler { int x = ; }\n";
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> builder.build(patch(broken)).get(30, TimeUnit.SECONDS));
+        assertTrue(error.getCause().getMessage().contains("Compilation of com.example.Handler failed"));
+
+        assertThrows(ExecutionException.class, () -> builder.build(patch(broken)).get(30, TimeUnit.SECONDS));
+        assertEquals(2, builder.getCompilations(), "Retry compiled again");
+    }
+
+    @Test
+    @DisplayName("Should push the image and return the registry reference")
+    void testPushesToRegistry() throws Exception {
+        Map<String, byte[]> pushed = new ConcurrentHashMap<>();
+        String baseLayer = "/v2/team/sdi-immunized/blobs/sha256:" + "1".repeat(64);
+        pushed.put(baseLayer, new byte[0]);
+        HttpServer registry = fakeRegistry(pushed);
+        String host = "localhost:" + registry.getAddress().getPort();
+        builder.close();
+        builder = new PatchImageBuilder(layout, "{service}:latest", layout.resolve("deps"), "/app/classes", 2,
+            new RegistryPusher(host + "/team", true, null, null, Duration.ofSeconds(5)));
+        try {
+            BuildResult result = builder.build(patch(HANDLER)).get(30, TimeUnit.SECONDS);
+
+            String tag = result.getImageTag().substring(result.getImageTag().lastIndexOf(':') + 1);
+            assertEquals(host + "/team/sdi-immunized:" + tag, result.getImageTag());
+            assertTrue(pushed.containsKey("/v2/team/sdi-immunized/blobs/" + result.getLayerDigest()));
+            assertEquals(0, pushed.get(baseLayer).length, "Base layer the registry has is not uploaded again");
+            assertArrayEquals(Files.readAllBytes(blob(result.getManifestDigest())),
+                pushed.get("/v2/team/sdi-immunized/manifests/" + tag));
+        } finally {
+            registry.stop(0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse to roll out images that are not pushed")
+    void testDeployerRequiresRegistry() {
+        ImmunizationDeployer deployer = new ImmunizationDeployer();
+        deployer.setImageBuilder(builder);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> deployer.buildImage(patch(HANDLER)).get(30, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(0, builder.getCompilations());
+    }
+
+    /**
+     * Minimal OCI distribution endpoint: monolithic uploads, blobs and manifests kept by path
+     */
+    private static HttpServer fakeRegistry(Map<String, byte[]> pushed) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/v2/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            switch (exchange.getRequestMethod()) {
+                case "HEAD" -> respond(exchange, pushed.containsKey(path) ? 200 : 404);
+                case "POST" -> {
+                    exchange.getResponseHeaders().add("Location", path + "upload-1?state=x");
+                    respond(exchange, 202);
+                }
+                case "PUT" -> {
+                    String query = exchange.getRequestURI().getQuery();
+                    String target = path.contains("/blobs/uploads/")
+                        ? path.substring(0, path.indexOf("uploads/")) + query.substring(query.indexOf("digest=") + 7)
+                        : path;
+                    pushed.put(target, body);
+                    respond(exchange, 201);
+                }
+                default -> respond(exchange, 405);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private PatchImageBuilder newBuilder() {
+        return new PatchImageBuilder(layout, "{service}:latest", layout.resolve("deps"), "/app/classes", 2);
+    }
+
+    private static MutationPatch patch(String source) {
+        return new MutationPatch("svc", source, 0.01, 1, 3, System.currentTimeMillis());
+    }
+
+    private JsonObject readBlob(String digest) throws Exception {
+        return readJson(blob(digest));
+    }
+
+    private Path blob(String digest) {
+        return layout.resolve("blobs/sha256").resolve(digest.substring("sha256:".length()));
+    }
+
+    private static JsonObject readJson(Path path) throws Exception {
+        return JsonParser.parseString(Files.readString(path)).getAsJsonObject();
+    }
+
+    /**
+     * Single-layer base image tagged "latest" the way skopeo writes OCI layouts
+     */
+    private static void writeBaseImage(Path layout) throws Exception {
+        Files.writeString(layout.resolve("oci-layout"), "{\"imageLayoutVersion\":\"1.0.0\"}");
+        String config = "{\"architecture\":\"amd64\",\"os\":\"linux\"," +
+            "\"rootfs\":{\"type\":\"layers\",\"diff_ids\":[\"sha256:" + "0".repeat(64) + "\"]}}";
+        String configDigest = writeBlob(layout, config);
+        String manifest = "{\"schemaVersion\":2,\"mediaType\":\"" + PatchImageBuilder.MANIFEST_MEDIA_TYPE + "\"," +
+            "\"config\":{\"mediaType\":\"" + PatchImageBuilder.CONFIG_MEDIA_TYPE + "\",\"digest\":\"" +
+            configDigest + "\",\"size\":" + config.length() + "}," +
+            "\"layers\":[{\"mediaType\":\"" + PatchImageBuilder.LAYER_MEDIA_TYPE + "\",\"digest\":\"sha256:" +
+            "1".repeat(64) + "\",\"size\":1}]}";
+        String manifestDigest = writeBlob(layout, manifest);
+        Files.writeString(layout.resolve("index.json"), "{\"schemaVersion\":2,\"manifests\":[{\"mediaType\":\"" +
+            PatchImageBuilder.MANIFEST_MEDIA_TYPE + "\",\"digest\":\"" + manifestDigest + "\",\"size\":" +
+            manifest.length() + ",\"annotations\":{\"" + PatchImageBuilder.REF_NAME_ANNOTATION + "\":\"latest\"}}]}");
+    }
+
+    private static String writeBlob(Path layout, String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String hex = PatchImageBuilder.sha256Hex(bytes);
+        Files.createDirectories(layout.resolve("blobs/sha256"));
+        Files.write(layout.resolve("blobs/sha256").resolve(hex), bytes);
+        return "sha256:" + hex;
+    }
+}
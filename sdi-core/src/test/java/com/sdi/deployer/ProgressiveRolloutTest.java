@@ -0,0 +1,127 @@
+package com.sdi.deployer;
+
+import com.sdi.deployer.ProgressiveRollout.RolloutResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Progressive Rollout Tests")
+class ProgressiveRolloutTest {
+
+    private CanaryValidator validator;
+
+    @AfterEach
+    void tearDown() {
+        if (validator != null) {
+            validator.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should honor canary percentage as the first step")
+    void testRolloutWeights() {
+        assertEquals(List.of(0.1, 0.25, 0.5, 1.0), ProgressiveRollout.rolloutWeights(0.1, List.of(0.5, 0.25, 1.0)));
+        assertEquals(List.of(0.3, 0.5, 1.0), ProgressiveRollout.rolloutWeights(0.3, List.of(0.25, 0.5)));
+        assertThrows(IllegalArgumentException.class, () -> ProgressiveRollout.rolloutWeights(0.0, List.of()));
+    }
+
+    @Test
+    @DisplayName("Should step through weights, promote and clean up the canary")
+    void testSuccessfulRollout() throws Exception {
+        validator = newValidator(new StubMetricsSource(100.0, 0.01, 95.0, 0.005, 1000));
+        FakeWorkloads workloads = new FakeWorkloads(20, 1);
+        List<Double> observedWeights = new CopyOnWriteArrayList<>();
+
+        RolloutResult result = new ProgressiveRollout(workloads, validator, "default", "svc", "svc-canary-1",
+                "img:v2", 20, ProgressiveRollout.rolloutWeights(0.05, List.of(0.25, 0.5, 1.0)),
+                observedWeights::add)
+            .start().get(10, TimeUnit.SECONDS);
+
+        assertTrue(result.isSucceeded(), result.getReason());
+        assertEquals(3, result.getVerdicts().size(), "One gate per step below 100%");
+        assertEquals(List.of(0.05, 0.25, 0.5, 1.0), observedWeights);
+        assertEquals(20, workloads.replicas.get("svc"));
+        assertEquals("img:v2", workloads.images.get("svc"));
+        assertFalse(workloads.replicas.containsKey("svc-canary-1"), "Canary deleted after promotion");
+    }
+
+    @Test
+    @DisplayName("Should roll back and restore the baseline when a gate fails")
+    void testRollbackOnFailedGate() throws Exception {
+        validator = newValidator(new StubMetricsSource(100.0, 0.01, 200.0, 0.01, 1000));
+        FakeWorkloads workloads = new FakeWorkloads(20, 1);
+
+        RolloutResult result = new ProgressiveRollout(workloads, validator, "default", "svc", "svc-canary-2",
+                "img:v2", 20, ProgressiveRollout.rolloutWeights(0.05, List.of(0.5, 1.0)), null)
+            .start().get(10, TimeUnit.SECONDS);
+
+        assertFalse(result.isSucceeded());
+        assertEquals(0.05, result.getReachedWeight());
+        assertEquals(20, workloads.replicas.get("svc"), "Baseline restored to full size");
+        assertNull(workloads.images.get("svc"), "Baseline image untouched");
+        assertFalse(workloads.replicas.containsKey("svc-canary-2"));
+    }
+
+    @Test
+    @DisplayName("Should skip steps that do not change the replica split")
+    void testSkipsRedundantSteps() throws Exception {
+        validator = newValidator(new StubMetricsSource(100.0, 0.01, 95.0, 0.005, 1000));
+        FakeWorkloads workloads = new FakeWorkloads(2, 1);
+
+        // With two replicas 5% and 25% both mean one canary pod
+        RolloutResult result = new ProgressiveRollout(workloads, validator, "default", "svc", "svc-canary-3",
+                "img:v2", 2, ProgressiveRollout.rolloutWeights(0.05, List.of(0.25, 1.0)), null)
+            .start().get(10, TimeUnit.SECONDS);
+
+        assertTrue(result.isSucceeded());
+        assertEquals(1, result.getVerdicts().size());
+    }
+
+    private static CanaryValidator newValidator(CanaryMetricsSource source) {
+        return new CanaryValidator(source, Duration.ZERO, Duration.ofMillis(5), Duration.ofSeconds(5),
+            3, 1000, 0.05, 1.2, 1.1);
+    }
+
+    /**
+     * In-memory deployments keyed by name
+     */
+    private static class FakeWorkloads implements ProgressiveRollout.WorkloadOperations {
+        final Map<String, Integer> replicas = new ConcurrentHashMap<>();
+        final Map<String, String> images = new ConcurrentHashMap<>();
+
+        FakeWorkloads(int baselineReplicas, int canaryReplicas) {
+            replicas.put("svc", baselineReplicas);
+            for (int i = 1; i <= 3; i++) {
+                replicas.put("svc-canary-" + i, canaryReplicas);
+            }
+        }
+
+        @Override
+        public CompletableFuture<?> scale(String deploymentName, int count) {
+            replicas.put(deploymentName, count);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<?> promote(String deploymentName, String imageTag, int count) {
+            replicas.put(deploymentName, count);
+            images.put(deploymentName, imageTag);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<?> delete(String deploymentName) {
+            replicas.remove(deploymentName);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -5,8 +5,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 @DisplayName("Anomaly Detector Tests")
 class AnomalyDetectorTest {
@@ -21,6 +24,19 @@ class AnomalyDetectorTest {
     @Test
     @DisplayName("Should detect normal request as non-anomalous")
     void testNormalRequest() {
+        // The untrained default model has random components and no notion of
+        // normal traffic, so it flags nearly everything; learn a baseline first
+        Random random = new Random(42);
+        List<AnomalyDetector.RequestVector> normal = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            AnomalyDetector.RequestVector sample = createNormalRequest();
+            sample.setPathLength(8 + random.nextInt(5));
+            sample.setBodySize(10 + random.nextInt(21));
+            sample.setHeaderCount(2 + random.nextInt(3));
+            normal.add(sample);
+        }
+        detector.train(normal);
+        
         AnomalyDetector.RequestVector vector = createNormalRequest();
         AnomalyDetector.AnomalyToken token = detector.detect(vector);
         
@@ -63,6 +79,36 @@ class AnomalyDetectorTest {
         assertEquals(3, vector.getHeaderCount());
     }
     
+    @Test
+    @DisplayName("Should export a model that reproduces the detector's probabilities")
+    void testExportedModelMatchesDetector() {
+        assertNull(detector.exportModel(), "Nothing to export before training");
+        
+        Random random = new Random(7);
+        List<double[]> training = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double[] features = new double[10];
+            for (int j = 0; j < features.length; j++) {
+                features[j] = 5 + random.nextGaussian();
+            }
+            training.add(features);
+        }
+        detector.trainOnFeatures(training);
+        detector.setAnomalyThreshold(1.1); // Report every request so its probability is visible
+        PortableModel model = detector.exportModel();
+        
+        assertEquals(detector.getSnapshot().getVersion(), model.getVersion());
+        assertEquals(1.1, model.getScreeningThreshold());
+        for (int i = 0; i < 50; i++) {
+            double[] features = training.get(i).clone();
+            features[i % 10] += random.nextGaussian();
+            double expected = 1.0 - detector.detect("svc", null, features).getAnomalyScore();
+            assertTrue(expected > 1e-9, "Probabilities large enough to compare");
+            assertEquals(expected, model.probability(features), expected * 1e-6);
+        }
+        assertSame(model, detector.exportModel(), "Cached until the model or thresholds change");
+    }
+    
     private AnomalyDetector.RequestVector createNormalRequest() {
         AnomalyDetector.RequestVector vector = new AnomalyDetector.RequestVector();
         vector.setServiceId("test-service");
@@ -0,0 +1,56 @@
+package com.sdi.honeypot;
+
+import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Map;
+
+@DisplayName("Execution Trace Tests")
+class ExecutionTraceTest {
+
+    @Test
+    @DisplayName("Should expose interned symbols through read-only views")
+    void testViews() {
+        ExecutionTrace trace = new ExecutionTrace(new TraceSymbolTable());
+        trace.setControlFlowPath(List.of("entry", "parse", "entry"));
+        trace.addTaintedVariable("userInput");
+        trace.recordSyscall("read", 2);
+        trace.recordSyscall("read", 3);
+        trace.setExceptionGraph(Map.of("IOException", "parse"));
+
+        assertEquals(List.of("entry", "parse", "entry"), trace.getControlFlowPath());
+        assertEquals(List.of("userInput"), trace.getTaintedVariables());
+        assertEquals(Map.of("read", 5), trace.getSyscalls());
+        assertEquals("parse", trace.getExceptionGraph().get("IOException"));
+        assertThrows(UnsupportedOperationException.class, () -> trace.getControlFlowPath().add("exit"));
+
+        int[] ids = trace.getControlFlowIds();
+        assertEquals(ids[0], ids[2], "Repeated symbols share one id");
+    }
+
+    @Test
+    @DisplayName("Should compare control flow as interned ids")
+    void testControlFlowComparison() {
+        TraceSymbolTable symbols = new TraceSymbolTable();
+        ExecutionTrace first = new ExecutionTrace(symbols);
+        ExecutionTrace second = new ExecutionTrace(symbols);
+        for (String method : List.of("entry", "vulnerable_method", "exploit_execution")) {
+            first.appendControlFlow(method);
+            second.appendControlFlow(method);
+        }
+        second.trimToSize();
+
+        assertTrue(first.hasSameControlFlow(second));
+        assertEquals(first.controlFlowFingerprint(), second.controlFlowFingerprint());
+
+        second.appendControlFlow("exit");
+        assertFalse(first.hasSameControlFlow(second));
+
+        ExecutionTrace otherTable = new ExecutionTrace(new TraceSymbolTable());
+        otherTable.setControlFlowPath(first.getControlFlowPath());
+        assertTrue(first.hasSameControlFlow(otherTable));
+    }
+}
@@ -0,0 +1,94 @@
+package com.sdi.honeypot;
+
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodCondition;
+import io.kubernetes.client.openapi.models.V1PodStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@DisplayName("Honeypot Lifecycle Manager Tests")
+class HoneypotLifecycleManagerTest {
+
+    private List<String> deletedPods;
+    private HoneypotLifecycleManager lifecycle;
+
+    @BeforeEach
+    void setUp() {
+        deletedPods = new ArrayList<>();
+        lifecycle = new HoneypotLifecycleManager(
+            "default", Duration.ofMinutes(5), Duration.ofSeconds(5), podName -> {
+                deletedPods.add(podName);
+                return CompletableFuture.completedFuture(null);
+            });
+    }
+
+    @Test
+    @DisplayName("Should complete readiness future when watch reports pod ready")
+    void testReadinessFromWatch() {
+        CompletableFuture<V1Pod> ready = lifecycle.awaitReady("honeypot-a");
+
+        lifecycle.onAdd(pod("honeypot-a", "Pending", false, OffsetDateTime.now()));
+        assertFalse(ready.isDone(), "Pending pod should not be ready");
+
+        lifecycle.onUpdate(null, pod("honeypot-a", "Running", true, OffsetDateTime.now()));
+        assertTrue(ready.isDone());
+        assertFalse(ready.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Should resolve readiness from cache for already-ready pods")
+    void testReadinessFromCache() {
+        lifecycle.onAdd(pod("honeypot-b", "Running", true, OffsetDateTime.now()));
+
+        CompletableFuture<V1Pod> ready = lifecycle.awaitReady("honeypot-b");
+
+        assertTrue(ready.isDone());
+        assertFalse(ready.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Should fail readiness when pod is deleted or fails")
+    void testReadinessFailure() {
+        CompletableFuture<V1Pod> deleted = lifecycle.awaitReady("honeypot-c");
+        lifecycle.onAdd(pod("honeypot-c", "Pending", false, OffsetDateTime.now()));
+        lifecycle.onDelete(pod("honeypot-c", "Pending", false, OffsetDateTime.now()), false);
+        assertTrue(deleted.isCompletedExceptionally());
+        assertFalse(lifecycle.isTracked("honeypot-c"));
+
+        CompletableFuture<V1Pod> failed = lifecycle.awaitReady("honeypot-d");
+        lifecycle.onAdd(pod("honeypot-d", "Failed", false, OffsetDateTime.now()));
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Should reap only pods older than TTL, once")
+    void testReapExpired() {
+        lifecycle.onAdd(pod("honeypot-old", "Running", true, OffsetDateTime.now().minusMinutes(30)));
+        lifecycle.onAdd(pod("honeypot-new", "Running", true, OffsetDateTime.now()));
+
+        assertEquals(1, lifecycle.reapExpired());
+        assertEquals(List.of("honeypot-old"), deletedPods);
+
+        // Deletion in flight: no duplicate delete on the next sweep
+        assertEquals(0, lifecycle.reapExpired());
+        assertEquals(1, deletedPods.size());
+    }
+
+    private V1Pod pod(String name, String phase, boolean ready, OffsetDateTime createdAt) {
+        V1Pod pod = new V1Pod();
+        pod.setMetadata(new V1ObjectMeta().name(name).creationTimestamp(createdAt));
+        V1PodStatus status = new V1PodStatus().phase(phase);
+        status.addConditionsItem(new V1PodCondition().type("Ready").status(ready ? "True" : "False"));
+        pod.setStatus(status);
+        return pod;
+    }
+}
@@ -0,0 +1,68 @@
+package com.sdi.honeypot;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import io.kubernetes.client.openapi.ApiClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Honeypot Manager Tests")
+class HoneypotManagerTest {
+
+    private KubernetesOperationDispatcher dispatcher;
+    private HoneypotManager manager;
+
+    @BeforeEach
+    void setUp() {
+        // Nothing listens here; no test may depend on a cluster
+        ApiClient client = new ApiClient().setBasePath("http://127.0.0.1:1");
+        // One call, then everything stays queued
+        dispatcher = new KubernetesOperationDispatcher(0.001, 1, 1, 1, 0, Duration.ofMillis(10), Duration.ofMillis(10));
+        manager = new HoneypotManager(client, dispatcher, "default", Duration.ofMinutes(10), Duration.ofSeconds(30));
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.shutdown();
+        dispatcher.close();
+    }
+
+    @Test
+    @DisplayName("Should not watch pods until started")
+    void testStartIsExplicit() {
+        assertFalse(manager.getLifecycleManager().isRunning(), "Creating the manager starts no watch threads");
+
+        manager.start();
+
+        assertTrue(manager.getLifecycleManager().isRunning());
+    }
+
+    @Test
+    @DisplayName("Should cancel readiness when a queued create is merged away")
+    void testDroppedCreateCancelsReadiness() {
+        manager.spawnHoneypot(token("cart"));
+        String honeypotId = manager.spawnHoneypot(token("checkout"));
+        CompletableFuture<?> ready = manager.awaitReady(honeypotId);
+
+        manager.destroyHoneypot(honeypotId);
+
+        // Fails now rather than after the 30s ready timeout
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> ready.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, thrown.getCause());
+        assertEquals(1, dispatcher.getMergedOperations());
+    }
+
+    private static AnomalyToken token(String serviceId) {
+        return new AnomalyToken(serviceId, Map.of(), System.currentTimeMillis(), 0.95, new double[] {1.0});
+    }
+}
@@ -0,0 +1,214 @@
+package com.sdi.honeypot;
+
+import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+@DisplayName("Streaming Trace Collector Tests")
+class StreamingTraceCollectorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private StreamingTraceCollector collector;
+    private BlockingQueue<Snapshot> snapshots;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        snapshots = new LinkedBlockingQueue<>();
+        collector = new StreamingTraceCollector(1024 * 1024, 1024, Duration.ZERO);
+        collector.addListener((honeypotId, trace, complete) ->
+            snapshots.add(new Snapshot(honeypotId, trace, complete)));
+        collector.start(new InetSocketAddress("127.0.0.1", 0), tempDir.resolve("trace.sock"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        collector.close();
+    }
+
+    @Test
+    @DisplayName("Should decode a trace streamed over a Unix domain socket")
+    void testUnixSocketTrace() throws Exception {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(tempDir.resolve("trace.sock")));
+            streamTrace(channel, "honeypot-unix");
+        }
+
+        Snapshot last = awaitComplete();
+        assertEquals("honeypot-unix", last.honeypotId);
+        assertEquals(List.of("entry", "parseInput", "exec", "entry"), last.trace.getControlFlowPath());
+        assertEquals(List.of("userInput"), last.trace.getTaintedVariables());
+        assertEquals(3, last.trace.getSyscalls().get("execve"));
+        assertEquals("exec", last.trace.getExceptionGraph().get("IOException"));
+        assertEquals("'; DROP TABLE", last.trace.getPayload());
+    }
+
+    @Test
+    @DisplayName("Should publish partial traces before the stream ends")
+    void testPartialTraceOverTcp() throws Exception {
+        InetSocketAddress address = (InetSocketAddress) collector.getLocalAddresses().get(0);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            write(channel, hello("honeypot-tcp"));
+            write(channel, symbol(0, "entry"));
+            write(channel, ids(StreamingTraceCollector.FRAME_CONTROL_FLOW, 0, 0));
+
+            Snapshot partial = snapshots.poll(5, TimeUnit.SECONDS);
+            assertNotNull(partial, "Partial snapshot expected before END");
+            assertFalse(partial.complete);
+            assertEquals(2, partial.trace.getControlFlowPath().size());
+        }
+
+        // Disconnect without END still delivers the final trace
+        assertEquals("honeypot-tcp", awaitComplete().honeypotId);
+    }
+
+    @Test
+    @DisplayName("Should drop connections that reference undefined symbols")
+    void testRejectsUndefinedSymbol() throws Exception {
+        InetSocketAddress address = (InetSocketAddress) collector.getLocalAddresses().get(0);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            write(channel, hello("honeypot-bad"));
+            write(channel, ids(StreamingTraceCollector.FRAME_CONTROL_FLOW, 42));
+
+            ByteBuffer sink = ByteBuffer.allocate(16);
+            assertEquals(-1, channel.read(sink), "Collector should close the connection");
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop connections that define symbol ids above the limit")
+    void testRejectsHugeSymbolId() throws Exception {
+        InetSocketAddress address = (InetSocketAddress) collector.getLocalAddresses().get(0);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            write(channel, hello("honeypot-huge"));
+            write(channel, symbol(Integer.MAX_VALUE - 1, "entry"));
+
+            ByteBuffer sink = ByteBuffer.allocate(16);
+            assertEquals(-1, channel.read(sink), "Collector should close the connection");
+        }
+
+        // Other honeypots are still served
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            streamTrace(channel, "honeypot-next");
+        }
+        Snapshot last;
+        do {
+            last = awaitComplete();
+        } while (!last.honeypotId.equals("honeypot-next"));
+        assertEquals(4, last.trace.getControlFlowPath().size());
+    }
+
+    @Test
+    @DisplayName("Should drop streams from unknown honeypots at HELLO")
+    void testRejectsUnknownHoneypot() throws Exception {
+        collector.setHoneypotFilter("honeypot-known"::equals);
+        InetSocketAddress address = (InetSocketAddress) collector.getLocalAddresses().get(0);
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            write(channel, hello("honeypot-forged"));
+            write(channel, symbol(0, "entry"));
+
+            ByteBuffer sink = ByteBuffer.allocate(16);
+            assertEquals(-1, channel.read(sink), "Collector should close the connection");
+        }
+
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            streamTrace(channel, "honeypot-known");
+        }
+        Snapshot first = snapshots.poll(5, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals("honeypot-known", first.honeypotId, "Nothing published for the forged stream");
+    }
+
+    private void streamTrace(SocketChannel channel, String honeypotId) throws IOException {
+        write(channel, hello(honeypotId));
+        write(channel, symbol(0, "entry"));
+        write(channel, symbol(1, "parseInput"));
+        write(channel, symbol(2, "exec"));
+        write(channel, symbol(3, "userInput"));
+        write(channel, symbol(4, "execve"));
+        write(channel, symbol(5, "IOException"));
+        write(channel, ids(StreamingTraceCollector.FRAME_CONTROL_FLOW, 0, 1, 2));
+        write(channel, ids(StreamingTraceCollector.FRAME_CONTROL_FLOW, 0));
+        write(channel, ids(StreamingTraceCollector.FRAME_TAINTED, 3));
+        write(channel, ids(StreamingTraceCollector.FRAME_SYSCALLS, 4, 2, 4, 1));
+        write(channel, ids(StreamingTraceCollector.FRAME_EXCEPTION_EDGES, 5, 2));
+        write(channel, frame(StreamingTraceCollector.FRAME_PAYLOAD, "'; DROP TABLE".getBytes(StandardCharsets.UTF_8)));
+        write(channel, frame(StreamingTraceCollector.FRAME_END, new byte[0]));
+    }
+
+    private Snapshot awaitComplete() throws InterruptedException {
+        while (true) {
+            Snapshot snapshot = snapshots.poll(5, TimeUnit.SECONDS);
+            assertNotNull(snapshot, "Timed out waiting for complete trace");
+            if (snapshot.complete) {
+                return snapshot;
+            }
+        }
+    }
+
+    private static byte[] hello(String honeypotId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(StreamingTraceCollector.PROTOCOL_VERSION);
+        out.writeUTF(honeypotId);
+        return frame(StreamingTraceCollector.FRAME_HELLO, bytes.toByteArray());
+    }
+
+    private static byte[] symbol(int localId, String symbol) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(localId);
+        out.writeUTF(symbol);
+        return frame(StreamingTraceCollector.FRAME_SYMBOL, bytes.toByteArray());
+    }
+
+    /**
+     * List frame; for pair-valued frames pass flattened pairs
+     */
+    private static byte[] ids(byte type, int... values) throws IOException {
+        boolean pairs = type == StreamingTraceCollector.FRAME_SYSCALLS
+            || type == StreamingTraceCollector.FRAME_EXCEPTION_EDGES;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(pairs ? values.length / 2 : values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+        return frame(type, bytes.toByteArray());
+    }
+
+    private static byte[] frame(byte type, byte[] body) {
+        ByteBuffer frame = ByteBuffer.allocate(4 + 1 + body.length);
+        frame.putInt(1 + body.length).put(type).put(body);
+        return frame.array();
+    }
+
+    private static void write(SocketChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private record Snapshot(String honeypotId, ExecutionTrace trace, boolean complete) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.sdi.kubernetes;
+
+import io.kubernetes.client.openapi.ApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Kubernetes Operation Dispatcher Tests")
+class KubernetesOperationDispatcherTest {
+
+    private FakeKubernetesApi api;
+    private KubernetesOperationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        api = new FakeKubernetesApi();
+        dispatcher = new KubernetesOperationDispatcher(
+            1000.0, 100, 8, 2, 3, Duration.ofMillis(5), Duration.ofMillis(20));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.close();
+    }
+
+    @Test
+    @DisplayName("Should execute create and delete in order")
+    void testCreateThenDelete() throws Exception {
+        assertEquals("pod-a", dispatcher.create("ns", "pod/a", () -> api.create("ns/pod-a")).get(5, TimeUnit.SECONDS));
+        assertTrue(api.objects.containsKey("ns/pod-a"));
+
+        dispatcher.delete("ns", "pod/a", () -> api.delete("ns/pod-a")).get(5, TimeUnit.SECONDS);
+        assertFalse(api.objects.containsKey("ns/pod-a"));
+        assertEquals(2, api.calls.get());
+    }
+
+    @Test
+    @DisplayName("Should cancel a queued create when the same object is deleted")
+    void testMergeCreateAndDelete() throws Exception {
+        CountDownLatch blocker = blockNamespace("ns");
+
+        CompletableFuture<String> create = dispatcher.create("ns", "pod/b", () -> api.create("ns/pod-b"));
+        CompletableFuture<String> delete = dispatcher.delete("ns", "pod/b", () -> api.delete("ns/pod-b"));
+        blocker.countDown();
+
+        assertNull(create.get(5, TimeUnit.SECONDS));
+        assertNull(delete.get(5, TimeUnit.SECONDS));
+        assertFalse(api.objects.containsKey("ns/pod-b"));
+        assertEquals(1, dispatcher.getMergedOperations());
+    }
+
+    @Test
+    @DisplayName("Should retry throttled calls with backoff")
+    void testRetryOnThrottle() throws Exception {
+        api.failNext.set(2);
+
+        String result = dispatcher.create("ns", "pod/c", () -> api.create("ns/pod-c")).get(5, TimeUnit.SECONDS);
+
+        assertEquals("pod-c", result);
+        assertEquals(2, dispatcher.getRetriedOperations());
+    }
+
+    @Test
+    @DisplayName("Should not retry client errors")
+    void testNoRetryOnConflict() {
+        api.objects.put("ns/pod-d", "pod-d");
+
+        CompletableFuture<String> create = dispatcher.create("ns", "pod/d", () -> api.create("ns/pod-d"));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> create.get(5, TimeUnit.SECONDS));
+        assertEquals(409, ((ApiException) error.getCause()).getCode());
+        assertEquals(0, dispatcher.getRetriedOperations());
+    }
+
+    @Test
+    @DisplayName("Should respect per-namespace concurrency limit")
+    void testPerNamespaceConcurrency() throws Exception {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[10];
+
+        for (int i = 0; i < futures.length; i++) {
+            String name = "pod/e" + i;
+            futures[i] = dispatcher.create("ns", name, () -> {
+                maxObserved.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                sleep(10);
+                concurrent.decrementAndGet();
+                return name;
+            });
+        }
+        CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+
+        assertTrue(maxObserved.get() <= 2, "At most 2 concurrent calls per namespace");
+    }
+
+    @Test
+    @DisplayName("Token bucket should allow burst then throttle")
+    void testTokenBucket() {
+        long[] now = {0L};
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10.0, 2, () -> now[0]);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire(), "Burst exhausted");
+
+        now[0] += 100_000_000L; // 100ms refills one token at 10/s
+        assertTrue(limiter.tryAcquire());
+        assertEquals(100_000_000L, limiter.reserve());
+    }
+
+    /**
+     * Occupy both namespace slots until the returned latch is released
+     */
+    private CountDownLatch blockNamespace(String namespace) throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            dispatcher.create(namespace, "pod/blocker" + i, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "blocker";
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * In-process stand-in for the Kubernetes API server
+     */
+    private static class FakeKubernetesApi {
+        final Map<String, String> objects = new ConcurrentHashMap<>();
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger failNext = new AtomicInteger();
+
+        String create(String key) throws ApiException {
+            calls.incrementAndGet();
+            throttleIfRequested();
+            String name = key.substring(key.indexOf('/') + 1);
+            if (objects.putIfAbsent(key, name) != null) {
+                throw new ApiException(409, "AlreadyExists");
+            }
+            return name;
+        }
+
+        String delete(String key) throws ApiException {
+            calls.incrementAndGet();
+            throttleIfRequested();
+            if (objects.remove(key) == null) {
+                throw new ApiException(404, "NotFound");
+            }
+            return key;
+        }
+
+        private void throttleIfRequested() throws ApiException {
+            if (failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new ApiException(429, "TooManyRequests");
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.sdi.metrics;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.genetic.GeneticExtractor;
+import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
+import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+import com.sdi.pre.PolymorphicResponseEngine.PipelinePhase;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Micrometer SDI Metrics Tests")
+class MicrometerSdiMetricsTest {
+
+    private static final double[] NORMAL = {12, 1, 6, 0, 70, 3, 0.5, 0.5, 0.2, 1};
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerSdiMetrics metrics = new MicrometerSdiMetrics(registry);
+
+    @Test
+    @DisplayName("Should time detector calls without allocating on the recording path")
+    void testDetectionLatency() {
+        AnomalyDetector detector = new AnomalyDetector();
+        detector.setMetrics(metrics);
+        for (int i = 0; i < 1000; i++) {
+            detector.screen("search", Map.of(), NORMAL);
+        }
+        assertEquals(1000, registry.get("sdi.detection.latency").timer().count());
+        assertTrue(registry.get("sdi.detection.latency").timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < 20_000; i++) { // Warm up so the JIT has compiled the recording path
+            metrics.recordDetection(i, null);
+            metrics.recordPhase(PipelinePhase.ISOLATION, i);
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            metrics.recordDetection(i, null);
+            metrics.recordPhase(PipelinePhase.ISOLATION, i);
+        }
+        // A single object per call would be at least 3.2 MB; allow for one-off step rollovers
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+        assertTrue(allocated < 4096, "Allocated " + allocated + " bytes");
+    }
+
+    @Test
+    @DisplayName("Should record GA generations, canary outcomes and queue depths")
+    void testPipelineMeters() {
+        GeneticExtractor extractor = new GeneticExtractor();
+        extractor.setMetrics(metrics);
+        ExecutionTrace trace = new ExecutionTrace();
+        trace.appendControlFlow("entry");
+        trace.appendControlFlow("vulnerable_method");
+        trace.addTaintedVariable("userInput");
+        AnomalyToken token = new AnomalyToken("checkout", new HashMap<>(), System.currentTimeMillis(), 0.99, NORMAL);
+        extractor.extract(new ExploitTraceBundle("hp-1", token, trace, System.currentTimeMillis()));
+
+        long extractions = registry.find("sdi.genetic.generations").summaries().stream()
+            .mapToLong(DistributionSummary::count).sum();
+        assertEquals(1, extractions);
+
+        metrics.recordCanaryValidation(com.sdi.deployer.CanaryValidator.Phase.FAILED, TimeUnit.SECONDS.toNanos(30));
+        assertEquals(1, registry.get("sdi.canary.validation").tag("outcome", "failed").timer().count());
+        assertEquals(0, registry.get("sdi.canary.validation").tag("outcome", "passed").timer().count());
+
+        ArrayBlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(8);
+        metrics.gaugeQueue("test", queue, ArrayBlockingQueue::size);
+        queue.add(() -> { });
+        queue.add(() -> { });
+        assertEquals(2.0, registry.get("sdi.queue.depth").tag("queue", "test").gauge().value());
+    }
+}
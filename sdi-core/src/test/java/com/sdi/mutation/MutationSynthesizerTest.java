@@ -0,0 +1,37 @@
+package com.sdi.mutation;
+
+import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@DisplayName("Mutation Synthesizer Tests")
+class MutationSynthesizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should return the best candidate when retries run out within the budget")
+    void testBudgetedRetriesExhausted() throws Exception {
+        // Already in printed form with no method bodies to transform, so no attempt changes anything
+        Path source = tempDir.resolve("Checkout.java");
+        Files.writeString(source, "public class Checkout {\n\n    private int total = 0;\n}\n");
+        VulnerabilitySignature vs = new VulnerabilitySignature(1, 1, 2, "input->sink", "guard", "checkout");
+        MutationSynthesizer synthesizer = new MutationSynthesizer();
+
+        MutationPatch patch = synthesizer.synthesize(vs, source.toString(), Duration.ofMinutes(1));
+
+        assertNotNull(patch);
+        assertEquals("checkout", patch.getServiceId());
+        assertTrue(patch.getBytecodeDelta() < 0.30, "Best candidate below the threshold");
+        assertThrows(RuntimeException.class, () -> synthesizer.synthesize(vs, source.toString()),
+            "Without a budget, running out of retries still fails");
+    }
+}
@@ -0,0 +1,139 @@
+package com.sdi.pre;
+
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.pre.PolymorphicResponseEngine.PipelineState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Pipeline Scheduler Tests")
+class PipelineSchedulerTest {
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private PipelineScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run the most dangerous queued pipeline first")
+    void testPriorityOrder() throws Exception {
+        scheduler = newScheduler(1, 10, 1);
+        CompletableFuture<PipelineState> blocker = scheduler.submit(token("catalog", 0.9));
+        CompletableFuture<PipelineState> orders = scheduler.submit(token("orders", 0.85));
+        CompletableFuture<PipelineState> payments = scheduler.submit(token("payments", 0.85));
+        CompletableFuture<PipelineState> search = scheduler.submit(token("search", 0.95));
+
+        release.countDown();
+        CompletableFuture.allOf(blocker, orders, payments, search).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("catalog", "payments", "search", "orders"), started,
+            "Critical service first, then by anomaly score");
+    }
+
+    @Test
+    @DisplayName("Should cap concurrent pipelines per service")
+    void testServiceCap() throws Exception {
+        scheduler = newScheduler(2, 10, 1);
+        CompletableFuture<PipelineState> first = scheduler.submit(token("checkout", 0.9));
+        CompletableFuture<PipelineState> second = scheduler.submit(token("checkout", 0.99));
+        CompletableFuture<PipelineState> other = scheduler.submit(token("search", 0.85));
+
+        waitForStarted(2);
+        assertEquals(Set.of("checkout", "search"), Set.copyOf(started), "Second checkout pipeline waits for the first");
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(1, scheduler.getQueued());
+
+        release.countDown();
+        CompletableFuture.allOf(first, second, other).get(5, TimeUnit.SECONDS);
+        assertEquals(3, started.size());
+    }
+
+    @Test
+    @DisplayName("Should preempt the lowest queued pipeline for a critical exploit")
+    void testPreemption() throws Exception {
+        scheduler = newScheduler(1, 1, 1);
+        scheduler.submit(token("catalog", 0.9));
+        CompletableFuture<PipelineState> low = scheduler.submit(token("orders", 0.85));
+
+        CompletableFuture<PipelineState> rejected = scheduler.submit(token("search", 0.95));
+        CompletableFuture<PipelineState> critical = scheduler.submit(token("payments", 0.99));
+
+        ExecutionException preempted = assertThrows(ExecutionException.class, () -> low.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, preempted.getCause());
+        assertTrue(preempted.getCause().getMessage().contains("payments"));
+        assertTrue(rejected.isCompletedExceptionally(), "Non-critical trigger rejected while the queue is full");
+
+        release.countDown();
+        assertEquals("payments", critical.get(5, TimeUnit.SECONDS).getServiceId());
+    }
+
+    @Test
+    @DisplayName("Should still cap running pipelines on virtual threads")
+    void testVirtualThreadsKeepCap() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        scheduler = new PipelineScheduler(token -> {
+            threads.add(Thread.currentThread().getName());
+            started.add(token.getServiceId());
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new PipelineState("pipeline-" + token.getTraceId(), token.getServiceId());
+        }, 2, 10, 1, Map.of(), Map.of(), Duration.ofMinutes(10), 2.0, true);
+        List<CompletableFuture<PipelineState>> results = List.of(
+            scheduler.submit(token("catalog", 0.9)), scheduler.submit(token("orders", 0.9)),
+            scheduler.submit(token("search", 0.9)), scheduler.submit(token("payments", 0.9)));
+
+        waitForStarted(2);
+        assertEquals(2, scheduler.getRunning());
+        assertEquals(2, scheduler.getQueued());
+
+        release.countDown();
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertEquals(4, started.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("sdi-pipeline-")), threads.toString());
+    }
+
+    private PipelineScheduler newScheduler(int maxConcurrent, int maxQueued, int maxPerService) {
+        return new PipelineScheduler(token -> {
+            started.add(token.getServiceId());
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new PipelineState("pipeline-" + token.getTraceId(), token.getServiceId());
+        }, maxConcurrent, maxQueued, maxPerService, Map.of(), Map.of("payments", 3.0), Duration.ofMinutes(10), 2.0);
+    }
+
+    private void waitForStarted(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (started.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static AnomalyToken token(String serviceId, double score) {
+        return new AnomalyToken(serviceId, Map.of(), System.currentTimeMillis(), score, new double[] {1.0, 2.0});
+    }
+}
@@ -0,0 +1,226 @@
+package com.sdi.pre;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.deployer.ImmunizationDeployer;
+import com.sdi.deployer.ImmunizationDeployer.DeploymentState;
+import com.sdi.deployer.ImmunizationDeployer.DeploymentStatus;
+import com.sdi.genetic.GeneticExtractor;
+import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.honeypot.HoneypotManager;
+import com.sdi.honeypot.HoneypotManager.ExecutionTrace;
+import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import com.sdi.mutation.MutationSynthesizer;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import com.sdi.pre.PolymorphicResponseEngine.PipelinePhase;
+import com.sdi.registry.InMemorySignatureRegistry;
+import com.sdi.registry.SignatureRegistry.Claim;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.models.V1Pod;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+@DisplayName("Polymorphic Response Engine Tests")
+class PolymorphicResponseEngineTest {
+
+    @Test
+    @DisplayName("Should surface the phase failure without a signature registry")
+    void testPhaseFailureWithoutRegistry() {
+        PolymorphicResponseEngine engine = failingEngine();
+        AnomalyToken token = new AnomalyToken("checkout", Map.of(), System.currentTimeMillis(), 0.95,
+            new double[] {1.0, 2.0});
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+            () -> engine.respondToAnomaly(token));
+
+        assertEquals("extraction failed", thrown.getMessage());
+        PolymorphicResponseEngine.PipelineState state =
+            engine.getPipelineState(PolymorphicResponseEngine.pipelineIdFor(token));
+        assertEquals(PipelinePhase.ANTIGEN_EXTRACTION, state.getPhase());
+        assertFalse(state.getSloMet());
+    }
+
+    @Test
+    @DisplayName("Should keep only the most recent finished pipelines")
+    void testFinishedPipelineRetention() {
+        PolymorphicResponseEngine engine = failingEngine();
+        engine.setPipelineRetention(Duration.ofHours(1), 2);
+        List<AnomalyToken> tokens = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            AnomalyToken token = new AnomalyToken("checkout", Map.of(), System.currentTimeMillis(), 0.95,
+                new double[] {1.0, 2.0});
+            tokens.add(token);
+            assertThrows(RuntimeException.class, () -> engine.respondToAnomaly(token));
+        }
+
+        assertNull(engine.getPipelineState(PolymorphicResponseEngine.pipelineIdFor(tokens.get(0))),
+            "Oldest finished pipeline evicted");
+        assertNotNull(engine.getTimeline(PolymorphicResponseEngine.pipelineIdFor(tokens.get(1))));
+        assertNotNull(engine.getTimeline(PolymorphicResponseEngine.pipelineIdFor(tokens.get(2))));
+    }
+
+    @Test
+    @DisplayName("Should destroy the honeypot when a later phase fails")
+    void testFailedPhaseDestroysHoneypot() {
+        List<String> destroyed = new CopyOnWriteArrayList<>();
+        AtomicReference<ExploitTraceBundle> captured = new AtomicReference<>();
+        HoneypotManager honeypots = new HoneypotManager(new ApiClient().setBasePath("http://127.0.0.1:1"),
+                new KubernetesOperationDispatcher(), "default", Duration.ofMinutes(10), Duration.ofSeconds(5)) {
+            @Override
+            public String spawnHoneypot(AnomalyToken token) {
+                return "honeypot-1";
+            }
+
+            @Override
+            public CompletableFuture<V1Pod> awaitReady(String honeypotId) {
+                return CompletableFuture.completedFuture(new V1Pod());
+            }
+
+            @Override
+            public void captureTrace(String honeypotId, ExecutionTrace trace) {
+                captured.set(new ExploitTraceBundle(honeypotId, null, trace, System.currentTimeMillis()));
+            }
+
+            @Override
+            public ExploitTraceBundle getTraceBundle(String honeypotId) {
+                return captured.get();
+            }
+
+            @Override
+            public void destroyHoneypot(String honeypotId) {
+                destroyed.add(honeypotId);
+            }
+        };
+        PolymorphicResponseEngine engine = new PolymorphicResponseEngine(new AnomalyDetector(), honeypots,
+            failingExtractor(), new MutationSynthesizer(), null, null);
+        AnomalyToken token = new AnomalyToken("checkout", Map.of(), System.currentTimeMillis(), 0.95,
+            new double[] {1.0, 2.0});
+
+        assertThrows(IllegalStateException.class, () -> engine.respondToAnomaly(token));
+
+        assertEquals(List.of("honeypot-1"), destroyed);
+        honeypots.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should release the claims when the rollout fails")
+    void testFailedRolloutReleasesClaims() {
+        RecordingRegistry registry = new RecordingRegistry();
+        AtomicReference<Consumer<DeploymentState>> rollout = new AtomicReference<>();
+        PolymorphicResponseEngine engine = deployingEngine(registry, rollout);
+        AnomalyToken token = new AnomalyToken("checkout", Map.of(), System.currentTimeMillis(), 0.95,
+            new double[] {1.0, 2.0});
+
+        engine.respondToAnomaly(token);
+
+        assertEquals(2, registry.claimed.size(), "Exploit and signature claimed");
+        assertTrue(registry.completed.isEmpty(), "Nothing is final while the rollout runs");
+        for (String fingerprint : registry.claimed) {
+            assertFalse(registry.claim(fingerprint, "peer", Duration.ofMinutes(1)).isGranted());
+        }
+
+        rollout.get().accept(new DeploymentState("immunized-checkout-1", "checkout", DeploymentStatus.FAILED));
+
+        assertTrue(registry.completed.isEmpty());
+        assertEquals(registry.claimed, registry.released);
+        for (String fingerprint : registry.claimed) {
+            assertTrue(registry.claim(fingerprint, "peer", Duration.ofMinutes(1)).isGranted(),
+                "A peer may respond again");
+        }
+    }
+
+    @Test
+    @DisplayName("Should complete the claims once the rollout immunized the service")
+    void testImmunizedRolloutCompletesClaims() {
+        RecordingRegistry registry = new RecordingRegistry();
+        AtomicReference<Consumer<DeploymentState>> rollout = new AtomicReference<>();
+        PolymorphicResponseEngine engine = deployingEngine(registry, rollout);
+        AnomalyToken token = new AnomalyToken("checkout", Map.of(), System.currentTimeMillis(), 0.95,
+            new double[] {1.0, 2.0});
+
+        engine.respondToAnomaly(token);
+        rollout.get().accept(new DeploymentState("immunized-checkout-1", "checkout", DeploymentStatus.IMMUNIZED));
+
+        assertEquals(registry.claimed, registry.completed);
+        assertTrue(registry.released.isEmpty());
+        Claim peer = registry.claim(registry.claimed.get(0), "peer", Duration.ofMinutes(1));
+        assertEquals("immunized-checkout-1", peer.getResult().join());
+    }
+
+    /**
+     * Engine whose rollouts only finish when the test calls the captured listener
+     */
+    private static PolymorphicResponseEngine deployingEngine(InMemorySignatureRegistry registry,
+                                                             AtomicReference<Consumer<DeploymentState>> rollout) {
+        ImmunizationDeployer deployer = new ImmunizationDeployer() {
+            @Override
+            public String deploy(MutationPatch patch, Duration validationBudget,
+                                 Consumer<DeploymentState> completionListener) {
+                rollout.set(completionListener);
+                return "immunized-checkout-1";
+            }
+        };
+        PolymorphicResponseEngine engine = new PolymorphicResponseEngine(new AnomalyDetector(), null,
+            new GeneticExtractor(), new MutationSynthesizer(), deployer, null);
+        engine.setSignatureRegistry(registry, "engine-a", Duration.ofMinutes(1));
+        return engine;
+    }
+
+    /**
+     * Registry remembering which fingerprints this engine claimed, completed and released
+     */
+    private static class RecordingRegistry extends InMemorySignatureRegistry {
+        final List<String> claimed = new CopyOnWriteArrayList<>();
+        final List<String> completed = new CopyOnWriteArrayList<>();
+        final List<String> released = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Claim claim(String fingerprint, String owner, Duration lease) {
+            Claim claim = super.claim(fingerprint, owner, lease);
+            if (claim.isGranted() && owner.equals("engine-a")) {
+                claimed.add(fingerprint);
+            }
+            return claim;
+        }
+
+        @Override
+        public void complete(Claim claim, String result) {
+            completed.add(claim.getFingerprint());
+            super.complete(claim, result);
+        }
+
+        @Override
+        public void release(Claim claim) {
+            released.add(claim.getFingerprint());
+            super.release(claim);
+        }
+    }
+
+    /**
+     * Engine whose pipelines fail in antigen extraction, so they finish right away
+     */
+    private static PolymorphicResponseEngine failingEngine() {
+        return new PolymorphicResponseEngine(new AnomalyDetector(), null, failingExtractor(),
+                                             new MutationSynthesizer(), null, null);
+    }
+
+    private static GeneticExtractor failingExtractor() {
+        return new GeneticExtractor() {
+            @Override
+            public VulnerabilitySignature extract(ExploitTraceBundle etb) {
+                throw new IllegalStateException("extraction failed");
+            }
+        };
+    }
+}
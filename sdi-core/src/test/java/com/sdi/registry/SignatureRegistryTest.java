@@ -0,0 +1,215 @@
+package com.sdi.registry;
+
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.genetic.GeneticExtractor;
+import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+import com.sdi.mutation.MutationSynthesizer;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import com.sdi.pre.PolymorphicResponseEngine;
+import com.sdi.pre.PolymorphicResponseEngine.PipelineState;
+import com.sdi.registry.SignatureRegistry.Claim;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@DisplayName("Signature Registry Tests")
+class SignatureRegistryTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(1);
+    private static final String TOPIC = "sdi-signatures";
+
+    @Test
+    @DisplayName("Should grant the first claim and hand its result to later claimants")
+    void testClaimAndComplete() throws Exception {
+        InMemorySignatureRegistry registry = new InMemorySignatureRegistry();
+
+        Claim first = registry.claim("exploit:checkout:1f", "node-a", LEASE);
+        Claim second = registry.claim("exploit:checkout:1f", "node-b", LEASE);
+        assertTrue(first.isGranted());
+        assertFalse(second.isGranted());
+        assertEquals("node-a", second.getHolder());
+
+        registry.complete(first, "deploy-42");
+        assertEquals("deploy-42", second.getResult().get(1, TimeUnit.SECONDS));
+        Claim later = registry.claim("exploit:checkout:1f", "node-c", LEASE);
+        assertFalse(later.isGranted());
+        assertTrue(later.isCompleted());
+    }
+
+    @Test
+    @DisplayName("Should let another engine take over after a release or an expired lease")
+    void testLeaseExpiryAndRelease() throws Exception {
+        AtomicLong now = new AtomicLong(1_000);
+        InMemorySignatureRegistry registry = new InMemorySignatureRegistry(now::get);
+
+        Claim crashed = registry.claim("sig", "node-a", LEASE);
+        Claim waiting = registry.claim("sig", "node-b", LEASE);
+        assertFalse(waiting.isGranted());
+
+        now.addAndGet(LEASE.toMillis() + 1);
+        Claim takeover = registry.claim("sig", "node-b", LEASE);
+        assertTrue(takeover.isGranted());
+        assertNull(waiting.getResult().get(1, TimeUnit.SECONDS), "Waiters on the old holder are woken");
+        assertFalse(registry.renew(crashed, LEASE), "The expired holder lost its claim");
+
+        registry.release(takeover);
+        assertTrue(registry.claim("sig", "node-c", LEASE).isGranted());
+    }
+
+    @Test
+    @DisplayName("Should keep the original holder when its claim was compacted away")
+    void testRenewalSurvivesCompaction() {
+        // node-a claimed at offset 3; compaction dropped it, leaving node-b's losing claim and node-a's renewal
+        RegistryEntry entry = new RegistryEntry();
+        entry.apply(RegistryEntry.Operation.CLAIM, "node-b", 5, LEASE.toMillis(), null, 2_000);
+        entry.apply(RegistryEntry.Operation.RENEW, "node-a", 3, LEASE.toMillis(), null, 3_000);
+
+        assertTrue(entry.isHeldBy("node-a", 3));
+        assertFalse(entry.isHeldBy("node-b", 5));
+    }
+
+    @Test
+    @DisplayName("Should agree on one holder across instances sharing the Kafka topic")
+    void testKafkaRegistry() throws Exception {
+        SharedLog log = new SharedLog();
+        KafkaSignatureRegistry a = log.registry();
+        KafkaSignatureRegistry b = log.registry();
+        try {
+            Claim claimA = a.claim("exploit:search:07", "node-a", LEASE);
+            Claim claimB = b.claim("exploit:search:07", "node-b", LEASE);
+            assertTrue(claimA.isGranted());
+            assertFalse(claimB.isGranted());
+            assertEquals("node-a", claimB.getHolder());
+
+            a.complete(claimA, "deploy-7");
+            assertEquals("deploy-7", claimB.getResult().get(5, TimeUnit.SECONDS));
+            assertTrue(b.claim("exploit:search:07", "node-c", LEASE).isCompleted());
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should run extraction and mutation once when two engines see the same exploit")
+    void testEnginesDeduplicate() {
+        InMemorySignatureRegistry registry = new InMemorySignatureRegistry();
+        AtomicInteger extractions = new AtomicInteger();
+        AtomicInteger mutations = new AtomicInteger();
+        PolymorphicResponseEngine first = engine(registry, "node-a", extractions, mutations);
+        PolymorphicResponseEngine second = engine(registry, "node-b", extractions, mutations);
+        AnomalyToken token = new AnomalyToken("checkout", Map.of("payload", "' OR 1=1 --"), 1L, 0.99,
+            new double[] {250, 3, 12, 40_000, 7, 19, 2.5, 0.4, 5.2, 1});
+
+        PipelineState original = first.respondToAnomaly(token);
+        PipelineState reused = second.respondToAnomaly(token);
+
+        assertEquals(1, extractions.get());
+        assertEquals(1, mutations.get());
+        assertNull(original.getDeduplicatedBy());
+        assertEquals("node-a", reused.getDeduplicatedBy());
+        assertEquals(PolymorphicResponseEngine.PipelinePhase.COMPLETE, reused.getPhase());
+        assertEquals("patch:checkout@1", reused.getDeploymentId());
+    }
+
+    private static PolymorphicResponseEngine engine(SignatureRegistry registry, String instanceId,
+                                                    AtomicInteger extractions, AtomicInteger mutations) {
+        GeneticExtractor extractor = new GeneticExtractor() {
+            @Override
+            public VulnerabilitySignature extract(ExploitTraceBundle etb) {
+                extractions.incrementAndGet();
+                return new VulnerabilitySignature(3, 40, 42, "param->query", "prepared-statement", "checkout");
+            }
+        };
+        MutationSynthesizer synthesizer = new MutationSynthesizer() {
+            @Override
+            public MutationPatch synthesize(VulnerabilitySignature vs, String sourceCodePath) {
+                mutations.incrementAndGet();
+                return new MutationPatch("checkout", "class Checkout {}", 0.1, 40, 42, 1L);
+            }
+        };
+        PolymorphicResponseEngine engine =
+            new PolymorphicResponseEngine(new AnomalyDetector(), null, extractor, synthesizer, null, null);
+        engine.setSignatureRegistry(registry, instanceId, LEASE);
+        return engine;
+    }
+
+    /**
+     * One-partition topic: every send is appended to the consumers of all registries
+     */
+    private static final class SharedLog {
+        private final TopicPartition partition = new TopicPartition(TOPIC, 0);
+        private final List<MockConsumer<String, byte[]>> consumers = new CopyOnWriteArrayList<>();
+        private final MockProducer<String, byte[]> producer =
+            new MockProducer<>(true, new StringSerializer(), new ByteArraySerializer()) {
+                @Override
+                public synchronized Future<RecordMetadata> send(ProducerRecord<String, byte[]> record,
+                                                                Callback callback) {
+                    Future<RecordMetadata> sent = super.send(record, callback);
+                    try {
+                        RecordMetadata metadata = sent.get();
+                        for (MockConsumer<String, byte[]> consumer : consumers) {
+                            consumer.addRecord(new ConsumerRecord<>(TOPIC, metadata.partition(), metadata.offset(),
+                                System.currentTimeMillis(), TimestampType.CREATE_TIME, 0, 0, record.key(),
+                                record.value(), new RecordHeaders(), Optional.empty()));
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                    return sent;
+                }
+
+                @Override
+                public void close(Duration timeout) {
+                }
+            };
+
+        KafkaSignatureRegistry registry() {
+            MockConsumer<String, byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+            consumer.updatePartitions(TOPIC, List.of(new PartitionInfo(TOPIC, 0, null, null, null)));
+            consumer.updateBeginningOffsets(Map.of(partition, 0L));
+            consumer.updateEndOffsets(Map.of(partition, 0L));
+            consumers.add(consumer);
+            KafkaSignatureRegistry registry = new KafkaSignatureRegistry(
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                new DefaultKafkaConsumerFactory<String, byte[]>(Map.of()) {
+                    @Override
+                    public Consumer<String, byte[]> createConsumer() {
+                        return consumer;
+                    }
+                },
+                TOPIC, Duration.ofSeconds(5), Duration.ofSeconds(5));
+            registry.start();
+            return registry;
+        }
+    }
+}
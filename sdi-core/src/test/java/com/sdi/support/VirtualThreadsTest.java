@@ -0,0 +1,39 @@
+package com.sdi.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@DisplayName("Virtual Threads Tests")
+class VirtualThreadsTest {
+
+    @Test
+    @DisplayName("Should run tasks on virtual threads when supported and on named platform threads otherwise")
+    void testExecutor() throws Exception {
+        ExecutorService virtual = VirtualThreads.newExecutor(true, 2, "sdi-test");
+        ExecutorService platform = VirtualThreads.newExecutor(false, 2, "sdi-test");
+        try {
+            Thread virtualThread = virtual.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            Thread platformThread = platform.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+            assertTrue(virtualThread.getName().startsWith("sdi-test-"));
+            assertEquals(VirtualThreads.isSupported(), isVirtual(virtualThread));
+            assertTrue(platformThread.getName().startsWith("sdi-test-"));
+            assertTrue(platformThread.isDaemon());
+            assertFalse(isVirtual(platformThread));
+        } finally {
+            virtual.shutdownNow();
+            platform.shutdownNow();
+        }
+    }
+
+    private static boolean isVirtual(Thread thread) throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            return false;
+        }
+        return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    }
+}
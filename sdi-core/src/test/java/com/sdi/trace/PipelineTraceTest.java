@@ -0,0 +1,148 @@
+package com.sdi.trace;
+
+import com.sdi.bus.AnomalyEventCodec;
+import com.sdi.detector.AnomalyDetector;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import com.sdi.genetic.GeneticExtractor;
+import com.sdi.genetic.GeneticExtractor.VulnerabilitySignature;
+import com.sdi.honeypot.HoneypotManager.ExploitTraceBundle;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import com.sdi.mutation.MutationSynthesizer;
+import com.sdi.mutation.MutationSynthesizer.MutationPatch;
+import com.sdi.pre.PolymorphicResponseEngine;
+import com.sdi.pre.PolymorphicResponseEngine.Timeline;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@DisplayName("Pipeline Trace Tests")
+class PipelineTraceTest {
+
+    private static final double[] FEATURES = {250, 3, 12, 40_000, 7, 19, 2.5, 0.4, 5.2, 1};
+
+    @Test
+    @DisplayName("Should run stages chained on a traced call in the caller's span")
+    void testContextFollowsFutures() throws Exception {
+        PipelineTrace trace = PipelineTracer.IN_MEMORY.start("pipeline", null, null);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (PipelineTrace.Scope scope = trace.getRoot().makeCurrent()) {
+            PipelineTrace.Span phase = trace.startPhase("propagation");
+            PipelineTrace.Span call = PipelineTrace.currentSpan().startCall("kubernetes create");
+            CompletableFuture<String> pending = new CompletableFuture<>();
+            CompletableFuture<PipelineTrace.Span> chained = call.endWhenDone(pending)
+                .thenApply(result -> PipelineTrace.currentSpan());
+
+            executor.execute(() -> pending.complete("created"));
+            assertSame(phase, chained.get());
+            assertEquals("OK", call.getStatus());
+            assertEquals(phase.getSpanId(), call.getParentSpanId());
+            assertSame(PipelineTrace.Span.NOOP, executor.submit(PipelineTrace::currentSpan).get());
+
+            trace.endPhase(null);
+            assertSame(trace.getRoot(), PipelineTrace.currentSpan());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertSame(PipelineTrace.Span.NOOP, PipelineTrace.currentSpan());
+        assertNull(trace.getRoot().getDurationMillis());
+    }
+
+    @Test
+    @DisplayName("Should continue the detection's trace through the codec, the timeline and OpenTelemetry")
+    void testPipelineTimelineAndExport() {
+        AnomalyToken detected = new AnomalyToken("checkout", Map.of("payload", "' OR 1=1 --"), 1L, 0.99, FEATURES);
+        AnomalyToken token = AnomalyEventCodec.decode(AnomalyEventCodec.encode(detected));
+        assertEquals(detected.getTraceId(), token.getTraceId());
+        assertEquals(detected.getSpanId(), token.getSpanId());
+
+        List<SpanData> exported = new CopyOnWriteArrayList<>();
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(new CollectingExporter(exported)))
+            .build();
+        try (KubernetesOperationDispatcher dispatcher = new KubernetesOperationDispatcher()) {
+            PolymorphicResponseEngine engine = engine(dispatcher);
+            engine.setTracer(new OpenTelemetryPipelineTracer(
+                OpenTelemetrySdk.builder().setTracerProvider(provider).build()));
+            String pipelineId = engine.respondToAnomaly(token).getPipelineId();
+            assertEquals(PolymorphicResponseEngine.pipelineIdFor(detected), pipelineId);
+
+            Timeline timeline = engine.getTimeline(pipelineId);
+            assertEquals(detected.getTraceId(), timeline.getTraceId());
+            assertNotNull(timeline.getDurationMillis());
+            List<String> names = timeline.getSpans().stream().map(PipelineTrace.Span::getName).toList();
+            assertEquals(List.of("sdi pipeline", "isolation", "antigen-extraction", "mutation-synthesis",
+                                 "kubernetes create"), names);
+            assertTrue(timeline.getSpans().stream().allMatch(span -> "OK".equals(span.getStatus())));
+            assertEquals(detected.getSpanId(), timeline.getSpans().get(0).getParentSpanId());
+            assertNull(engine.getTimeline("pipeline-unknown"));
+        } finally {
+            provider.close();
+        }
+
+        Map<String, SpanData> byName = exported.stream()
+            .collect(Collectors.toMap(SpanData::getName, Function.identity()));
+        assertEquals(5, byName.size());
+        assertTrue(exported.stream().allMatch(span -> span.getTraceId().equals(detected.getTraceId())));
+        assertEquals(detected.getSpanId(), byName.get("sdi pipeline").getParentSpanId());
+        assertEquals(byName.get("mutation-synthesis").getSpanId(), byName.get("kubernetes create").getParentSpanId());
+        assertEquals(SpanKind.CLIENT, byName.get("kubernetes create").getKind());
+    }
+
+    private static PolymorphicResponseEngine engine(KubernetesOperationDispatcher dispatcher) {
+        GeneticExtractor extractor = new GeneticExtractor() {
+            @Override
+            public VulnerabilitySignature extract(ExploitTraceBundle etb) {
+                return new VulnerabilitySignature(3, 40, 42, "param->query", "prepared-statement", "checkout");
+            }
+        };
+        MutationSynthesizer synthesizer = new MutationSynthesizer() {
+            @Override
+            public MutationPatch synthesize(VulnerabilitySignature vs, String sourceCodePath) {
+                dispatcher.create("default", "configmap/checkout-patch", () -> "created").join();
+                return new MutationPatch("checkout", "class Checkout {}", 0.1, 40, 42, 1L);
+            }
+        };
+        return new PolymorphicResponseEngine(new AnomalyDetector(), null, extractor, synthesizer, null, null);
+    }
+
+    private static class CollectingExporter implements SpanExporter {
+        private final List<SpanData> spans;
+
+        CollectingExporter(List<SpanData> spans) {
+            this.spans = spans;
+        }
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> batch) {
+            spans.addAll(batch);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
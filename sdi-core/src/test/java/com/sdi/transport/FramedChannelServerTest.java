@@ -0,0 +1,72 @@
+package com.sdi.transport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Framed Channel Server Tests")
+class FramedChannelServerTest {
+
+    private static final int REPLY_BYTES = 16 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private FramedChannelServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop reading from a client that leaves replies unread")
+    void testOutboundBackpressure() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        server = new FramedChannelServer("test", 1024, 64 * 1024, () -> (connection, frame) -> {
+            handled.incrementAndGet();
+            connection.send(ByteBuffer.allocate(REPLY_BYTES));
+        });
+        server.bindUnix(tempDir.resolve("framed.sock")).start();
+
+        int requests = 1000; // 16 MB of replies for 5 KB of requests
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(tempDir.resolve("framed.sock")));
+            ByteBuffer frames = ByteBuffer.allocate(requests * 5);
+            for (int i = 0; i < requests; i++) {
+                frames.putInt(1).put((byte) i);
+            }
+            frames.flip();
+            while (frames.hasRemaining()) {
+                channel.write(frames);
+            }
+
+            Thread.sleep(500);
+            assertTrue(handled.get() < requests / 2, "Reads pause while replies pile up, handled " + handled.get());
+
+            ByteBuffer reply = ByteBuffer.allocate(4 + REPLY_BYTES);
+            for (int i = 0; i < requests; i++) {
+                reply.clear();
+                while (reply.hasRemaining()) {
+                    if (channel.read(reply) < 0) {
+                        throw new IOException("Connection closed");
+                    }
+                }
+                assertEquals(REPLY_BYTES, reply.getInt(0));
+            }
+            assertEquals(requests, handled.get());
+        }
+    }
+}
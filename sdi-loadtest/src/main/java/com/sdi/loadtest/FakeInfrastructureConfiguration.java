@@ -0,0 +1,99 @@
+package com.sdi.loadtest;
+
+import com.sdi.autoconfigure.SdiProperties;
+import com.sdi.bus.ImmuneBusPublisher;
+import com.sdi.deployer.CanaryValidator;
+import com.sdi.deployer.ImmunizationDeployer;
+import com.sdi.deployer.PatchImageBuilder;
+import com.sdi.honeypot.HoneypotManager;
+import com.sdi.kubernetes.KubernetesOperationDispatcher;
+import com.sdi.pre.PolymorphicResponseEngine;
+import io.kubernetes.client.openapi.ApiClient;
+import io.kubernetes.client.openapi.Configuration;
+import io.kubernetes.client.util.ClientBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Replaces the cluster and the broker with in-process fakes
+ *
+ * The SDI beans that talk to Kubernetes or Kafka are defined here against
+ * the fakes, so the auto-configuration backs off and everything else
+ * (detector, admission, REST API, extraction, mutation, canary analysis)
+ * runs as it does in the sidecar.
+ */
+@org.springframework.context.annotation.Configuration(proxyBeanMethods = false)
+public class FakeInfrastructureConfiguration {
+
+    /** Namespace the deployer rolls out in */
+    static final String SERVICE_NAMESPACE = "default";
+
+    @Bean(destroyMethod = "close")
+    public FakeKubernetesApiServer fakeKubernetesApiServer(LoadTestProperties properties) {
+        LoadTestProperties.Kubernetes kubernetes = properties.getKubernetes();
+        FakeKubernetesApiServer server = new FakeKubernetesApiServer(kubernetes.getPodReadyDelay(),
+                                                                     kubernetes.getApiLatency());
+        server.start();
+        for (String service : properties.getTraffic().getServices()) {
+            server.addDeployment(SERVICE_NAMESPACE, service, kubernetes.getReplicas());
+        }
+        return server;
+    }
+
+    /**
+     * Client for the fake API server, also made the default client, which
+     * the deployer's API objects pick up
+     */
+    @Bean
+    public ApiClient kubernetesApiClient(FakeKubernetesApiServer server) {
+        ApiClient client = new ClientBuilder().setBasePath(server.getUrl()).build();
+        Configuration.setDefaultApiClient(client);
+        return client;
+    }
+
+    @Bean(initMethod = "start")
+    public HoneypotManager honeypotManager(SdiProperties properties, ApiClient client,
+                                           KubernetesOperationDispatcher dispatcher) {
+        SdiProperties.Honeypot honeypot = properties.getHoneypot();
+        return new HoneypotManager(client, dispatcher, honeypot.getNamespace(), honeypot.getTtl(),
+                                   honeypot.getReadyTimeout());
+    }
+
+    /**
+     * @param client Unused; makes sure the default client points at the fake first
+     */
+    @Bean
+    public ImmunizationDeployer immunizationDeployer(SdiProperties properties, ApiClient client,
+                                                     KubernetesOperationDispatcher dispatcher,
+                                                     CanaryValidator canaryValidator,
+                                                     ObjectProvider<PatchImageBuilder> imageBuilder) {
+        SdiProperties.Deployment deployment = properties.getDeployment();
+        ImmunizationDeployer deployer = new ImmunizationDeployer(dispatcher, canaryValidator,
+            deployment.getCanaryPercentage(), deployment.getRolloutSteps());
+        imageBuilder.ifAvailable(deployer::setImageBuilder);
+        return deployer;
+    }
+
+    @Bean(destroyMethod = "close")
+    public InProcessImmuneBus inProcessImmuneBus(LoadTestProperties properties) {
+        LoadTestProperties.Kafka kafka = properties.getKafka();
+        return new InProcessImmuneBus(kafka.getDeliveryLatency(), kafka.getWorkerThreads());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ImmuneBusPublisher immuneBusPublisher(SdiProperties properties, InProcessImmuneBus bus) {
+        return new ImmuneBusPublisher(bus.template(), properties.getKafka().getTopic());
+    }
+
+    /**
+     * Run pipelines from the bus, as the Immune Bus consumer does in a fleet
+     */
+    @Bean
+    public SmartInitializingSingleton immuneBusDelivery(PolymorphicResponseEngine engine, InProcessImmuneBus bus) {
+        return () -> {
+            engine.setBusDriven(true);
+            bus.connect(token -> engine.submit(token).join());
+        };
+    }
+}
@@ -0,0 +1,490 @@
+package com.sdi.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.kubernetes.client.openapi.JSON;
+import io.kubernetes.client.openapi.models.V1Container;
+import io.kubernetes.client.openapi.models.V1Deployment;
+import io.kubernetes.client.openapi.models.V1DeploymentSpec;
+import io.kubernetes.client.openapi.models.V1LabelSelector;
+import io.kubernetes.client.openapi.models.V1ListMeta;
+import io.kubernetes.client.openapi.models.V1ObjectMeta;
+import io.kubernetes.client.openapi.models.V1Pod;
+import io.kubernetes.client.openapi.models.V1PodCondition;
+import io.kubernetes.client.openapi.models.V1PodList;
+import io.kubernetes.client.openapi.models.V1PodSpec;
+import io.kubernetes.client.openapi.models.V1PodStatus;
+import io.kubernetes.client.openapi.models.V1PodTemplateSpec;
+import io.kubernetes.client.openapi.models.V1Status;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process stand-in for the Kubernetes API server
+ *
+ * Serves the subset of the API the SDI core uses, over HTTP, so the real
+ * client, the operation dispatcher and the honeypot pod informer run
+ * unchanged:
+ * - pods: create, delete, list and watch; a created pod turns Ready after
+ *   a configurable delay, as a scheduled and started pod would
+ * - deployments: read, create, replace and delete
+ *
+ * Every call takes a configurable latency, and resource versions, watch
+ * resumption and 404/409 answers behave like the real server closely
+ * enough for the informer and the rollout to work.
+ */
+public class FakeKubernetesApiServer implements AutoCloseable {
+
+    private static final Pattern PODS = Pattern.compile("/api/v1/namespaces/([^/]+)/pods(?:/([^/]+))?");
+    private static final Pattern DEPLOYMENTS = Pattern.compile("/apis/apps/v1/namespaces/([^/]+)/deployments(?:/([^/]+))?");
+    private static final int MAX_EVENTS = 10_000; // Kept for watches resuming from an older version
+
+    private final Duration podReadyDelay;
+    private final Duration apiLatency;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition eventsChanged = lock.newCondition();
+    private final Map<String, V1Pod> pods = new LinkedHashMap<>();
+    private final Map<String, V1Deployment> deployments = new HashMap<>();
+    private final Deque<WatchEvent> events = new ArrayDeque<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger podsCreated = new AtomicInteger();
+    private final AtomicInteger deploymentWrites = new AtomicInteger();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService handlers;
+    private long resourceVersion = 1;
+    private long trimmedThrough; // Newest event version no longer kept
+    private HttpServer server;
+    private volatile boolean closed;
+
+    /**
+     * @param podReadyDelay Time from pod creation to the pod reporting Ready
+     * @param apiLatency Added to every API call, like a remote API server
+     */
+    public FakeKubernetesApiServer(Duration podReadyDelay, Duration apiLatency) {
+        this.podReadyDelay = podReadyDelay;
+        this.apiLatency = apiLatency;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fake-kubernetes-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        this.handlers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-kubernetes-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start serving on an ephemeral loopback port
+     */
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 128);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start fake Kubernetes API server: " + e.getMessage(), e);
+        }
+        server.setExecutor(handlers);
+        server.createContext("/", this::handle);
+        server.start();
+        System.out.println("Fake Kubernetes API server listening on " + getUrl());
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Add the deployment of a service, as the rollout expects to find it
+     *
+     * The container is named after the service, which is what promotion looks for.
+     */
+    public void addDeployment(String namespace, String serviceId, int replicas) {
+        V1Container container = new V1Container().name(serviceId).image(serviceId + ":1.0.0");
+        V1Deployment deployment = new V1Deployment()
+            .apiVersion("apps/v1")
+            .kind("Deployment")
+            .metadata(new V1ObjectMeta().name(serviceId).labels(Map.of("app", serviceId)))
+            .spec(new V1DeploymentSpec()
+                .replicas(replicas)
+                .selector(new V1LabelSelector().matchLabels(Map.of("app", serviceId)))
+                .template(new V1PodTemplateSpec()
+                    .metadata(new V1ObjectMeta().labels(Map.of("app", serviceId)))
+                    .spec(new V1PodSpec().containers(List.of(container)))));
+        lock.lock();
+        try {
+            stamp(deployment.getMetadata(), namespace);
+            deployments.put(namespace + "/" + serviceId, deployment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** API calls served so far */
+    public int getRequests() { return requests.get(); }
+    /** Honeypot (and other) pods created so far */
+    public int getPodsCreated() { return podsCreated.get(); }
+    /** Deployment creates, replaces and deletes so far */
+    public int getDeploymentWrites() { return deploymentWrites.get(); }
+
+    public int getLivePods() {
+        lock.lock();
+        try {
+            return pods.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        lock.lock();
+        try {
+            eventsChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+        scheduler.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (!apiLatency.isZero()) {
+                Thread.sleep(apiLatency.toMillis());
+            }
+            String path = exchange.getRequestURI().getPath();
+            Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+            Matcher pod = PODS.matcher(path);
+            Matcher deployment = DEPLOYMENTS.matcher(path);
+            if (pod.matches()) {
+                handlePods(exchange, pod.group(1), pod.group(2), query);
+            } else if (deployment.matches()) {
+                handleDeployments(exchange, deployment.group(1), deployment.group(2));
+            } else {
+                respond(exchange, 404, status(404, "NotFound", "No fake for " + path));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, status(503, "ServiceUnavailable", "Shutting down"));
+        } catch (RuntimeException e) {
+            respond(exchange, 500, status(500, "InternalError", e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handlePods(HttpExchange exchange, String namespace, String name, Map<String, String> query)
+            throws IOException {
+        String method = exchange.getRequestMethod();
+        if (name == null && "GET".equals(method)) {
+            if (Boolean.parseBoolean(query.get("watch"))) {
+                watchPods(exchange, namespace, query);
+            } else {
+                listPods(exchange, namespace, query.get("labelSelector"));
+            }
+        } else if (name == null && "POST".equals(method)) {
+            V1Pod pod = JSON.deserialize(body(exchange), V1Pod.class);
+            String podName = pod.getMetadata().getName();
+            String created;
+            lock.lock();
+            try {
+                if (pods.containsKey(namespace + "/" + podName)) {
+                    respond(exchange, 409, status(409, "AlreadyExists", "pods \"" + podName + "\" already exists"));
+                    return;
+                }
+                stamp(pod.getMetadata(), namespace);
+                pod.status(new V1PodStatus().phase("Pending"));
+                pods.put(namespace + "/" + podName, pod);
+                created = publish("ADDED", pod);
+            } finally {
+                lock.unlock();
+            }
+            podsCreated.incrementAndGet();
+            scheduler.schedule(() -> markReady(namespace, podName), podReadyDelay.toMillis(), TimeUnit.MILLISECONDS);
+            respond(exchange, 201, created);
+        } else if (name != null && "DELETE".equals(method)) {
+            String removed = null;
+            lock.lock();
+            try {
+                V1Pod pod = pods.remove(namespace + "/" + name);
+                if (pod != null) {
+                    pod.getMetadata().setResourceVersion(Long.toString(++resourceVersion));
+                    removed = publish("DELETED", pod);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (removed == null) {
+                respond(exchange, 404, status(404, "NotFound", "pods \"" + name + "\" not found"));
+            } else {
+                respond(exchange, 200, removed);
+            }
+        } else {
+            respond(exchange, 405, status(405, "MethodNotAllowed", method + " pods"));
+        }
+    }
+
+    private void handleDeployments(HttpExchange exchange, String namespace, String name) throws IOException {
+        String method = exchange.getRequestMethod();
+        lock.lock();
+        try {
+            if (name != null && "GET".equals(method)) {
+                V1Deployment deployment = deployments.get(namespace + "/" + name);
+                if (deployment == null) {
+                    respond(exchange, 404, status(404, "NotFound", "deployments.apps \"" + name + "\" not found"));
+                } else {
+                    respond(exchange, 200, JSON.serialize(deployment));
+                }
+            } else if (name == null && "POST".equals(method)) {
+                V1Deployment deployment = JSON.deserialize(body(exchange), V1Deployment.class);
+                String key = namespace + "/" + deployment.getMetadata().getName();
+                if (deployments.containsKey(key)) {
+                    respond(exchange, 409, status(409, "AlreadyExists", "deployment " + key + " already exists"));
+                    return;
+                }
+                stamp(deployment.getMetadata(), namespace);
+                deployments.put(key, deployment);
+                deploymentWrites.incrementAndGet();
+                respond(exchange, 201, JSON.serialize(deployment));
+            } else if (name != null && "PUT".equals(method)) {
+                V1Deployment deployment = JSON.deserialize(body(exchange), V1Deployment.class);
+                V1Deployment current = deployments.get(namespace + "/" + name);
+                if (current == null) {
+                    respond(exchange, 404, status(404, "NotFound", "deployments.apps \"" + name + "\" not found"));
+                    return;
+                }
+                String expected = deployment.getMetadata().getResourceVersion();
+                if (expected != null && !expected.equals(current.getMetadata().getResourceVersion())) {
+                    respond(exchange, 409, status(409, "Conflict", "the object has been modified"));
+                    return;
+                }
+                deployment.getMetadata().setResourceVersion(Long.toString(++resourceVersion));
+                deployments.put(namespace + "/" + name, deployment);
+                deploymentWrites.incrementAndGet();
+                respond(exchange, 200, JSON.serialize(deployment));
+            } else if (name != null && "DELETE".equals(method)) {
+                if (deployments.remove(namespace + "/" + name) == null) {
+                    respond(exchange, 404, status(404, "NotFound", "deployments.apps \"" + name + "\" not found"));
+                } else {
+                    deploymentWrites.incrementAndGet();
+                    respond(exchange, 200, JSON.serialize(new V1Status().apiVersion("v1").kind("Status").status("Success")));
+                }
+            } else {
+                respond(exchange, 405, status(405, "MethodNotAllowed", method + " deployments"));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void listPods(HttpExchange exchange, String namespace, String labelSelector) throws IOException {
+        V1PodList list = new V1PodList().apiVersion("v1").kind("PodList").items(new ArrayList<>());
+        String json;
+        lock.lock();
+        try {
+            for (V1Pod pod : pods.values()) {
+                if (namespace.equals(pod.getMetadata().getNamespace()) && matches(pod, labelSelector)) {
+                    list.getItems().add(pod);
+                }
+            }
+            list.metadata(new V1ListMeta().resourceVersion(Long.toString(resourceVersion)));
+            json = JSON.serialize(list);
+        } finally {
+            lock.unlock();
+        }
+        respond(exchange, 200, json);
+    }
+
+    /**
+     * Stream pod events newer than the requested version until the watch times out
+     */
+    private void watchPods(HttpExchange exchange, String namespace, Map<String, String> query) throws IOException {
+        String requestedVersion = query.getOrDefault("resourceVersion", "");
+        long since = requestedVersion.isEmpty() ? resourceVersionNow() : Long.parseLong(requestedVersion);
+        long timeoutSeconds = Long.parseLong(query.getOrDefault("timeoutSeconds", "300"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        String labelSelector = query.get("labelSelector");
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try {
+            while (!closed && System.nanoTime() < deadline) {
+                List<WatchEvent> pending = new ArrayList<>();
+                lock.lock();
+                try {
+                    if (since < trimmedThrough) {
+                        // Too old to resume from; the informer relists
+                        out.write(("{\"type\":\"ERROR\",\"object\":"
+                            + status(410, "Expired", "too old resource version: " + since) + "}\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                        out.flush();
+                        return;
+                    }
+                    for (WatchEvent event : events) {
+                        if (event.version > since) {
+                            pending.add(event);
+                        }
+                    }
+                    if (pending.isEmpty()) {
+                        eventsChanged.await(Math.min(1_000_000_000L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        continue;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                for (WatchEvent event : pending) {
+                    since = event.version;
+                    V1Pod pod = event.pod;
+                    if (namespace.equals(pod.getMetadata().getNamespace()) && matches(pod, labelSelector)) {
+                        out.write(event.json.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Watcher went away
+        }
+    }
+
+    private void markReady(String namespace, String podName) {
+        lock.lock();
+        try {
+            V1Pod pod = pods.get(namespace + "/" + podName);
+            if (pod == null) {
+                return; // Deleted before it started
+            }
+            pod.getMetadata().setResourceVersion(Long.toString(++resourceVersion));
+            pod.status(new V1PodStatus()
+                .phase("Running")
+                .conditions(List.of(new V1PodCondition().type("Ready").status("True"))));
+            publish("MODIFIED", pod);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record a watch event; caller holds the lock and has bumped the resource version
+     *
+     * @return The pod as serialized for the event
+     */
+    private String publish(String type, V1Pod pod) {
+        long version = Long.parseLong(pod.getMetadata().getResourceVersion());
+        String object = JSON.serialize(pod);
+        events.addLast(new WatchEvent(version, pod,
+            "{\"type\":\"" + type + "\",\"object\":" + object + "}\n"));
+        while (events.size() > MAX_EVENTS) {
+            trimmedThrough = events.removeFirst().version;
+        }
+        eventsChanged.signalAll();
+        return object;
+    }
+
+    private long resourceVersionNow() {
+        lock.lock();
+        try {
+            return resourceVersion;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Set server-owned metadata; caller holds the lock
+     */
+    private void stamp(V1ObjectMeta metadata, String namespace) {
+        metadata.setNamespace(namespace);
+        metadata.setUid(UUID.randomUUID().toString());
+        metadata.setCreationTimestamp(OffsetDateTime.now());
+        metadata.setResourceVersion(Long.toString(++resourceVersion));
+    }
+
+    private static boolean matches(V1Pod pod, String labelSelector) {
+        if (labelSelector == null || labelSelector.isEmpty()) {
+            return true;
+        }
+        Map<String, String> labels = pod.getMetadata().getLabels();
+        for (String requirement : labelSelector.split(",")) {
+            String[] pair = requirement.split("=", 2);
+            if (labels == null || pair.length != 2 || !pair[1].equals(labels.get(pair[0]))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String status(int code, String reason, String message) {
+        return JSON.serialize(new V1Status().apiVersion("v1").kind("Status").status("Failure")
+            .code(code).reason(reason).message(message));
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            String[] pair = parameter.split("=", 2);
+            query.put(URLDecoder.decode(pair[0], StandardCharsets.UTF_8),
+                      pair.length > 1 ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8) : "");
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange exchange, int code, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static final class WatchEvent {
+        final long version;
+        final V1Pod pod;
+        final String json;
+
+        WatchEvent(long version, V1Pod pod, String json) {
+            this.version = version;
+            this.pod = pod;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.sdi.loadtest;
+
+import com.sdi.bus.AnomalyEventCodec;
+import com.sdi.detector.AnomalyDetector.AnomalyToken;
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * In-process stand-in for the Immune Bus topic
+ *
+ * The publisher sends through a real {@link KafkaTemplate} backed by a
+ * {@link MockProducer}; every record is decoded with the event codec and,
+ * after the configured broker latency, handed to a bounded worker pool as
+ * the Immune Bus consumer would, so pipelines run bus-driven exactly as in
+ * a fleet, minus the broker.
+ */
+public class InProcessImmuneBus implements AutoCloseable {
+
+    private final Duration deliveryLatency;
+    private final ScheduledExecutorService delivery;
+    private final ThreadPoolExecutor workers;
+    private final AtomicInteger published = new AtomicInteger();
+    private final AtomicInteger delivered = new AtomicInteger();
+    private volatile Consumer<AnomalyToken> handler;
+
+    /**
+     * @param deliveryLatency Time from publish to delivery, like a broker round trip
+     * @param workerThreads Threads running delivered events, like the consumer's worker pool
+     */
+    public InProcessImmuneBus(Duration deliveryLatency, int workerThreads) {
+        this.deliveryLatency = deliveryLatency;
+        this.delivery = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "immune-bus-delivery");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "immune-bus-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Template for the Immune Bus publisher
+     */
+    public KafkaTemplate<String, byte[]> template() {
+        BusProducer producer = new BusProducer();
+        return new KafkaTemplate<>(new MockProducerFactory<>(() -> producer));
+    }
+
+    /**
+     * Run delivered anomalies with this handler (the response engine)
+     */
+    public void connect(Consumer<AnomalyToken> handler) {
+        this.handler = handler;
+    }
+
+    /** Events published so far */
+    public int getPublished() { return published.get(); }
+    /** Events handed to the handler so far */
+    public int getDelivered() { return delivered.get(); }
+    /** Delivered events waiting for a worker */
+    public int getBacklog() { return workers.getQueue().size(); }
+
+    @Override
+    public void close() {
+        delivery.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void deliver(byte[] event) {
+        AnomalyToken token = AnomalyEventCodec.decode(event);
+        Consumer<AnomalyToken> target = handler;
+        if (target == null || token.isSuspect()) {
+            return;
+        }
+        workers.execute(() -> {
+            delivered.incrementAndGet();
+            try {
+                target.accept(token);
+            } catch (RuntimeException e) {
+                System.err.println("SDI pipeline failed for " + token.getServiceId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Acknowledges every record at once and forwards it; never closes, since
+     * the template closes its producer after each send
+     */
+    private final class BusProducer extends MockProducer<String, byte[]> {
+
+        BusProducer() {
+            super(true, new StringSerializer(), new ByteArraySerializer());
+        }
+
+        @Override
+        public synchronized Future<RecordMetadata> send(ProducerRecord<String, byte[]> record, Callback callback) {
+            Future<RecordMetadata> sent = super.send(record, callback);
+            clear(); // The mock keeps every record otherwise
+            published.incrementAndGet();
+            byte[] event = record.value();
+            delivery.schedule(() -> deliver(event), deliveryLatency.toMillis(), TimeUnit.MILLISECONDS);
+            return sent;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.sdi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Open-loop load against the analysis endpoint, with attack bursts
+ *
+ * Requests are sent on a fixed schedule whether or not earlier ones have
+ * returned, and latency is taken from the scheduled send time, so a slow
+ * sidecar cannot hide its queueing delay by slowing the generator down
+ * (coordinated omission). Every pipeline an attack triggers is followed on
+ * the timeline endpoint until it finishes, to measure the time from the
+ * attack request to the end of the pipeline and of the rollout.
+ */
+public class LoadGenerator {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final long PROGRESS_INTERVAL_SECONDS = 5;
+    private static final String ROOT_SPAN = "sdi pipeline";
+    private static final String ROLLOUT_SPAN = "immunization rollout";
+
+    private final LoadTestProperties properties;
+    private final TrafficModel traffic;
+    private final URI analyzeUri;
+    private final String timelineUrl;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExecutorService httpExecutor;
+    private final HttpClient client;
+
+    private final Recorder progressLatency = new Recorder(3);
+    private final Recorder normalLatency = new Recorder(3);
+    private final Recorder attackLatency = new Recorder(3);
+    private final Histogram completionTotal = new Histogram(3);
+    private final Histogram immunizeTotal = new Histogram(3);
+    private final ReentrantLock histogramLock = new ReentrantLock();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong normalRequests = new AtomicLong();
+    private final AtomicLong normalScored = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong falsePositivePipelines = new AtomicLong();
+    private final AtomicLong attacks = new AtomicLong();
+    private final AtomicLong attacksScored = new AtomicLong();
+    private final AtomicLong attacksDetected = new AtomicLong();
+    private final AtomicLong pipelinesTriggered = new AtomicLong();
+    private final AtomicLong pipelinesCompleted = new AtomicLong();
+    private final AtomicLong pipelinesFailed = new AtomicLong();
+    private final AtomicLong immunized = new AtomicLong();
+    private final AtomicLong rolloutsFailed = new AtomicLong();
+    private final AtomicLong withinSlo = new AtomicLong();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Map<String, TrackedPipeline> pipelines = new ConcurrentHashMap<>();
+
+    /**
+     * @param baseUrl Sidecar root, e.g. http://localhost:8080
+     */
+    public LoadGenerator(LoadTestProperties properties, TrafficModel traffic, String baseUrl) {
+        this.properties = properties;
+        this.traffic = traffic;
+        this.analyzeUri = URI.create(baseUrl + "/api/sdi/analyze");
+        this.timelineUrl = baseUrl + "/api/sdi/pipelines/";
+        AtomicInteger threadCount = new AtomicInteger();
+        this.httpExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+                Thread thread = new Thread(runnable, "loadtest-http-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(httpExecutor)
+            .build();
+    }
+
+    /**
+     * Run warmup and measurement, then wait for the triggered pipelines
+     */
+    public LoadTestReport run() {
+        long warmupNanos = properties.getWarmup().toNanos();
+        long durationNanos = properties.getDuration().toNanos();
+        long normalInterval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, properties.getRate());
+        LoadTestProperties.Attack attack = properties.getAttack();
+        long burstInterval = attack.getInterval().toNanos();
+        long attackSpacing = attack.getBurstSize() > 1
+            ? attack.getBurstSpread().toNanos() / (attack.getBurstSize() - 1) : 0;
+
+        long startEpochMillis = System.currentTimeMillis();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + durationNanos;
+
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        progress.scheduleAtFixedRate(() -> printProgress(start, measureFrom), PROGRESS_INTERVAL_SECONDS,
+                                     PROGRESS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-pipelines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long pollMillis = Math.max(10, properties.getPipelinePollInterval().toMillis());
+        poller.scheduleWithFixedDelay(this::pollPipelines, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+
+        System.out.printf("Load test: %d normal requests/s, %d attacks every %ds, %ds warmup + %ds measured%n",
+                          properties.getRate(), attack.getBurstSize(), attack.getInterval().toSeconds(),
+                          properties.getWarmup().toSeconds(), properties.getDuration().toSeconds());
+
+        // Attack bursts only in the measured window, so every triggered pipeline is counted
+        long nextNormal = start;
+        long nextBurst = attack.getBurstSize() > 0 ? measureFrom + burstInterval / 2 : Long.MAX_VALUE;
+        int burstRemaining = attack.getBurstSize();
+        long nextAttack = nextBurst;
+        try {
+            while (true) {
+                boolean isAttack = nextAttack < nextNormal;
+                long scheduled = isAttack ? nextAttack : nextNormal;
+                if (scheduled >= end) {
+                    break;
+                }
+                byte[] body = isAttack ? traffic.attack() : traffic.normal();
+                parkUntil(scheduled);
+                long sendEpochMillis = startEpochMillis + TimeUnit.NANOSECONDS.toMillis(scheduled - start);
+                send(body, isAttack, scheduled, scheduled >= measureFrom, sendEpochMillis);
+                if (isAttack) {
+                    if (--burstRemaining > 0) {
+                        nextAttack += attackSpacing;
+                    } else {
+                        nextBurst += burstInterval;
+                        nextAttack = nextBurst;
+                        burstRemaining = attack.getBurstSize();
+                    }
+                } else {
+                    nextNormal += normalInterval;
+                }
+            }
+            long measuredNanos = System.nanoTime() - measureFrom;
+
+            awaitResponses();
+            progress.shutdownNow();
+            long timedOut = awaitPipelines();
+
+            return buildReport(startEpochMillis, measuredNanos, timedOut);
+        } finally {
+            progress.shutdownNow();
+            poller.shutdownNow();
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void send(byte[] body, boolean isAttack, long scheduled, boolean measured, long sendEpochMillis) {
+        HttpRequest request = HttpRequest.newBuilder(analyzeUri)
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        if (measured) {
+            sent.incrementAndGet();
+        }
+        outstanding.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .whenComplete((response, error) -> {
+                try {
+                    onResponse(response, error, isAttack, scheduled, measured, sendEpochMillis);
+                } finally {
+                    outstanding.decrementAndGet();
+                }
+            });
+    }
+
+    private void onResponse(HttpResponse<byte[]> response, Throwable error, boolean isAttack, long scheduled,
+                            boolean measured, long sendEpochMillis) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled);
+        boolean failed = error != null || response.statusCode() >= 300;
+        if (!failed) {
+            progressLatency.recordValue(latencyMicros);
+        }
+        if (!measured) {
+            return;
+        }
+        if (failed) {
+            errors.incrementAndGet();
+            return;
+        }
+        (isAttack ? attackLatency : normalLatency).recordValue(latencyMicros);
+        completed.incrementAndGet();
+
+        JsonNode result;
+        try {
+            result = mapper.readTree(response.body());
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            return;
+        }
+        boolean scored = result.path("scored").asBoolean(true);
+        boolean detected = result.path("anomalyDetected").asBoolean();
+        String pipelineId = result.path("pipelineTriggered").asBoolean() ? result.path("pipelineId").asText(null) : null;
+        if (isAttack) {
+            attacks.incrementAndGet();
+            if (scored) {
+                attacksScored.incrementAndGet();
+            }
+            if (detected) {
+                attacksDetected.incrementAndGet();
+            }
+            if (pipelineId != null && pipelines.putIfAbsent(pipelineId,
+                                                            new TrackedPipeline(pipelineId, sendEpochMillis)) == null) {
+                pipelinesTriggered.incrementAndGet();
+            }
+        } else {
+            normalRequests.incrementAndGet();
+            if (scored) {
+                normalScored.incrementAndGet();
+            }
+            if (detected) {
+                falsePositives.incrementAndGet();
+            }
+            if (pipelineId != null) {
+                falsePositivePipelines.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Ask the sidecar for the timeline of every unfinished pipeline
+     */
+    private void pollPipelines() {
+        for (TrackedPipeline pipeline : pipelines.values()) {
+            if (pipeline.finished || !pipeline.polling.compareAndSet(false, true)) {
+                continue;
+            }
+            HttpRequest request = HttpRequest.newBuilder(URI.create(timelineUrl + pipeline.id + "/timeline"))
+                .timeout(REQUEST_TIMEOUT)
+                .GET()
+                .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    try {
+                        // 404 until the bus delivered the anomaly and the pipeline started
+                        if (error == null && response.statusCode() == 200) {
+                            onTimeline(pipeline, mapper.readTree(response.body()));
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Unreadable timeline for " + pipeline.id + ": " + e.getMessage());
+                    } finally {
+                        pipeline.polling.set(false);
+                    }
+                });
+        }
+    }
+
+    private void onTimeline(TrackedPipeline pipeline, JsonNode timeline) {
+        JsonNode duration = timeline.get("durationMillis");
+        if (duration == null || duration.isNull()) {
+            return;
+        }
+        JsonNode root = null;
+        JsonNode rollout = null;
+        for (JsonNode span : timeline.path("spans")) {
+            if (root == null && ROOT_SPAN.equals(span.path("name").asText())) {
+                root = span;
+            }
+            if (ROLLOUT_SPAN.equals(span.path("name").asText())) {
+                rollout = span;
+            }
+        }
+        // The rollout outlives the pipeline span; wait for it too
+        if (rollout != null && rollout.path("durationMillis").isNull()) {
+            return;
+        }
+        pipeline.finished = true;
+
+        long startedAt = timeline.path("startedAt").asLong();
+        long completion = startedAt + Math.round(duration.asDouble()) - pipeline.sentAt;
+        if (root != null && "ERROR".equals(root.path("status").asText())) {
+            pipelinesFailed.incrementAndGet();
+            return;
+        }
+        pipelinesCompleted.incrementAndGet();
+        record(completionTotal, completion);
+        if (timeline.path("sloMet").asBoolean()) {
+            withinSlo.incrementAndGet();
+        }
+        if (rollout == null) {
+            return;
+        }
+        if ("OK".equals(rollout.path("status").asText())
+            && rollout.path("attributes").path("sdi.rollout.succeeded").asBoolean()) {
+            immunized.incrementAndGet();
+            long rolloutEnd = Math.round(rollout.path("startOffsetMillis").asDouble()
+                                         + rollout.path("durationMillis").asDouble());
+            record(immunizeTotal, startedAt + rolloutEnd - pipeline.sentAt);
+        } else {
+            rolloutsFailed.incrementAndGet();
+        }
+    }
+
+    private void record(Histogram histogram, long millis) {
+        histogramLock.lock();
+        try {
+            histogram.recordValue(Math.max(0, millis) * 1000L);
+        } finally {
+            histogramLock.unlock();
+        }
+    }
+
+    private void awaitResponses() {
+        long deadline = System.nanoTime() + REQUEST_TIMEOUT.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+
+    /**
+     * @return Pipelines still unfinished at the timeout
+     */
+    private long awaitPipelines() {
+        long deadline = System.nanoTime() + properties.getPipelineTimeout().toNanos();
+        long remaining = unfinishedPipelines();
+        if (remaining > 0) {
+            System.out.println("Waiting up to " + properties.getPipelineTimeout().toSeconds() + "s for "
+                               + remaining + " pipeline(s)...");
+        }
+        while (remaining > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(properties.getPipelinePollInterval().toNanos());
+            remaining = unfinishedPipelines();
+        }
+        return remaining;
+    }
+
+    private long unfinishedPipelines() {
+        return pipelines.values().stream().filter(pipeline -> !pipeline.finished).count();
+    }
+
+    private void printProgress(long start, long measureFrom) {
+        long now = System.nanoTime();
+        boolean warmingUp = now < measureFrom;
+        Histogram interval = progressLatency.getIntervalHistogram();
+        System.out.printf("[%4ds]%s %6.1f req/s  p50 %8.2f ms  p99 %8.2f ms  FP %d/%d  pipelines %d/%d done%n",
+                          TimeUnit.NANOSECONDS.toSeconds(now - start), warmingUp ? " warmup" : "",
+                          interval.getTotalCount() / (double) PROGRESS_INTERVAL_SECONDS,
+                          interval.getValueAtPercentile(50.0) / 1000.0, interval.getValueAtPercentile(99.0) / 1000.0,
+                          falsePositives.get(), normalRequests.get(),
+                          pipelinesCompleted.get() + pipelinesFailed.get(), pipelinesTriggered.get());
+    }
+
+    private LoadTestReport buildReport(long startEpochMillis, long measuredNanos, long timedOut) {
+        double seconds = measuredNanos / 1e9;
+        LoadTestProperties.Attack attack = properties.getAttack();
+        double attackRate = attack.getBurstSize() / (double) Math.max(1, attack.getInterval().toSeconds());
+        histogramLock.lock();
+        try {
+            return new LoadTestReport(
+                startEpochMillis,
+                seconds,
+                new LoadTestReport.Throughput(properties.getRate() + attackRate, completed.get() / seconds,
+                                              sent.get(), completed.get(), errors.get()),
+                LoadTestReport.Percentiles.of(normalLatency.getIntervalHistogram()),
+                LoadTestReport.Percentiles.of(attackLatency.getIntervalHistogram()),
+                new LoadTestReport.Detection(normalRequests.get(), normalScored.get(), falsePositives.get(),
+                                             falsePositivePipelines.get(), attacks.get(), attacksScored.get(),
+                                             attacksDetected.get()),
+                new LoadTestReport.Pipelines(pipelinesTriggered.get(), pipelinesCompleted.get(),
+                                             pipelinesFailed.get(), timedOut, immunized.get(), rolloutsFailed.get(),
+                                             withinSlo.get(),
+                                             LoadTestReport.Percentiles.of(completionTotal),
+                                             LoadTestReport.Percentiles.of(immunizeTotal))
+            );
+        } finally {
+            histogramLock.unlock();
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    private static final class TrackedPipeline {
+        final String id;
+        /** Epoch milliseconds the triggering attack was scheduled at */
+        final long sentAt;
+        final AtomicBoolean polling = new AtomicBoolean();
+        volatile boolean finished;
+
+        TrackedPipeline(String id, long sentAt) {
+            this.id = id;
+            this.sentAt = sentAt;
+        }
+    }
+}
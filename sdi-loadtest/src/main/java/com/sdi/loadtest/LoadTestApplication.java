@@ -0,0 +1,27 @@
+package com.sdi.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.ComponentScan;
+
+/**
+ * SDI Load Test
+ *
+ * Runs the sidecar in-process against a fake Kubernetes API server and an
+ * in-process Immune Bus, drives it with synthetic traffic and attack
+ * bursts, and reports request latency, detection accuracy and the time
+ * from attack to immunization.
+ */
+@SpringBootApplication
+@ComponentScan(basePackages = "com.sdi")
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestApplication {
+
+    public static void main(String[] args) {
+        System.out.println("=================================");
+        System.out.println("  SDI Load Test Starting...");
+        System.out.println("=================================");
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+    }
+}
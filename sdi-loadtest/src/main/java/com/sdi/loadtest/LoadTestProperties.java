@@ -0,0 +1,419 @@
+package com.sdi.loadtest;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration of a load-test run
+ * 
+ * loadtest:
+ *   duration: 60s
+ *   warmup: 10s
+ *   rate: 200
+ *   training-samples: 5000
+ *   traffic:
+ *     services: checkout, catalog, payments
+ *     get-share: 0.0
+ *     path-length-mean: 24
+ *     body-size-mean: 400
+ *   attack:
+ *     interval: 10s
+ *     burst-size: 5
+ *     types: sqli, xss, path-traversal, deserialization
+ *   kubernetes:
+ *     pod-ready-delay: 500ms
+ *     api-latency: 5ms
+ *   kafka:
+ *     delivery-latency: 5ms
+ *     worker-threads: 4
+ */
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+    
+    /**
+     * Time under load that is measured
+     */
+    private Duration duration = Duration.ofSeconds(60);
+    
+    /**
+     * Load applied before measuring, to warm up the JIT and connection pools
+     */
+    private Duration warmup = Duration.ofSeconds(10);
+    
+    /**
+     * Normal requests per second, sent open-loop on a fixed schedule
+     */
+    private int rate = 200;
+    
+    /**
+     * Normal requests the detector is trained on before the run
+     */
+    private int trainingSamples = 5000;
+    
+    /**
+     * Seed of the traffic generator, so runs replay the same traffic
+     */
+    private long seed = 42L;
+    
+    /**
+     * How long to wait for triggered pipelines after the load stops
+     */
+    private Duration pipelineTimeout = Duration.ofSeconds(60);
+    
+    /**
+     * Interval at which running pipelines are polled for completion
+     */
+    private Duration pipelinePollInterval = Duration.ofMillis(100);
+    
+    /**
+     * JSON report written at the end of the run
+     */
+    private String report = "target/loadtest-report.json";
+    
+    private Traffic traffic = new Traffic();
+    private Attack attack = new Attack();
+    private Kubernetes kubernetes = new Kubernetes();
+    private Kafka kafka = new Kafka();
+    
+    public Duration getDuration() {
+        return duration;
+    }
+    
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+    
+    public Duration getWarmup() {
+        return warmup;
+    }
+    
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+    
+    public int getRate() {
+        return rate;
+    }
+    
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+    
+    public int getTrainingSamples() {
+        return trainingSamples;
+    }
+    
+    public void setTrainingSamples(int trainingSamples) {
+        this.trainingSamples = trainingSamples;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    public Duration getPipelineTimeout() {
+        return pipelineTimeout;
+    }
+    
+    public void setPipelineTimeout(Duration pipelineTimeout) {
+        this.pipelineTimeout = pipelineTimeout;
+    }
+    
+    public Duration getPipelinePollInterval() {
+        return pipelinePollInterval;
+    }
+    
+    public void setPipelinePollInterval(Duration pipelinePollInterval) {
+        this.pipelinePollInterval = pipelinePollInterval;
+    }
+    
+    public String getReport() {
+        return report;
+    }
+    
+    public void setReport(String report) {
+        this.report = report;
+    }
+    
+    public Traffic getTraffic() {
+        return traffic;
+    }
+    
+    public void setTraffic(Traffic traffic) {
+        this.traffic = traffic;
+    }
+    
+    public Attack getAttack() {
+        return attack;
+    }
+    
+    public void setAttack(Attack attack) {
+        this.attack = attack;
+    }
+    
+    public Kubernetes getKubernetes() {
+        return kubernetes;
+    }
+    
+    public void setKubernetes(Kubernetes kubernetes) {
+        this.kubernetes = kubernetes;
+    }
+    
+    public Kafka getKafka() {
+        return kafka;
+    }
+    
+    public void setKafka(Kafka kafka) {
+        this.kafka = kafka;
+    }
+    
+    /**
+     * Synthetic normal traffic, sampled from normal distributions
+     */
+    public static class Traffic {
+        /**
+         * Services the traffic is spread over; each gets a fake deployment
+         */
+        private List<String> services = new ArrayList<>(List.of("checkout", "catalog", "payments"));
+        
+        /**
+         * Share of GET requests; the rest are POST with a body. The default
+         * sends POSTs only: the method feature is a raw String hash, so a
+         * GET/POST mix leaves the trained covariance too ill-conditioned to use
+         */
+        private double getShare = 0.0;
+        
+        /**
+         * Mean request path length in characters
+         */
+        private double pathLengthMean = 24;
+        
+        /**
+         * Standard deviation of the request path length
+         */
+        private double pathLengthStddev = 6;
+        
+        /**
+         * Mean header count
+         */
+        private double headerCountMean = 10;
+        
+        /**
+         * Standard deviation of the header count
+         */
+        private double headerCountStddev = 2;
+        
+        /**
+         * Mean POST body size in bytes (GET requests have none)
+         */
+        private double bodySizeMean = 400;
+        
+        /**
+         * Standard deviation of the POST body size
+         */
+        private double bodySizeStddev = 150;
+        
+        public List<String> getServices() {
+            return services;
+        }
+        
+        public void setServices(List<String> services) {
+            this.services = services;
+        }
+        
+        public double getGetShare() {
+            return getShare;
+        }
+        
+        public void setGetShare(double getShare) {
+            this.getShare = getShare;
+        }
+        
+        public double getPathLengthMean() {
+            return pathLengthMean;
+        }
+        
+        public void setPathLengthMean(double pathLengthMean) {
+            this.pathLengthMean = pathLengthMean;
+        }
+        
+        public double getPathLengthStddev() {
+            return pathLengthStddev;
+        }
+        
+        public void setPathLengthStddev(double pathLengthStddev) {
+            this.pathLengthStddev = pathLengthStddev;
+        }
+        
+        public double getHeaderCountMean() {
+            return headerCountMean;
+        }
+        
+        public void setHeaderCountMean(double headerCountMean) {
+            this.headerCountMean = headerCountMean;
+        }
+        
+        public double getHeaderCountStddev() {
+            return headerCountStddev;
+        }
+        
+        public void setHeaderCountStddev(double headerCountStddev) {
+            this.headerCountStddev = headerCountStddev;
+        }
+        
+        public double getBodySizeMean() {
+            return bodySizeMean;
+        }
+        
+        public void setBodySizeMean(double bodySizeMean) {
+            this.bodySizeMean = bodySizeMean;
+        }
+        
+        public double getBodySizeStddev() {
+            return bodySizeStddev;
+        }
+        
+        public void setBodySizeStddev(double bodySizeStddev) {
+            this.bodySizeStddev = bodySizeStddev;
+        }
+    }
+    
+    /**
+     * Attack bursts injected into the normal traffic
+     */
+    public static class Attack {
+        /**
+         * Interval between attack bursts
+         */
+        private Duration interval = Duration.ofSeconds(10);
+        
+        /**
+         * Attack requests per burst
+         */
+        private int burstSize = 5;
+        
+        /**
+         * Time the requests of one burst are spread over
+         */
+        private Duration burstSpread = Duration.ofMillis(500);
+        
+        /**
+         * Exploit types injected in turn: sqli, xss, path-traversal, deserialization
+         */
+        private List<String> types = new ArrayList<>(List.of("sqli", "xss", "path-traversal", "deserialization"));
+        
+        public Duration getInterval() {
+            return interval;
+        }
+        
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+        
+        public int getBurstSize() {
+            return burstSize;
+        }
+        
+        public void setBurstSize(int burstSize) {
+            this.burstSize = burstSize;
+        }
+        
+        public Duration getBurstSpread() {
+            return burstSpread;
+        }
+        
+        public void setBurstSpread(Duration burstSpread) {
+            this.burstSpread = burstSpread;
+        }
+        
+        public List<String> getTypes() {
+            return types;
+        }
+        
+        public void setTypes(List<String> types) {
+            this.types = types;
+        }
+    }
+    
+    /**
+     * In-process fake of the Kubernetes API server
+     */
+    public static class Kubernetes {
+        /**
+         * Time from pod creation to the honeypot pod reporting Ready
+         */
+        private Duration podReadyDelay = Duration.ofMillis(500);
+        
+        /**
+         * Latency added to every Kubernetes API call
+         */
+        private Duration apiLatency = Duration.ofMillis(5);
+        
+        /**
+         * Replicas of every fake service deployment
+         */
+        private int replicas = 4;
+        
+        public Duration getPodReadyDelay() {
+            return podReadyDelay;
+        }
+        
+        public void setPodReadyDelay(Duration podReadyDelay) {
+            this.podReadyDelay = podReadyDelay;
+        }
+        
+        public Duration getApiLatency() {
+            return apiLatency;
+        }
+        
+        public void setApiLatency(Duration apiLatency) {
+            this.apiLatency = apiLatency;
+        }
+        
+        public int getReplicas() {
+            return replicas;
+        }
+        
+        public void setReplicas(int replicas) {
+            this.replicas = replicas;
+        }
+    }
+    
+    /**
+     * In-process fake of the Immune Bus topic
+     */
+    public static class Kafka {
+        /**
+         * Time from publishing an anomaly event to its delivery
+         */
+        private Duration deliveryLatency = Duration.ofMillis(5);
+        
+        /**
+         * Threads running delivered events, like the Immune Bus consumer's workers
+         */
+        private int workerThreads = 4;
+        
+        public Duration getDeliveryLatency() {
+            return deliveryLatency;
+        }
+        
+        public void setDeliveryLatency(Duration deliveryLatency) {
+            this.deliveryLatency = deliveryLatency;
+        }
+        
+        public int getWorkerThreads() {
+            return workerThreads;
+        }
+        
+        public void setWorkerThreads(int workerThreads) {
+            this.workerThreads = workerThreads;
+        }
+    }
+}
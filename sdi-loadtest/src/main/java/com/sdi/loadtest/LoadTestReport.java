@@ -0,0 +1,276 @@
+package com.sdi.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Results of one load-test run
+ *
+ * Latencies are in milliseconds. Request latency is measured from the time
+ * a request was scheduled, not sent, so a stalled sidecar shows up in the
+ * percentiles instead of silently lowering the offered load.
+ */
+@JsonPropertyOrder({"startedAt", "measuredSeconds", "throughput", "normalLatency", "attackLatency", "detection",
+                    "pipelines", "infrastructure"})
+public class LoadTestReport {
+
+    private final long startedAt;
+    private final double measuredSeconds;
+    private final Throughput throughput;
+    private final Percentiles normalLatency;
+    private final Percentiles attackLatency;
+    private final Detection detection;
+    private final Pipelines pipelines;
+    private Infrastructure infrastructure;
+
+    public LoadTestReport(long startedAt, double measuredSeconds, Throughput throughput, Percentiles normalLatency,
+                          Percentiles attackLatency, Detection detection, Pipelines pipelines) {
+        this.startedAt = startedAt;
+        this.measuredSeconds = measuredSeconds;
+        this.throughput = throughput;
+        this.normalLatency = normalLatency;
+        this.attackLatency = attackLatency;
+        this.detection = detection;
+        this.pipelines = pipelines;
+    }
+
+    /** Epoch milliseconds */
+    public long getStartedAt() { return startedAt; }
+    public double getMeasuredSeconds() { return measuredSeconds; }
+    public Throughput getThroughput() { return throughput; }
+    /** Analysis latency of normal requests */
+    public Percentiles getNormalLatency() { return normalLatency; }
+    /** Analysis latency of attack requests */
+    public Percentiles getAttackLatency() { return attackLatency; }
+    public Detection getDetection() { return detection; }
+    public Pipelines getPipelines() { return pipelines; }
+    public Infrastructure getInfrastructure() { return infrastructure; }
+    public void setInfrastructure(Infrastructure infrastructure) { this.infrastructure = infrastructure; }
+
+    /**
+     * Print a human-readable summary
+     */
+    public void print() {
+        System.out.println();
+        System.out.println("========================================");
+        System.out.println("   SDI Load Test Report");
+        System.out.println("========================================");
+        System.out.printf("Measured:            %.1f s%n", measuredSeconds);
+        System.out.printf("Offered / achieved:  %.1f / %.1f requests/s (%d sent, %d errors)%n",
+                          throughput.getOfferedRate(), throughput.getAchievedRate(), throughput.getSent(),
+                          throughput.getErrors());
+        System.out.println("Analysis latency (ms)      p50      p90      p99    p99.9      max");
+        System.out.println("  normal           " + normalLatency.row());
+        System.out.println("  attack           " + attackLatency.row());
+        System.out.printf("False positives:     %d of %d scored (%.3f%%), %d triggered a pipeline%n",
+                          detection.getFalsePositives(), detection.getNormalScored(),
+                          detection.getFalsePositiveRate() * 100.0, detection.getFalsePositivePipelines());
+        System.out.printf("Attacks detected:    %d of %d scored (%.1f%%)%n",
+                          detection.getAttacksDetected(), detection.getAttacksScored(),
+                          detection.getDetectionRate() * 100.0);
+        System.out.printf("Not scored:          %d normal, %d attack (admission control)%n",
+                          detection.getNormalRequests() - detection.getNormalScored(),
+                          detection.getAttacks() - detection.getAttacksScored());
+        System.out.printf("Pipelines:           %d triggered, %d completed, %d failed, %d timed out%n",
+                          pipelines.getTriggered(), pipelines.getCompleted(), pipelines.getFailed(),
+                          pipelines.getTimedOut());
+        System.out.printf("Immunized:           %d (%d rollouts failed, %d within the time-to-immunize SLO)%n",
+                          pipelines.getImmunized(), pipelines.getRolloutsFailed(), pipelines.getWithinSlo());
+        System.out.println("Attack to (ms)             p50      p90      p99    p99.9      max");
+        System.out.println("  pipeline done    " + pipelines.getCompletion().row());
+        System.out.println("  immunized        " + pipelines.getTimeToImmunize().row());
+        if (infrastructure != null) {
+            System.out.printf("Fakes:               %d Kubernetes calls, %d honeypot pods, %d deployment writes, "
+                              + "%d bus events%n", infrastructure.getKubernetesRequests(),
+                              infrastructure.getHoneypotPods(), infrastructure.getDeploymentWrites(),
+                              infrastructure.getBusEvents());
+        }
+        System.out.println("========================================");
+    }
+
+    @JsonPropertyOrder({"offeredRate", "achievedRate", "sent", "completed", "errors"})
+    public static class Throughput {
+        private final double offeredRate;
+        private final double achievedRate;
+        private final long sent;
+        private final long completed;
+        private final long errors;
+
+        public Throughput(double offeredRate, double achievedRate, long sent, long completed, long errors) {
+            this.offeredRate = offeredRate;
+            this.achievedRate = achievedRate;
+            this.sent = sent;
+            this.completed = completed;
+            this.errors = errors;
+        }
+
+        /** Requests per second scheduled (normal and attack) */
+        public double getOfferedRate() { return offeredRate; }
+        /** Successful responses per second */
+        public double getAchievedRate() { return achievedRate; }
+        public long getSent() { return sent; }
+        public long getCompleted() { return completed; }
+        /** Failed requests and non-2xx responses */
+        public long getErrors() { return errors; }
+    }
+
+    @JsonPropertyOrder({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+    public static class Percentiles {
+        private final long count;
+        private final double mean;
+        private final double p50;
+        private final double p90;
+        private final double p99;
+        private final double p999;
+        private final double max;
+
+        public Percentiles(long count, double mean, double p50, double p90, double p99, double p999, double max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        /**
+         * @param histogram Values in microseconds
+         */
+        public static Percentiles of(Histogram histogram) {
+            if (histogram.getTotalCount() == 0) {
+                return new Percentiles(0, 0, 0, 0, 0, 0, 0);
+            }
+            return new Percentiles(
+                histogram.getTotalCount(),
+                histogram.getMean() / 1000.0,
+                histogram.getValueAtPercentile(50.0) / 1000.0,
+                histogram.getValueAtPercentile(90.0) / 1000.0,
+                histogram.getValueAtPercentile(99.0) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0
+            );
+        }
+
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getP50() { return p50; }
+        public double getP90() { return p90; }
+        public double getP99() { return p99; }
+        public double getP999() { return p999; }
+        public double getMax() { return max; }
+
+        String row() {
+            return count == 0 ? "       -" : String.format("%8.2f %8.2f %8.2f %8.2f %8.2f", p50, p90, p99, p999, max);
+        }
+    }
+
+    /**
+     * Rates are over the requests the detector scored; under overload
+     * admission control lets some through unscored
+     */
+    @JsonPropertyOrder({"normalRequests", "normalScored", "falsePositives", "falsePositiveRate",
+                        "falsePositivePipelines", "attacks", "attacksScored", "attacksDetected", "detectionRate"})
+    public static class Detection {
+        private final long normalRequests;
+        private final long normalScored;
+        private final long falsePositives;
+        private final long falsePositivePipelines;
+        private final long attacks;
+        private final long attacksScored;
+        private final long attacksDetected;
+
+        public Detection(long normalRequests, long normalScored, long falsePositives, long falsePositivePipelines,
+                         long attacks, long attacksScored, long attacksDetected) {
+            this.normalRequests = normalRequests;
+            this.normalScored = normalScored;
+            this.falsePositives = falsePositives;
+            this.falsePositivePipelines = falsePositivePipelines;
+            this.attacks = attacks;
+            this.attacksScored = attacksScored;
+            this.attacksDetected = attacksDetected;
+        }
+
+        public long getNormalRequests() { return normalRequests; }
+        public long getNormalScored() { return normalScored; }
+        /** Normal requests reported as anomalous */
+        public long getFalsePositives() { return falsePositives; }
+        public double getFalsePositiveRate() {
+            return normalScored > 0 ? falsePositives / (double) normalScored : 0.0;
+        }
+        /** False positives severe enough to start a response pipeline */
+        public long getFalsePositivePipelines() { return falsePositivePipelines; }
+        public long getAttacks() { return attacks; }
+        public long getAttacksScored() { return attacksScored; }
+        public long getAttacksDetected() { return attacksDetected; }
+        public double getDetectionRate() {
+            return attacksScored > 0 ? attacksDetected / (double) attacksScored : 0.0;
+        }
+    }
+
+    @JsonPropertyOrder({"triggered", "completed", "failed", "timedOut", "immunized", "rolloutsFailed", "withinSlo",
+                        "completion", "timeToImmunize"})
+    public static class Pipelines {
+        private final long triggered;
+        private final long completed;
+        private final long failed;
+        private final long timedOut;
+        private final long immunized;
+        private final long rolloutsFailed;
+        private final long withinSlo;
+        private final Percentiles completion;
+        private final Percentiles timeToImmunize;
+
+        public Pipelines(long triggered, long completed, long failed, long timedOut, long immunized,
+                         long rolloutsFailed, long withinSlo, Percentiles completion, Percentiles timeToImmunize) {
+            this.triggered = triggered;
+            this.completed = completed;
+            this.failed = failed;
+            this.timedOut = timedOut;
+            this.immunized = immunized;
+            this.rolloutsFailed = rolloutsFailed;
+            this.withinSlo = withinSlo;
+            this.completion = completion;
+            this.timeToImmunize = timeToImmunize;
+        }
+
+        /** Pipelines started by attack requests */
+        public long getTriggered() { return triggered; }
+        public long getCompleted() { return completed; }
+        /** Pipelines that ended with an error */
+        public long getFailed() { return failed; }
+        /** Still running when the run gave up waiting */
+        public long getTimedOut() { return timedOut; }
+        /** Completed with a successful rollout */
+        public long getImmunized() { return immunized; }
+        public long getRolloutsFailed() { return rolloutsFailed; }
+        /** Immunized within the sidecar's time-to-immunize target (sdi.slo) */
+        public long getWithinSlo() { return withinSlo; }
+        /** From the attack request to the end of the pipeline */
+        public Percentiles getCompletion() { return completion; }
+        /** From the attack request to the end of a successful rollout */
+        public Percentiles getTimeToImmunize() { return timeToImmunize; }
+    }
+
+    @JsonPropertyOrder({"kubernetesRequests", "honeypotPods", "deploymentWrites", "busEvents"})
+    public static class Infrastructure {
+        private final long kubernetesRequests;
+        private final long honeypotPods;
+        private final long deploymentWrites;
+        private final long busEvents;
+
+        public Infrastructure(long kubernetesRequests, long honeypotPods, long deploymentWrites, long busEvents) {
+            this.kubernetesRequests = kubernetesRequests;
+            this.honeypotPods = honeypotPods;
+            this.deploymentWrites = deploymentWrites;
+            this.busEvents = busEvents;
+        }
+
+        /** Calls served by the fake Kubernetes API server */
+        public long getKubernetesRequests() { return kubernetesRequests; }
+        public long getHoneypotPods() { return honeypotPods; }
+        public long getDeploymentWrites() { return deploymentWrites; }
+        /** Anomaly events published on the fake Immune Bus */
+        public long getBusEvents() { return busEvents; }
+    }
+}
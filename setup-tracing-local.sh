@@ -0,0 +1,128 @@
+#!/bin/bash
+# Setup a local OTLP trace backend (Jaeger all-in-one) for SDI pipeline spans
+
+set -e
+
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+BLUE='\033[0;34m'
+NC='\033[0m'
+
+log_info() { echo -e "${BLUE}[INFO]${NC} $1"; }
+log_success() { echo -e "${GREEN}[✓]${NC} $1"; }
+log_warn() { echo -e "${YELLOW}[⚠]${NC} $1"; }
+log_error() { echo -e "${RED}[✗]${NC} $1"; }
+
+echo "========================================"
+echo "   Tracing Setup for Local Kubernetes"
+echo "========================================"
+echo ""
+
+# Check if cluster exists
+if ! kubectl cluster-info &> /dev/null; then
+    log_error "No Kubernetes cluster found. Please run setup-local-k8s.sh first"
+    exit 1
+fi
+
+log_success "Kubernetes cluster found"
+
+# Create namespace if it doesn't exist
+kubectl create namespace tracing --dry-run=client -o yaml | kubectl apply -f -
+
+# Jaeger accepts OTLP directly, so no separate collector is needed
+log_info "Deploying Jaeger (in-memory storage, OTLP on 4317/4318)..."
+cat <<'EOF' | kubectl apply -f -
+apiVersion: apps/v1
+kind: Deployment
+metadata:
+  name: jaeger
+  namespace: tracing
+spec:
+  replicas: 1
+  selector:
+    matchLabels:
+      app: jaeger
+  template:
+    metadata:
+      labels:
+        app: jaeger
+    spec:
+      containers:
+      - name: jaeger
+        image: jaegertracing/all-in-one:1.51
+        ports:
+        - containerPort: 4317
+          name: otlp-grpc
+        - containerPort: 4318
+          name: otlp-http
+        - containerPort: 16686
+          name: ui
+        env:
+        - name: COLLECTOR_OTLP_ENABLED
+          value: "true"
+        - name: MEMORY_MAX_TRACES
+          value: "10000"
+        resources:
+          requests:
+            memory: "128Mi"
+            cpu: "100m"
+          limits:
+            memory: "512Mi"
+            cpu: "500m"
+---
+apiVersion: v1
+kind: Service
+metadata:
+  name: jaeger
+  namespace: tracing
+spec:
+  type: ClusterIP
+  ports:
+  - port: 4317
+    targetPort: 4317
+    name: otlp-grpc
+  - port: 4318
+    targetPort: 4318
+    name: otlp-http
+  - port: 16686
+    targetPort: 16686
+    name: ui
+  selector:
+    app: jaeger
+EOF
+
+log_info "Waiting for Jaeger to be ready..."
+kubectl wait --for=condition=available --timeout=120s deployment/jaeger -n tracing || {
+    log_warn "Jaeger not ready yet, checking status..."
+    kubectl get pods -n tracing
+    kubectl logs -n tracing -l app=jaeger --tail=20
+}
+
+log_success "Jaeger deployed!"
+
+OTLP_ENDPOINT="http://jaeger.tracing.svc.cluster.local:4318"
+
+# Show status
+echo ""
+echo "========================================"
+log_info "Tracing Status"
+echo "========================================"
+kubectl get pods -n tracing
+kubectl get svc -n tracing
+
+echo ""
+log_success "Tracing is ready!"
+echo ""
+echo "OTLP endpoint (HTTP): $OTLP_ENDPOINT"
+echo ""
+echo "To export SDI pipeline spans, set on the sidecar:"
+echo "  OTEL_EXPORTER_OTLP_ENDPOINT=$OTLP_ENDPOINT"
+echo ""
+echo "A pipeline's trace id is returned as traceId by POST /api/sdi/analyze and is"
+echo "the suffix of its pipelineId; the same spans are at /api/sdi/pipelines/{id}/timeline."
+echo ""
+echo "Useful commands:"
+echo "  Open Jaeger UI:     kubectl port-forward -n tracing svc/jaeger 16686:16686  (http://localhost:16686)"
+echo "  Sidecar outside k8s: kubectl port-forward -n tracing svc/jaeger 4318:4318"
+echo "  Delete Jaeger:      kubectl delete namespace tracing"